@@ -46,6 +46,8 @@ public class Skill_Track extends StdSkill
 	protected List<Room>		theTrail		= null;
 	public int					nextDirection	= -2;
 
+	protected final static int	TRAIL_PREFETCH	= 2;
+
 	private final static String	localizedName	= CMLib.lang().L("Tracking");
 
 	@Override
@@ -179,6 +181,7 @@ public class Skill_Track extends StdSkill
 				if((mob.isMonster())&&(mob.location()!=null))
 				{
 					final Room oldRoom=mob.location();
+					prefetchTrail(oldRoom);
 					final Room nextRoom=oldRoom.getRoomInDir(nextDirection);
 					final Exit nextExit=oldRoom.getExitInDir(nextDirection);
 					final int opDirection=Directions.getOpDirectionCode(nextDirection);
@@ -270,6 +273,21 @@ public class Skill_Track extends StdSkill
 		return true;
 	}
 
+	protected void prefetchTrail(final Room fromR)
+	{
+		final List<Room> trail=theTrail;
+		if(trail==null)
+			return;
+		// the trail runs from the destination back to where tracking began
+		final int x=trail.indexOf(fromR);
+		for(int i=x-1;(i>=0)&&(i>=x-TRAIL_PREFETCH);i--)
+		{
+			final Room R=trail.get(i);
+			if((R!=null)&&(R.getArea()!=null))
+				R.getArea().prefetchRoom(R.roomID());
+		}
+	}
+
 	@Override
 	public void executeMsg(final Environmental myHost, final CMMsg msg)
 	{
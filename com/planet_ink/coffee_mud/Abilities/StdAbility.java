@@ -1183,7 +1183,7 @@ public class StdAbility implements Ability
 					R.recoverRoomStats();
 				else
 				{
-					M.recoverPhyStats();
+					M.recoverPhyStats(this);
 					M.recoverCharStats();
 					M.recoverMaxState();
 				}
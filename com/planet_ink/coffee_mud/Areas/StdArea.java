@@ -2019,6 +2019,11 @@ public class StdArea implements Area
 		}
 	}
 
+	@Override
+	public void prefetchRoom(String roomID)
+	{
+	}
+
 	@Override
 	public Room getRoom(String roomID)
 	{
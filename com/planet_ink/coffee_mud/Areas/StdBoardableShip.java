@@ -1547,6 +1547,11 @@ public class StdBoardableShip implements Area, BoardableShip, PrivateProperty
 		return myRooms.contains(R);
 	}
 
+	@Override
+	public void prefetchRoom(String roomID)
+	{
+	}
+
 	@Override
 	public Room getRoom(String roomID)
 	{
@@ -18,6 +18,7 @@ import com.planet_ink.coffee_mud.MOBS.interfaces.*;
 import com.planet_ink.coffee_mud.Races.interfaces.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /*
    Copyright 2006-2017 Bo Zimmerman
@@ -36,6 +37,63 @@ import java.util.*;
 */
 public class StdThinArea extends StdArea
 {
+	protected static final long	LOAD_WAIT_MILLIS	= 10000;
+
+	// threads in the middle of loading a room never wait on another load, so waits can not form a cycle
+	protected static final Set<Thread>			loaderThreads	= Collections.newSetFromMap(new ConcurrentHashMap<Thread,Boolean>());
+	protected final Map<String,RoomLoad>		loadingRooms	= new ConcurrentHashMap<String,RoomLoad>();
+
+	/**
+	 * A room being read from the database.  The room is registered with the
+	 * area before its exits and content are read, so other threads that find
+	 * it wait here for the load to finish, without holding any lock while
+	 * the room is read.
+	 */
+	protected static class RoomLoad
+	{
+		private boolean	done	= false;
+		private Room	room	= null;
+
+		protected synchronized void finish(final Room R)
+		{
+			room=R;
+			done=true;
+			notifyAll();
+		}
+
+		/**
+		 * Waits for the load to finish, unless the calling thread is itself
+		 * loading a room, in which case the partly loaded room is returned,
+		 * as it would be without waiting.
+		 * @param partR the room as it is now, or null
+		 * @return the loaded room, or the given one if not waited for
+		 */
+		protected Room await(final Room partR)
+		{
+			if(loaderThreads.contains(Thread.currentThread()))
+				return partR;
+			synchronized(this)
+			{
+				final long until=System.currentTimeMillis()+LOAD_WAIT_MILLIS;
+				long left=LOAD_WAIT_MILLIS;
+				while((!done)&&(left>0))
+				{
+					try
+					{
+						wait(left);
+					}
+					catch(final InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+						break;
+					}
+					left=until-System.currentTimeMillis();
+				}
+				return done?room:partR;
+			}
+		}
+	}
+
 	@Override
 	public String ID()
 	{
@@ -98,24 +156,113 @@ public class StdThinArea extends StdArea
 		if(!isRoom(roomID))
 			return null;
 		Room R=super.getRoom(roomID);
+		if(R!=null)
+		{
+			final RoomLoad load=loadingRooms.get(R.roomID());
+			if(load!=null)
+				R=load.await(R);
+		}
 		if(((R==null)||(R.amDestroyed()))&&(roomID!=null))
 		{
 			if(roomID.toUpperCase().startsWith(Name().toUpperCase()+"#"))
 				roomID=Name()+roomID.substring(Name().length()); // for case sensitive situations
-			R=CMLib.database().DBReadRoomObject(roomID,false);
+			final boolean[] loaded=new boolean[1];
+			R=loadRoomOnce(roomID,loaded);
 			if(R!=null)
 			{
-				R.setArea(this);
-				addProperRoom(R);
-				CMLib.database().DBReadRoomExits(roomID,R,false);
-				CMLib.database().DBReadContent(roomID,R,true);
-				fillInAreaRoom(R);
-				R.setExpirationDate(System.currentTimeMillis()+WorldMap.ROOM_EXPIRATION_MILLIS);
+				CMLib.map().thinRoomAccessed(R.roomID(),loaded[0]);
+				if(loaded[0])
+					prefetchRoomsNear(R);
+			}
+		}
+		else
+		if(R!=null)
+			CMLib.map().thinRoomAccessed(R.roomID(),false);
+		return R;
+	}
+
+	/**
+	 * Returns the given room, reading it from the database unless it is
+	 * already loaded.  If another thread is already reading it, this waits
+	 * for that load instead of starting another.
+	 * @param roomID the id of the room to load
+	 * @param loaded set to true if this call read the room
+	 * @return the room, or null if it could not be loaded
+	 */
+	protected Room loadRoomOnce(final String roomID, final boolean[] loaded)
+	{
+		final RoomLoad load=new RoomLoad();
+		final RoomLoad otherLoad=loadingRooms.putIfAbsent(roomID,load);
+		if(otherLoad!=null)
+			return otherLoad.await(getProperRoom(roomID));
+		final boolean outermost=loaderThreads.add(Thread.currentThread());
+		Room R=null;
+		try
+		{
+			R=getProperRoom(roomID);
+			if(R==null)
+			{
+				R=loadRoom(roomID);
+				loaded[0]=(R!=null);
 			}
 		}
+		finally
+		{
+			if(outermost)
+				loaderThreads.remove(Thread.currentThread());
+			loadingRooms.remove(roomID,load);
+			load.finish(R);
+		}
+		return R;
+	}
+
+	protected Room loadRoom(String roomID)
+	{
+		final Room R=CMLib.database().DBReadRoomAndContent(roomID,this);
+		if(R!=null)
+		{
+			fillInAreaRoom(R);
+			R.setExpirationDate(System.currentTimeMillis()+WorldMap.ROOM_EXPIRATION_MILLIS);
+		}
 		return R;
 	}
 
+	@Override
+	public void prefetchRoom(final String roomID)
+	{
+		if((!isRoom(roomID))||(getProperRoom(roomID)!=null))
+			return;
+		if(!CMLib.map().startRoomPrefetch(roomID))
+			return;
+		CMLib.threads().executeRunnable(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				final boolean[] loaded=new boolean[1];
+				try
+				{
+					loadRoomOnce(roomID,loaded);
+				}
+				finally
+				{
+					CMLib.map().finishRoomPrefetch(roomID,loaded[0]);
+				}
+			}
+		});
+	}
+
+	protected void prefetchRoomsNear(Room R)
+	{
+		for(final Room nextR : R.rawDoors())
+		{
+			if((nextR!=null)
+			&&(nextR.roomID().length()>0)
+			&&(nextR.getArea()!=null))
+				nextR.getArea().prefetchRoom(nextR.roomID());
+		}
+	}
+
 	@Override
 	public Enumeration<Room> getProperMap()
 	{
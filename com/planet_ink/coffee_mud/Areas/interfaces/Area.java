@@ -245,6 +245,15 @@ public interface Area extends Economics, PhysicalAgent, Places
 	 */
 	public Room getRoom(String roomID);
 
+	/**
+	 * Asks this area to start loading the room of the given roomID in the
+	 * background, because it is likely to be asked for soon.  Areas that
+	 * always have all of their rooms loaded do nothing.
+	 * @see Area#getRoom(String)
+	 * @param roomID the roomID of the room that will probably be needed
+	 */
+	public void prefetchRoom(String roomID);
+
 	/**
 	 * Returns whether the given Room object belongs to this Area, even if the
 	 * Room object properly has not been loaded yet (due to the area being thin).
@@ -1444,6 +1444,12 @@ public class ListCmd extends StdCommand
 		final long totalTicks=CMath.s_long(CMLib.threads().systemReport("totalTicks"));
 		buf.append(L("There are ^H@x1^? ticking objects in ^H@x2^? groups.\n\r",totalTickers,tickGroupSize));
 		buf.append(L("The ticking objects have consumed: ^H@x1^?.\n\r",CMLib.english().returnTime(totalMillis,totalTicks)));
+		buf.append(L("The scheduler lag is ^H@x1^?/^H@x2^?/^H@x3^?ms (50/90/99%), max ^H@x4^?ms.\n\r",
+				CMLib.threads().systemReport("schedulerLagP50"),CMLib.threads().systemReport("schedulerLagP90"),
+				CMLib.threads().systemReport("schedulerLagP99"),CMLib.threads().systemReport("schedulerLagMax")));
+		buf.append(L("The dispatch latency is ^H@x1^?/^H@x2^?/^H@x3^?ms (50/90/99%), max ^H@x4^?ms.\n\r",
+				CMLib.threads().systemReport("dispatchLatencyP50"),CMLib.threads().systemReport("dispatchLatencyP90"),
+				CMLib.threads().systemReport("dispatchLatencyP99"),CMLib.threads().systemReport("dispatchLatencyMax")));
 		/*
 		String topGroupNumber=CMLib.threads().systemReport("topGroupNumber");
 		long topGroupMillis=CMath.s_long(CMLib.threads().systemReport("topGroupMillis"));
@@ -1479,6 +1485,60 @@ public class ListCmd extends StdCommand
 		final long totalMOBTicks=CMath.s_long(CMLib.threads().systemReport("totalMOBTicks"));
 		buf.append(L("There are ^H@x1^? ticking players logged on.\n\r",""+CMLib.sessions().getCountLocalOnline()));
 		buf.append(L("The ticking players have consumed: ^H@x1^?.\n\r",""+CMLib.english().returnTime(totalMOBMillis,totalMOBTicks)));
+		buf.append(L("Output sent: ^H@x1^? bytes, queued: ^H@x2^? bytes, dropped: ^H@x3^? bytes.\n\r",
+				CMLib.threads().systemReport("totalOutputSent"),
+				CMLib.threads().systemReport("totalOutputQueued"),
+				CMLib.threads().systemReport("totalOutputDropped")));
+		final String topOutputClient=CMLib.threads().systemReport("topOutputClient");
+		if(topOutputClient.length()>0)
+			buf.append(L("The deepest output queue is '^H@x1^?', with ^H@x2^? bytes.\n\r",topOutputClient,CMLib.threads().systemReport("topOutputQueued")));
+		buf.append(L("Saved player and room rows: ^H@x1^? written, ^H@x2^? deleted, ^H@x3^? unchanged and skipped, in ^H@x4^? full saves.\n\r",
+				""+CMLib.database().getRowSaveCount(DatabaseEngine.RowSaveStat.WRITTEN),
+				""+CMLib.database().getRowSaveCount(DatabaseEngine.RowSaveStat.DELETED),
+				""+CMLib.database().getRowSaveCount(DatabaseEngine.RowSaveStat.SKIPPED),
+				""+CMLib.database().getRowSaveCount(DatabaseEngine.RowSaveStat.FULLSAVES)));
+		buf.append(L("Compiled masks: ^H@x1^? found, ^H@x2^? compiled, ^H@x3^? evicted.  Player mask results: ^H@x4^? remembered, ^H@x5^? checked.\n\r",
+				""+CMLib.masking().getMaskCacheCount(MaskingLibrary.MaskCacheStat.COMPILED_HITS),
+				""+CMLib.masking().getMaskCacheCount(MaskingLibrary.MaskCacheStat.COMPILED_MISSES),
+				""+CMLib.masking().getMaskCacheCount(MaskingLibrary.MaskCacheStat.COMPILED_EVICTIONS),
+				""+CMLib.masking().getMaskCacheCount(MaskingLibrary.MaskCacheStat.RESULT_HITS),
+				""+CMLib.masking().getMaskCacheCount(MaskingLibrary.MaskCacheStat.RESULT_MISSES)));
+		buf.append(L("Thin rooms: ^H@x1^? loaded on demand, ^H@x2^? prefetched, ^H@x3^? prefetch hits, ^H@x4^? prefetches skipped.\n\r",
+				""+CMLib.map().getThinRoomCount(WorldMap.ThinRoomStat.LOADED),
+				""+CMLib.map().getThinRoomCount(WorldMap.ThinRoomStat.PREFETCHED),
+				""+CMLib.map().getThinRoomCount(WorldMap.ThinRoomStat.PREFETCH_HITS),
+				""+CMLib.map().getThinRoomCount(WorldMap.ThinRoomStat.PREFETCH_SKIPPED)));
+		for(final ProtocolLibrary.GMCPCommand pkg : ProtocolLibrary.GMCPCommand.values())
+		{
+			final long sent=CMLib.protocol().getGmcpPingCount(pkg, ProtocolLibrary.PingStat.SENT);
+			final long unchanged=CMLib.protocol().getGmcpPingCount(pkg, ProtocolLibrary.PingStat.UNCHANGED);
+			final long skipped=CMLib.protocol().getGmcpPingCount(pkg, ProtocolLibrary.PingStat.SKIPPED);
+			if(sent+unchanged+skipped>0)
+			{
+				buf.append(L("GMCP @x1 pings: ^H@x2^? sent, ^H@x3^? built but unchanged, ^H@x4^? skipped without building.\n\r",
+						pkg.name().replace('_','.'),""+sent,""+unchanged,""+skipped));
+			}
+		}
+		buf.append(L("MSDP variable pings: ^H@x1^? sent, ^H@x2^? unchanged.\n\r",
+				""+CMLib.protocol().getMsdpPingCount(ProtocolLibrary.PingStat.SENT),
+				""+CMLib.protocol().getMsdpPingCount(ProtocolLibrary.PingStat.UNCHANGED)));
+		final Log log=Log.instance();
+		if(log.getQueueCapacity()>0)
+		{
+			final long batches=log.getQueueStat(Log.QueueStat.BATCHES);
+			buf.append(L("Log queue: ^H@x1^?/@x2 queued (peak @x3), ^H@x4^? written in @x5 batches, ^H@x6^? dropped, @x7 waits, @x8ms avg/@x9ms max per batch.\n\r",
+					""+log.getQueueStat(Log.QueueStat.DEPTH),
+					""+log.getQueueCapacity(),
+					""+log.getQueueStat(Log.QueueStat.PEAK_DEPTH),
+					""+log.getQueueStat(Log.QueueStat.WRITTEN),
+					""+batches,
+					""+log.getQueueStat(Log.QueueStat.DROPPED),
+					""+log.getQueueStat(Log.QueueStat.BLOCKED),
+					""+((batches==0)?0:(log.getQueueStat(Log.QueueStat.WRITE_NANOS)/batches/1000000)),
+					""+(log.getQueueStat(Log.QueueStat.MAX_WRITE_NANOS)/1000000)));
+		}
+		else
+			buf.append(L("Log queue: off, all messages written immediately.\n\r"));
 		/*
 		long topMOBMillis=CMath.s_long(CMLib.threads().systemReport("topMOBMillis"));
 		long topMOBTicks=CMath.s_long(CMLib.threads().systemReport("topMOBTicks"));
@@ -2508,9 +2568,35 @@ public class ListCmd extends StdCommand
 		return str.toString();
 	}
 
+	public String listResourceCache()
+	{
+		final long budget=Resources.getCacheBudget();
+		final long hits=Resources.getCacheStat(Resources.CacheStat.HITS);
+		final long misses=Resources.getCacheStat(Resources.CacheStat.MISSES);
+		final long pct=((hits+misses)>0)?Math.round(CMath.div(hits*100,hits+misses)):0;
+		return L("Resource cache: ^H@x1^? entries, @x2K of @x3 used. ^H@x4^? hits (@x5 hot), @x6 misses (@x7%), @x8 promoted, @x9 demoted, @x10 evicted.\n\r",
+				""+Resources.getCacheSize(),
+				""+(Resources.getCacheWeight()/1024),
+				(budget>0)?((budget/1024)+"K"):L("unlimited"),
+				""+hits,
+				""+Resources.getCacheStat(Resources.CacheStat.HOT_HITS),
+				""+misses,
+				""+pct,
+				""+Resources.getCacheStat(Resources.CacheStat.PROMOTIONS),
+				""+Resources.getCacheStat(Resources.CacheStat.DEMOTIONS),
+				""+Resources.getCacheStat(Resources.CacheStat.EVICTIONS));
+	}
+
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public String listResources(MOB mob, String parm)
 	{
+		if(parm.equalsIgnoreCase("STATS"))
+			return listResourceCache();
+		if(parm.length()==0)
+		{
+			final Enumeration<String> keys=new IteratorEnumeration<String>(Resources.findResourceKeys(parm));
+			return CMLib.lister().reallyList2Cols(mob,keys).append("\n\r").append(listResourceCache()).toString();
+		}
 		final Iterator<String> keyIter=Resources.findResourceKeys(parm);
 		if(!keyIter.hasNext())
 			return "";
@@ -3446,6 +3532,35 @@ public class ListCmd extends StdCommand
 				listStr.append(L("None defined.\n\r"));
 			str.append(listStr).append("\n\r");
 		}
+		final StringBuilder eventStr = new StringBuilder("");
+		for(final AchievementLibrary.Event E : AchievementLibrary.Event.values())
+		{
+			final long bumps=CMLib.achievements().getBumpCount(E, AchievementLibrary.BumpStat.BUMPS);
+			if(bumps == 0)
+				continue;
+			final long queued=CMLib.achievements().getBumpCount(E, AchievementLibrary.BumpStat.QUEUED);
+			final long coalesced=CMLib.achievements().getBumpCount(E, AchievementLibrary.BumpStat.COALESCED);
+			final long nanos=CMLib.achievements().getBumpCount(E, AchievementLibrary.BumpStat.NANOS);
+			final long tested=bumps-coalesced;
+			eventStr.append(CMStrings.padRight(E.name(),COL_LEN1)+" ");
+			eventStr.append(CMStrings.padRight(""+bumps,COL_LEN2)+" ");
+			eventStr.append(CMStrings.padRight(""+queued,COL_LEN2)+" ");
+			eventStr.append(CMStrings.padRight(""+coalesced,COL_LEN2)+" ");
+			eventStr.append(CMStrings.padRight(""+(nanos/1000000L),COL_LEN5)+" ");
+			eventStr.append(((tested>0)?(nanos/tested/1000L):0)+"\n\r");
+		}
+		if(eventStr.length()>0)
+		{
+			str.append(L("^xAchievement Event Processing: ^N\n\r"));
+			str.append(CMStrings.padRight(L("Event"),COL_LEN1)+" ");
+			str.append(CMStrings.padRight(L("Bumps"),COL_LEN2)+" ");
+			str.append(CMStrings.padRight(L("Queued"),COL_LEN2)+" ");
+			str.append(CMStrings.padRight(L("Added"),COL_LEN2)+" ");
+			str.append(CMStrings.padRight(L("Total ms"),COL_LEN5)+" ");
+			str.append(L("Avg us\n\r"));
+			str.append(CMStrings.repeat('-',COL_LEN7+COL_LEN6)).append("\n\r");
+			str.append(eventStr).append("\n\r");
+		}
 		return str.toString();
 	}
 
@@ -4759,12 +4874,13 @@ public class ListCmd extends StdCommand
 		lines.append(CMStrings.padRight(L("Valid"),5)+"| ");
 		lines.append(CMStrings.padRight(L("Name"),17)+"| ");
 		lines.append(CMStrings.padRight(L("IP"),17)+"| ");
-		lines.append(CMStrings.padRight(L("Idle"),17)+"^.^N\n\r");
+		lines.append(CMStrings.padRight(L("Idle"),17)+"| ");
+		lines.append(CMStrings.padRight(L("Queued"),9)+"^.^N\n\r");
 		final Vector<String[]> broken=new Vector<String[]>();
 		final boolean skipUnnamed = (sort.length()>0)&&("NAME".startsWith(sort)||"PLAYER".startsWith(sort));
 		for(final Session S : CMLib.sessions().allIterable())
 		{
-			final String[] set=new String[6];
+			final String[] set=new String[7];
 			set[0]=CMStrings.padRight(""+broken.size(),3)+"| ";
 			set[1]=(S.isStopped()?"^H":"")+CMStrings.padRight(S.getStatus().toString(),9)+(S.isStopped()?"^?":"")+"| ";
 			if (S.mob() != null)
@@ -4781,7 +4897,8 @@ public class ListCmd extends StdCommand
 				set[3]=CMStrings.padRight(L("NAMELESS"),17)+"| ";
 			}
 			set[4]=CMStrings.padRight(S.getAddress(),17)+"| ";
-			set[5]=CMStrings.padRight(CMLib.english().returnTime(S.getIdleMillis(),0)+"",17);
+			set[5]=CMStrings.padRight(CMLib.english().returnTime(S.getIdleMillis(),0)+"",17)+"| ";
+			set[6]=CMStrings.padLeft(""+S.getOutputQueueSize(),9);
 			broken.add(set);
 		}
 		Vector<String[]> sorted=null;
@@ -4802,6 +4919,9 @@ public class ListCmd extends StdCommand
 			else
 			if(("IDLE".startsWith(sort))||("MILLISECONDS".startsWith(sort)))
 				sortNum=5;
+			else
+			if(("QUEUED".startsWith(sort))||("OUTPUT".startsWith(sort)))
+				sortNum=6;
 		}
 		if(sortNum<0)
 			sorted=broken;
@@ -5075,8 +5195,8 @@ public class ListCmd extends StdCommand
 			s.wraplessPrintln(listMaterials());
 			break;
 		case OBJCOUNTERS:
-			s.println("\n\r^xCounter Report: NO LONGER AVAILABLE^.^N\n\r");
-			break;// +CMClass.getCounterReport()); break;
+			s.println("\n\r^xCounter Report:^.^N\n\r"+CMClass.getCounterReport());
+			break;
 		case POLLS:
 			listPolls(mob, commands);
 			break;
@@ -405,6 +405,7 @@ public class Remort extends StdCommand
 						oldAccount = (PlayerAccount)pStats.getAccount().copyOf();
 					else
 						oldAccount = null;
+					CMLib.achievements().processQueuedBumps(mob);
 					CMLib.achievements().possiblyBumpAchievement(mob, Event.REMORT, 1);
 					mob.basePhyStats().setLevel(1);
 					mob.basePhyStats().setArmor(newDefense[0]);
@@ -16,10 +16,16 @@ import com.planet_ink.coffee_mud.Commands.interfaces.*;
 import com.planet_ink.coffee_mud.Common.interfaces.*;
 import com.planet_ink.coffee_mud.Exits.interfaces.*;
 import com.planet_ink.coffee_mud.Items.interfaces.*;
+import com.planet_ink.coffee_mud.Libraries.GroundWired;
+import com.planet_ink.coffee_mud.Libraries.MUDTracker;
 import com.planet_ink.coffee_mud.Libraries.interfaces.AbilityParameters;
 import com.planet_ink.coffee_mud.Libraries.interfaces.ColorLibrary;
 import com.planet_ink.coffee_mud.Libraries.interfaces.ColorLibrary.Color;
 import com.planet_ink.coffee_mud.Libraries.interfaces.MaskingLibrary;
+import com.planet_ink.coffee_mud.Libraries.interfaces.TelnetFilter;
+import com.planet_ink.coffee_mud.Libraries.interfaces.TrackingLibrary;
+import com.planet_ink.coffee_mud.Libraries.interfaces.WorldMap;
+import com.planet_ink.coffee_mud.Libraries.interfaces.XMLLibrary;
 import com.planet_ink.coffee_mud.Locales.interfaces.*;
 import com.planet_ink.coffee_mud.MOBS.interfaces.*;
 import com.planet_ink.coffee_mud.Races.interfaces.*;
@@ -519,6 +525,300 @@ public class Test extends StdCommand
 				mob.tell(L("CharState CopyInto took :@x1",""+(System.currentTimeMillis()-time)));
 			}
 			else
+			if(what.equalsIgnoreCase("tickregistryspeed"))
+			{
+				int times=CMath.s_int(CMParms.combine(commands,2));
+				if(times<=0)
+					times=40000;
+				for(int size=times/100;size<=times;size*=10)
+				{
+					final Item[] tickers=new Item[size];
+					for(int i=0;i<size;i++)
+						tickers[i]=CMClass.getItem("StdItem");
+					long time=System.nanoTime();
+					for(int i=0;i<size;i++)
+						CMLib.threads().startTickDown(tickers[i],Tickable.TICKID_ITEM_BEHAVIOR,Integer.MAX_VALUE);
+					mob.tell(L("@x1 tickers: startTickDown took @x2ns each",""+size,""+((System.nanoTime()-time)/size)));
+					time=System.nanoTime();
+					for(int i=0;i<size;i++)
+						CMLib.threads().isTicking(tickers[i],Tickable.TICKID_ITEM_BEHAVIOR);
+					mob.tell(L("@x1 tickers: isTicking took @x2ns each",""+size,""+((System.nanoTime()-time)/size)));
+					time=System.nanoTime();
+					for(int i=0;i<size;i++)
+						CMLib.threads().setTickPending(tickers[i],Tickable.TICKID_ITEM_BEHAVIOR);
+					mob.tell(L("@x1 tickers: setTickPending took @x2ns each",""+size,""+((System.nanoTime()-time)/size)));
+					time=System.nanoTime();
+					for(int i=0;i<size;i++)
+						CMLib.threads().deleteTick(tickers[i],Tickable.TICKID_ITEM_BEHAVIOR);
+					mob.tell(L("@x1 tickers: deleteTick took @x2ns each",""+size,""+((System.nanoTime()-time)/size)));
+					for(int i=0;i<size;i++)
+						tickers[i].destroy();
+					if(size==0)
+						break;
+				}
+			}
+			else
+			if(what.equalsIgnoreCase("filterspeed"))
+			{
+				final TelnetFilter filter=CMLib.coffeeFilter();
+				int times=CMath.s_int(CMParms.combine(commands,2));
+				if(times<=0)
+					times=200;
+				final Session S=mob.session();
+				final MOB targetM=CMClass.getFactoryMOB("^Ra goblin^?",1,mob.location());
+				final MOB[] viewers=new MOB[30];
+				viewers[0]=mob;
+				for(int i=1;i<viewers.length;i++)
+					viewers[i]=CMClass.getFactoryMOB("viewer"+i,1,mob.location());
+				final StringBuilder longMsg=new StringBuilder("");
+				for(int i=0;i<12;i++)
+					longMsg.append("^HThe great hall^? is filled with a crowd(s) of travelers, and <S-NAME> push(es) <S-HIS-HER> way past <T-NAME> toward the ^Wfountain^?. ");
+				final String[] msgs=new String[] {
+					"<S-NAME> say(s) 'Hello there, <T-NAME>!'",
+					"^F<S-NAME> hit(s) <T-NAMESELF> with <S-HIS-HER> sword.^?",
+					"<S-NAME> <S-IS-ARE> standing here, and <T-NAME> <T-HAS-HAVE> 3 coin(s).",
+					longMsg.toString()
+				};
+				for(final String msg : msgs)
+				{
+					final long time=System.nanoTime();
+					for(int t=0;t<times;t++)
+					{
+						for(final MOB viewerM : viewers)
+							filter.fullOutFilter(S,viewerM,mob,targetM,null,msg,false);
+					}
+					final long perViewer=(System.nanoTime()-time)/(times*viewers.length);
+					mob.tell(L("@x1 chars to @x2 viewers: @x3ns per viewer",""+msg.length(),""+viewers.length,""+perViewer));
+				}
+				for(int i=1;i<viewers.length;i++)
+					viewers[i].destroy();
+				targetM.destroy();
+			}
+			else
+			if(what.equalsIgnoreCase("spacespeed"))
+			{
+				if(!(CMLib.tech() instanceof GroundWired))
+				{
+					mob.tell(L("The tech library is not a GroundWired."));
+					return false;
+				}
+				final GroundWired wired=(GroundWired)CMLib.tech();
+				final WorldMap map=CMLib.map();
+				for(final int num : new int[]{1000,10000})
+				{
+					final Random rand=new Random(num);
+					final long side=Math.round(Math.cbrt(num)) * 20 * SpaceObject.Distance.Kilometer.dm;
+					final List<SpaceObject> objects=new ArrayList<SpaceObject>(num);
+					final RTree<SpaceObject> tree=new RTree<SpaceObject>();
+					for(int i=0;i<num;i++)
+					{
+						final SpaceObject O=(SpaceObject)CMClass.getItem("StdSpaceBody");
+						for(int c=0;c<3;c++)
+							O.coordinates()[c]=(long)(rand.nextDouble() * side);
+						O.setDirection(new double[]{rand.nextDouble()*Math.PI*2.0,rand.nextDouble()*Math.PI});
+						O.setSpeed(rand.nextInt(100));
+						objects.add(O);
+						tree.insert(O);
+					}
+					final int samples=Math.min(num, 100);
+					long time=System.nanoTime();
+					for(int i=0;i<samples;i++)
+					{
+						final List<SpaceObject> within=new ArrayList<SpaceObject>(1);
+						tree.query(within, new BoundedObject.BoundedCube(objects.get(i).coordinates(), SpaceObject.Distance.LightMinute.dm));
+					}
+					final long queryTime=(System.nanoTime()-time) / samples * num / 1000000L;
+					time=System.nanoTime();
+					wired.runSpace(map, objects, false);
+					final long serialTime=(System.nanoTime()-time) / 1000000L;
+					time=System.nanoTime();
+					wired.runSpace(map, objects, true);
+					final long parallelTime=(System.nanoTime()-time) / 1000000L;
+					mob.tell(L("@x1 space objects: per-object space queries alone @x2ms, swept tick @x3ms, parallel swept tick @x4ms.",
+							""+num,""+queryTime,""+serialTime,""+parallelTime));
+					for(final SpaceObject O : objects)
+						O.destroy();
+				}
+			}
+			else
+			if(what.equalsIgnoreCase("trackspeed"))
+			{
+				if(!(CMLib.tracking() instanceof MUDTracker))
+				{
+					mob.tell(L("The tracking library is not a MUDTracker."));
+					return false;
+				}
+				final MUDTracker tracker=(MUDTracker)CMLib.tracking();
+				int size=CMath.s_int(CMParms.combine(commands,2));
+				if(size<=1)
+					size=50;
+				final Exit E=CMClass.getExit("Open");
+				final Room[][] grid=new Room[size][size];
+				for(int x=0;x<size;x++)
+				{
+					for(int y=0;y<size;y++)
+						grid[x][y]=CMClass.getLocale("StdRoom");
+				}
+				for(int x=0;x<size;x++)
+				{
+					for(int y=0;y<size;y++)
+					{
+						final Room R=grid[x][y];
+						if(x<size-1)
+						{
+							R.rawDoors()[Directions.EAST]=grid[x+1][y];
+							R.setRawExit(Directions.EAST,E);
+							grid[x+1][y].rawDoors()[Directions.WEST]=R;
+							grid[x+1][y].setRawExit(Directions.WEST,E);
+						}
+						if(y<size-1)
+						{
+							R.rawDoors()[Directions.SOUTH]=grid[x][y+1];
+							R.setRawExit(Directions.SOUTH,E);
+							grid[x][y+1].rawDoors()[Directions.NORTH]=R;
+							grid[x][y+1].setRawExit(Directions.NORTH,E);
+						}
+					}
+				}
+				final TrackingLibrary.TrackingFlags flags=tracker.newFlags();
+				final int maxRadius=size*2;
+				final Random rand=new Random(size);
+				final int numTrails=20;
+				final Room[] froms=new Room[numTrails];
+				final Room[] tos=new Room[numTrails];
+				for(int t=0;t<numTrails;t++)
+				{
+					froms[t]=grid[rand.nextInt(size)][rand.nextInt(size)];
+					tos[t]=grid[rand.nextInt(size)][rand.nextInt(size)];
+				}
+				int mismatches=0;
+				long time=System.nanoTime();
+				for(int t=0;t<numTrails;t++)
+				{
+					final List<Room> radiant=new Vector<Room>();
+					tracker.getRadiantRooms(froms[t],radiant,flags,tos[t],maxRadius,null);
+					final List<Room> trail=tracker.findTrailToRoom(froms[t],tos[t],flags,maxRadius,radiant);
+					final List<Room> newTrail=tracker.findTrailToRoomUncached(froms[t],tos[t],flags,maxRadius);
+					if((trail==null)||(newTrail==null)||(trail.size()!=newTrail.size()))
+						mismatches++;
+				}
+				time=System.nanoTime();
+				for(int t=0;t<numTrails;t++)
+				{
+					final List<Room> radiant=new Vector<Room>();
+					tracker.getRadiantRooms(froms[t],radiant,flags,tos[t],maxRadius,null);
+					tracker.findTrailToRoom(froms[t],tos[t],flags,maxRadius,radiant);
+				}
+				final long scanTime=(System.nanoTime()-time)/(numTrails*1000);
+				time=System.nanoTime();
+				for(int t=0;t<numTrails;t++)
+					tracker.findTrailToRoomUncached(froms[t],tos[t],flags,maxRadius);
+				final long linkedTime=(System.nanoTime()-time)/(numTrails*1000);
+				for(int t=0;t<numTrails;t++)
+					tracker.findTrailToRoom(froms[t],tos[t],flags,maxRadius);
+				time=System.nanoTime();
+				for(int t=0;t<numTrails;t++)
+					tracker.findTrailToRoom(froms[t],tos[t],flags,maxRadius);
+				final long cachedTime=(System.nanoTime()-time)/(numTrails*1000);
+				mob.tell(L("@x1 rooms, @x2 trails: radiant scan @x3us, linked search @x4us, cached @x5us per trail.",
+						""+(size*size),""+numTrails,""+scanTime,""+linkedTime,""+cachedTime));
+				mob.tell(L("@x1 trail lengths differed between the two searches.",""+mismatches));
+				for(int x=0;x<size;x++)
+				{
+					for(int y=0;y<size;y++)
+					{
+						for(int d=0;d<Directions.NUM_DIRECTIONS();d++)
+						{
+							grid[x][y].rawDoors()[d]=null;
+							grid[x][y].setRawExit(d,null);
+						}
+					}
+				}
+				E.destroy();
+			}
+			else
+			if(what.equalsIgnoreCase("xmlspeed"))
+			{
+				int num=CMath.s_int(CMParms.combine(commands,2));
+				if(num<=0)
+					num=200;
+				final String[][] files={{"deities.cmare","MOB"},{"manufacturers.xml","MANUFACTURER"}};
+				for(final String[] file : files)
+				{
+					final String text=new CMFile(Resources.buildResourcePath("examples")+file[0],null,CMFile.FLAG_LOGERRORS).text().toString();
+					if(text.length()==0)
+						continue;
+					long time=System.nanoTime();
+					for(int i=0;i<num;i++)
+						CMLib.xml().parseAllXML(text);
+					final long parseTime=(System.nanoTime()-time)/(num*1000);
+					time=System.nanoTime();
+					int numTags=0;
+					for(int i=0;i<num;i++)
+					{
+						final LinkedList<XMLLibrary.XMLTag> todo=new LinkedList<XMLLibrary.XMLTag>(CMLib.xml().parseAllXML(text));
+						numTags=0;
+						while(todo.size()>0)
+						{
+							final XMLLibrary.XMLTag tag=todo.removeFirst();
+							tag.value();
+							todo.addAll(tag.contents());
+							numTags++;
+						}
+					}
+					final long readTime=(System.nanoTime()-time)/(num*1000);
+					time=System.nanoTime();
+					int numStreamed=0;
+					for(int i=0;i<num;i++)
+					{
+						numStreamed=0;
+						for(final Iterator<XMLLibrary.XMLTag> t=CMLib.xml().iterateXMLTags(new StringBuffer(text), file[1]);t.hasNext();)
+						{
+							t.next().value();
+							numStreamed++;
+						}
+					}
+					final long streamTime=(System.nanoTime()-time)/(num*1000);
+					mob.tell(L("@x1, @x2 tags: parse @x3us, parse and read all values @x4us, stream @x5 @x6 tags @x7us.",
+							file[0],""+numTags,""+parseTime,""+readTime,""+numStreamed,file[1],""+streamTime));
+				}
+				final String text=new CMFile(Resources.buildResourcePath("examples")+files[0][0],null,CMFile.FLAG_LOGERRORS).text().toString();
+				final List<XMLLibrary.XMLTag> mobs=CMLib.xml().parseAllXML(text);
+				final XMLLibrary.XMLTag mobTag=((mobs.size()>0)&&(mobs.get(0).contents().size()>0))?mobs.get(0).contents().get(0):null;
+				if((mobTag!=null)&&(mobTag.isTagInPieces("MTEXT")))
+				{
+					final List<XMLLibrary.XMLTag> indexed=CMLib.xml().parseAllXML(CMLib.xml().restoreAngleBrackets(mobTag.getValFromPieces("MTEXT")));
+					final List<XMLLibrary.XMLTag> linear=new ArrayList<XMLLibrary.XMLTag>(indexed);
+					final List<String> tags=new ArrayList<String>();
+					for(final XMLLibrary.XMLTag tag : indexed)
+						tags.add(tag.tag().toLowerCase());
+					int mismatches=0;
+					tags.add("nosuchtag");
+					for(final String tag : tags)
+					{
+						if(CMLib.xml().getPieceFromPieces(indexed, tag)!=CMLib.xml().getPieceFromPieces(linear, tag))
+							mismatches++;
+					}
+					final int lookups=num*100;
+					long time=System.nanoTime();
+					for(int i=0;i<lookups;i++)
+					{
+						for(final String tag : tags)
+							CMLib.xml().getPieceFromPieces(linear, tag);
+					}
+					final long linearTime=(System.nanoTime()-time)/((long)lookups*tags.size());
+					time=System.nanoTime();
+					for(int i=0;i<lookups;i++)
+					{
+						for(final String tag : tags)
+							CMLib.xml().getPieceFromPieces(indexed, tag);
+					}
+					final long indexedTime=(System.nanoTime()-time)/((long)lookups*tags.size());
+					mob.tell(L("@x1 child tags: linear lookup @x2ns, indexed lookup @x3ns, @x4 lookups differed.",
+							""+tags.size(),""+linearTime,""+indexedTime,""+mismatches));
+				}
+			}
+			else
 			if(what.equalsIgnoreCase("randomroompick"))
 			{
 				final int num=CMath.s_int(CMParms.combine(commands,2));
@@ -2600,6 +2900,48 @@ public class Test extends StdCommand
 				mob.tell(str);
 			}
 			if((what.equalsIgnoreCase("all"))
+			||(what.equalsIgnoreCase("filtertemplates")))
+			{
+				final String[][] tests=new String[][] {
+					{"hello\r \nthere", "Hello\r\n \nthere"},
+					{"a\r b", "A\r\n b"},
+					{"a\n\rb", "A\n\rb"},
+					{"a\r\nb\r\n", "A\r\nb\r\n"},
+					{"line one\\nline two\\n\\rthree", "Line one\r\nline two\r\n\r\nthree"},
+					{"%0Dhello", "\r\nHello"},
+					{"hello%0Dworld%0d", "Hello\r\nworld%0d"},
+					{"%0D%0D", "\r\n\r\n"},
+					{"100% done%0", "100% Done%0"},
+					{"The quick brown fox jumps over the lazy dog while the cat watches from the fence and nobody says a word about it at all.",
+					 "The quick brown fox jumps over the lazy dog while the cat watches from the\n\rfence and nobody says a word about it at all."},
+					{"<S-NAME> look(s) around.\r\n<S-NAME> nod(s) at <S-HIM-HERSELF>.", "You look around.\r\nyou nod at yourself."},
+					{"<S-YOUPOSS> sword glow(s)%0D<S-NAME> smile(s)", "Your sword glows\r\nyou smile"},
+					{"<S-NAME> <S-IS-ARE> here, and <S-HE-SHE> push(es) on.", "You are here, and you push on."},
+					{"<nope> and <S-NAME and <S-NAME> wave(s)", "<Nope> and <S-NAME and you wave"},
+				};
+				final MOB M=CMClass.getFactoryMOB("Bob",1,null);
+				try
+				{
+					for(int i=0;i<tests.length;i++)
+					{
+						// a message is compiled on its second sighting, so the last pass is always rendered from its template
+						for(int pass=1;pass<=3;pass++)
+						{
+							final String str=CMLib.coffeeFilter().fullOutFilter(null, M, M, null, null, new String(tests[i][0]), false);
+							if(!str.equals(tests[i][1]))
+							{
+								mob.tell(L("Error filtertemplates-@x1-@x2",""+(i+1),""+pass));
+								return false;
+							}
+						}
+					}
+				}
+				finally
+				{
+					M.destroy();
+				}
+			}
+			if((what.equalsIgnoreCase("all"))
 			||(what.equalsIgnoreCase("racemixing")))
 			{
 				String mixRace = "Troll";
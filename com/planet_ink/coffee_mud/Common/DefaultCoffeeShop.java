@@ -358,6 +358,7 @@ public class DefaultCoffeeShop implements CoffeeShop
 						if(price>0)
 							SP.price=price;
 						this.contentHash = null;
+						stockAdded();
 						return copy;
 					}
 				}
@@ -367,9 +368,21 @@ public class DefaultCoffeeShop implements CoffeeShop
 		}
 		if(originalUncopiedThang instanceof Item)
 			((Item)originalUncopiedThang).destroy();
+		stockAdded();
 		return thisThang;
 	}
 
+	protected void stockAdded()
+	{
+		final ShopKeeper SK=shopKeeper();
+		if((SK!=null)&&(!(SK instanceof Area)))
+		{
+			final Room R=CMLib.map().roomLocation(SK);
+			if(R!=null)
+				R.contentChanged();
+		}
+	}
+
 	@Override
 	public int totalStockWeight()
 	{
@@ -312,6 +312,8 @@ public class DefaultPlayerStats implements PlayerStats
 	public void setChannelMask(int newMask)
 	{
 		channelMask=newMask;
+		if(CMLib.channels()!=null)
+			CMLib.channels().channelSubscriptionsChanged();
 	}
 
 	@Override
@@ -1556,7 +1558,7 @@ public class DefaultPlayerStats implements PlayerStats
 			lLastDateTime = CMath.s_parseLongExpression(val);
 			break;
 		case 7:
-			channelMask = CMath.s_parseIntExpression(val);
+			setChannelMask(CMath.s_parseIntExpression(val));
 			break;
 		case 8:
 			colorStr = val;
@@ -4019,14 +4019,14 @@ public class DefaultQuest implements Quest, Tickable, CMObject
 		}
 		if(allowedToRun)
 		{
-			int numElligiblePlayers=0;
-			final boolean isMask=(playerMask.length()>0);
+			final List<MOB> onlineMobs=new ArrayList<MOB>();
 			for(final Session S : CMLib.sessions().localOnlineIterable())
 			{
-				if((S.mob()!=null)
-				&&((!isMask) || CMLib.masking().maskCheck(playerMask,S.mob(),true)))
-					numElligiblePlayers++;
+				if(S.mob()!=null)
+					onlineMobs.add(S.mob());
 			}
+			final boolean isMask=(playerMask.length()>0);
+			final int numElligiblePlayers=isMask?CMLib.masking().maskFilter(playerMask,onlineMobs,true).size():onlineMobs.size();
 			ticksRemaining=-1;
 			if((numElligiblePlayers>=minPlayers)||(duration()==0))
 				return startQuestInternal();
@@ -435,19 +435,17 @@ public class DefaultScriptingEngine implements ScriptingEngine
 	{
 		if(mob!=null)
 		{
-			final List<DVector> scripts=getScripts();
+			final ScriptBlocks scripts=getScripts();
 			if(!mob.amDead())
 				lastKnownLocation=mob.location();
-			String trigger="";
 			String[] tt=null;
 			for(int v=0;v<scripts.size();v++)
 			{
 				final DVector script=scripts.get(v);
 				if(script.size()>0)
 				{
-					trigger=((String)script.elementAt(0,1)).toUpperCase().trim();
 					tt=(String[])script.elementAt(0,2);
-					if((getTriggerCode(trigger,tt)==13) //questtimeprog
+					if((scripts.getTriggerCode(v)==13) //questtimeprog
 					&&(!oncesDone.contains(script)))
 					{
 						if(tt==null)
@@ -3323,7 +3321,7 @@ public class DefaultScriptingEngine implements ScriptingEngine
 				final String arg2=varify(source,target,scripted,monster,primaryItem,secondaryItem,msg,tmp,tt[t+1]);
 				String found=null;
 				boolean validFunc=false;
-				final List<DVector> scripts=getScripts();
+				final ScriptBlocks scripts=getScripts();
 				String trigger=null;
 				String[] ttrigger=null;
 				for(int v=0;v<scripts.size();v++)
@@ -3331,10 +3329,10 @@ public class DefaultScriptingEngine implements ScriptingEngine
 					final DVector script2=scripts.get(v);
 					if(script2.size()<1)
 						continue;
-					trigger=((String)script2.elementAt(0,1)).toUpperCase().trim();
-					ttrigger=(String[])script2.elementAt(0,2);
-					if(getTriggerCode(trigger,ttrigger)==17)
+					if(scripts.getTriggerCode(v)==17)
 					{
+						trigger=((String)script2.elementAt(0,1)).toUpperCase().trim();
+						ttrigger=(String[])script2.elementAt(0,2);
 						final String fnamed=
 							(ttrigger!=null)
 							?ttrigger[1]
@@ -5868,7 +5866,7 @@ public class DefaultScriptingEngine implements ScriptingEngine
 				final String arg2=varify(source,target,scripted,monster,primaryItem,secondaryItem,msg,tmp,CMParms.getPastBitClean(funcParms,0));
 				String found=null;
 				boolean validFunc=false;
-				final List<DVector> scripts=getScripts();
+				final ScriptBlocks scripts=getScripts();
 				String trigger=null;
 				String[] ttrigger=null;
 				for(int v=0;v<scripts.size();v++)
@@ -5876,10 +5874,10 @@ public class DefaultScriptingEngine implements ScriptingEngine
 					final DVector script2=scripts.get(v);
 					if(script2.size()<1)
 						continue;
-					trigger=((String)script2.elementAt(0,1)).toUpperCase().trim();
-					ttrigger=(String[])script2.elementAt(0,2);
-					if(getTriggerCode(trigger,ttrigger)==17)
+					if(scripts.getTriggerCode(v)==17)
 					{
+						trigger=((String)script2.elementAt(0,1)).toUpperCase().trim();
+						ttrigger=(String[])script2.elementAt(0,2);
 						final String fnamed=CMParms.getCleanBit(trigger,1);
 						if(fnamed.equalsIgnoreCase(arg1))
 						{
@@ -7440,12 +7438,13 @@ public class DefaultScriptingEngine implements ScriptingEngine
 					final Context cx = Context.enter();
 					try
 					{
+						final int optLevel=CMProps.getIntVar(CMProps.Int.JSCRIPTOPTIMIZE);
+						if(Context.isValidOptimizationLevel(optLevel))
+							cx.setOptimizationLevel(optLevel);
 						final JScriptEvent scope = new JScriptEvent(this,scripted,source,target,monster,primaryItem,secondaryItem,msg,tmp);
-						cx.initStandardObjects(scope);
-						final String[] names = { "host", "source", "target", "monster", "item", "item2", "message" ,"getVar", "setVar", "toJavaString"};
-						scope.defineFunctionProperties(names, JScriptEvent.class,
-													   ScriptableObject.DONTENUM);
-						cx.evaluateString(scope, jscript.toString(),"<cmd>", 1, null);
+						scope.setPrototype(getJScriptSharedScope(cx));
+						scope.setParentScope(null);
+						getCompiledJScript(cx, jscript.toString()).exec(cx, scope);
 					}
 					catch(final Exception e)
 					{
@@ -10882,16 +10881,15 @@ public class DefaultScriptingEngine implements ScriptingEngine
 				final String named=tt[1];
 				final String parms=tt[2].trim();
 				boolean found=false;
-				final List<DVector> scripts=getScripts();
+				final ScriptBlocks scripts=getScripts();
 				for(int v=0;v<scripts.size();v++)
 				{
 					final DVector script2=scripts.get(v);
 					if(script2.size()<1)
 						continue;
-					final String trigger=((String)script2.elementAt(0,1)).toUpperCase().trim();
-					final String[] ttrigger=(String[])script2.elementAt(0,2);
-					if(getTriggerCode(trigger,ttrigger)==17) // function_prog
+					if(scripts.getTriggerCode(v)==17) // function_prog
 					{
+						final String trigger=((String)script2.elementAt(0,1)).toUpperCase().trim();
 						final String fnamed=CMParms.getCleanBit(trigger,1);
 						if(fnamed.equalsIgnoreCase(named))
 						{
@@ -11150,7 +11148,7 @@ public class DefaultScriptingEngine implements ScriptingEngine
 		return null;
 	}
 
-	protected static final Vector<DVector> empty=new ReadOnlyVector<DVector>();
+	protected static final ScriptBlocks empty=new ScriptBlocks(new Vector<DVector>(),new int[0]);
 
 	@Override
 	public String getScriptResourceKey()
@@ -11158,18 +11156,235 @@ public class DefaultScriptingEngine implements ScriptingEngine
 		return scriptKey;
 	}
 
-	protected List<DVector> getScripts()
+	/**
+	 * The parsed blocks of one script, along with the trigger code of each
+	 * block, and a table of which blocks could possibly respond to each type
+	 * of message.  It is built once per script resource, and shared by every
+	 * engine running that script, so that a message only visits the blocks
+	 * whose triggers care about it.
+	 * @author agent
+	 */
+	protected static class ScriptBlocks extends Vector<DVector>
+	{
+		private static final long	serialVersionUID	= -2981043256512364717L;
+		private static final int[]	NO_BLOCKS			= new int[0];
+
+		private final int[]		triggerCodes;
+		private final int[][]	msgBlocks;
+		private final int[]		anyMsgBlocks;
+		private final int[]		cancelBlocks;
+
+		public ScriptBlocks(final List<DVector> blocks, final int[] triggerCodes)
+		{
+			super(blocks);
+			this.triggerCodes=triggerCodes;
+			final List<Integer> anyMsg=new ArrayList<Integer>();
+			final List<Integer> cancels=new ArrayList<Integer>();
+			final Map<Integer,List<Integer>> byType=new TreeMap<Integer,List<Integer>>();
+			int maxType=-1;
+			for(int v=0;v<size();v++)
+			{
+				if(get(v).size()<1)
+					continue;
+				if(triggerCodes[v]==42) // cnclmsg_prog
+					cancels.add(Integer.valueOf(v));
+				final int[] types=getTriggerMsgTypes(triggerCodes[v]);
+				if(types==null)
+					anyMsg.add(Integer.valueOf(v));
+				else
+				for(final int type : types)
+				{
+					if(!byType.containsKey(Integer.valueOf(type)))
+						byType.put(Integer.valueOf(type), new ArrayList<Integer>());
+					byType.get(Integer.valueOf(type)).add(Integer.valueOf(v));
+					if(type>maxType)
+						maxType=type;
+				}
+			}
+			anyMsgBlocks=toIntArray(anyMsg);
+			cancelBlocks=toIntArray(cancels);
+			msgBlocks=new int[maxType+1][];
+			for(int type=0;type<msgBlocks.length;type++)
+			{
+				final List<Integer> blocksV=byType.get(Integer.valueOf(type));
+				if(blocksV==null)
+					msgBlocks[type]=anyMsgBlocks;
+				else
+				{
+					blocksV.addAll(anyMsg);
+					Collections.sort(blocksV);
+					msgBlocks[type]=toIntArray(blocksV);
+				}
+			}
+		}
+
+		private static int[] toIntArray(final List<Integer> list)
+		{
+			if(list.size()==0)
+				return NO_BLOCKS;
+			final int[] array=new int[list.size()];
+			for(int i=0;i<array.length;i++)
+				array[i]=list.get(i).intValue();
+			return array;
+		}
+
+		/**
+		 * Returns the trigger code of the given script block
+		 * @param index the index of the block
+		 * @return the trigger code, or 0 if unknown
+		 */
+		public int getTriggerCode(final int index)
+		{
+			return triggerCodes[index];
+		}
+
+		/**
+		 * Returns the indexes of the blocks with cnclmsg_prog triggers
+		 * @return the cnclmsg_prog block indexes
+		 */
+		public int[] getCancelBlocks()
+		{
+			return cancelBlocks;
+		}
+
+		private int[] getMsgBlocks(final int type)
+		{
+			if((type<0)||(type>=msgBlocks.length))
+				return anyMsgBlocks;
+			return msgBlocks[type];
+		}
+
+		/**
+		 * Returns the indexes, in script order, of the blocks whose triggers
+		 * could respond to the given message during executeMsg.
+		 * @param msg the message being heard
+		 * @return the block indexes to check
+		 */
+		public int[] getMsgBlocks(final CMMsg msg)
+		{
+			final int[] srcBlocks=getMsgBlocks(msg.sourceMinor());
+			final int[] tgtBlocks=getMsgBlocks(msg.targetMinor());
+			final int[] othBlocks=getMsgBlocks(msg.othersMinor());
+			if((srcBlocks==tgtBlocks)&&(tgtBlocks==othBlocks))
+				return srcBlocks;
+			final int[] merged=new int[srcBlocks.length+tgtBlocks.length+othBlocks.length];
+			int s=0, t=0, o=0, m=0;
+			while(true)
+			{
+				int next=Integer.MAX_VALUE;
+				if(s<srcBlocks.length)
+					next=srcBlocks[s];
+				if((t<tgtBlocks.length)&&(tgtBlocks[t]<next))
+					next=tgtBlocks[t];
+				if((o<othBlocks.length)&&(othBlocks[o]<next))
+					next=othBlocks[o];
+				if(next==Integer.MAX_VALUE)
+					break;
+				merged[m++]=next;
+				if((s<srcBlocks.length)&&(srcBlocks[s]==next))
+					s++;
+				if((t<tgtBlocks.length)&&(tgtBlocks[t]==next))
+					t++;
+				if((o<othBlocks.length)&&(othBlocks[o]==next))
+					o++;
+			}
+			return Arrays.copyOf(merged, m);
+		}
+	}
+
+	/**
+	 * Returns the message types that the given trigger can respond to in
+	 * executeMsg, an empty array if it never responds there, or null if it
+	 * must see every message.  This must agree with the switch in executeMsg.
+	 * @param triggerCode the trigger code
+	 * @return the message types, or null for all of them
+	 */
+	protected static int[] getTriggerMsgTypes(final int triggerCode)
+	{
+		switch(triggerCode)
+		{
+		case 1: // greet_prog
+		case 2: // all_greet_prog
+		case 8: // entry_prog
+			return new int[] { CMMsg.TYP_ENTER };
+		case 45: // arrive_prog
+			return new int[] { CMMsg.TYP_ENTER, CMMsg.TYP_LIFE };
+		case 3: // speech_prog
+			return new int[] { CMMsg.TYP_SPEAK };
+		case 4: // give_prog
+		case 19: // bribe_prog
+			return new int[] { CMMsg.TYP_GIVE };
+		case 40: // llook_prog
+			return new int[] { CMMsg.TYP_EXAMINE };
+		case 39: // look_prog
+			return new int[] { CMMsg.TYP_LOOK };
+		case 20: // get_prog
+			return new int[] { CMMsg.TYP_GET };
+		case 22: // drop_prog
+			return new int[] { CMMsg.TYP_DROP };
+		case 24: // remove_prog
+			return new int[] { CMMsg.TYP_REMOVE };
+		case 34: // open_prog
+			return new int[] { CMMsg.TYP_OPEN };
+		case 35: // close_prog
+			return new int[] { CMMsg.TYP_CLOSE };
+		case 36: // lock_prog
+			return new int[] { CMMsg.TYP_LOCK };
+		case 37: // unlock_prog
+			return new int[] { CMMsg.TYP_UNLOCK };
+		case 25: // consume_prog
+			return new int[] { CMMsg.TYP_EAT, CMMsg.TYP_DRINK };
+		case 21: // put_prog
+			return new int[] { CMMsg.TYP_PUT };
+		case 27: // buy_prog
+			return new int[] { CMMsg.TYP_BUY };
+		case 28: // sell_prog
+			return new int[] { CMMsg.TYP_SELL };
+		case 23: // wear_prog
+			return new int[] { CMMsg.TYP_WEAR, CMMsg.TYP_HOLD, CMMsg.TYP_WIELD };
+		case 9: // exit_prog
+			return new int[] { CMMsg.TYP_LEAVE };
+		case 10: // death_prog
+		case 44: // kill_prog
+			return new int[] { CMMsg.TYP_DEATH };
+		case 26: // damage_prog
+			return new int[] { CMMsg.TYP_DAMAGE };
+		case 30: // logoff_prog
+			return new int[] { CMMsg.TYP_QUIT };
+		case 12: // mask_prog
+		case 18: // act_prog
+		case 29: // login_prog, which registers itself on the first message
+		case 31: // regmask_prog
+		case 32: // level_prog, which registers itself on the first message
+		case 33: // channel_prog, which registers itself on the first message
+		case 38: // social_prog
+		case 41: // execmsg_prog
+		case 43: // imask_prog
+			return null;
+		default:
+			return new int[0];
+		}
+	}
+
+	protected ScriptBlocks getScripts()
 	{
 		if(CMSecurity.isDisabled(CMSecurity.DisFlag.SCRIPTABLE)||CMSecurity.isDisabled(CMSecurity.DisFlag.SCRIPTING))
 			return empty;
-		List scripts=(List)Resources.getResource(getScriptResourceKey());
-		if(scripts==null)
+		final Object resource=Resources.getResource(getScriptResourceKey());
+		if(resource instanceof ScriptBlocks)
+			return (ScriptBlocks)resource;
+		String scr=getScript();
+		scr=CMStrings.replaceAll(scr,"`","'");
+		final List<DVector> blocks=parseScripts(scr);
+		final int[] triggerCodes=new int[blocks.size()];
+		for(int v=0;v<blocks.size();v++)
 		{
-			String scr=getScript();
-			scr=CMStrings.replaceAll(scr,"`","'");
-			scripts=parseScripts(scr);
-			Resources.submitResource(getScriptResourceKey(),scripts);
+			final DVector script=blocks.get(v);
+			if(script.size()>0)
+				triggerCodes[v]=getTriggerCode(((String)script.elementAt(0,1)).toUpperCase().trim(),(String[])script.elementAt(0,2));
 		}
+		final ScriptBlocks scripts=new ScriptBlocks(blocks,triggerCodes);
+		Resources.submitResource(getScriptResourceKey(),scripts);
 		return scripts;
 	}
 
@@ -11217,23 +11432,19 @@ public class DefaultScriptingEngine implements ScriptingEngine
 	
 			final PhysicalAgent affecting = (PhysicalAgent)host;
 	
-			final List<DVector> scripts=getScripts();
+			final ScriptBlocks scripts=getScripts();
+			final int[] blocks=scripts.getCancelBlocks();
 			DVector script=null;
 			boolean tryIt=false;
-			String trigger=null;
 			String[] t=null;
 			int triggerCode=0;
 			String str=null;
-			for(int v=0;v<scripts.size();v++)
+			for(int b=0;b<blocks.length;b++)
 			{
 				tryIt=false;
-				script=scripts.get(v);
-				if(script.size()<1)
-					continue;
-	
-				trigger=((String)script.elementAt(0,1)).toUpperCase().trim();
+				script=scripts.get(blocks[b]);
 				t=(String[])script.elementAt(0,2);
-				triggerCode=getTriggerCode(trigger,t);
+				triggerCode=scripts.getTriggerCode(blocks[b]);
 				switch(triggerCode)
 				{
 				case 42: // cnclmsg_prog
@@ -11439,25 +11650,21 @@ public class DefaultScriptingEngine implements ScriptingEngine
 			if((defaultItem!=null)&&(defaultItem.owner() instanceof MOB))
 				eventMob=(MOB)defaultItem.owner();
 	
-			final List<DVector> scripts=getScripts();
+			final ScriptBlocks scripts=getScripts();
 	
 			if(msg.amITarget(eventMob)
 			&&(!msg.amISource(monster))
 			&&(msg.targetMinor()==CMMsg.TYP_DAMAGE)
 			&&(msg.source()!=monster))
 				lastToHurtMe=msg.source();
+			final int[] blocks=scripts.getMsgBlocks(msg);
 			DVector script=null;
-			String trigger=null;
 			String[] t=null;
-			for(int v=0;v<scripts.size();v++)
+			for(int b=0;b<blocks.length;b++)
 			{
-				script=scripts.get(v);
-				if(script.size()<1)
-					continue;
-	
-				trigger=((String)script.elementAt(0,1)).toUpperCase().trim();
+				script=scripts.get(blocks[b]);
 				t=(String[])script.elementAt(0,2);
-				final int triggerCode=getTriggerCode(trigger,t);
+				final int triggerCode=scripts.getTriggerCode(blocks[b]);
 				int targetMinorTrigger=-1;
 				switch(triggerCode)
 				{
@@ -12478,7 +12685,7 @@ public class DefaultScriptingEngine implements ScriptingEngine
 
 		final PhysicalAgent affecting=(ticking instanceof PhysicalAgent)?((PhysicalAgent)ticking):null;
 
-		final List<DVector> scripts=getScripts();
+		final ScriptBlocks scripts=getScripts();
 		
 		if(!runInPassiveAreas)
 		{
@@ -12490,16 +12697,14 @@ public class DefaultScriptingEngine implements ScriptingEngine
 		}
 
 		int triggerCode=-1;
-		String trigger="";
 		String[] t=null;
 		for(int thisScriptIndex=0;thisScriptIndex<scripts.size();thisScriptIndex++)
 		{
 			final DVector script=scripts.get(thisScriptIndex);
 			if(script.size()<2)
 				continue;
-			trigger=((String)script.elementAt(0,1)).toUpperCase().trim();
 			t=(String[])script.elementAt(0,2);
-			triggerCode=getTriggerCode(trigger,t);
+			triggerCode=scripts.getTriggerCode(thisScriptIndex);
 			tickStatus=Tickable.STATUS_SCRIPT+triggerCode;
 			switch(triggerCode)
 			{
@@ -12803,6 +13008,78 @@ public class DefaultScriptingEngine implements ScriptingEngine
 		return CMLib.lang().fullSessionTranslation(str, xs);
 	}
 	
+	protected static final Map<String,Script> jscriptCache = new LinkedHashMap<String,Script>(16,0.75f,true)
+	{
+		private static final long serialVersionUID = 6307734245624418305L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String,Script> eldest)
+		{
+			return size() > CMProps.getIntVar(CMProps.Int.JSCRIPTCACHE);
+		}
+	};
+
+	private static volatile Scriptable jscriptSharedScope = null;
+
+	/**
+	 * Returns the compiled form of the given javascript, compiling it only if
+	 * it is not already in the cache of recently used scripts.
+	 * @param cx the current context
+	 * @param jscript the javascript source
+	 * @return the compiled script
+	 */
+	protected static Script getCompiledJScript(final Context cx, final String jscript)
+	{
+		final boolean useCache=CMProps.getIntVar(CMProps.Int.JSCRIPTCACHE)>0;
+		Script script;
+		if(useCache)
+		{
+			synchronized(jscriptCache)
+			{
+				script=jscriptCache.get(jscript);
+			}
+			if(script!=null)
+				return script;
+		}
+		script=cx.compileString(jscript, "<cmd>", 1, null);
+		if(useCache)
+		{
+			synchronized(jscriptCache)
+			{
+				jscriptCache.put(jscript, script);
+			}
+		}
+		return script;
+	}
+
+	/**
+	 * Returns the sealed scope shared by every javascript event, which holds
+	 * the standard javascript objects and the event function properties, so
+	 * that each event only needs a small scope of its own on top of it.
+	 * @param cx the current context
+	 * @return the shared javascript scope
+	 */
+	protected static Scriptable getJScriptSharedScope(final Context cx)
+	{
+		if(jscriptSharedScope == null)
+		{
+			synchronized(jscriptCache)
+			{
+				if(jscriptSharedScope == null)
+				{
+					final ScriptableObject standardScope = cx.initStandardObjects(null, true);
+					final JScriptEvent functionScope = new JScriptEvent(null,null,null,null,null,null,null,null,null);
+					final String[] names = { "host", "source", "target", "monster", "item", "item2", "message" ,"getVar", "setVar", "toJavaString"};
+					functionScope.defineFunctionProperties(names, JScriptEvent.class, ScriptableObject.DONTENUM);
+					functionScope.setPrototype(standardScope);
+					functionScope.sealObject();
+					jscriptSharedScope = functionScope;
+				}
+			}
+		}
+		return jscriptSharedScope;
+	}
+
 	protected static class JScriptEvent extends ScriptableObject
 	{
 		@Override
@@ -12875,6 +13152,8 @@ public class DefaultScriptingEngine implements ScriptingEngine
 		{
 			if (super.has(name, start))
 				return super.get(name, start);
+			if ((getPrototype() != null) && ScriptableObject.hasProperty(getPrototype(), name))
+				return NOT_FOUND;
 			if (methH.containsKey(name) || funcH.containsKey(name)
 			|| (name.endsWith("$")&&(funcH.containsKey(name.substring(0,name.length()-1)))))
 			{
@@ -1,6 +1,8 @@
 package com.planet_ink.coffee_mud.Common;
 import com.planet_ink.coffee_mud.core.interfaces.*;
 import com.planet_ink.coffee_mud.core.threads.CMRunnable;
+import com.planet_ink.coffee_mud.core.threads.SessionOutputQueue;
+import com.planet_ink.coffee_mud.core.threads.SessionSelector;
 import com.planet_ink.coffee_mud.core.*;
 import com.planet_ink.coffee_mud.core.CMSecurity.DbgFlag;
 import com.planet_ink.coffee_mud.core.CMSecurity.DisFlag;
@@ -83,6 +85,8 @@ public class DefaultSession implements Session
 	protected BufferedReader in;
 	protected PrintWriter	 out;
 	protected InputStream    rawin;
+	protected SessionSelector.ChannelInput channelIn = null;
+	protected SessionOutputQueue outQueue = null;
 	protected OutputStream   rawout;
 	protected MOB   		 mob;
 	protected PlayerAccount  acct				 = null;
@@ -333,8 +337,14 @@ public class DefaultSession implements Session
 			}
 
 			sock.setSoTimeout(SOTIMEOUT);
-			rawout=new BufferedOutputStream(sock.getOutputStream());
-			rawin=new BufferedInputStream(sock.getInputStream());
+			if((sock.getChannel()!=null)&&(CMProps.getBoolVar(CMProps.Bool.MUDNIOINPUT)))
+			{
+				channelIn=SessionSelector.instance().register(this, sock.getChannel());
+				rawin=new BufferedInputStream(channelIn);
+			}
+			else
+				rawin=new BufferedInputStream(sock.getInputStream());
+			rawout=new BufferedOutputStream(getSocketOutputStream());
 			if(!mcpDisabled)
 			{
 				rawBytesOut(rawout,("\n\r#$#mcp version: 2.1 to: 2.1\n\r").getBytes(CMProps.getVar(CMProps.Str.CHARSETOUTPUT)));
@@ -516,12 +526,28 @@ public class DefaultSession implements Session
 		}
 	}
 
+	protected OutputStream getSocketOutputStream() throws IOException
+	{
+		if(outQueue!=null)
+			return outQueue;
+		final OutputStream sockOut;
+		if(channelIn!=null)
+			sockOut=new SessionSelector.ChannelOutput(sock.getChannel());
+		else
+			sockOut=sock.getOutputStream();
+		final int maxQueue=CMProps.getIntVar(CMProps.Int.OUTPUTQUEUEMAX);
+		if(maxQueue<=0)
+			return sockOut;
+		outQueue=new SessionOutputQueue(sockOut,maxQueue);
+		return outQueue;
+	}
+
 	protected void compress2Off() throws IOException
 	{
 		changeTelnetMode(rawout,TELNET_COMPRESS2,false);
 		out.flush();
 		rawout.flush();
-		rawout=new BufferedOutputStream(sock.getOutputStream());
+		rawout=new BufferedOutputStream(getSocketOutputStream());
 		out = new PrintWriter(new OutputStreamWriter(rawout,CMProps.getVar(CMProps.Str.CHARSETOUTPUT)));
 		CMLib.s_sleep(50);
 		changeTelnetMode(rawout,TELNET_COMPRESS2,false);
@@ -889,6 +915,8 @@ public class DefaultSession implements Session
 	public void setMob(MOB newmob)
 	{
 		mob=newmob;
+		if(CMLib.channels()!=null)
+			CMLib.channels().channelSubscriptionsChanged();
 	}
 	
 	@Override
@@ -1038,12 +1066,36 @@ public class DefaultSession implements Session
 	@Override
 	public boolean isLockedUpWriting()
 	{
+		final SessionOutputQueue outQueue=this.outQueue;
+		if((outQueue!=null)&&(outQueue.isStalled(SessionOutputQueue.STALL_TIMEOUT)))
+			return true;
 		final long time=writeStartTime;
 		if(time==0)
 			return false;
 		return ((System.currentTimeMillis()-time)>10000);
 	}
 
+	@Override
+	public int getOutputQueueSize()
+	{
+		final SessionOutputQueue outQueue=this.outQueue;
+		return (outQueue==null)?0:outQueue.size();
+	}
+
+	@Override
+	public long getOutputBytesSent()
+	{
+		final SessionOutputQueue outQueue=this.outQueue;
+		return (outQueue==null)?0:outQueue.getBytesSent();
+	}
+
+	@Override
+	public long getOutputBytesDropped()
+	{
+		final SessionOutputQueue outQueue=this.outQueue;
+		return (outQueue==null)?0:outQueue.getBytesDropped();
+	}
+
 	public final void rawBytesOut(final OutputStream out, final byte[] bytes) throws IOException
 	{
 		try
@@ -1096,9 +1148,23 @@ public class DefaultSession implements Session
 							str.append(c);
 						Log.debugOut( str.toString()+"'");
 					}
+					final SessionOutputQueue outQueue=this.outQueue;
+					final int spamLimit=CMProps.getIntVar(CMProps.Int.OUTPUTQUEUESPAM);
+					if((outQueue!=null)&&(spamLimit>0)&&(outQueue.size()>=spamLimit))
+					{
+						outQueue.dropped(chars.length);
+						return;
+					}
 					out.write(chars);
 					if(out.checkError() && (!killFlag))
+					{
+						if((outQueue!=null)&&(outQueue.isOverflowed()))
+						{
+							final String name=(mob!=null)?mob.Name():getAddress();
+							Log.errOut("DefaultSession","Kicked out "+name+" due to output overflow.");
+						}
 						stopSession(true,true,false);
+					}
 				}
 				finally
 				{
@@ -1930,7 +1996,7 @@ public class DefaultSession implements Session
 			if((last==TELNET_COMPRESS2)&&(getServerTelnetMode(last)))
 			{
 				setClientTelnetMode(last,false);
-				rawout=new BufferedOutputStream(sock.getOutputStream());
+				rawout=new BufferedOutputStream(getSocketOutputStream());
 				out = new PrintWriter(new OutputStreamWriter(rawout,CMProps.getVar(CMProps.Str.CHARSETOUTPUT)));
 			}
 			if((mightSupportTelnetMode(last)&&(getServerTelnetMode(last))))
@@ -1988,6 +2054,8 @@ public class DefaultSession implements Session
 				debugBinInputBuf.append(read).append(" ");
 			return read;
 		}
+		if((channelIn!=null)&&(channelIn.isEOF()))
+			throw new IOException("reset by peer");
 		throw new java.io.InterruptedIOException(".");
 	}
 
@@ -2610,6 +2678,34 @@ public class DefaultSession implements Session
 		return runThread!=null;
 	}
 
+	@Override
+	public boolean hasPendingWork()
+	{
+		if(channelIn==null)
+			return true;
+		if(killFlag
+		||channelIn.isEOF()
+		||(status!=SessionStatus.MAINLOOP)
+		||(inputCallback!=null)
+		||(fakeInput!=null)
+		||(needPrompt))
+			return true;
+		if(System.currentTimeMillis()>=nextMsdpPing)
+			return true;
+		final MOB mob=this.mob;
+		if((mob!=null)&&(mob.commandQueSize()>0))
+			return true;
+		try
+		{
+			final InputStream rawin=this.rawin;
+			return (rawin!=null)&&(rawin.available()>0);
+		}
+		catch(final IOException e)
+		{
+			return true;
+		}
+	}
+
 	@Override
 	public boolean isPendingLogin(final String otherLoginName)
 	{
@@ -2682,6 +2778,13 @@ public class DefaultSession implements Session
 		}
 
 		activeMillis=System.currentTimeMillis();
+		final SessionOutputQueue outQueue=this.outQueue;
+		if((outQueue!=null)&&(outQueue.isStalled(SessionOutputQueue.STALL_TIMEOUT))&&(!killFlag))
+		{
+			final String name=(mob!=null)?mob.Name():getAddress();
+			Log.errOut("DefaultSession","Kicked out "+name+" due to stalled output.");
+			stopSession(true,true,false);
+		}
 		if((activeMillis>=nextMsdpPing)&&(connectionComplete))
 		{
 			nextMsdpPing=activeMillis+MSDPPINGINTERVAL;
@@ -150,6 +150,12 @@ public class FakeSession implements Session
 		return false;
 	}
 
+	@Override
+	public boolean hasPendingWork()
+	{
+		return false;
+	}
+
 	@Override
 	public boolean isPendingLogin(final String otherLoginName)
 	{
@@ -626,6 +632,24 @@ public class FakeSession implements Session
 		return 0;
 	}
 
+	@Override
+	public int getOutputQueueSize()
+	{
+		return 0;
+	}
+
+	@Override
+	public long getOutputBytesSent()
+	{
+		return 0;
+	}
+
+	@Override
+	public long getOutputBytesDropped()
+	{
+		return 0;
+	}
+
 	@Override
 	public long getIdleMillis()
 	{
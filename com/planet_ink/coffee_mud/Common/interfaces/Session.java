@@ -730,6 +730,28 @@ public interface Session extends CMCommon, Modifiable, CMRunnable
 	 */
 	public long getTotalTicks();
 
+	/**
+	 * Gets the number of bytes of output waiting to be sent to this session.
+	 *
+	 * @return the number of bytes waiting to be sent
+	 */
+	public int getOutputQueueSize();
+
+	/**
+	 * Gets the total number of bytes of output actually sent to this session.
+	 *
+	 * @return the total number of bytes sent
+	 */
+	public long getOutputBytesSent();
+
+	/**
+	 * Gets the total number of bytes of output discarded because this session
+	 * could not keep up with it.
+	 *
+	 * @return the total number of bytes discarded
+	 */
+	public long getOutputBytesDropped();
+
 	/**
 	 * Gets the number of milliseconds since a user entry was registered by this session
 	 *
@@ -810,6 +832,16 @@ public interface Session extends CMCommon, Modifiable, CMRunnable
 	 */
 	public boolean isRunning();
 
+	/**
+	 * Whether the sessions service should give this session thread time on
+	 * its next pass.  Sessions that poll their sockets always return true.
+	 * Sessions whose input is delivered by a selector return true only when
+	 * they have unread input, a prompt or queued commands, are logging in
+	 * or out, or are due for protocol pings.
+	 * @return true if the session has work to do, false otherwise
+	 */
+	public boolean hasPendingWork();
+
 	/**
 	 * Returns a list of the last several message strings received by this user.
 	 * All are already previously filtered and parsed and ready to display.
@@ -139,6 +139,8 @@ public class GenWallpaper implements Item
 	public void setName(String newName)
 	{
 		name = newName;
+		if (owner instanceof Room)
+			((Room)owner).contentChanged();
 	}
 
 	@Override
@@ -115,6 +115,17 @@ public class StdItem implements Item
 	public void setName(String newName)
 	{
 		name = newName;
+		roomContentChanged();
+	}
+
+	protected void roomContentChanged()
+	{
+		final ItemPossessor owner=this.owner;
+		if(owner instanceof Room)
+			((Room)owner).contentChanged();
+		else
+		if((owner instanceof MOB)&&(((MOB)owner).location()!=null))
+			((MOB)owner).location().contentChanged();
 	}
 
 	@Override
@@ -202,6 +213,7 @@ public class StdItem implements Item
 	@Override
 	public void recoverPhyStats()
 	{
+		final String oldName=phyStats.newName();
 		basePhyStats.copyInto(phyStats);
 		eachEffect(affectPhyStats);
 		if(((phyStats().ability()>0)&&abilityImbuesMagic())||(this instanceof MiscMagic))
@@ -210,6 +222,9 @@ public class StdItem implements Item
 		&&(owner() instanceof MOB)
 		&&(CMLib.flags().isHidden(this)))
 			phyStats().setDisposition((int)(phyStats().disposition()&(PhyStats.ALLMASK-PhyStats.IS_HIDDEN)));
+		if((oldName!=phyStats.newName())
+		&&((oldName==null)||(!oldName.equals(phyStats.newName()))))
+			roomContentChanged();
 	}
 
  	@Override
@@ -821,6 +836,7 @@ public class StdItem implements Item
 	public void setDisplayText(String newDisplayText)
 	{
 		displayText=newDisplayText;
+		roomContentChanged();
 	}
 
 	@Override
@@ -12,6 +12,8 @@ import com.planet_ink.coffee_mud.Libraries.interfaces.ExpertiseLibrary.CostType;
 import com.planet_ink.coffee_mud.Libraries.interfaces.ExpertiseLibrary.ExpertiseDefinition;
 import com.planet_ink.coffee_mud.Libraries.interfaces.GenericEditor.CMEval;
 import com.planet_ink.coffee_mud.Libraries.interfaces.MaskingLibrary.CompiledZMask;
+import com.planet_ink.coffee_mud.Libraries.interfaces.MaskingLibrary.CompiledZMaskEntry;
+import com.planet_ink.coffee_mud.Libraries.interfaces.MaskingLibrary.ZapperKey;
 import com.planet_ink.coffee_mud.Abilities.interfaces.*;
 import com.planet_ink.coffee_mud.Areas.interfaces.*;
 import com.planet_ink.coffee_mud.Behaviors.interfaces.*;
@@ -28,6 +30,7 @@ import com.planet_ink.coffee_mud.Races.interfaces.*;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 
 /*
    Copyright 2015-2017 Bo Zimmerman
@@ -51,11 +54,95 @@ public class Achievements extends StdLibrary implements AchievementLibrary
 	{
 		return "Achievements";
 	}
+
+	/**
+	 * A bump waiting to be tested on the background worker.  Bumps with the
+	 * same coalesce key can be added together, and a snapshot mob made for
+	 * the bump is destroyed once it has been tested.
+	 */
+	protected static class QueuedBump
+	{
+		private final Event			event;
+		private final PlayerStats	pStats;
+		private final Object[]		parms;
+		private final String		coalesceKey;
+		private final MOB			snapshot;
+		private int					bumpNum;
+
+		private QueuedBump(final Event event, final PlayerStats pStats, final int bumpNum, final Object[] parms, final String coalesceKey, final MOB snapshot)
+		{
+			this.event=event;
+			this.pStats=pStats;
+			this.bumpNum=bumpNum;
+			this.parms=parms;
+			this.coalesceKey=coalesceKey;
+			this.snapshot=snapshot;
+		}
+
+		private boolean canCoalesce(final QueuedBump bump)
+		{
+			return (coalesceKey!=null)
+				&&(bump.event==event)
+				&&(bump.pStats==pStats)
+				&&((bump.bumpNum<0)==(bumpNum<0))
+				&&(coalesceKey.equals(bump.coalesceKey));
+		}
+
+		private void destroySnapshot()
+		{
+			if(snapshot!=null)
+			{
+				snapshot.setLocation(null);
+				snapshot.destroy();
+			}
+		}
+	}
+
+	/**
+	 * The bumps waiting to be tested for one player, and the achievements
+	 * that were completed by them, waiting to be given on the players tick.
+	 */
+	protected static class BumpQueue
+	{
+		private final LinkedList<QueuedBump>	bumps	= new LinkedList<QueuedBump>();
+		private final LinkedList<Achievement>	awards	= new LinkedList<Achievement>();
+		private boolean							busy	= false;
+	}
+
+	public Achievements()
+	{
+		super();
+		for(int e=0;e<bumpCounters.length;e++)
+		{
+			for(int i=0;i<bumpCounters[e].length;i++)
+				bumpCounters[e][i]=new LongAdder();
+		}
+	}
 	
 	// order is now significant, so they are Lists
 	private List<Achievement> 			playerAchievements	= null;
 	private List<Achievement> 			accountAchievements = null;
 	private Map<Event,List<Achievement>>eventMap			= null;
+
+	protected final Map<MOB,BumpQueue>	bumpQueues			= new WeakHashMap<MOB,BumpQueue>();
+	protected final Set<Event>			queueableEvents		= EnumSet.of(Event.TIMEPLAYED, Event.LEVELSGAINED);
+	protected final Set<ZapperKey>		snapshotMaskKeys	= EnumSet.of(ZapperKey._PLAYER, ZapperKey._NPC,
+																		ZapperKey._CLASS, ZapperKey.CLASS, ZapperKey._BASECLASS, ZapperKey.BASECLASS,
+																		ZapperKey._RACE, ZapperKey.RACE, ZapperKey._RACECAT, ZapperKey.RACECAT,
+																		ZapperKey._ALIGNMENT, ZapperKey.ALIGNMENT, ZapperKey._GENDER, ZapperKey.GENDER,
+																		ZapperKey._LEVEL, ZapperKey._CLASSLEVEL, ZapperKey._MAXCLASSLEVEL,
+																		ZapperKey._ANYCLASS, ZapperKey.ANYCLASS, ZapperKey._ANYCLASSLEVEL, ZapperKey.ANYCLASSLEVEL,
+																		ZapperKey.LVLGR, ZapperKey.LVLGE, ZapperKey.LVLLT, ZapperKey.LVLLE, ZapperKey.LVLEQ,
+																		ZapperKey._NAME, ZapperKey.NAME, ZapperKey._AREA, ZapperKey.AREA,
+																		ZapperKey._FACTION, ZapperKey.FACTION,
+																		ZapperKey._ADJSTRENGTH, ZapperKey.ADJSTRENGTH, ZapperKey._ADJINTELLIGENCE, ZapperKey.ADJINTELLIGENCE,
+																		ZapperKey._ADJWISDOM, ZapperKey.ADJWISDOM, ZapperKey._ADJDEXTERITY, ZapperKey.ADJDEXTERITY,
+																		ZapperKey._ADJCONSTITUTION, ZapperKey.ADJCONSTITUTION, ZapperKey._ADJCHARISMA, ZapperKey.ADJCHARISMA,
+																		ZapperKey._STRENGTH, ZapperKey.STRENGTH, ZapperKey._INTELLIGENCE, ZapperKey.INTELLIGENCE,
+																		ZapperKey._WISDOM, ZapperKey.WISDOM, ZapperKey._DEXTERITY, ZapperKey.DEXTERITY,
+																		ZapperKey._CONSTITUTION, ZapperKey.CONSTITUTION, ZapperKey._CHARISMA, ZapperKey.CHARISMA);
+	protected volatile Boolean			killSnapshotsSafe	= null;
+	protected final LongAdder[][]		bumpCounters		= new LongAdder[Event.values().length][BumpStat.values().length];
 	
 	private final static String achievementFilename  = "achievements.ini";
 
@@ -3534,6 +3621,7 @@ public class Achievements extends StdLibrary implements AchievementLibrary
 				eventMap.put(A.getEvent(), eventList);
 			}
 			eventList.add(A);
+			killSnapshotsSafe=null;
 		}
 		return null;
 	}
@@ -3575,22 +3663,18 @@ public class Achievements extends StdLibrary implements AchievementLibrary
 		}
 	}
 
-	protected void possiblyBumpPlayerAchievement(final MOB mob, final Achievement A, final PlayerStats pStats, final Event E, int bumpNum, Object... parms)
+	protected boolean possiblyBumpPlayerAchievement(final MOB mob, final Achievement A, final PlayerStats pStats, final Event E, int bumpNum, Object... parms)
 	{
 		if(mob.findTattoo(A.getTattoo())==null)
 		{
 			final Tracker T=pStats.getAchievementTracker(A, mob);
 			if(T.testBump(mob, bumpNum, parms))
-			{
-				if(T.isAchieved(mob))
-				{
-					giveAwards(A,mob,mob,AchievementLoadFlag.NORMAL);
-				}
-			}
+				return T.isAchieved(mob);
 		}
+		return false;
 	}
 	
-	protected void possiblyBumpAccountAchievement(final MOB mob, final Achievement A, final PlayerAccount account, final Event E, int bumpNum, Object... parms)
+	protected boolean possiblyBumpAccountAchievement(final MOB mob, final Achievement A, final PlayerAccount account, final Event E, int bumpNum, Object... parms)
 	{
 		if(account != null)
 		{
@@ -3598,16 +3682,291 @@ public class Achievements extends StdLibrary implements AchievementLibrary
 			{
 				final Tracker T=account.getAchievementTracker(A, mob);
 				if(T.testBump(mob, bumpNum, parms))
+					return T.isAchieved(mob);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Tests the trackers of every achievement of the given event for the given player.
+	 * Completed achievements are either given right away, or, if a list is given, added
+	 * to it to be given later.
+	 * @param mob the player whose achievements to bump
+	 * @param pStats the player stats with the trackers
+	 * @param E the event that occurred
+	 * @param bumpNum the amount to bump by
+	 * @param completed null to give awards now, or the list to add completed achievements to
+	 * @param parms any event-specific arguments
+	 */
+	protected void bumpAchievements(final MOB mob, final PlayerStats pStats, final Event E, final int bumpNum, final List<Achievement> completed, final Object... parms)
+	{
+		final Map<Event,List<Achievement>> eventMap=this.eventMap;
+		final List<Achievement> eventList=(eventMap==null)?null:eventMap.get(E);
+		if(eventList == null)
+			return;
+		final long startNanos=System.nanoTime();
+		final PlayerAccount account = pStats.getAccount();
+		for(final Achievement A :  eventList)
+		{
+			switch(A.getAgent())
+			{
+			case PLAYER:
+				if(possiblyBumpPlayerAchievement(mob, A, pStats, E, bumpNum, parms))
 				{
-					if(T.isAchieved(mob))
-					{
+					if(completed == null)
+						giveAwards(A,mob,mob,AchievementLoadFlag.NORMAL);
+					else
+						completed.add(A);
+				}
+				break;
+			case ACCOUNT:
+				if(possiblyBumpAccountAchievement(mob, A, account, E, bumpNum, parms))
+				{
+					if(completed == null)
 						giveAwards(A,account,mob,AchievementLoadFlag.NORMAL);
+					else
+						completed.add(A);
+				}
+				break;
+			}
+		}
+		bumpCounters[E.ordinal()][BumpStat.NANOS.ordinal()].add(System.nanoTime()-startNanos);
+	}
+
+	/**
+	 * Returns whether a bump can be tested later on the background worker, which
+	 * is only for the frequent events that depend on nothing but the player.
+	 * Kills and crafting are queued by getSnapshotBump instead, and anything else,
+	 * such as a remort or retire that changes or destroys the player right after
+	 * the event, is tested right away.
+	 * @param mob the player being bumped
+	 * @param E the event that occurred
+	 * @param parms the event-specific arguments
+	 * @return true if the bump can be queued, false otherwise
+	 */
+	protected boolean isQueueableBump(final MOB mob, final Event E, final Object[] parms)
+	{
+		if(!queueableEvents.contains(E))
+			return false;
+		if(parms != null)
+		{
+			for(final Object o : parms)
+			{
+				if((o != null)&&(o != mob))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether every kill achievement checks the killed mob only with mask
+	 * entries that read what a snapshot of the mob keeps: its name, level, race,
+	 * classes, gender, stats, factions, and area.  The answer is remembered until
+	 * the achievements change.
+	 * @return true if kills can be tested against a snapshot, false otherwise
+	 */
+	protected boolean areKillSnapshotsSafe()
+	{
+		final Boolean safe=killSnapshotsSafe;
+		if(safe != null)
+			return safe.booleanValue();
+		boolean allSafe=true;
+		final Map<Event,List<Achievement>> eventMap=this.eventMap;
+		final List<Achievement> eventList=(eventMap==null)?null:eventMap.get(Event.KILLS);
+		if(eventList != null)
+		{
+			for(final Achievement A : eventList)
+			{
+				final String zapperMask=CMStrings.deEscape(A.getRawParmVal("ZAPPERMASK"));
+				final CompiledZMask mask=CMLib.masking().getPreCompiledMask(zapperMask);
+				if(mask != null)
+				{
+					for(final CompiledZMaskEntry entry : mask.entries())
+					{
+						if(!snapshotMaskKeys.contains(entry.maskType()))
+							allSafe=false;
 					}
 				}
 			}
 		}
+		killSnapshotsSafe=Boolean.valueOf(allSafe);
+		return allSafe;
 	}
-	
+
+	/**
+	 * Returns a copy of a killed mob that keeps what the kill achievement masks
+	 * read from it, so that the kill can be tested after the mob is destroyed.
+	 * @param deadM the killed mob
+	 * @return the snapshot, a factory mob to destroy when done
+	 */
+	protected MOB getKillSnapshot(final MOB deadM)
+	{
+		final MOB snapshot=CMClass.getFactoryMOB(deadM.Name(), deadM.basePhyStats().level(), deadM.location());
+		snapshot.setBaseCharStats((CharStats)deadM.baseCharStats().copyOf());
+		snapshot.copyFactions(deadM);
+		snapshot.recoverCharStats();
+		for(final int stat : CharStats.CODES.ALLCODES())
+			snapshot.charStats().setStat(stat, deadM.charStats().getStat(stat));
+		return snapshot;
+	}
+
+	/**
+	 * Returns a key that is the same for two killed mobs only if every kill
+	 * achievement mask would treat them the same.
+	 * @param deadM the killed mob
+	 * @return the coalesce key
+	 */
+	protected String getKillCoalesceKey(final MOB deadM)
+	{
+		final StringBuilder key=new StringBuilder(deadM.Name());
+		final CharStats baseC=deadM.baseCharStats();
+		final CharStats C=deadM.charStats();
+		final Room R=deadM.location();
+		key.append('|').append(deadM.basePhyStats().level());
+		key.append('|').append(baseC.getMyRace().ID());
+		key.append('|').append(baseC.getMyClassesStr()).append('|').append(baseC.getMyLevelsStr());
+		key.append('|').append((R==null)?"":R.getArea().Name());
+		for(final int stat : CharStats.CODES.ALLCODES())
+			key.append('|').append(baseC.getStat(stat)).append(',').append(C.getStat(stat));
+		for(final Enumeration<String> f=deadM.factions();f.hasMoreElements();)
+		{
+			final String factionID=f.nextElement();
+			key.append('|').append(factionID).append('=').append(deadM.fetchFaction(factionID));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Returns a queued bump holding copies of what the trackers of a kill or
+	 * crafting event read, so that the bump can be tested, and added to the
+	 * same bump queued just before it, after the originals are gone.  A killed
+	 * monster becomes a snapshot mob, if the kill masks allow it, and a crafting
+	 * skill becomes its prototype.  Kills of players, and everything else, are
+	 * tested right away.
+	 * @param E the event that occurred
+	 * @param pStats the player stats with the trackers
+	 * @param bumpNum the amount to bump by
+	 * @param parms the event-specific arguments
+	 * @return the bump to queue, or null to test it right away
+	 */
+	protected QueuedBump getSnapshotBump(final Event E, final PlayerStats pStats, final int bumpNum, final Object[] parms)
+	{
+		if((parms==null)||(parms.length!=1))
+			return null;
+		switch(E)
+		{
+		case KILLS:
+			if((parms[0] instanceof MOB)
+			&&(((MOB)parms[0]).isMonster())
+			&&(areKillSnapshotsSafe()))
+			{
+				final MOB deadM=(MOB)parms[0];
+				final MOB snapshot=getKillSnapshot(deadM);
+				return new QueuedBump(E,pStats,bumpNum,new Object[]{snapshot},getKillCoalesceKey(deadM),snapshot);
+			}
+			break;
+		case CRAFTING:
+		case MENDER:
+			if(parms[0] instanceof Ability)
+			{
+				final Ability A=CMClass.getAbilityPrototype(((Ability)parms[0]).ID());
+				if(A!=null)
+					return new QueuedBump(E,pStats,bumpNum,new Object[]{A},A.ID(),null);
+			}
+			break;
+		default:
+			break;
+		}
+		return null;
+	}
+
+	/**
+	 * Queues a bump for the given player, adding it to the last queued bump
+	 * instead if they can be coalesced, and starts the background worker
+	 * for the player if it is not already running.
+	 * @param mob the player being bumped
+	 * @param bump the bump to queue
+	 */
+	protected void queueBump(final MOB mob, final QueuedBump bump)
+	{
+		final BumpQueue queue;
+		boolean startWorker=false;
+		synchronized(bumpQueues)
+		{
+			BumpQueue Q=bumpQueues.get(mob);
+			if(Q==null)
+			{
+				Q=new BumpQueue();
+				bumpQueues.put(mob, Q);
+			}
+			queue=Q;
+		}
+		boolean coalesced=false;
+		synchronized(queue)
+		{
+			final QueuedBump last=queue.bumps.peekLast();
+			if((last!=null)&&(last.canCoalesce(bump)))
+			{
+				last.bumpNum+=bump.bumpNum;
+				coalesced=true;
+			}
+			else
+				queue.bumps.add(bump);
+			startWorker=!queue.busy;
+			queue.busy=true;
+		}
+		bumpCounters[bump.event.ordinal()][BumpStat.QUEUED.ordinal()].increment();
+		if(coalesced)
+		{
+			bump.destroySnapshot();
+			bumpCounters[bump.event.ordinal()][BumpStat.COALESCED.ordinal()].increment();
+		}
+		if(startWorker)
+		{
+			CMLib.threads().executeRunnable(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final List<Achievement> completed=new LinkedList<Achievement>();
+					while(true)
+					{
+						final QueuedBump next;
+						synchronized(queue)
+						{
+							if(completed.size()>0)
+							{
+								queue.awards.addAll(completed);
+								completed.clear();
+							}
+							if(queue.bumps.size()==0)
+							{
+								queue.busy=false;
+								queue.notifyAll();
+								return;
+							}
+							next=queue.bumps.removeFirst();
+						}
+						try
+						{
+							bumpAchievements(mob,next.pStats,next.event,next.bumpNum,completed,next.parms);
+						}
+						catch(final Exception e)
+						{
+							Log.errOut(ID(),e);
+						}
+						finally
+						{
+							next.destroySnapshot();
+						}
+					}
+				}
+			});
+		}
+	}
+
 	@Override
 	public void possiblyBumpAchievement(final MOB mob, final Event E, int bumpNum, Object... parms)
 	{
@@ -3619,24 +3978,117 @@ public class Achievements extends StdLibrary implements AchievementLibrary
 			{
 				if(eventMap.containsKey(E))
 				{
-					final PlayerAccount account = pStats.getAccount();
-					for(final Achievement A :  eventMap.get(E))
+					bumpCounters[E.ordinal()][BumpStat.BUMPS.ordinal()].increment();
+					final QueuedBump snapshotBump;
+					if(isQueueableBump(mob, E, parms))
+						queueBump(mob, new QueuedBump(E, pStats, bumpNum, (parms == null) ? new Object[0] : parms, null, null));
+					else
+					if((snapshotBump=getSnapshotBump(E, pStats, bumpNum, parms))!=null)
+						queueBump(mob, snapshotBump);
+					else
+						bumpAchievements(mob, pStats, E, bumpNum, null, parms);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void giveQueuedAwards(final MOB mob)
+	{
+		final BumpQueue queue;
+		synchronized(bumpQueues)
+		{
+			queue=bumpQueues.get(mob);
+			if(queue == null)
+				return;
+		}
+		final List<Achievement> awards;
+		synchronized(queue)
+		{
+			if(queue.awards.size()==0)
+			{
+				if(!queue.busy)
+				{
+					synchronized(bumpQueues)
 					{
-						switch(A.getAgent())
-						{
-						case PLAYER:
-							possiblyBumpPlayerAchievement(mob, A, pStats, E, bumpNum, parms);
-							break;
-						case ACCOUNT:
-							possiblyBumpAccountAchievement(mob, A, account, E, bumpNum, parms);
-							break;
-						}
+						if(queue.bumps.size()==0)
+							bumpQueues.remove(mob);
 					}
 				}
+				return;
+			}
+			awards=new XVector<Achievement>(queue.awards);
+			queue.awards.clear();
+		}
+		final PlayerStats pStats = mob.playerStats();
+		final PlayerAccount account = (pStats != null) ? pStats.getAccount() : null;
+		for(final Achievement A : awards)
+		{
+			switch(A.getAgent())
+			{
+			case PLAYER:
+				giveAwards(A,mob,mob,AchievementLoadFlag.NORMAL);
+				break;
+			case ACCOUNT:
+				if(account != null)
+					giveAwards(A,account,mob,AchievementLoadFlag.NORMAL);
+				break;
+			}
+		}
+	}
+
+	@Override
+	public void processQueuedBumps(final MOB mob)
+	{
+		final BumpQueue queue;
+		synchronized(bumpQueues)
+		{
+			queue=bumpQueues.get(mob);
+			if(queue == null)
+				return;
+		}
+		final List<QueuedBump> bumps;
+		synchronized(queue)
+		{
+			final long waitUntil=System.currentTimeMillis()+10000;
+			while(queue.busy && (System.currentTimeMillis()<waitUntil))
+			{
+				try
+				{
+					queue.wait(100);
+				}
+				catch(final InterruptedException e)
+				{
+					break;
+				}
+			}
+			bumps=new XVector<QueuedBump>(queue.bumps);
+			queue.bumps.clear();
+		}
+		giveQueuedAwards(mob);
+		for(final QueuedBump bump : bumps)
+		{
+			try
+			{
+				bumpAchievements(mob,bump.pStats,bump.event,bump.bumpNum,null,bump.parms);
+			}
+			catch(final Exception e)
+			{
+				Log.errOut(ID(),e);
+			}
+			finally
+			{
+				bump.destroySnapshot();
 			}
 		}
 	}
 
+	@Override
+	public long getBumpCount(final Event E, final BumpStat stat)
+	{
+		return bumpCounters[E.ordinal()][stat.ordinal()].sum();
+	}
+
 	protected List<Achievement> fakeBumpPlayerAchievement(final MOB mob, final Achievement A, final PlayerStats pStats, final Event E, int bumpNum, Object... parms)
 	{
 		List<Achievement> achievements=new ArrayList<Achievement>(1);
@@ -4035,6 +4487,7 @@ public class Achievements extends StdLibrary implements AchievementLibrary
 			final List<Achievement> list=eventMap.get(A.getEvent());
 			if(list != null)
 				list.remove(A);
+			killSnapshotsSafe=null;
 		}
 		return A;
 	}
@@ -4521,6 +4974,7 @@ public class Achievements extends StdLibrary implements AchievementLibrary
 		accountAchievements=new SLinkedList<Achievement>();
 		playerAchievements=new SLinkedList<Achievement>();
 		eventMap=new TreeMap<Event,List<Achievement>>();
+		killSnapshotsSafe=null;
 		final String achievementFilename = getAchievementFilename();
 		final List<String> V=Resources.getFileLineVector(Resources.getRawFileResource(achievementFilename,true));
 		Resources.removeResource(achievementFilename);
@@ -4783,9 +5237,21 @@ public class Achievements extends StdLibrary implements AchievementLibrary
 	public boolean shutdown()
 	{
 		Resources.removeResource("SYSTEM_ACHIEVEMENT_HELP");
+		final List<MOB> queuedMobs;
+		synchronized(bumpQueues)
+		{
+			queuedMobs=new XVector<MOB>(bumpQueues.keySet());
+		}
+		for(final MOB mob : queuedMobs)
+			processQueuedBumps(mob);
+		synchronized(bumpQueues)
+		{
+			bumpQueues.clear();
+		}
 		accountAchievements=null;
 		playerAchievements=null;
 		eventMap=null;
+		killSnapshotsSafe=null;
 		return super.shutdown();
 	}
 }
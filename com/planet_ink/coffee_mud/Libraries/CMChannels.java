@@ -23,6 +23,8 @@ import com.planet_ink.coffee_mud.Races.interfaces.*;
 
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /*
    Copyright 2005-2017 Bo Zimmerman
@@ -53,7 +55,86 @@ public class CMChannels extends StdLibrary implements ChannelsLibrary
 	public List<CMChannel>	channelList		= new Vector<CMChannel>();
 	
 	protected Language		commonLang		= null;
-	
+
+	protected final AtomicInteger	subscriptionVersion	= new AtomicInteger(0);
+
+	protected final ConcurrentHashMap<CMChannel,ChannelSubscribers> subscribers = new ConcurrentHashMap<CMChannel,ChannelSubscribers>();
+
+	protected final ConcurrentHashMap<CMChannel,ChannelDelivery> deliveries = new ConcurrentHashMap<CMChannel,ChannelDelivery>();
+
+	/**
+	 * The sessions that might read one channel: every session whose mob has
+	 * not turned the channel off.  The list is kept until the subscription
+	 * version moves, which happens whenever a session starts or stops,
+	 * changes its mob, or a player turns a channel on or off.
+	 * @author agent
+	 */
+	protected static class ChannelSubscribers
+	{
+		private final int		version;
+		private final Session[]	sessions;
+
+		private ChannelSubscribers(final int version, final Session[] sessions)
+		{
+			this.version=version;
+			this.sessions=sessions;
+		}
+	}
+
+	/**
+	 * The messages of one channel not yet delivered to its subscribers.
+	 * They are delivered by a worker thread instead of the thread of the
+	 * sender, one message at a time, in the order they were sent, so that
+	 * the checks and message handlers of the listeners never hold up the
+	 * sender, and every listener still gets the channel in order.
+	 * @author agent
+	 */
+	protected static class ChannelDelivery implements Runnable
+	{
+		private final LinkedList<Runnable>	pending	= new LinkedList<Runnable>();
+		private boolean						busy	= false;
+
+		/**
+		 * Adds the delivery of one message to the end of the channel.
+		 * @param fanOut the delivery of the message to every subscriber
+		 * @return true if this must now be run to deliver it, false if it already is running
+		 */
+		protected synchronized boolean add(final Runnable fanOut)
+		{
+			pending.add(fanOut);
+			if(busy)
+				return false;
+			busy=true;
+			return true;
+		}
+
+		@Override
+		public void run()
+		{
+			while(true)
+			{
+				final Runnable fanOut;
+				synchronized(this)
+				{
+					fanOut=pending.poll();
+					if(fanOut==null)
+					{
+						busy=false;
+						return;
+					}
+				}
+				try
+				{
+					fanOut.run();
+				}
+				catch(final Exception e)
+				{
+					Log.errOut("CMChannels",e);
+				}
+			}
+		}
+	}
+
 	public final static List<ChannelMsg> emptyQueue=new ReadOnlyList<ChannelMsg>(new Vector<ChannelMsg>(1));
 	public final static Set<ChannelFlag> emptyFlags=new ReadOnlySet<ChannelFlag>(new HashSet<ChannelFlag>(1));
 
@@ -441,6 +522,10 @@ public class CMChannels extends StdLibrary implements ChannelsLibrary
 	private void clearChannels()
 	{
 		channelList=new Vector<CMChannel>();
+		subscribers.clear();
+		deliveries.clear();
+		if(CMLib.english()!=null)
+			CMLib.english().resetCommandWords();
 	}
 
 	@Override
@@ -638,6 +723,8 @@ public class CMChannels extends StdLibrary implements ChannelsLibrary
 		{
 			channelList.add(this.createNewChannel("AUCTION"));
 		}
+		if(CMLib.english()!=null)
+			CMLib.english().resetCommandWords();
 		return channelList.size();
 	}
 
@@ -680,6 +767,89 @@ public class CMChannels extends StdLibrary implements ChannelsLibrary
 		return didIt;
 	}
 
+	@Override
+	public void channelSubscriptionsChanged()
+	{
+		subscriptionVersion.incrementAndGet();
+	}
+
+	protected Session[] getChannelSubscribers(final int channelInt)
+	{
+		final CMChannel chan=getChannel(channelInt);
+		final int version=subscriptionVersion.get();
+		ChannelSubscribers subs=subscribers.get(chan);
+		if((subs==null)||(subs.version!=version))
+		{
+			final List<Session> sessions=new ArrayList<Session>();
+			for(final Session S : CMLib.sessions().allIterable())
+			{
+				final MOB M=S.mob();
+				if(M==null)
+					continue;
+				final PlayerStats pstats=M.playerStats();
+				if((pstats==null)||(!CMath.isSet(pstats.getChannelMask(),channelInt)))
+					sessions.add(S);
+			}
+			subs=new ChannelSubscribers(version,sessions.toArray(new Session[sessions.size()]));
+			subscribers.put(chan, subs);
+		}
+		return subs.sessions;
+	}
+
+	protected ChannelDelivery getChannelDelivery(final CMChannel chan)
+	{
+		ChannelDelivery delivery=deliveries.get(chan);
+		if(delivery==null)
+		{
+			delivery=new ChannelDelivery();
+			final ChannelDelivery oldDelivery=deliveries.putIfAbsent(chan, delivery);
+			if(oldDelivery!=null)
+				delivery=oldDelivery;
+		}
+		return delivery;
+	}
+
+	/**
+	 * Delivers the given channel message to everyone subscribed to the
+	 * channel when it was sent.  The delivery is queued behind any earlier
+	 * messages on the same channel and run by a worker thread, so the
+	 * listeners' checks and message handlers do not run on the sender's
+	 * thread, including the sender's own copy of the message.
+	 * @param channelInt the channel index
+	 * @param areareq true if listeners must be in the sender's area
+	 * @param msg the channel message
+	 * @param sender the mob who sent it
+	 */
+	protected void deliverChannelMsg(final int channelInt, final boolean areareq, final CMMsg msg, final MOB sender)
+	{
+		final Session[] sessions=getChannelSubscribers(channelInt);
+		final Runnable fanOut=new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				for(final Session S : sessions)
+				{
+					if((!S.isStopped())
+					&&(S.getStatus()==Session.SessionStatus.MAINLOOP))
+					{
+						final MOB M=S.mob();
+						if((M!=null)&&M.amActive()&&(CMLib.flags().isInTheGame(M,true)))
+							sendChannelCMMsgTo(S,areareq,channelInt,msg,sender);
+					}
+				}
+			}
+		};
+		if(CMLib.threads()==null)
+		{
+			fanOut.run();
+			return;
+		}
+		final ChannelDelivery delivery=getChannelDelivery(getChannel(channelInt));
+		if(delivery.add(fanOut))
+			CMLib.threads().executeRunnable(delivery);
+	}
+
 	@Override
 	public void createAndSendChannelMessage(MOB mob, String channelName, String message, boolean systemMsg)
 	{
@@ -782,8 +952,7 @@ public class CMChannels extends StdLibrary implements ChannelsLibrary
 				tweet(message);
 			final boolean areareq=flags.contains(ChannelsLibrary.ChannelFlag.SAMEAREA);
 			channelQueUp(channelInt,msg);
-			for(final Session S : CMLib.sessions().localOnlineIterable())
-				sendChannelCMMsgTo(S,areareq,channelInt,msg,mob);
+			deliverChannelMsg(channelInt,areareq,msg,mob);
 		}
 		if((CMLib.intermud().i3online()&&(CMLib.intermud().isI3channel(channelName)))
 		||(CMLib.intermud().imc2online()&&(CMLib.intermud().isIMC2channel(channelName))))
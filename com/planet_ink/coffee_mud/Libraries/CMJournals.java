@@ -334,6 +334,8 @@ public class CMJournals extends StdLibrary implements JournalsLibrary
 				}
 			});
 		}
+		if(CMLib.english()!=null)
+			CMLib.english().resetCommandWords();
 		return commandJournals.size();
 	}
 
@@ -729,6 +731,8 @@ public class CMJournals extends StdLibrary implements JournalsLibrary
 	private void clearCommandJournals()
 	{
 		commandJournals.clear();
+		if(CMLib.english()!=null)
+			CMLib.english().resetCommandWords();
 	}
 
 	@Override
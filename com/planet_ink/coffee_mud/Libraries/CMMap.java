@@ -3,7 +3,6 @@ import com.planet_ink.coffee_mud.core.interfaces.*;
 import com.planet_ink.coffee_mud.core.*;
 import com.planet_ink.coffee_mud.core.CMSecurity.DbgFlag;
 import com.planet_ink.coffee_mud.core.collections.*;
-import com.planet_ink.coffee_mud.core.collections.MultiEnumeration.MultiEnumeratorBuilder;
 import com.planet_ink.coffee_mud.core.interfaces.BoundedObject;
 import com.planet_ink.coffee_mud.core.interfaces.BoundedObject.BoundedCube;
 import com.planet_ink.coffee_mud.core.interfaces.MsgListener;
@@ -29,6 +28,8 @@ import java.lang.ref.WeakReference;
 import java.math.BigInteger;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 /*
    Copyright 2001-2017 Bo Zimmerman
 
@@ -67,6 +68,38 @@ public class CMMap extends StdLibrary implements WorldMap
 	public RTree<SpaceObject>	space					= new RTree<SpaceObject>();
 	protected Map<String,Object>SCRIPT_HOST_SEMAPHORES	= new Hashtable<String,Object>();
 
+	protected enum RoomIndex
+	{
+		DISPLAY,
+		DESC,
+		INHABS,
+		ITEMS,
+		INVENTORY,
+		STOCK
+	}
+
+	protected final Map<RoomIndex,TokenIndex<Room>> roomIndexes = new EnumMap<RoomIndex,TokenIndex<Room>>(RoomIndex.class);
+	protected final Set<Room> textChangedRooms = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<Room,Boolean>()));
+	protected final Set<Room> contentChangedRooms = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<Room,Boolean>()));
+	protected final Object reindexLock = new Object();
+
+	protected static final int	MAX_ROOM_PREFETCHES		= 8;
+	protected static final long	ROOM_PREFETCH_TIMEOUT	= 60 * 1000;
+	protected static final int	MAX_PREFETCHED_ROOMS	= 1000;
+
+	protected final LongAdder[]						thinRoomCounters	= new LongAdder[ThinRoomStat.values().length];
+	protected final ConcurrentHashMap<String,Long>	roomPrefetches		= new ConcurrentHashMap<String,Long>();
+	protected final Set<String>						prefetchedRooms		= Collections.newSetFromMap(new ConcurrentHashMap<String,Boolean>());
+
+	public CMMap()
+	{
+		super();
+		for(final RoomIndex type : RoomIndex.values())
+			roomIndexes.put(type, new TokenIndex<Room>());
+		for(int i=0;i<thinRoomCounters.length;i++)
+			thinRoomCounters[i]=new LongAdder();
+	}
+
 	protected static final Comparator<Area>	areaComparator = new Comparator<Area>()
 	{
 		@Override 
@@ -1107,23 +1140,368 @@ public class CMMap extends StdLibrary implements WorldMap
 		return null;
 	}
 
+	protected static final String SEARCH_PUNCTUATION = "`~!@#$%^&*()_-+=[]{}\\|;:'\",<.>/?";
+
+	/**
+	 * Returns the word that every room found by a search for the given
+	 * string must have somewhere in the searched text, upper cased, or null
+	 * if the search might match text without such a word, and so needs a
+	 * full scan.
+	 * @param srchStr the string being searched for
+	 * @param fetchFlags true if the search string has fetch flags, like all and .2
+	 * @return the leading word of the search, or null
+	 */
+	protected String getSearchKey(String srchStr, final boolean fetchFlags)
+	{
+		if((srchStr==null)||(srchStr.length()==0))
+			return null;
+		srchStr=srchStr.toUpperCase();
+		if(fetchFlags)
+		{
+			if((srchStr.length()<2)||(srchStr.equals("THE")))
+				return null;
+			if(srchStr.startsWith("ALL "))
+				srchStr=srchStr.substring(4);
+			final int dot=srchStr.lastIndexOf('.');
+			if(dot>0)
+			{
+				if(CMath.s_int(srchStr.substring(dot+1))>0)
+					srchStr=srchStr.substring(0,dot);
+				else
+				{
+					final int firstDot=srchStr.indexOf('.');
+					if(CMath.s_int(srchStr.substring(0,firstDot))>0)
+						srchStr=srchStr.substring(firstDot+1);
+				}
+			}
+		}
+		if(srchStr.equals("ALL")||(srchStr.indexOf('^')>=0))
+			return null;
+		if(srchStr.startsWith("$"))
+			srchStr=srchStr.substring(1);
+		int end=0;
+		while((end<srchStr.length())&&(Character.isLetter(srchStr.charAt(end))))
+			end++;
+		if(end==0)
+			return null;
+		return srchStr.substring(0,end);
+	}
+
+	/**
+	 * Adds every word in the given upper case text that the english parser
+	 * might start matching a search at, read the same way the parser reads
+	 * it while matching, skipping color codes and some punctuation.
+	 * @param tokens the set to add the words to
+	 * @param str the upper case text
+	 */
+	protected void addMatchingWords(final Set<String> tokens, final String str)
+	{
+		final StringBuilder word=new StringBuilder();
+		for(int start=0;start<str.length();start++)
+		{
+			if((start>0)&&(Character.isLetter(str.charAt(start-1))))
+				continue;
+			word.setLength(0);
+			int t=start;
+			while(t<str.length())
+			{
+				if(str.charAt(t)=='^')
+				{
+					t++;
+					if(t<str.length())
+					{
+						switch(str.charAt(t))
+						{
+						case ColorLibrary.COLORCODE_BACKGROUND:
+							if(t < str.length()-1)
+								t+=2;
+							break;
+						case ColorLibrary.COLORCODE_FANSI256:
+						case ColorLibrary.COLORCODE_BANSI256:
+							if(t < str.length()-4)
+								t+=4;
+							break;
+						default:
+							t++;
+							break;
+						}
+					}
+				}
+				if((t<str.length())&&(",?!.;".indexOf(str.charAt(t))>=0))
+					t++;
+				if((t>=str.length())||(!Character.isLetter(str.charAt(t))))
+					break;
+				word.append(str.charAt(t++));
+			}
+			if(word.length()>0)
+				tokens.add(word.toString());
+		}
+	}
+
+	/**
+	 * Adds the runs of letters in the given upper case text, ignoring all
+	 * punctuation, the way the english parser compares punctuationless names.
+	 * @param tokens the set to add the words to
+	 * @param str the upper case text
+	 */
+	protected void addPunctuationlessWords(final Set<String> tokens, final String str)
+	{
+		final StringBuilder word=new StringBuilder();
+		for(int i=0;i<str.length();i++)
+		{
+			final char c=str.charAt(i);
+			if(Character.isLetter(c))
+				word.append(c);
+			else
+			if((SEARCH_PUNCTUATION.indexOf(c)<0)
+			&&(word.length()>0))
+			{
+				tokens.add(word.toString());
+				word.setLength(0);
+			}
+		}
+		if(word.length()>0)
+			tokens.add(word.toString());
+	}
+
+	protected void addSearchTokens(final Set<String> tokens, final String text)
+	{
+		if((text==null)||(text.length()==0))
+			return;
+		final String str=text.toUpperCase();
+		addMatchingWords(tokens,str);
+		addPunctuationlessWords(tokens,str);
+		if(str.indexOf('^')>=0)
+		{
+			final String colorless=CMStrings.removeColors(text).toUpperCase();
+			addMatchingWords(tokens,colorless);
+			addPunctuationlessWords(tokens,colorless);
+		}
+	}
+
+	protected void addSearchTokens(final Set<String> tokens, final Environmental E)
+	{
+		if(E==null)
+			return;
+		addSearchTokens(tokens,E.ID());
+		addSearchTokens(tokens,E.name());
+		addSearchTokens(tokens,E.Name());
+		addSearchTokens(tokens,E.displayText());
+		if(E instanceof MOB)
+			addSearchTokens(tokens,((MOB)E).genericName());
+	}
+
+	protected void addStockSearchTokens(final Set<String> tokens, final Environmental E)
+	{
+		final ShopKeeper SK=CMLib.coffeeShops().getShopKeeper(E);
+		if(SK!=null)
+		{
+			for(final Iterator<Environmental> i=SK.getShop().getStoreInventory();i.hasNext();)
+				addSearchTokens(tokens,i.next());
+		}
+	}
+
+	protected Set<String> getSearchTokens(final Room room, final RoomIndex type)
+	{
+		final Set<String> tokens=new HashSet<String>();
+		switch(type)
+		{
+		case DISPLAY:
+			addSearchTokens(tokens,room.displayText());
+			break;
+		case DESC:
+			addSearchTokens(tokens,room.description());
+			break;
+		case INHABS:
+			for(int m=0;m<room.numInhabitants();m++)
+				addSearchTokens(tokens,room.fetchInhabitant(m));
+			break;
+		case ITEMS:
+			for(int i=0;i<room.numItems();i++)
+				addSearchTokens(tokens,room.getItem(i));
+			break;
+		case INVENTORY:
+			for(int m=0;m<room.numInhabitants();m++)
+			{
+				final MOB M=room.fetchInhabitant(m);
+				if(M!=null)
+				{
+					for(int i=0;i<M.numItems();i++)
+						addSearchTokens(tokens,M.getItem(i));
+				}
+			}
+			break;
+		case STOCK:
+			addStockSearchTokens(tokens,room);
+			for(int m=0;m<room.numInhabitants();m++)
+				addStockSearchTokens(tokens,room.fetchInhabitant(m));
+			for(int i=0;i<room.numItems();i++)
+				addStockSearchTokens(tokens,room.getItem(i));
+			break;
+		}
+		return tokens;
+	}
+
+	@Override
+	public void roomTextChanged(final Room R)
+	{
+		if(R!=null)
+			textChangedRooms.add(R);
+	}
+
+	@Override
+	public void roomContentChanged(final Room R)
+	{
+		if(R!=null)
+			contentChangedRooms.add(R);
+	}
+
+	/**
+	 * Indexes again, for the given kinds of text, every room in the given
+	 * set of rooms changed since the last search, and empties the set, so
+	 * that the indexes are current without looking at any other room.
+	 * @param changedRooms the rooms changed since they were last indexed
+	 * @param types the kinds of text those changes affect
+	 */
+	protected void reindexChangedRooms(final Set<Room> changedRooms, final RoomIndex... types)
+	{
+		synchronized(reindexLock)
+		{
+			final Room[] rooms;
+			synchronized(changedRooms)
+			{
+				if(changedRooms.isEmpty())
+					return;
+				rooms=changedRooms.toArray(new Room[changedRooms.size()]);
+				changedRooms.clear();
+			}
+			for(final Room room : rooms)
+			{
+				if(room==null)
+					continue;
+				for(final RoomIndex type : types)
+				{
+					if(room.amDestroyed())
+						roomIndexes.get(type).remove(room);
+					else
+						roomIndexes.get(type).put(room, getSearchTokens(room,type));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the given room is one that an enumeration of all the
+	 * rooms in the world would return, without walking the world to see.
+	 * @param R the room to check
+	 * @param includeSkys true to also allow the sky rooms of the world
+	 * @return true if the room is in the world, false otherwise
+	 */
+	protected boolean isWorldRoom(final Room R, final boolean includeSkys)
+	{
+		if((R==null)||(R.amDestroyed()))
+			return false;
+		Room parentR=R;
+		while(parentR.getGridParent()!=null)
+			parentR=parentR.getGridParent();
+		final Area A=parentR.getArea();
+		if((A==null)||(A.amDestroyed())||(parentR.amDestroyed()))
+			return false;
+		if((!(A instanceof BoardableShip))&&(getArea(A.Name())!=A))
+			return false;
+		if(A.isRoom(parentR))
+			return true;
+		return includeSkys && (parentR.roomID().length()==0);
+	}
+
+	protected final Comparator<Room> worldRoomComparator = new Comparator<Room>()
+	{
+		@Override
+		public int compare(final Room R1, final Room R2)
+		{
+			final Area A1=R1.getArea();
+			final Area A2=R2.getArea();
+			if(A1!=A2)
+			{
+				final boolean ship1=(A1 instanceof BoardableShip);
+				if(ship1!=(A2 instanceof BoardableShip))
+					return ship1?1:-1;
+				final int c=areaComparator.compare(A1, A2);
+				if(c!=0)
+					return c;
+			}
+			return getExtendedRoomID(R1).compareToIgnoreCase(getExtendedRoomID(R2));
+		}
+	};
+
+	/**
+	 * Returns only those rooms from the given set that have the given search
+	 * word in the given kind of text.  The indexes are kept current by the
+	 * rooms themselves, which report every change to their text or contents,
+	 * so only the changed rooms are indexed again here.  A search of the whole
+	 * world gets the matching rooms straight from the index, in world order,
+	 * without walking the world at all; any other set of rooms is walked,
+	 * but only checked against the index.  A room can still be returned that
+	 * does not match, so the rooms returned must still be searched as usual.
+	 * @param rooms the rooms to filter
+	 * @param type the kind of text to look in
+	 * @param key the search word, from getSearchKey
+	 * @return the rooms that might match
+	 */
+	protected Enumeration<Room> indexedRooms(final Enumeration<Room> rooms, final RoomIndex type, final String key)
+	{
+		if((type==RoomIndex.DISPLAY)||(type==RoomIndex.DESC))
+			reindexChangedRooms(textChangedRooms,RoomIndex.DISPLAY,RoomIndex.DESC);
+		else
+			reindexChangedRooms(contentChangedRooms,RoomIndex.INHABS,RoomIndex.ITEMS,RoomIndex.INVENTORY,RoomIndex.STOCK);
+		final Set<Room> candidates=roomIndexes.get(type).find(key);
+		if(rooms instanceof AllAreasRoomEnumerator)
+		{
+			final boolean includeSkys=((AllAreasRoomEnumerator)rooms).addSkys;
+			final List<Room> found=new ArrayList<Room>(candidates.size());
+			for(final Room R : candidates)
+			{
+				if(isWorldRoom(R,includeSkys))
+					found.add(R);
+			}
+			Collections.sort(found,worldRoomComparator);
+			return new IteratorEnumeration<Room>(found.iterator());
+		}
+		return new FilteredEnumeration<Room>(rooms, new Filterer<Room>()
+		{
+			@Override
+			public boolean passesFilter(final Room room)
+			{
+				return (room!=null)&&(candidates.contains(room));
+			}
+		});
+	}
+
 	public List<Room> findRooms(Enumeration<Room> rooms, MOB mob, String srchStr, boolean displayOnly, boolean returnFirst, int timePct)
 	{
 		final List<Room> foundRooms=new Vector<Room>();
+		final String key=getSearchKey(srchStr,false);
+		final boolean searchWorld=(key!=null)&&(rooms instanceof AllAreasRoomEnumerator);
 		Vector<Room> completeRooms=null;
-		try
-		{
-			completeRooms=new XVector<Room>(rooms);
-		}
-		catch(final Exception nse)
+		if(!searchWorld)
 		{
-			Log.errOut("CMMap",nse);
-			completeRooms=new Vector<Room>();
+			try
+			{
+				completeRooms=new XVector<Room>(rooms);
+			}
+			catch(final Exception nse)
+			{
+				Log.errOut("CMMap",nse);
+				completeRooms=new Vector<Room>();
+			}
 		}
-		final long delay=Math.round(CMath.s_pct(timePct+"%") * 1000);
+		final long delay=(key!=null)?0:Math.round(CMath.s_pct(timePct+"%") * 1000);
 
 		Enumeration<Room> enumSet;
-		enumSet=completeRooms.elements();
+		if(searchWorld)
+			enumSet=indexedRooms(rooms,RoomIndex.DISPLAY,key);
+		else
+			enumSet=(key!=null)?indexedRooms(completeRooms.elements(),RoomIndex.DISPLAY,key):completeRooms.elements();
 		while(enumSet.hasMoreElements())
 		{
 			findRoomsByDisplay(mob,enumSet,foundRooms,srchStr,returnFirst,delay);
@@ -1133,7 +1511,10 @@ public class CMMap extends StdLibrary implements WorldMap
 		}
 		if(!displayOnly)
 		{
-			enumSet=completeRooms.elements();
+			if(searchWorld)
+				enumSet=indexedRooms(rooms,RoomIndex.DESC,key);
+			else
+				enumSet=(key!=null)?indexedRooms(completeRooms.elements(),RoomIndex.DESC,key):completeRooms.elements();
 			while(enumSet.hasMoreElements())
 			{
 				findRoomsByDesc(mob,enumSet,foundRooms,srchStr,returnFirst,delay);
@@ -1211,7 +1592,10 @@ public class CMMap extends StdLibrary implements WorldMap
 		long delay=Math.round(CMath.s_pct(timePct+"%") * 1000);
 		if(delay>1000)
 			delay=1000;
-		final boolean useTimer = delay>1;
+		final String key=getSearchKey(srchStr,true);
+		if(key!=null)
+			rooms=indexedRooms(rooms,RoomIndex.INHABS,key);
+		final boolean useTimer = (delay>1)&&(key==null);
 		final boolean allRoomsAllowed=(mob==null);
 		long startTime=System.currentTimeMillis();
 		Room room;
@@ -1241,7 +1625,10 @@ public class CMMap extends StdLibrary implements WorldMap
 		long delay=Math.round(CMath.s_pct(timePct+"%") * 1000);
 		if(delay>1000)
 			delay=1000;
-		final boolean useTimer = delay>1;
+		final String key=getSearchKey(srchStr,true);
+		if(key!=null)
+			rooms=indexedRooms(rooms,RoomIndex.INHABS,key);
+		final boolean useTimer = (delay>1)&&(key==null);
 		final boolean allRoomsAllowed=(mob==null);
 		long startTime=System.currentTimeMillis();
 		Room room;
@@ -1296,7 +1683,11 @@ public class CMMap extends StdLibrary implements WorldMap
 		long delay=Math.round(CMath.s_pct(timePct+"%") * 1000);
 		if(delay>1000)
 			delay=1000;
-		final boolean useTimer = delay>1;
+		final String key=getSearchKey(srchStr,true);
+		final boolean indexed=(key!=null)&&(rooms!=null);
+		if(indexed)
+			rooms=indexedRooms(rooms,RoomIndex.INVENTORY,key);
+		final boolean useTimer = (delay>1)&&(!indexed);
 		long startTime=System.currentTimeMillis();
 		MOB M;
 		Room room;
@@ -1371,12 +1762,41 @@ public class CMMap extends StdLibrary implements WorldMap
 		long delay=Math.round(CMath.s_pct(timePct+"%") * 1000);
 		if(delay>1000)
 			delay=1000;
-		final boolean useTimer = delay>1;
+		final HashSet<Area> areas=new HashSet<Area>();
+		final String key=getSearchKey(srchStr,true);
+		final boolean indexed=(key!=null)&&(rooms!=null);
+		if(indexed && (rooms instanceof AllAreasRoomEnumerator))
+		{
+			// area shopkeepers are searched after the rooms, so every area still counts
+			for(final Enumeration<Area> a=areasPlusShips();a.hasMoreElements();)
+			{
+				final Area A=a.nextElement();
+				if((mob==null)||CMLib.flags().canAccess(mob,A))
+					areas.add(A);
+			}
+			rooms=indexedRooms(rooms,RoomIndex.STOCK,key);
+		}
+		else
+		if(indexed)
+		{
+			final Filterer<Room> areaFinder=new Filterer<Room>()
+			{
+				@Override
+				public boolean passesFilter(final Room room)
+				{
+					// area shopkeepers are searched after the rooms, so every area still counts
+					if((room != null) && ((mob==null)||CMLib.flags().canAccess(mob,room)))
+						areas.add(room.getArea());
+					return true;
+				}
+			};
+			rooms=indexedRooms(new FilteredEnumeration<Room>(rooms,areaFinder),RoomIndex.STOCK,key);
+		}
+		final boolean useTimer = (delay>1)&&(!indexed);
 		long startTime=System.currentTimeMillis();
 		MOB M=null;
 		Item I=null;
 		final HashSet<ShopKeeper> stocks=new HashSet<ShopKeeper>(1);
-		final HashSet<Area> areas=new HashSet<Area>();
 		ShopKeeper SK=null;
 		final boolean allRoomsAllowed=(mob==null);
 		if(rooms==null)
@@ -1553,7 +1973,10 @@ public class CMMap extends StdLibrary implements WorldMap
 		long delay=Math.round(CMath.s_pct(timePct+"%") * 1000);
 		if(delay>1000)
 			delay=1000;
-		final boolean useTimer = delay>1;
+		final String key=getSearchKey(srchStr,true);
+		if(key!=null)
+			rooms=indexedRooms(rooms,RoomIndex.ITEMS,key);
+		final boolean useTimer = (delay>1)&&(key==null);
 		long startTime=System.currentTimeMillis();
 		final boolean allRoomsAllowed=(mob==null);
 		Room room;
@@ -2073,6 +2496,59 @@ public class CMMap extends StdLibrary implements WorldMap
 		return from.getRoomInDir(d);
 	}
 	
+	@Override
+	public boolean startRoomPrefetch(String roomID)
+	{
+		if((roomID==null)||(roomID.length()==0))
+			return false;
+		if(roomPrefetches.size()>=MAX_ROOM_PREFETCHES)
+		{
+			final long tooOld=System.currentTimeMillis()-ROOM_PREFETCH_TIMEOUT;
+			for(final Iterator<Map.Entry<String,Long>> i=roomPrefetches.entrySet().iterator();i.hasNext();)
+			{
+				if(i.next().getValue().longValue()<tooOld)
+					i.remove();
+			}
+			if(roomPrefetches.size()>=MAX_ROOM_PREFETCHES)
+			{
+				thinRoomCounters[ThinRoomStat.PREFETCH_SKIPPED.ordinal()].increment();
+				return false;
+			}
+		}
+		return roomPrefetches.putIfAbsent(roomID, Long.valueOf(System.currentTimeMillis()))==null;
+	}
+
+	@Override
+	public void finishRoomPrefetch(String roomID, boolean loaded)
+	{
+		if(roomID==null)
+			return;
+		roomPrefetches.remove(roomID);
+		if(loaded)
+		{
+			thinRoomCounters[ThinRoomStat.PREFETCHED.ordinal()].increment();
+			if(prefetchedRooms.size()>=MAX_PREFETCHED_ROOMS)
+				prefetchedRooms.clear();
+			prefetchedRooms.add(roomID);
+		}
+	}
+
+	@Override
+	public void thinRoomAccessed(String roomID, boolean loaded)
+	{
+		if(loaded)
+			thinRoomCounters[ThinRoomStat.LOADED.ordinal()].increment();
+		else
+		if((roomID!=null)&&(!prefetchedRooms.isEmpty())&&(prefetchedRooms.remove(roomID)))
+			thinRoomCounters[ThinRoomStat.PREFETCH_HITS.ordinal()].increment();
+	}
+
+	@Override
+	public long getThinRoomCount(ThinRoomStat stat)
+	{
+		return thinRoomCounters[stat.ordinal()].sum();
+	}
+
 	@Override
 	public int getExitDir(Room from, Exit to)
 	{
@@ -2812,6 +3288,21 @@ public class CMMap extends StdLibrary implements WorldMap
 		return finder;
 	}
 
+	/**
+	 * Returns the rooms a liberal search looks through: every room in the
+	 * world, skys included, or else the rooms of the given area and of the
+	 * ships in it.
+	 * @param A the area to search, or null for the whole world
+	 * @return the rooms to search
+	 */
+	@SuppressWarnings({"unchecked","rawtypes"})
+	protected Enumeration<Room> liberalSearchRooms(final Area A)
+	{
+		if(A==null)
+			return roomsFilled();
+		return new MultiEnumeration<Room>(new Enumeration[]{A.getProperMap(),shipsRoomEnumerator(A)});
+	}
+
 	protected List<Room> findWorldRoomsLiberally(MOB mob,
 												 String cmd,
 												 String srchWhatAERIPMVK,
@@ -2900,19 +3391,9 @@ public class CMMap extends StdLibrary implements WorldMap
 					return returnResponse(rooms,room);
 
 				final Area A=area;
-				final MultiEnumeratorBuilder<Room> roomer = new MultiEnumeratorBuilder<Room>()
-				{
-					@SuppressWarnings("unchecked")
-
-					@Override
-					public MultiEnumeration<Room> getList()
-					{
-						if(A==null)
-							return new MultiEnumeration<Room>(roomsFilled());
-						else
-							return new MultiEnumeration<Room>(new Enumeration[]{A.getProperMap(),shipsRoomEnumerator(A)});
-					}
-				};
+				// indexed searches are always current, so only the others use the finder caches
+				final boolean cacheFetches=(getSearchKey(srchStr,true)==null);
+				final boolean cacheRooms=(getSearchKey(srchStr,false)==null);
 
 				// no good, so look for room inhabitants
 				if(searchInhabs && room==null)
@@ -2920,7 +3401,7 @@ public class CMMap extends StdLibrary implements WorldMap
 					final Map<String,List<MOB>> finder=getMOBFinder();
 					List<MOB> candidates=null;
 
-					if((mob==null)||(mob.isMonster()))
+					if(cacheFetches&&((mob==null)||(mob.isMonster())))
 					{
 						candidates=checkMOBCachedList(finder.get(srchStr.toLowerCase()));
 						if(returnFirst&&(candidates!=null)&&(candidates.size()>1))
@@ -2928,8 +3409,8 @@ public class CMMap extends StdLibrary implements WorldMap
 					}
 					if(candidates==null)
 					{
-						candidates=findInhabitants(roomer.getList(), mob, srchStr,returnFirst, timePct);
-						if((!disableCaching)&&(!returnFirst)&&((mob==null)||(mob.isMonster())))
+						candidates=findInhabitants(liberalSearchRooms(A), mob, srchStr,returnFirst, timePct);
+						if(cacheFetches&&(!disableCaching)&&(!returnFirst)&&((mob==null)||(mob.isMonster())))
 							finder.put(srchStr.toLowerCase(), candidates);
 
 					}
@@ -2944,7 +3425,7 @@ public class CMMap extends StdLibrary implements WorldMap
 				{
 					final Map<String,List<Room>> finder=getRoomFinder();
 					List<Room> candidates=null;
-					if((mob==null)||(mob.isMonster()))
+					if(cacheRooms&&((mob==null)||(mob.isMonster())))
 					{
 						candidates=finder.get(srchStr.toLowerCase());
 						if(returnFirst&&(candidates!=null)&&(candidates.size()>1))
@@ -2952,8 +3433,8 @@ public class CMMap extends StdLibrary implements WorldMap
 					}
 					if(candidates==null)
 					{
-						candidates=findRooms(roomer.getList(), mob, srchStr, false,returnFirst, timePct);
-						if((!disableCaching)&&(!returnFirst)&&((mob==null)||(mob.isMonster())))
+						candidates=findRooms(liberalSearchRooms(A), mob, srchStr, false,returnFirst, timePct);
+						if(cacheRooms&&(!disableCaching)&&(!returnFirst)&&((mob==null)||(mob.isMonster())))
 							finder.put(srchStr.toLowerCase(), candidates);
 					}
 					if(candidates.size()>0)
@@ -2967,7 +3448,7 @@ public class CMMap extends StdLibrary implements WorldMap
 				{
 					final Map<String,List<Item>> finder=getRoomItemFinder();
 					List<Item> candidates=null;
-					if((mob==null)||(mob.isMonster()))
+					if(cacheFetches&&((mob==null)||(mob.isMonster())))
 					{
 						candidates=checkRoomItemCachedList(finder.get(srchStr.toLowerCase()));
 						if(returnFirst&&(candidates!=null)&&(candidates.size()>1))
@@ -2975,8 +3456,8 @@ public class CMMap extends StdLibrary implements WorldMap
 					}
 					if(candidates==null)
 					{
-						candidates=findRoomItems(roomer.getList(), mob, srchStr, false,returnFirst,timePct);
-						if((!disableCaching)&&(!returnFirst)&&((mob==null)||(mob.isMonster())))
+						candidates=findRoomItems(liberalSearchRooms(A), mob, srchStr, false,returnFirst,timePct);
+						if(cacheFetches&&(!disableCaching)&&(!returnFirst)&&((mob==null)||(mob.isMonster())))
 							finder.put(srchStr.toLowerCase(), candidates);
 					}
 					if(candidates.size()>0)
@@ -2993,7 +3474,7 @@ public class CMMap extends StdLibrary implements WorldMap
 				{
 					final Map<String,List<Item>> finder=getInvItemFinder();
 					List<Item> candidates=null;
-					if((mob==null)||(mob.isMonster()))
+					if(cacheFetches&&((mob==null)||(mob.isMonster())))
 					{
 						candidates=checkInvCachedList(finder.get(srchStr.toLowerCase()));
 						if(returnFirst&&(candidates!=null)&&(candidates.size()>1))
@@ -3001,8 +3482,8 @@ public class CMMap extends StdLibrary implements WorldMap
 					}
 					if(candidates==null)
 					{
-						candidates=findInventory(roomer.getList(), mob, srchStr, returnFirst,timePct);
-						if((!disableCaching)&&(!returnFirst)&&((mob==null)||(mob.isMonster())))
+						candidates=findInventory(liberalSearchRooms(A), mob, srchStr, returnFirst,timePct);
+						if(cacheFetches&&(!disableCaching)&&(!returnFirst)&&((mob==null)||(mob.isMonster())))
 							finder.put(srchStr.toLowerCase(), candidates);
 					}
 					if(candidates.size()>0)
@@ -3016,7 +3497,7 @@ public class CMMap extends StdLibrary implements WorldMap
 				{
 					final Map<String,List<Environmental>> finder=getStockFinder();
 					List<Environmental> candidates=null;
-					if((mob==null)||(mob.isMonster()))
+					if(cacheFetches&&((mob==null)||(mob.isMonster())))
 					{
 						candidates=finder.get(srchStr.toLowerCase());
 						if(returnFirst&&(candidates!=null)&&(candidates.size()>1))
@@ -3024,8 +3505,8 @@ public class CMMap extends StdLibrary implements WorldMap
 					}
 					if(candidates==null)
 					{
-						candidates=findShopStock(roomer.getList(), mob, srchStr, returnFirst,false,timePct);
-						if((!disableCaching)&&(!returnFirst)&&((mob==null)||(mob.isMonster())))
+						candidates=findShopStock(liberalSearchRooms(A), mob, srchStr, returnFirst,false,timePct);
+						if(cacheFetches&&(!disableCaching)&&(!returnFirst)&&((mob==null)||(mob.isMonster())))
 							finder.put(srchStr.toLowerCase(), candidates);
 					}
 					if(candidates.size()>0)
@@ -3214,6 +3695,12 @@ public class CMMap extends StdLibrary implements WorldMap
 		if(o instanceof Auctioneer)
 			delAuctionHouse((Auctioneer)o);
 
+		if(o instanceof Room)
+		{
+			for(final TokenIndex<Room> index : roomIndexes.values())
+				index.remove((Room)o);
+		}
+
 		if(o instanceof PhysicalAgent)
 		{
 			final PhysicalAgent AE=(PhysicalAgent)o;
@@ -3974,4 +4461,23 @@ public class CMMap extends StdLibrary implements WorldMap
 		return minDistance;
 	}
 
+	@Override
+	public double getMinDistanceFrom(final long[] prevCoords, final long[] curCoords, final long[] toCoords)
+	{
+		final double dx=(double)curCoords[0]-prevCoords[0];
+		final double dy=(double)curCoords[1]-prevCoords[1];
+		final double dz=(double)curCoords[2]-prevCoords[2];
+		final double px=(double)toCoords[0]-prevCoords[0];
+		final double py=(double)toCoords[1]-prevCoords[1];
+		final double pz=(double)toCoords[2]-prevCoords[2];
+		final double moved=(dx*dx)+(dy*dy)+(dz*dz);
+		double along=0.0;
+		if(moved>0.0)
+			along=Math.max(0.0, Math.min(1.0, ((px*dx)+(py*dy)+(pz*dz))/moved));
+		final double x=px-(along*dx);
+		final double y=py-(along*dy);
+		final double z=pz-(along*dz);
+		return Math.sqrt((x*x)+(y*y)+(z*z));
+	}
+
 }
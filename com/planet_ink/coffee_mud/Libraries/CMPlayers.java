@@ -460,6 +460,7 @@ public class CMPlayers extends StdLibrary implements PlayerLibrary
 			if((!S.isStopped())&&(S.mob()!=null)&&(S.mob().Name().equals(deadMOB.Name())))
 				deadMOB=S.mob();
 		}
+		CMLib.achievements().processQueuedBumps(deadMOB);
 		if(deadMOB.playerStats()!=null)
 		{
 			final PlayerAccount A=deadMOB.playerStats().getAccount();
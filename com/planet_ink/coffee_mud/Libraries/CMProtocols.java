@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.mozilla.javascript.*;
 import org.mozilla.javascript.optimizer.*;
@@ -53,6 +54,33 @@ public class CMProtocols extends StdLibrary implements ProtocolLibrary
 		return "CMProtocols";
 	}
 
+	protected final LongAdder[][]	gmcpPingCounters	= new LongAdder[GMCPCommand.values().length][PingStat.values().length];
+	protected final LongAdder[]		msdpPingCounters	= new LongAdder[PingStat.values().length];
+
+	public CMProtocols()
+	{
+		super();
+		for(int c=0;c<gmcpPingCounters.length;c++)
+		{
+			for(int i=0;i<gmcpPingCounters[c].length;i++)
+				gmcpPingCounters[c][i]=new LongAdder();
+		}
+		for(int i=0;i<msdpPingCounters.length;i++)
+			msdpPingCounters[i]=new LongAdder();
+	}
+
+	@Override
+	public long getGmcpPingCount(final GMCPCommand pkg, final PingStat stat)
+	{
+		return gmcpPingCounters[pkg.ordinal()][stat.ordinal()].sum();
+	}
+
+	@Override
+	public long getMsdpPingCount(final PingStat stat)
+	{
+		return msdpPingCounters[stat.ordinal()].sum();
+	}
+
 	// this is the sound support method.
 	// it builds a valid MSP sound code from built-in web server
 	// info, and the info provided.
@@ -1560,7 +1588,12 @@ public class CMProtocols extends StdLibrary implements ProtocolLibrary
 				}
 			}
 			if(broken==null)
+			{
+				msdpPingCounters[PingStat.UNCHANGED.ordinal()].add(reportables.size());
 				return null;
+			}
+			msdpPingCounters[PingStat.UNCHANGED.ordinal()].add(reportables.size()-broken.size());
+			msdpPingCounters[PingStat.SENT.ordinal()].add(broken.size());
 			final ByteArrayOutputStream buf=new ByteArrayOutputStream();
 			buf.write(Session.TELNET_IAC);buf.write(Session.TELNET_SB);buf.write(Session.TELNET_MSDP);
 			for(final Object var : broken)
@@ -2458,8 +2491,121 @@ public class CMProtocols extends StdLibrary implements ProtocolLibrary
 		return null;
 	}
 
-	protected byte[] possiblePingGmcp(final Session session, final Map<String,Long> reporteds, final Map<String,Double> supportables, final String command)
+	protected static long stampGmcp(final long h, final long val)
 	{
+		return (h ^ val) * 0x100000001b3L;
+	}
+
+	protected static long stampGmcp(long h, final MOB M)
+	{
+		h=stampGmcp(h, System.identityHashCode(M));
+		h=stampGmcp(h, M.getStateVersion());
+		h=stampGmcp(h, M.phyStats().disposition());
+		h=stampGmcp(h, M.curState().getHitPoints());
+		h=stampGmcp(h, M.curState().getMana());
+		h=stampGmcp(h, M.curState().getMovement());
+		h=stampGmcp(h, M.maxState().getHitPoints());
+		h=stampGmcp(h, M.maxState().getMana());
+		h=stampGmcp(h, M.maxState().getMovement());
+		return h;
+	}
+
+	/**
+	 * Returns a number made from everything the given gmcp package
+	 * reports about the mob of the given session, read straight from
+	 * the mob, without building the package.  If the number is the
+	 * same as the last time the package was pinged, the package
+	 * need not be built again.  Packages whose contents cannot be
+	 * cheaply checked this way, such as char.worth, return null.
+	 * @param session the session being pinged
+	 * @param cmd the gmcp package being pinged
+	 * @return the stamp of the package, or null to always build it
+	 */
+	protected Long getGmcpStamp(final Session session, final GMCPCommand cmd)
+	{
+		final MOB mob=session.mob();
+		long h=0xcbf29ce484222325L;
+		if(mob==null)
+			return (cmd==GMCPCommand.char_status) ? Long.valueOf(h) : null;
+		h=stampGmcp(h, System.identityHashCode(mob));
+		switch(cmd)
+		{
+		case char_vitals:
+			h=stampGmcp(h, mob.curState().getHitPoints());
+			h=stampGmcp(h, mob.curState().getMana());
+			h=stampGmcp(h, mob.curState().getMovement());
+			break;
+		case char_maxstats:
+			h=stampGmcp(h, mob.maxState().getHitPoints());
+			h=stampGmcp(h, mob.maxState().getMana());
+			h=stampGmcp(h, mob.maxState().getMovement());
+			break;
+		case char_status:
+		{
+			h=stampGmcp(h, mob.phyStats().level());
+			h=stampGmcp(h, mob.getExpNeededLevel());
+			h=stampGmcp(h, mob.curState().getHunger());
+			h=stampGmcp(h, mob.curState().getThirst());
+			h=stampGmcp(h, mob.curState().getFatigue());
+			if(mob.playerStats()!=null)
+				h=stampGmcp(h, mob.playerStats().getHygiene());
+			h=stampGmcp(h, mob.fetchFaction(CMLib.factions().AlignID()));
+			h=stampGmcp(h, session.isAfk()?1:0);
+			h=stampGmcp(h, mob.phyStats().disposition());
+			h=stampGmcp(h, mob.getAttributesBitmap());
+			final MOB vicM=mob.getVictim();
+			if(vicM!=null)
+				h=stampGmcp(h, vicM);
+			break;
+		}
+		case char_base:
+		{
+			h=stampGmcp(h, mob.getStateVersion());
+			h=stampGmcp(h, mob.getExpNextLevel());
+			final String title = (mob.playerStats()!=null)?mob.playerStats().getActiveTitle():null;
+			if(title!=null)
+				h=stampGmcp(h, title.hashCode());
+			break;
+		}
+		case char_statusvars:
+			h=stampGmcp(h, mob.getStateVersion());
+			h=stampGmcp(h, mob.phyStats().level());
+			break;
+		case group:
+		{
+			final MOB leaderM=(mob.amFollowing()==null)?mob:mob.amUltimatelyFollowing();
+			h=stampGmcp(h, System.identityHashCode(leaderM));
+			h=stampGmcp(h, mob.fetchFaction(CMLib.factions().AlignID()));
+			h=stampGmcp(h, mob.phyStats().sensesMask());
+			for(final MOB M : mob.getGroupMembers(new HashSet<MOB>()))
+			{
+				h=stampGmcp(h, M);
+				h=stampGmcp(h, M.phyStats().level());
+				h=stampGmcp(h, M.getExpNeededLevel());
+			}
+			break;
+		}
+		default:
+			return null;
+		}
+		return Long.valueOf(h);
+	}
+
+	protected byte[] possiblePingGmcp(final Session session, final Map<String,Long> reporteds, final Map<String,Double> supportables, final GMCPCommand cmd)
+	{
+		final String command=cmd.name().replace('_','.');
+		final LongAdder[] counters=gmcpPingCounters[cmd.ordinal()];
+		final Long stamp=getGmcpStamp(session, cmd);
+		if(stamp!=null)
+		{
+			final String stampKey="stamp."+command;
+			if(stamp.equals(reporteds.get(stampKey)))
+			{
+				counters[PingStat.SKIPPED.ordinal()].increment();
+				return null;
+			}
+			reporteds.put(stampKey, stamp);
+		}
 		final String chunkStr=processGmcpStr(session, command, supportables);
 		if(chunkStr!=null)
 		{
@@ -2468,11 +2614,13 @@ public class CMProtocols extends StdLibrary implements ProtocolLibrary
 			if((oldHash==null)||(oldHash.longValue()!=newHash))
 			{
 				reporteds.put(command, Long.valueOf(newHash));
+				counters[PingStat.SENT.ordinal()].increment();
 				if(CMSecurity.isDebugging(DbgFlag.GMCP))
 					Log.debugOut("GMCP Sent: "+chunkStr);
 				return buildGmcpResponse(chunkStr);
 			}
 		}
+		counters[PingStat.UNCHANGED.ordinal()].increment();
 		return null;
 	}
 	
@@ -2495,6 +2643,7 @@ public class CMProtocols extends StdLibrary implements ProtocolLibrary
 					}
 					if(room!=null)
 					{
+						final LongAdder[] counters=gmcpPingCounters[GMCPCommand.room_info.ordinal()];
 						final Long oldRoomHash=reporteds.get("system.currentRoom");
 						if((oldRoomHash==null)||(room.hashCode()!=oldRoomHash.longValue()))
 						{
@@ -2503,8 +2652,15 @@ public class CMProtocols extends StdLibrary implements ProtocolLibrary
 							final char[] cmd=command.toCharArray();
 							buf=processGmcp(session, new String(cmd), supportables);
 							if(buf!=null)
+							{
 								bout.write(buf);
+								counters[PingStat.SENT.ordinal()].increment();
+							}
+							else
+								counters[PingStat.UNCHANGED.ordinal()].increment();
 						}
+						else
+							counters[PingStat.SKIPPED.ordinal()].increment();
 					}
 				}
 				return (bout.size()==0) ? null: bout.toByteArray();
@@ -2537,7 +2693,7 @@ public class CMProtocols extends StdLibrary implements ProtocolLibrary
 			byte[] buf;
 			if(charSupported||supportables.containsKey("char.vitals"))
 			{
-				buf=possiblePingGmcp(session, reporteds, supportables, "char.vitals");
+				buf=possiblePingGmcp(session, reporteds, supportables, GMCPCommand.char_vitals);
 				if(buf!=null)
 					bout.write(buf);
 			}
@@ -2559,7 +2715,7 @@ public class CMProtocols extends StdLibrary implements ProtocolLibrary
 				reporteds.put("system.nextMedReport", new Long(now+3999));
 				if(charSupported||supportables.containsKey("char.status"))
 				{
-					buf=possiblePingGmcp(session, reporteds, supportables, "char.status");
+					buf=possiblePingGmcp(session, reporteds, supportables, GMCPCommand.char_status);
 					if(buf!=null)
 						bout.write(buf);
 				}
@@ -2567,7 +2723,7 @@ public class CMProtocols extends StdLibrary implements ProtocolLibrary
 				{
 					if(supportables.containsKey("group"))
 					{
-						buf=possiblePingGmcp(session, reporteds, supportables, "group");
+						buf=possiblePingGmcp(session, reporteds, supportables, GMCPCommand.group);
 						if(buf!=null)
 							bout.write(buf);
 					}
@@ -2578,25 +2734,25 @@ public class CMProtocols extends StdLibrary implements ProtocolLibrary
 				reporteds.put("system.nextLongReport", new Long(now+15996));
 				if(charSupported||supportables.containsKey("char.worth"))
 				{
-					buf=possiblePingGmcp(session, reporteds, supportables, "char.worth");
+					buf=possiblePingGmcp(session, reporteds, supportables, GMCPCommand.char_worth);
 					if(buf!=null)
 						bout.write(buf);
 				}
 				if(charSupported||supportables.containsKey("char.maxstats"))
 				{
-					buf=possiblePingGmcp(session, reporteds, supportables, "char.maxstats");
+					buf=possiblePingGmcp(session, reporteds, supportables, GMCPCommand.char_maxstats);
 					if(buf!=null)
 						bout.write(buf);
 				}
 				if(charSupported||supportables.containsKey("char.base"))
 				{
-					buf=possiblePingGmcp(session, reporteds, supportables, "char.base");
+					buf=possiblePingGmcp(session, reporteds, supportables, GMCPCommand.char_base);
 					if(buf!=null)
 						bout.write(buf);
 				}
 				if(charSupported||supportables.containsKey("char.statusvars"))
 				{
-					buf=possiblePingGmcp(session, reporteds, supportables, "char.statusvars");
+					buf=possiblePingGmcp(session, reporteds, supportables, GMCPCommand.char_statusvars);
 					if(buf!=null)
 						bout.write(buf);
 				}
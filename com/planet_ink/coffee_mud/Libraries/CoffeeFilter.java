@@ -44,12 +44,454 @@ public class CoffeeFilter extends StdLibrary implements TelnetFilter
 	private Hashtable<String, Pronoun>	tagTable	= null;
 	private ColorState					normalColor	= null;
 
+	protected static final int	TEMPLATE_CACHE_SIZE		= 1024;
+	protected static final int	TEMPLATE_STRIPES		= 16;
+	protected static final int	TEMPLATE_MAX_LENGTH		= 4096;
+
+	private final Map<String,OutTemplate>[]	templateStripes;
+
+	/**
+	 * A tag found in a message template: the upper-cased contents of the tag,
+	 * such as S-NAME, and its pronoun, or NONE where a &lt; does not start a tag.
+	 */
+	protected static class OutTag
+	{
+		private static final OutTag	NONE	= new OutTag(null,null);
+		private final String		cmd;
+		private final Pronoun		pronoun;
+
+		private OutTag(final String cmd, final Pronoun pronoun)
+		{
+			this.cmd=cmd;
+			this.pronoun=pronoun;
+		}
+	}
+
+	/**
+	 * A message parsed once for the output filter, so that it can be rendered for many
+	 * viewers.  For each character it holds where the run of characters the filter passes
+	 * over untouched ends, and the first letter in that run, and for each &lt;, the tag it
+	 * starts, if any.  A render only reads it where the buffer still holds the message as
+	 * it was given, so the output is the same as when the message is filtered without it.
+	 */
+	protected static class OutTemplate
+	{
+		private static final OutTemplate	UNPARSED	= new OutTemplate();
+		private final String				msg;
+		private final int[]					runEnds;
+		private final int[]					runLetters;
+		private final OutTag[]				tags;
+
+		private OutTemplate()
+		{
+			msg="";
+			runEnds=new int[0];
+			runLetters=new int[0];
+			tags=new OutTag[0];
+		}
+
+		protected OutTemplate(final CoffeeFilter filter, final String msg)
+		{
+			final int size=msg.length();
+			this.msg=msg;
+			runEnds=new int[size];
+			runLetters=new int[size];
+			tags=new OutTag[size];
+			for(int i=size-1;i>=0;i--)
+			{
+				final char c=msg.charAt(i);
+				if(isPassedOver(c))
+				{
+					final boolean inRun=(i<size-1)&&(runEnds[i+1]>i+1);
+					runEnds[i]=inRun?runEnds[i+1]:(i+1);
+					runLetters[i]=Character.isLetter(c)?i:(inRun?runLetters[i+1]:-1);
+				}
+				else
+				{
+					runEnds[i]=i;
+					runLetters[i]=-1;
+					if(c=='<')
+					{
+						final String cmd=filter.getTagCommand(msg,i);
+						tags[i]=(cmd==null)?OutTag.NONE:new OutTag(cmd,filter.getTagTable().get(cmd.substring(1)));
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns whether the output filter does nothing with the given character
+		 * but check whether it is the first letter of the message.
+		 * @param c the character
+		 * @return true if the character is passed over, false otherwise
+		 */
+		protected static boolean isPassedOver(final char c)
+		{
+			switch(c)
+			{
+			case ' ':
+			case (char)13:
+			case (char)10:
+			case '`':
+			case '!':
+			case '>':
+			case '"':
+			case '&':
+			case '%':
+			case '(':
+			case '\\':
+			case '<':
+			case '\033':
+			case '^':
+				return false;
+			default:
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * The buffer a message is filtered in.  It has the StringBuffer methods the filter
+	 * uses, but keeps a gap where it was last changed, so that changing it as the filter
+	 * moves along, or wraps the line just behind it, costs the distance from the last
+	 * change instead of the length of the rest of the message.  If it was made from a
+	 * template, it also knows which part of it still holds the message as it was given.
+	 */
+	protected static class OutBuffer implements CharSequence
+	{
+		private char[]				chars;
+		private int					gapStart;
+		private int					gapEnd;
+		private int					pristine;
+		private final OutTemplate	template;
+
+		protected OutBuffer(final String msg, final OutTemplate template)
+		{
+			final int size=msg.length();
+			chars=new char[size+(size/4)+16];
+			gapStart=0;
+			gapEnd=chars.length-size;
+			msg.getChars(0, size, chars, gapEnd);
+			this.template=template;
+			pristine=(template!=null)?gapEnd:chars.length;
+		}
+
+		@Override
+		public int length()
+		{
+			return chars.length-gapEnd+gapStart;
+		}
+
+		@Override
+		public char charAt(final int index)
+		{
+			if((index<0)||(index>=length()))
+				throw new StringIndexOutOfBoundsException(index);
+			return (index<gapStart)?chars[index]:chars[index+gapEnd-gapStart];
+		}
+
+		@Override
+		public CharSequence subSequence(final int start, final int end)
+		{
+			return substring(start,end);
+		}
+
+		@Override
+		public String toString()
+		{
+			return substring(0,length());
+		}
+
+		public String substring(final int start, final int end)
+		{
+			if((start<0)||(start>end)||(end>length()))
+				throw new StringIndexOutOfBoundsException(start);
+			if(end<=gapStart)
+				return new String(chars,start,end-start);
+			if(start>=gapStart)
+				return new String(chars,start+gapEnd-gapStart,end-start);
+			return new StringBuilder(end-start).append(chars,start,gapStart-start).append(chars,gapEnd,end-gapStart).toString();
+		}
+
+		public int indexOf(final String str, final int fromIndex)
+		{
+			final int last=length()-str.length();
+			for(int i=Math.max(0,fromIndex);i<=last;i++)
+			{
+				int j=0;
+				while((j<str.length())&&(charAt(i+j)==str.charAt(j)))
+					j++;
+				if(j==str.length())
+					return i;
+			}
+			return -1;
+		}
+
+		public void setCharAt(final int index, final char c)
+		{
+			if((index<0)||(index>=length()))
+				throw new StringIndexOutOfBoundsException(index);
+			if(index<gapStart)
+				chars[index]=c;
+			else
+			{
+				final int p=index+gapEnd-gapStart;
+				chars[p]=c;
+				if(p>=pristine)
+					pristine=p+1;
+			}
+		}
+
+		private void moveGap(final int index)
+		{
+			if(index<gapStart)
+			{
+				final int size=gapStart-index;
+				System.arraycopy(chars,index,chars,gapEnd-size,size);
+				gapStart=index;
+				gapEnd-=size;
+			}
+			else
+			if(index>gapStart)
+			{
+				final int size=index-gapStart;
+				System.arraycopy(chars,gapEnd,chars,gapStart,size);
+				gapStart=index;
+				gapEnd+=size;
+				if(pristine<gapEnd)
+					pristine=gapEnd;
+			}
+		}
+
+		private void makeRoom(final int size)
+		{
+			if((gapEnd-gapStart)<size)
+			{
+				final int tailSize=chars.length-gapEnd;
+				final char[] newChars=new char[Math.max(chars.length*2,chars.length+size)];
+				System.arraycopy(chars,0,newChars,0,gapStart);
+				System.arraycopy(chars,gapEnd,newChars,newChars.length-tailSize,tailSize);
+				pristine+=newChars.length-chars.length;
+				gapEnd=newChars.length-tailSize;
+				chars=newChars;
+			}
+		}
+
+		public OutBuffer insert(final int offset, final char c)
+		{
+			if((offset<0)||(offset>length()))
+				throw new StringIndexOutOfBoundsException(offset);
+			moveGap(offset);
+			makeRoom(1);
+			chars[gapStart++]=c;
+			return this;
+		}
+
+		public OutBuffer insert(final int offset, final char[] str)
+		{
+			if((offset<0)||(offset>length()))
+				throw new StringIndexOutOfBoundsException(offset);
+			moveGap(offset);
+			makeRoom(str.length);
+			System.arraycopy(str,0,chars,gapStart,str.length);
+			gapStart+=str.length;
+			return this;
+		}
+
+		public OutBuffer insert(final int offset, final String str)
+		{
+			if((offset<0)||(offset>length()))
+				throw new StringIndexOutOfBoundsException(offset);
+			moveGap(offset);
+			makeRoom(str.length());
+			str.getChars(0,str.length(),chars,gapStart);
+			gapStart+=str.length();
+			return this;
+		}
+
+		public OutBuffer append(final String str)
+		{
+			return insert(length(),str);
+		}
+
+		public OutBuffer delete(final int start, int end)
+		{
+			if(end>length())
+				end=length();
+			if((start<0)||(start>end))
+				throw new StringIndexOutOfBoundsException(start);
+			moveGap(start);
+			gapEnd+=end-start;
+			if(pristine<gapEnd)
+				pristine=gapEnd;
+			return this;
+		}
+
+		public OutBuffer deleteCharAt(final int index)
+		{
+			if((index<0)||(index>=length()))
+				throw new StringIndexOutOfBoundsException(index);
+			return delete(index,index+1);
+		}
+
+		public OutBuffer replace(final int start, int end, final String str)
+		{
+			if(end>length())
+				end=length();
+			if((start<0)||(start>end))
+				throw new StringIndexOutOfBoundsException(start);
+			delete(start,end);
+			return insert(start,str);
+		}
+
+		/**
+		 * Returns where in the template message the given index is, if the buffer
+		 * still holds the message as it was given from there to the end.
+		 * @param index the index in this buffer
+		 * @return the index in the template message, or -1
+		 */
+		protected int getTemplateIndex(final int index)
+		{
+			if((template==null)||(index<gapStart))
+				return -1;
+			final int p=index+gapEnd-gapStart;
+			if((p<pristine)||(p>=chars.length))
+				return -1;
+			return template.msg.length()-(chars.length-p);
+		}
+
+		/**
+		 * Returns how many characters, starting at the given index, the filter passes
+		 * over untouched, according to the template, up to the given maximum.
+		 * @param index the index in this buffer
+		 * @param max the most characters to return
+		 * @return the number of characters passed over, or 0 if unknown
+		 */
+		protected int getPassedOver(final int index, final int max)
+		{
+			final int t=getTemplateIndex(index);
+			if(t<0)
+				return 0;
+			return Math.min(template.runEnds[t]-t,max);
+		}
+
+		/**
+		 * Returns the index of the first letter of the given number of characters
+		 * that the filter passes over, starting at the given index.
+		 * @param index the index in this buffer
+		 * @param size the number of characters passed over
+		 * @return the index of the first letter, or -1 if there is none
+		 */
+		protected int getFirstLetter(final int index, final int size)
+		{
+			final int t=getTemplateIndex(index);
+			if(t<0)
+				return -1;
+			final int letter=template.runLetters[t];
+			return ((letter>=0)&&(letter-t<size))?(index+letter-t):-1;
+		}
+
+		/**
+		 * Returns the tag that the template found at the given index.
+		 * @param index the index in this buffer
+		 * @return the tag, OutTag.NONE if there is none, or null if unknown
+		 */
+		protected OutTag getTag(final int index)
+		{
+			final int t=getTemplateIndex(index);
+			if(t<0)
+				return null;
+			return template.tags[t];
+		}
+	}
+
+	@SuppressWarnings({"unchecked","rawtypes"})
+	public CoffeeFilter()
+	{
+		super();
+		templateStripes=new Map[TEMPLATE_STRIPES];
+		for(int i=0;i<TEMPLATE_STRIPES;i++)
+		{
+			templateStripes[i]=new LinkedHashMap<String,OutTemplate>(TEMPLATE_CACHE_SIZE/TEMPLATE_STRIPES,0.75f,true)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<String,OutTemplate> eldest)
+				{
+					return size()>(TEMPLATE_CACHE_SIZE/TEMPLATE_STRIPES);
+				}
+			};
+		}
+	}
+
 	@Override
 	public void initializeClass()
 	{
 		normalColor = CMLib.color().getNormalColor();
 	}
 
+	/**
+	 * Returns the template for the given message, if it has been filtered before.
+	 * A message is only remembered the first time, and parsed the second, so that
+	 * messages sent to a single viewer are not parsed for nothing.  The cache is
+	 * split into stripes by the hash of the message, each its own small LRU.
+	 * @param msg the message to filter
+	 * @return the template, or null if there is none yet
+	 */
+	protected OutTemplate getTemplate(final String msg)
+	{
+		if(msg.length()>TEMPLATE_MAX_LENGTH)
+			return null;
+		final Map<String,OutTemplate> stripe=templateStripes[msg.hashCode()&(TEMPLATE_STRIPES-1)];
+		final OutTemplate T;
+		synchronized(stripe)
+		{
+			T=stripe.get(msg);
+			if(T==null)
+				stripe.put(msg, OutTemplate.UNPARSED);
+		}
+		if(T==null)
+			return null;
+		if(T!=OutTemplate.UNPARSED)
+			return T;
+		final OutTemplate newT=new OutTemplate(this,msg);
+		synchronized(stripe)
+		{
+			stripe.put(msg, newT);
+		}
+		return newT;
+	}
+
+	/**
+	 * Returns the upper-cased contents of the tag that starts with the &lt; at
+	 * the given index, such as S-NAME, or null if there is no tag there.
+	 * @param buf the message
+	 * @param index the index of the &lt;
+	 * @return the contents of the tag, or null
+	 */
+	protected String getTagCommand(final CharSequence buf, final int index)
+	{
+		final StringBuilder cmd=new StringBuilder("");
+		for(int ldex=index+1;(ldex<buf.length())&&(cmd.length()<14);ldex++)
+		{
+			final char lc=buf.charAt(ldex);
+			switch(lc)
+			{
+			case '>':
+				return (cmd.length()>1)?cmd.toString():null;
+			case '<':
+			case '\n':
+			case '\r':
+				return null;
+			default:
+				cmd.append(Character.toUpperCase(lc));
+				break;
+			}
+		}
+		return null;
+	}
+
 	@Override
 	public Map<String, Pronoun> getTagTable()
 	{
@@ -332,7 +774,7 @@ public class CoffeeFilter extends StdLibrary implements TelnetFilter
 		return buf.toString().split("\n\r");
 	}
 
-	protected int convertEscape(final Session S, final StringBuffer str, final int index)
+	protected int convertEscape(final Session S, final OutBuffer str, final int index)
 	{
 		int enDex = index + 1;
 		final char c = str.charAt(enDex);
@@ -623,7 +1065,7 @@ public class CoffeeFilter extends StdLibrary implements TelnetFilter
 
 		if(msg.length()==0)
 			return msg;
-		final StringBuffer buf=new StringBuffer(msg);
+		final OutBuffer buf=new OutBuffer(msg,null);
 		final Session CS=S;
 		//if(CS==null) CS=(Session)CMClass.getCommon("DefaultSession");
 		int loop=0;
@@ -785,11 +1227,16 @@ public class CoffeeFilter extends StdLibrary implements TelnetFilter
 
 	@Override
 	public String getLastWord(StringBuffer buf, int lastSp, int lastSpace)
+	{
+		return getLastWord((CharSequence)buf, lastSp, lastSpace);
+	}
+
+	protected String getLastWord(final CharSequence buf, final int lastSp, final int lastSpace)
 	{
 		String lastWord="";
 		if(lastSp>lastSpace)
 		{
-			lastWord=CMStrings.removeColors(buf.substring(lastSpace,lastSp)).trim().toUpperCase();
+			lastWord=CMStrings.removeColors(buf.subSequence(lastSpace,lastSp).toString()).trim().toUpperCase();
 			while((lastWord.length()>0)&&(!Character.isLetterOrDigit(lastWord.charAt(0))))
 				  lastWord=lastWord.substring(1);
 			while((lastWord.length()>0)&&(!Character.isLetterOrDigit(lastWord.charAt(lastWord.length()-1))))
@@ -829,7 +1276,7 @@ public class CoffeeFilter extends StdLibrary implements TelnetFilter
 
 		boolean doSagain=false;
 		boolean firstSdone=false;
-		final StringBuffer buf=new StringBuffer(msg);
+		final OutBuffer buf=new OutBuffer(msg,getTemplate(msg));
 
 		final int wrap=(S!=null)?S.getWrap():78;
 		int len=(wrap>0)?wrap:(Integer.MAX_VALUE/3);
@@ -863,6 +1310,14 @@ public class CoffeeFilter extends StdLibrary implements TelnetFilter
 			int lastSp=-1;
 			while((loop<len)&&(buf.length()>loop))
 			{
+				final int passedOver=buf.getPassedOver(loop,len-loop);
+				if(passedOver>0)
+				{
+					if(firstAlpha<0)
+						firstAlpha=buf.getFirstLetter(loop,passedOver);
+					loop+=passedOver;
+					continue;
+				}
 				switch(buf.charAt(loop))
 				{
 				case ' ':
@@ -1067,29 +1522,11 @@ public class CoffeeFilter extends StdLibrary implements TelnetFilter
 					{
 						// supported here <?-HIS-HER>, <?-HIM-HER>, <?-NAME>,
 						// <?-NAMESELF>, <?-HE-SHE>, <?-IS-ARE>, <?-HAS-HAVE>
-						//int endDex=loop;
-						StringBuffer cmd=new StringBuffer("");
-						int ldex=loop+1;
-						char lc=' ';
-						for(;(ldex<buf.length())&&(cmd!=null);ldex++)
-						{
-							lc=buf.charAt(ldex);
-							if(lc=='>')
-								break;
-							switch(lc)
-							{
-								case '<':
-								case '\n':
-								case '\r':
-									cmd=null;
-									break;
-								default:
-									cmd.append(Character.toUpperCase(lc));
-									break;
-							}
-						}
-						if((cmd!=null)&&(ldex<buf.length())&&(buf.charAt(ldex)=='>')&&(cmd.length()>1)&&(cmd.length()<14))
+						final OutTag tag=buf.getTag(loop);
+						final String cmd=(tag!=null)?tag.cmd:getTagCommand(buf,loop);
+						if(cmd!=null)
 						{
+							final int ldex=loop+1+cmd.length();
 							Environmental regarding=null;
 							switch(cmd.charAt(0))
 							{
@@ -1104,7 +1541,7 @@ public class CoffeeFilter extends StdLibrary implements TelnetFilter
 								break;
 							}
 							String replacement=null;
-							final Pronoun P=getTagTable().get(cmd.substring(1));
+							final Pronoun P=(tag!=null)?tag.pronoun:getTagTable().get(cmd.substring(1));
 							if(P==null)
 							{
 								if((S!=null)
@@ -2050,7 +2050,7 @@ public class CommonMsgs extends StdLibrary implements CommonCommands
 			else
 				item.wearIfPossible(mob,wearLocation);
 			mob.recoverCharStats();
-			mob.recoverPhyStats();
+			mob.recoverPhyStats(item);
 			mob.recoverMaxState();
 		}
 	}
@@ -2065,7 +2065,7 @@ public class CommonMsgs extends StdLibrary implements CommonCommands
 		if(item.wearIfPossible(mob,Wearable.WORN_WIELD))
 		{
 			mob.recoverCharStats();
-			mob.recoverPhyStats();
+			mob.recoverPhyStats(item);
 			mob.recoverMaxState();
 		}
 	}
@@ -2080,7 +2080,7 @@ public class CommonMsgs extends StdLibrary implements CommonCommands
 		if(item.wearIfPossible(mob,Wearable.WORN_HELD))
 		{
 			mob.recoverCharStats();
-			mob.recoverPhyStats();
+			mob.recoverPhyStats(item);
 			mob.recoverMaxState();
 		}
 	}
@@ -50,6 +50,27 @@ public class EnglishParser extends StdLibrary implements EnglishParsing
 	public final static String[]			fwords				= { "calf", "half", "knife", "life", "wife", "elf", "self", "shelf", "leaf", "sheaf", "thief", "loaf", "wolf" };
 	public final static List<Environmental>	empty				= new ReadOnlyVector<Environmental>(1);
 
+	protected volatile PrefixTrie<CommandWord>	commandWords	= null;
+
+	/**
+	 * A channel or command journal name, along with the command that
+	 * handles it, and whether an abbreviation of it should be expanded
+	 * to the full name before the command sees it.
+	 */
+	protected static class CommandWord
+	{
+		protected final String	word;
+		protected final String	commandID;
+		protected final boolean	expand;
+
+		protected CommandWord(final String word, final String commandID, final boolean expand)
+		{
+			this.word=word;
+			this.commandID=commandID;
+			this.expand=expand;
+		}
+	}
+
 	@Override
 	public String toEnglishStringList(final String[] V)
 	{
@@ -517,57 +538,25 @@ public class EnglishParser extends StdLibrary implements EnglishParsing
 		if(social!=null)
 			return social;
 
-		for(int c=0;c<CMLib.channels().getNumChannels();c++)
+		final PrefixTrie<CommandWord> words=getCommandWords();
+		CommandWord word=words.get(firstWord);
+		if(word!=null)
 		{
-			final ChannelsLibrary.CMChannel chan=CMLib.channels().getChannel(c);
-			if(chan.name().equalsIgnoreCase(firstWord))
-			{
-				C=CMClass.getCommand("Channel");
-				if((C!=null)&&(C.securityCheck(mob)))
-					return C;
-			}
-			else
-			if(("NO"+chan.name()).equalsIgnoreCase(firstWord))
-			{
-				C=CMClass.getCommand("NoChannel");
-				if((C!=null)&&(C.securityCheck(mob)))
-					return C;
-			}
-		}
-
-		for(final Enumeration<JournalsLibrary.CommandJournal> e=CMLib.journals().commandJournals();e.hasMoreElements();)
-		{
-			final JournalsLibrary.CommandJournal CMJ=e.nextElement();
-			if(CMJ.NAME().equalsIgnoreCase(firstWord))
-			{
-				C=CMClass.getCommand("CommandJournal");
-				if((C!=null)&&(C.securityCheck(mob)))
-					return C;
-			}
+			C=CMClass.getCommand(word.commandID);
+			if((C!=null)&&(C.securityCheck(mob)))
+				return C;
 		}
 
 		// second, inexacting pass
-		for(final Enumeration<Ability> a=mob.allAbilities();a.hasMoreElements();)
+		for(final String trigger : mob.getAbilityTriggerIndex().findKeys(firstWord))
 		{
-			A=a.nextElement();
-			final HashSet<String> tried=new HashSet<String>();
-			if((A!=null)&&(A.triggerStrings()!=null))
+			final Vector<String> commands2=new XVector<String>(commands);
+			commands2.setElementAt(trigger,0);
+			final Ability A2=getToEvoke(mob,commands2);
+			if((A2!=null)&&(!CMSecurity.isAbilityDisabled(A2.ID().toUpperCase())))
 			{
-				for(int t=0;t<A.triggerStrings().length;t++)
-				{
-					if((A.triggerStrings()[t].toUpperCase().startsWith(firstWord))
-					&&(!tried.contains(A.triggerStrings()[t])))
-					{
-						final Vector<String> commands2=new XVector<String>(commands);
-						commands2.setElementAt(A.triggerStrings()[t],0);
-						final Ability A2=getToEvoke(mob,commands2);
-						if((A2!=null)&&(!CMSecurity.isAbilityDisabled(A2.ID().toUpperCase())))
-						{
-							commands.set(0,A.triggerStrings()[t]);
-							return A;
-						}
-					}
-				}
+				commands.set(0,trigger);
+				return A2;
 			}
 		}
 		//commands comes inexactly after ables
@@ -585,37 +574,51 @@ public class EnglishParser extends StdLibrary implements EnglishParsing
 			return social;
 		}
 
-		for(int c=0;c<CMLib.channels().getNumChannels();c++)
+		word=words.findFirst(firstWord);
+		if(word!=null)
 		{
-			final ChannelsLibrary.CMChannel chan=CMLib.channels().getChannel(c);
-			if(chan.name().startsWith(firstWord))
-			{
-				commands.set(0,chan.name());
-				C=CMClass.getCommand("Channel");
-				if((C!=null)&&(C.securityCheck(mob)))
-					return C;
-			}
-			else
-			if(("NO"+chan.name()).startsWith(firstWord))
-			{
-				commands.set(0,"NO"+chan.name());
-				C=CMClass.getCommand("NoChannel");
-				if((C!=null)&&(C.securityCheck(mob)))
-					return C;
-			}
+			if(word.expand)
+				commands.set(0,word.word);
+			C=CMClass.getCommand(word.commandID);
+			if((C!=null)&&(C.securityCheck(mob)))
+				return C;
 		}
+		return null;
+	}
 
-		for(final Enumeration<JournalsLibrary.CommandJournal> e=CMLib.journals().commandJournals();e.hasMoreElements();)
+	/**
+	 * Returns the prefix tree of channel, nochannel, and command journal names,
+	 * building it if the channels or journals have changed since the last time.
+	 * Channels come first, in channel order, followed by the journals.
+	 * @return the prefix tree of channel and journal command words
+	 */
+	protected PrefixTrie<CommandWord> getCommandWords()
+	{
+		PrefixTrie<CommandWord> words=commandWords;
+		if(words==null)
 		{
-			final JournalsLibrary.CommandJournal CMJ=e.nextElement();
-			if(CMJ.NAME().startsWith(firstWord))
+			final PairVector<String,CommandWord> entries=new PairVector<String,CommandWord>();
+			for(int c=0;c<CMLib.channels().getNumChannels();c++)
 			{
-				C=CMClass.getCommand("CommandJournal");
-				if((C!=null)&&(C.securityCheck(mob)))
-					return C;
+				final String name=CMLib.channels().getChannel(c).name().toUpperCase();
+				entries.add(name,new CommandWord(name,"Channel",true));
+				entries.add("NO"+name,new CommandWord("NO"+name,"NoChannel",true));
 			}
+			for(final Enumeration<JournalsLibrary.CommandJournal> e=CMLib.journals().commandJournals();e.hasMoreElements();)
+			{
+				final String name=e.nextElement().NAME().toUpperCase();
+				entries.add(name,new CommandWord(name,"CommandJournal",false));
+			}
+			words=new PrefixTrie<CommandWord>(entries);
+			commandWords=words;
 		}
-		return null;
+		return words;
+	}
+
+	@Override
+	public void resetCommandWords()
+	{
+		commandWords=null;
 	}
 
 	@Override
@@ -657,15 +660,14 @@ public class EnglishParser extends StdLibrary implements EnglishParsing
 	{
 		if(mob==null)
 			return null;
-		Ability A=null;
-		final HashSet<String[]> done=new HashSet<String[]>();
 		word=word.toUpperCase().trim();
-		for(final Enumeration<Ability> a=mob.allAbilities();a.hasMoreElements();)
+		final List<Ability> evokables=mob.getAbilityTriggerIndex().get(word);
+		if(evokables==null)
+			return null;
+		final HashSet<String[]> done=new HashSet<String[]>();
+		for(final Ability A : evokables)
 		{
-			A=a.nextElement();
-			if((A!=null)
-			&&(A.triggerStrings()!=null)
-			&&(!done.contains(A.triggerStrings())))
+			if(!done.contains(A.triggerStrings()))
 			{
 				done.add(A.triggerStrings());
 				for(int t=0;t<A.triggerStrings().length;t++)
@@ -687,23 +689,21 @@ public class EnglishParser extends StdLibrary implements EnglishParsing
 	public Ability getToEvoke(MOB mob, List<String> commands)
 	{
 		final String evokeWord=commands.get(0).toUpperCase();
+		final List<Ability> evokables=mob.getAbilityTriggerIndex().get(evokeWord);
+		if(evokables==null)
+			return null;
 
 		boolean foundMoreThanOne=false;
 		Ability evokableAbility=null;
-		for(final Enumeration<Ability> a=mob.allAbilities();a.hasMoreElements();)
+		for(final Ability A : evokables)
 		{
-			final Ability A=a.nextElement();
-			if((A!=null)
-			&&(evokedBy(A,evokeWord)))
+			if((evokableAbility!=null)&&(!A.ID().equals(evokableAbility.ID())))
 			{
-				if((evokableAbility!=null)&&(!A.ID().equals(evokableAbility.ID())))
-				{
-					foundMoreThanOne=true;
-					evokableAbility=null;
-					break;
-				}
-				evokableAbility=A;
+				foundMoreThanOne=true;
+				evokableAbility=null;
+				break;
 			}
+			evokableAbility=A;
 		}
 
 		if((evokableAbility!=null)&&(commands.size()>1))
@@ -731,11 +731,9 @@ public class EnglishParser extends StdLibrary implements EnglishParsing
 			commands.remove(0);
 			foundMoreThanOne=false;
 			final String secondWord=commands.get(0).toUpperCase();
-			for(final Enumeration<Ability> a=mob.allAbilities();a.hasMoreElements();)
+			for(final Ability A : evokables)
 			{
-				final Ability A=a.nextElement();
-				if((A!=null)
-				&&(evokedBy(A,evokeWord,secondWord.toUpperCase())))
+				if(evokedBy(A,evokeWord,secondWord.toUpperCase()))
 				{
 					if((A.name().equalsIgnoreCase(secondWord))
 					||(collapsedName(A).equalsIgnoreCase(secondWord)))
@@ -758,10 +756,9 @@ public class EnglishParser extends StdLibrary implements EnglishParsing
 			{
 				final String secondAndThirdWord=secondWord+" "+commands.get(1).toUpperCase();
 
-				for(final Enumeration<Ability> a=mob.allAbilities();a.hasMoreElements();)
+				for(final Ability A : evokables)
 				{
-					final Ability A=a.nextElement();
-					if((A!=null) && (evokedBy(A,evokeWord,secondAndThirdWord.toUpperCase())))
+					if(evokedBy(A,evokeWord,secondAndThirdWord.toUpperCase()))
 					{
 						evokableAbility=A;
 						break;
@@ -775,12 +772,9 @@ public class EnglishParser extends StdLibrary implements EnglishParsing
 			}
 			else
 			{
-				for(final Enumeration<Ability> a=mob.allAbilities();a.hasMoreElements();)
+				for(final Ability A : evokables)
 				{
-					final Ability A=a.nextElement();
-					if((A!=null)
-					&&(evokedBy(A,evokeWord))
-					&&(A.name().toUpperCase().indexOf(" "+secondWord.toUpperCase())>0))
+					if(A.name().toUpperCase().indexOf(" "+secondWord.toUpperCase())>0)
 					{
 						evokableAbility=A;
 						commands.remove(0);
@@ -25,6 +25,8 @@ import com.planet_ink.coffee_mud.core.collections.*;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.*;
 /*
    Copyright 2012-2017 Bo Zimmerman
@@ -66,6 +68,13 @@ public class GroundWired extends StdLibrary implements TechLibrary
 
 	protected CMMsg powerMsg = null;
 
+	protected static final long	SPACE_MOONLET_MASS	= SpaceObject.MULTIPLIER_PLANET_MASS * SpaceObject.Distance.MoonRadius.dm / 10;
+	protected static final long	SPACE_ASTEROID_MASS	= SPACE_MOONLET_MASS / 5;
+	protected static final int	SPACE_PARALLEL_MIN	= 64;
+	protected static final int	SPACE_TASK_SIZE		= 32;
+
+	protected volatile ForkJoinPool	spacePool	= null;
+
 	@Override
 	public void initializeClass()
 	{
@@ -368,77 +377,324 @@ public class GroundWired extends StdLibrary implements TechLibrary
 		return true;
 	}
 
+	/**
+	 * Moves every space object in the world one tick, applies gravity to
+	 * them, and sends collision messages to the ones that hit each other.
+	 */
 	public void runSpace()
 	{
-		final long moonletMass = SpaceObject.MULTIPLIER_PLANET_MASS* SpaceObject.Distance.MoonRadius.dm / 10;
-		final long asteroidMass = moonletMass / 5;
 		final WorldMap map = CMLib.map();
+		final List<SpaceObject> objects=new ArrayList<SpaceObject>(map.numSpaceObjects());
 		for(final Enumeration<SpaceObject> o = map.getSpaceObjects(); o.hasMoreElements(); )
+			objects.add(o.nextElement());
+		runSpace(map, objects, objects.size() >= SPACE_PARALLEL_MIN);
+	}
+
+	/**
+	 * Moves the given space objects one tick, applies gravity to them, and
+	 * sends collision messages to the ones that hit each other.
+	 *
+	 * Every object is moved first, then a sweep along the x axis finds the
+	 * pairs of objects that are close enough to pull on or hit each other
+	 * this tick, and only those pairs are looked at closely.  Since looking
+	 * at one object only changes that objects own speed and direction, the
+	 * objects may be looked at in parallel.  Collision messages and debug
+	 * messages are saved and sent afterwards, in the order of the list.
+	 * @param map the map the objects are in
+	 * @param objects the objects to move
+	 * @param parallel true to look at the objects in parallel
+	 */
+	public void runSpace(final WorldMap map, final List<SpaceObject> objects, final boolean parallel)
+	{
+		final SpaceStep[] steps=new SpaceStep[objects.size()];
+		for(int i=0;i<steps.length;i++)
+		{
+			final SpaceObject O=objects.get(i);
+			boolean mover=!(O instanceof Area);
+			if((O instanceof SpaceShip)
+			&&(((SpaceShip)O).getShipArea()!=null)
+			&&(((SpaceShip)O).getShipArea().getAreaState()!=Area.State.ACTIVE))
+				mover=false;
+			steps[i]=new SpaceStep(i,O,mover);
+			if(mover && (steps[i].speed>=1))
+				map.moveSpaceObject(O);
+			steps[i].setBounds();
+		}
+		findSpaceNeighbors(steps);
+		final boolean debugging=CMSecurity.isDebugging(DbgFlag.SPACESHIP);
+		if(parallel && (steps.length>1))
+			getSpacePool().invoke(new SpaceStepTask(map,steps,0,steps.length,debugging));
+		else
+		{
+			for(final SpaceStep step : steps)
+				runSpaceStep(map,step,debugging);
+		}
+		MOB host=null;
+		for(final SpaceStep step : steps)
+		{
+			if(!step.mover)
+				continue;
+			final SpaceObject O=step.O;
+			if(step.debugs!=null)
+			{
+				for(final String s : step.debugs)
+					Log.debugOut(s);
+			}
+			if(step.collisions!=null)
+			{
+				if(host==null)
+					host=map.deity();
+				for(final SpaceObject cO : step.collisions)
+				{
+					CMMsg msg=CMClass.getMsg(host, O, cO, CMMsg.MSG_COLLISION,null);
+					if(O.okMessage(host, msg))
+						O.executeMsg(host, msg);
+					msg=CMClass.getMsg(host, cO, O, CMMsg.MSG_COLLISION,null);
+					if(cO.okMessage(host, msg))
+						cO.executeMsg(host, msg);
+				}
+			}
+			if(O instanceof SpaceShip)
+				((SpaceShip)O).setShipFlag(SpaceShip.ShipFlag.IN_THE_AIR,step.inAirFlag);
+		}
+	}
+
+	/**
+	 * Finds, for every space step, the other steps whose objects are close
+	 * enough to it to matter this tick, by sorting the steps along the x
+	 * axis and only comparing steps whose x ranges overlap.
+	 * @param steps the steps, with their bounds already set
+	 */
+	protected void findSpaceNeighbors(final SpaceStep[] steps)
+	{
+		final SpaceStep[] sorted=Arrays.copyOf(steps, steps.length);
+		Arrays.sort(sorted, new Comparator<SpaceStep>()
 		{
-			final SpaceObject O=o.nextElement();
-			if(!(O instanceof Area))
+			@Override
+			public int compare(final SpaceStep o1, final SpaceStep o2)
 			{
-				final SpaceShip S=(O instanceof SpaceShip)?(SpaceShip)O:null;
-				if((S!=null)
-				&&(S.getShipArea()!=null)
-				&&(S.getShipArea().getAreaState()!=Area.State.ACTIVE))
+				return Double.compare(o1.low[0], o2.low[0]);
+			}
+		});
+		final List<SpaceStep> active=new ArrayList<SpaceStep>();
+		for(final SpaceStep step : sorted)
+		{
+			int keep=0;
+			for(int a=0;a<active.size();a++)
+			{
+				final SpaceStep aStep=active.get(a);
+				if(aStep.high[0]<step.low[0])
 					continue;
-				BoundedCube cube=O.getBounds();
-				final double speed=O.speed();
-				final long[] startCoords=Arrays.copyOf(O.coordinates(),3);
-				if(speed>=1)
+				active.set(keep++, aStep);
+				if(step.touches(aStep))
 				{
-					map.moveSpaceObject(O);
-					cube=cube.expand(O.direction(),(long)speed);
+					step.addNeighbor(aStep);
+					aStep.addNeighbor(step);
 				}
-				boolean inAirFlag = false;
-				final List<SpaceObject> cOs=map.getSpaceObjectsWithin(O, 0, SpaceObject.Distance.LightMinute.dm);
-				final long oMass = O.getMass();
-				for(final SpaceObject cO : cOs)
+			}
+			while(active.size()>keep)
+				active.remove(active.size()-1);
+			active.add(step);
+		}
+	}
+
+	/**
+	 * Applies gravity to the object of the given step from every neighbor
+	 * close enough to pull on it, and remembers every neighbor it hits.
+	 * Only the speed and direction of the steps own object are changed.
+	 * @param map the map the objects are in
+	 * @param step the step to run
+	 * @param debugging true to remember debug messages
+	 */
+	protected void runSpaceStep(final WorldMap map, final SpaceStep step, final boolean debugging)
+	{
+		if((!step.mover)||(step.neighbors==null))
+			return;
+		final SpaceObject O=step.O;
+		final long[] coords=O.coordinates();
+		final List<SpaceStep> neighbors=step.neighbors;
+		Collections.sort(neighbors, new Comparator<SpaceStep>()
+		{
+			@Override
+			public int compare(final SpaceStep o1, final SpaceStep o2)
+			{
+				final long distTo1=map.getDistanceFrom(o1.O.coordinates(),coords);
+				final long distTo2=map.getDistanceFrom(o2.O.coordinates(),coords);
+				if(distTo1==distTo2)
+					return Integer.compare(o1.index, o2.index);
+				return distTo1>distTo2?1:-1;
+			}
+		});
+		final long oMass = step.mass;
+		for(final SpaceStep cStep : neighbors)
+		{
+			final SpaceObject cO=cStep.O;
+			final long prevDistance=map.getDistanceFrom(step.startCoords, cO.coordinates());
+			final double minDistance=map.getMinDistanceFrom(step.startCoords, step.endCoords, cO.coordinates());
+			if(((cO instanceof Area)||(cStep.mass >= SPACE_ASTEROID_MASS))
+			&&(prevDistance > (O.radius()+cO.radius()))
+			&&(oMass < SPACE_MOONLET_MASS))
+			{
+				if(minDistance<(cO.radius()*SpaceObject.MULTIPLIER_GRAVITY_EFFECT_RADIUS))
 				{
-					if(cO != O)
-					{
-						final long prevDistance=map.getDistanceFrom(startCoords, cO.coordinates());
-						final double minDistance=map.getMinDistanceFrom(O, prevDistance, cO);
-						final double[] directionTo=map.getDirection(O, cO);
-						if(((cO instanceof Area)||(cO.getMass() >= asteroidMass))
-						&&(prevDistance > (O.radius()+cO.radius()))
-						&&(oMass < moonletMass))
-						{
-							if(minDistance<(cO.radius()*SpaceObject.MULTIPLIER_GRAVITY_EFFECT_RADIUS))
-							{
-								// can this cause slip-through?
-								final long mass = Math.max(1,oMass / 1000);
-								if(CMSecurity.isDebugging(DbgFlag.SPACESHIP))
-									Log.debugOut("SpaceShip "+O.name()+" is gravitating "+(SpaceObject.ACCELLERATION_G * mass)+" towards " +cO.Name());
-								long amountToMove = SpaceObject.ACCELLERATION_G * mass;
-								final long minMove=Math.round(prevDistance - (O.radius()+cO.radius()));
-								if(amountToMove > minMove)
-									amountToMove = minMove;
-								map.moveSpaceObject(O, directionTo, amountToMove); 
-								inAirFlag = true;
-							}
-						}
-						if ((minDistance<(O.radius()+cO.radius()))
-						&&((speed>0)||(cO.speed()>0))
-						&&((oMass < moonletMass)||(cO.getMass() < moonletMass)))
-						{
-							final MOB host=map.deity();
-							CMMsg msg=CMClass.getMsg(host, O, cO, CMMsg.MSG_COLLISION,null);
-							if(O.okMessage(host, msg))
-								O.executeMsg(host, msg);
-							msg=CMClass.getMsg(host, cO, O, CMMsg.MSG_COLLISION,null);
-							if(cO.okMessage(host, msg))
-								cO.executeMsg(host, msg);
-						}
-					}
+					// can this cause slip-through?
+					final long mass = Math.max(1,oMass / 1000);
+					if(debugging)
+						step.addDebug("SpaceShip "+O.name()+" is gravitating "+(SpaceObject.ACCELLERATION_G * mass)+" towards " +cO.Name());
+					long amountToMove = SpaceObject.ACCELLERATION_G * mass;
+					final long minMove=Math.round(prevDistance - (O.radius()+cO.radius()));
+					if(amountToMove > minMove)
+						amountToMove = minMove;
+					map.moveSpaceObject(O, map.getDirection(O, cO), amountToMove); 
+					step.inAirFlag = true;
 				}
-				if(S!=null)
+			}
+			if ((minDistance<(O.radius()+cO.radius()))
+			&&((step.speed>0)||(cStep.speed>0))
+			&&((oMass < SPACE_MOONLET_MASS)||(cStep.mass < SPACE_MOONLET_MASS)))
+			{
+				if(step.collisions==null)
+					step.collisions=new ArrayList<SpaceObject>(1);
+				step.collisions.add(cO);
+			}
+		}
+	}
+
+	protected ForkJoinPool getSpacePool()
+	{
+		ForkJoinPool pool=spacePool;
+		if(pool==null)
+		{
+			synchronized(this)
+			{
+				pool=spacePool;
+				if(pool==null)
 				{
-					S.setShipFlag(SpaceShip.ShipFlag.IN_THE_AIR,inAirFlag);
+					pool=new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+					spacePool=pool;
 				}
 			}
 		}
+		return pool;
+	}
+
+	/**
+	 * One space object, and what happened to it during one tick of space.
+	 */
+	protected static class SpaceStep
+	{
+		protected final int				index;
+		protected final SpaceObject		O;
+		protected final boolean			mover;
+		protected final long[]			startCoords;
+		protected long[]				endCoords;
+		protected final double			speed;
+		protected final long			mass;
+		protected final double[]		low			= new double[3];
+		protected final double[]		high		= new double[3];
+		protected double				reach		= 0;
+		protected List<SpaceStep>		neighbors	= null;
+		protected List<SpaceObject>		collisions	= null;
+		protected List<String>			debugs		= null;
+		protected boolean				inAirFlag	= false;
+
+		protected SpaceStep(final int index, final SpaceObject O, final boolean mover)
+		{
+			this.index=index;
+			this.O=O;
+			this.mover=mover;
+			this.startCoords=Arrays.copyOf(O.coordinates(),3);
+			this.speed=O.speed();
+			this.mass=O.getMass();
+		}
+
+		/**
+		 * Sets the box this object can reach this tick, which is far enough
+		 * to cover both the distance it just moved and the distance from which
+		 * it can pull on or hit anything else.
+		 */
+		protected void setBounds()
+		{
+			final boolean pulls=(O instanceof Area)||(mass >= SPACE_ASTEROID_MASS);
+			endCoords=Arrays.copyOf(O.coordinates(),3);
+			reach=speed + (O.radius() * (pulls ? SpaceObject.MULTIPLIER_GRAVITY_EFFECT_RADIUS : 1.0)) + 1.0;
+			final long[] coords=O.coordinates();
+			for(int i=0;i<3;i++)
+			{
+				low[i]=coords[i]-reach;
+				high[i]=coords[i]+reach;
+			}
+		}
+
+		protected boolean touches(final SpaceStep step)
+		{
+			if((step.low[1]>high[1])||(step.high[1]<low[1])
+			||(step.low[2]>high[2])||(step.high[2]<low[2]))
+				return false;
+			final long[] c1=O.coordinates();
+			final long[] c2=step.O.coordinates();
+			final double x=(double)c1[0]-c2[0];
+			final double y=(double)c1[1]-c2[1];
+			final double z=(double)c1[2]-c2[2];
+			final double r=reach+step.reach;
+			return ((x*x)+(y*y)+(z*z)) <= (r*r);
+		}
+
+		protected void addNeighbor(final SpaceStep step)
+		{
+			if(!mover)
+				return;
+			if(neighbors==null)
+				neighbors=new ArrayList<SpaceStep>(2);
+			neighbors.add(step);
+		}
+
+		protected void addDebug(final String msg)
+		{
+			if(debugs==null)
+				debugs=new ArrayList<String>(1);
+			debugs.add(msg);
+		}
+	}
+
+	/**
+	 * Runs a range of space steps, splitting the range in half until it is
+	 * small enough to run on one thread.
+	 */
+	protected class SpaceStepTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final WorldMap		map;
+		private final SpaceStep[]	steps;
+		private final int			start;
+		private final int			end;
+		private final boolean		debugging;
+
+		protected SpaceStepTask(final WorldMap map, final SpaceStep[] steps, final int start, final int end, final boolean debugging)
+		{
+			this.map=map;
+			this.steps=steps;
+			this.start=start;
+			this.end=end;
+			this.debugging=debugging;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if((end-start)<=SPACE_TASK_SIZE)
+			{
+				for(int i=start;i<end;i++)
+					runSpaceStep(map,steps[i],debugging);
+			}
+			else
+			{
+				final int mid=(start+end)>>>1;
+				invokeAll(new SpaceStepTask(map,steps,start,mid,debugging),
+						  new SpaceStepTask(map,steps,mid,end,debugging));
+			}
+		}
 	}
 
 	@Override 
@@ -478,6 +734,10 @@ public class GroundWired extends StdLibrary implements TechLibrary
 			CMLib.threads().deleteTick(this, TICKID_SUPPORT|Tickable.TICKID_SOLITARYMASK);
 			serviceClient=null;
 		}
+		final ForkJoinPool pool=spacePool;
+		spacePool=null;
+		if(pool!=null)
+			pool.shutdown();
 		return true;
 	}
 
@@ -15,6 +15,7 @@ import com.planet_ink.coffee_mud.Locales.interfaces.*;
 import com.planet_ink.coffee_mud.MOBS.interfaces.*;
 import com.planet_ink.coffee_mud.Races.interfaces.*;
 
+import java.lang.ref.WeakReference;
 import java.util.*;
 
 import com.planet_ink.coffee_mud.Libraries.interfaces.*;
@@ -51,6 +52,185 @@ public class MUDTracker extends StdLibrary implements TrackingLibrary
 	protected Map<TrackingFlags,RFilters>	trackingFilters		= new Hashtable<TrackingFlags,RFilters>();
 	protected static final TrackingFlags	EMPTY_FLAGS			= new DefaultTrackingFlags();
 	protected static final RFilters			EMPTY_FILTERS		= new DefaultRFilters();
+	protected static final int				TRAIL_CACHE_SIZE	= 1000;
+	protected static final long				TRAIL_CACHE_EXPIRE	= 60*1000;
+
+	protected volatile boolean				trailSweepScheduled	= false;
+	protected final Map<TrailKey,CachedTrail> trailCache=new LinkedHashMap<TrailKey,CachedTrail>(TRAIL_CACHE_SIZE,0.75f,true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<TrailKey,CachedTrail> eldest)
+		{
+			return size()>TRAIL_CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * The start room, destination room, and filters of a cached trail.  The
+	 * rooms are held weakly, so that the cache never keeps an unloaded room.
+	 */
+	protected static class TrailKey
+	{
+		private final WeakReference<Room>	from;
+		private final WeakReference<Room>	to;
+		private final RFilters				filters;
+		private final int					hashCode;
+
+		public TrailKey(final Room from, final Room to, final RFilters filters)
+		{
+			this.from=new WeakReference<Room>(from);
+			this.to=new WeakReference<Room>(to);
+			this.filters=filters;
+			this.hashCode=(System.identityHashCode(from)*31+System.identityHashCode(to))*31+System.identityHashCode(filters);
+		}
+
+		protected boolean isCleared()
+		{
+			return (from.get()==null)||(to.get()==null);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(final Object o)
+		{
+			if(!(o instanceof TrailKey))
+				return false;
+			final TrailKey key=(TrailKey)o;
+			final Room fromR=from.get();
+			final Room toR=to.get();
+			return (fromR!=null)&&(toR!=null)&&(key.from.get()==fromR)&&(key.to.get()==toR)&&(key.filters==filters);
+		}
+	}
+
+	/**
+	 * A trail from the destination room back to the start room, along with
+	 * the direction taken to reach each room from the one after it.
+	 */
+	protected static class Trail
+	{
+		private final Room[]	rooms;
+		private final int[]		dirs;
+
+		public Trail(final Room[] rooms, final int[] dirs)
+		{
+			this.rooms=rooms;
+			this.dirs=dirs;
+		}
+	}
+
+	/**
+	 * A trail found earlier, with its rooms held weakly, so that the cache
+	 * never keeps an unloaded room.  A cached trail was the shortest when it
+	 * was found, but a new exit or an opened door since then may have made a
+	 * shorter one, so it is only reused until it expires.
+	 */
+	protected static class CachedTrail
+	{
+		private final WeakReference<Room>[]	rooms;
+		private final int[]					dirs;
+		private final long					expires;
+
+		@SuppressWarnings({"unchecked","rawtypes"})
+		public CachedTrail(final Trail trail)
+		{
+			rooms=new WeakReference[trail.rooms.length];
+			for(int r=0;r<rooms.length;r++)
+				rooms[r]=new WeakReference<Room>(trail.rooms[r]);
+			dirs=trail.dirs;
+			expires=System.currentTimeMillis()+TRAIL_CACHE_EXPIRE;
+		}
+
+		/**
+		 * Returns whether this trail may still be used at the given time.
+		 * @param now the current time in millis
+		 * @return true if the trail is not yet too old to use
+		 */
+		protected boolean isCurrent(final long now)
+		{
+			return expires>now;
+		}
+
+		/**
+		 * Returns the trail, or null if any of its rooms are gone.
+		 * @return the trail, or null
+		 */
+		protected Trail getTrail()
+		{
+			final Room[] trailRooms=new Room[rooms.length];
+			for(int r=0;r<rooms.length;r++)
+			{
+				trailRooms[r]=rooms[r].get();
+				if(trailRooms[r]==null)
+					return null;
+			}
+			return new Trail(trailRooms,dirs);
+		}
+	}
+
+	/**
+	 * The rooms found by a breadth-first search out from a room, in the order
+	 * they were found, along with the room each was first reached from and
+	 * the direction taken to get there, so that the trail back to the start
+	 * from any room found is just a walk back through those.
+	 */
+	protected static class RadiantTrails
+	{
+		private final List<Room>			rooms	= new ArrayList<Room>();
+		private final Map<Room,Integer>		found	= new HashMap<Room,Integer>();
+		private int[]						parents	= new int[16];
+		private int[]						dirs	= new int[16];
+
+		protected void add(final Room R, final int parent, final int dir)
+		{
+			final int index=rooms.size();
+			if(index>=parents.length)
+			{
+				parents=Arrays.copyOf(parents, parents.length*2);
+				dirs=Arrays.copyOf(dirs, dirs.length*2);
+			}
+			parents[index]=parent;
+			dirs[index]=dir;
+			rooms.add(R);
+			found.put(R, Integer.valueOf(index));
+		}
+
+		protected boolean contains(final Room R)
+		{
+			return found.containsKey(R);
+		}
+
+		/**
+		 * Returns the trail to the given room, starting with that room and
+		 * ending with the room the search started from.
+		 * @param destR the room to find the trail to
+		 * @return the trail, or null if the room was not found
+		 */
+		protected Trail getTrailTo(final Room destR)
+		{
+			final Integer index=found.get(destR);
+			if(index==null)
+				return null;
+			int length=1;
+			for(int i=index.intValue();parents[i]>=0;i=parents[i])
+				length++;
+			final Room[] trailRooms=new Room[length];
+			final int[] trailDirs=new int[length];
+			int t=0;
+			for(int i=index.intValue();i>=0;i=parents[i])
+			{
+				trailRooms[t]=rooms.get(i);
+				trailDirs[t++]=dirs[i];
+			}
+			return new Trail(trailRooms,trailDirs);
+		}
+	}
 
 	protected static class RFilterNode
 	{
@@ -261,15 +441,223 @@ public class MUDTracker extends StdLibrary implements TrackingLibrary
 		return findTrailToRoom(location,destRoom,flags,maxRadius,null);
 	}
 
+	protected int getRadiantCapacity(final int maxDepth)
+	{
+		// a search a few rooms deep rarely finds more than a few dozen rooms
+		if(maxDepth<20)
+			return 2*(maxDepth+1)*(maxDepth+1)+16;
+		return 1000;
+	}
+
+	protected RFilters getTrackingFilters(TrackingFlags flags)
+	{
+		if(flags == null)
+			flags = EMPTY_FLAGS;
+		RFilters filters=trackingFilters.get(flags);
+		if(filters==null)
+		{
+			if(flags.size()==0)
+				filters=EMPTY_FILTERS;
+			else
+			{
+				filters=new DefaultRFilters();
+				for(final TrackingFlag flag : flags)
+					filters.plus(flag.myFilter);
+			}
+			trackingFilters.put(flags, filters);
+		}
+		return filters;
+	}
+
+	protected List<Room> makeTrailList(final Trail trail)
+	{
+		final List<Room> trailV=new Vector<Room>(trail.rooms.length);
+		for(final Room R : trail.rooms)
+			trailV.add(R);
+		return trailV;
+	}
+
+	/**
+	 * Returns whether every step of the given trail can still be taken, with
+	 * the same rooms behind the same exits, and nothing filtered out, such
+	 * as after a door is closed, or rooms are linked differently.
+	 * @param trail the trail to check
+	 * @param filters the filters the trail was found with
+	 * @return true if the trail can still be walked, false otherwise
+	 */
+	protected boolean isTrailStillGood(final Trail trail, final RFilters filters)
+	{
+		final WorldMap map=CMLib.map();
+		for(int t=trail.rooms.length-1;t>0;t--)
+		{
+			final Room R1=trail.rooms[t];
+			final int d=trail.dirs[t-1];
+			Room R=R1.getRoomInDir(d);
+			final Exit E=R1.getExitInDir(d);
+			if((R==null)||(E==null))
+				return false;
+			R=map.getRoom(R);
+			if((R!=trail.rooms[t-1])
+			||(filters.isFilteredOut(R1, R, E, d)))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Searches out from the given room, breadth first, the same way as
+	 * getRadiantRooms, but remembers how each room was reached.
+	 * @param room the room to start from
+	 * @param filters the filters for the rooms and exits that may be used
+	 * @param radiateTo the room to stop at when found, or null
+	 * @param maxDepth the maximum number of steps from the start room
+	 * @return the rooms found, and the trails back to the start room
+	 */
+	protected RadiantTrails getRadiantTrails(final Room room, final RFilters filters, final Room radiateTo, final int maxDepth)
+	{
+		final RadiantTrails trails=new RadiantTrails();
+		trails.add(room, -1, -1);
+		if(room==radiateTo)
+			return trails;
+		int depth=0;
+		int min=0;
+		int size=1;
+		Room R1=null;
+		Room R=null;
+		Exit E=null;
+		final WorldMap map=CMLib.map();
+		while(depth<maxDepth)
+		{
+			for(int r=min;r<size;r++)
+			{
+				R1=trails.rooms.get(r);
+				for(int d=Directions.NUM_DIRECTIONS()-1;d>=0;d--)
+				{
+					R=R1.getRoomInDir(d);
+					E=R1.getExitInDir(d);
+
+					if((R==null)||(E==null))
+						continue;
+					R=map.getRoom(R);
+					if((R==null)
+					||(trails.contains(R))
+					||(filters.isFilteredOut(R1, R, E, d)))
+						continue;
+					trails.add(R, r, d);
+					if(R==radiateTo)
+						return trails;
+				}
+			}
+			min=size;
+			size=trails.rooms.size();
+			if(min==size)
+				break;
+			depth++;
+		}
+		return trails;
+	}
+
+	/**
+	 * Finds the shortest trail from one room to another with a new search,
+	 * without looking at or adding to the cache of trails found before.
+	 * @param location the room to start from
+	 * @param destRoom the room to find a trail to
+	 * @param flags the tracking flags for the rooms and exits that may be used
+	 * @param maxRadius the maximum number of steps from the start room
+	 * @return the trail, starting with the destination room, or null
+	 */
+	public List<Room> findTrailToRoomUncached(final Room location, final Room destRoom, final TrackingFlags flags, final int maxRadius)
+	{
+		if((location==null)||(destRoom==null))
+			return null;
+		final Trail trail=getRadiantTrails(location,getTrackingFilters(flags),destRoom,maxRadius).getTrailTo(destRoom);
+		if(trail==null)
+			return null;
+		return makeTrailList(trail);
+	}
+
+	/**
+	 * Removes every cached trail that is too old, or has a room that is
+	 * gone, and schedules itself to run again
+	 * while anything is left in the cache.
+	 */
+	protected void sweepTrailCache()
+	{
+		final long now=System.currentTimeMillis();
+		final boolean more;
+		synchronized(trailCache)
+		{
+			for(final Iterator<Map.Entry<TrailKey,CachedTrail>> e=trailCache.entrySet().iterator();e.hasNext();)
+			{
+				final Map.Entry<TrailKey,CachedTrail> entry=e.next();
+				if((!entry.getValue().isCurrent(now))
+				||(entry.getKey().isCleared()))
+					e.remove();
+			}
+			more=trailCache.size()>0;
+			trailSweepScheduled=more;
+		}
+		if(more)
+			scheduleTrailSweep();
+	}
+
+	protected void scheduleTrailSweep()
+	{
+		if(CMLib.threads()==null)
+		{
+			trailSweepScheduled=false;
+			return;
+		}
+		CMLib.threads().scheduleRunnable(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				sweepTrailCache();
+			}
+		}, TRAIL_CACHE_EXPIRE);
+	}
+
 	@Override
 	public List<Room> findTrailToRoom(Room location, Room destRoom, TrackingFlags flags, int maxRadius, List<Room> radiant)
 	{
 		if((radiant==null)||(radiant.size()==0))
 		{
-			radiant=new Vector<Room>();
-			getRadiantRooms(location,radiant,flags,destRoom,maxRadius,null);
-			if(!radiant.contains(location))
-				radiant.add(0,location);
+			if((location==null)||(destRoom==null))
+				return null;
+			final RFilters filters=getTrackingFilters(flags);
+			final TrailKey key=new TrailKey(location,destRoom,filters);
+			final CachedTrail cachedTrail;
+			synchronized(trailCache)
+			{
+				cachedTrail=trailCache.get(key);
+			}
+			Trail trail=null;
+			if((cachedTrail!=null)
+			&&(cachedTrail.rooms.length<=maxRadius+1)
+			&&(cachedTrail.isCurrent(System.currentTimeMillis())))
+				trail=cachedTrail.getTrail();
+			if((trail!=null)
+			&&(isTrailStillGood(trail,filters)))
+				return makeTrailList(trail);
+			trail=getRadiantTrails(location,filters,destRoom,maxRadius).getTrailTo(destRoom);
+			boolean scheduleSweep=false;
+			synchronized(trailCache)
+			{
+				if(trail==null)
+					trailCache.remove(key);
+				else
+				{
+					trailCache.put(key, new CachedTrail(trail));
+					scheduleSweep=!trailSweepScheduled;
+					trailSweepScheduled=true;
+				}
+			}
+			if(scheduleSweep)
+				scheduleTrailSweep();
+			if(trail==null)
+				return null;
+			return makeTrailList(trail);
 		}
 		else
 		{
@@ -361,23 +749,27 @@ public class MUDTracker extends StdLibrary implements TrackingLibrary
 											int maxRadius)
 	{
 
-		List<Room> finalTrail=null;
-		Room destRoom=null;
-		int pick=0;
-		List<Room> radiant=null;
-		if(destRooms.size()>1)
+		if(destRooms.size()<2)
 		{
-			radiant=new Vector<Room>();
-			getRadiantRooms(location,radiant,flags,null,maxRadius,null);
+			if(destRooms.size()==0)
+				return null;
+			return findTrailToRoom(location,destRooms.remove(0),flags,maxRadius);
 		}
+		if(location==null)
+			return null;
+		// one search finds the trails to every room, so each pick is just a walk back
+		final RadiantTrails trails=getRadiantTrails(location,getTrackingFilters(flags),null,maxRadius);
+		Trail finalTrail=null;
+		Room destRoom=null;
+		int pick=0;
 		for(int i=0;(i<5)&&(destRooms.size()>0);i++)
 		{
 			pick=CMLib.dice().roll(1,destRooms.size(),-1);
 			destRoom=destRooms.get(pick);
 			destRooms.remove(pick);
-			final List<Room> thisTrail=findTrailToRoom(location,destRoom,flags,maxRadius,radiant);
+			final Trail thisTrail=trails.getTrailTo(destRoom);
 			if((thisTrail!=null)
-			&&((finalTrail==null)||(thisTrail.size()<finalTrail.size())))
+			&&((finalTrail==null)||(thisTrail.rooms.length<finalTrail.rooms.length)))
 				finalTrail=thisTrail;
 		}
 		if(finalTrail==null)
@@ -385,13 +777,15 @@ public class MUDTracker extends StdLibrary implements TrackingLibrary
 			for(int r=0;r<destRooms.size();r++)
 			{
 				destRoom=destRooms.get(r);
-				final List<Room> thisTrail=findTrailToRoom(location,destRoom,flags,maxRadius);
+				final Trail thisTrail=trails.getTrailTo(destRoom);
 				if((thisTrail!=null)
-				&&((finalTrail==null)||(thisTrail.size()<finalTrail.size())))
+				&&((finalTrail==null)||(thisTrail.rooms.length<finalTrail.rooms.length)))
 					finalTrail=thisTrail;
 			}
 		}
-		return finalTrail;
+		if(finalTrail==null)
+			return null;
+		return makeTrailList(finalTrail);
 	}
 
 	@Override
@@ -477,22 +871,7 @@ public class MUDTracker extends StdLibrary implements TrackingLibrary
 	@Override
 	public void getRadiantRooms(final Room room, List<Room> rooms, TrackingFlags flags, final Room radiateTo, final int maxDepth, final Set<Room> ignoreRooms)
 	{
-		if(flags == null)
-			flags = EMPTY_FLAGS;
-		RFilters filters=trackingFilters.get(flags);
-		if(filters==null)
-		{
-			if(flags.size()==0)
-				filters=EMPTY_FILTERS;
-			else
-			{
-				filters=new DefaultRFilters();
-				for(final TrackingFlag flag : flags)
-					filters.plus(flag.myFilter);
-			}
-			trackingFilters.put(flags, filters);
-		}
-		getRadiantRooms(room, rooms, filters, radiateTo, maxDepth, ignoreRooms);
+		getRadiantRooms(room, rooms, getTrackingFilters(flags), radiateTo, maxDepth, ignoreRooms);
 	}
 
 	@Override
@@ -509,7 +888,7 @@ public class MUDTracker extends StdLibrary implements TrackingLibrary
 			return;
 		if(rooms.contains(room))
 			return;
-		final HashSet<Room> H=new HashSet<Room>(1000);
+		final HashSet<Room> H=new HashSet<Room>(getRadiantCapacity(maxDepth));
 		rooms.add(room);
 		if(rooms instanceof Vector<?>)
 			((Vector<Room>)rooms).ensureCapacity(200);
@@ -559,22 +938,7 @@ public class MUDTracker extends StdLibrary implements TrackingLibrary
 
 	protected boolean getRadiantRoomsToTarget(final Room room, List<Room> rooms, TrackingFlags flags, final RFilter radiateTo, final int maxDepth)
 	{
-		if(flags == null)
-			flags = EMPTY_FLAGS;
-		RFilters filters=trackingFilters.get(flags);
-		if(filters==null)
-		{
-			if(flags.size()==0)
-				filters=EMPTY_FILTERS;
-			else
-			{
-				filters=new DefaultRFilters();
-				for(final TrackingFlag flag : flags)
-					filters.plus(flag.myFilter);
-			}
-			trackingFilters.put(flags, filters);
-		}
-		return getRadiantRoomsToTarget(room, rooms, filters, radiateTo, maxDepth);
+		return getRadiantRoomsToTarget(room, rooms, getTrackingFilters(flags), radiateTo, maxDepth);
 	}
 
 	protected boolean getRadiantRoomsToTarget(final Room room, List<Room> rooms, final RFilters filters, final RFilter radiateTo, final int maxDepth)
@@ -584,7 +948,7 @@ public class MUDTracker extends StdLibrary implements TrackingLibrary
 			return false;
 		if(rooms.contains(room))
 			return false;
-		final HashSet<Room> H=new HashSet<Room>(1000);
+		final HashSet<Room> H=new HashSet<Room>(getRadiantCapacity(maxDepth));
 		rooms.add(room);
 		if(rooms instanceof Vector<?>)
 			((Vector<Room>)rooms).ensureCapacity(200);
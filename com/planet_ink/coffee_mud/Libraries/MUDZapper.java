@@ -20,6 +20,8 @@ import com.planet_ink.coffee_mud.MOBS.interfaces.*;
 import com.planet_ink.coffee_mud.Races.interfaces.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 /*
    Copyright 2004-2017 Bo Zimmerman
 
@@ -45,6 +47,67 @@ public class MUDZapper extends StdLibrary implements MaskingLibrary
 
 	public Map<String,ZapperKey> zapCodes=new Hashtable<String,ZapperKey>();
 
+	protected static final int	COMPILED_CACHE_SIZE	= 2000;
+	protected static final int	RESULT_CACHE_SIZE	= 256;
+
+	/**
+	 * The mask keys whose result depends only on the state of the mob
+	 * being checked, and which therefore stay good until the mob changes.
+	 */
+	protected static final Set<ZapperKey> CACHEABLE_KEYS = EnumSet.of(
+		ZapperKey.CLASS, ZapperKey._CLASS, ZapperKey.BASECLASS, ZapperKey._BASECLASS,
+		ZapperKey.CLASSTYPE, ZapperKey._CLASSTYPE, ZapperKey.RACE, ZapperKey._RACE,
+		ZapperKey.RACECAT, ZapperKey._RACECAT, ZapperKey.ALIGNMENT, ZapperKey._ALIGNMENT,
+		ZapperKey.GENDER, ZapperKey._GENDER, ZapperKey._LEVEL, ZapperKey._CLASSLEVEL,
+		ZapperKey.ANYCLASS, ZapperKey._ANYCLASS, ZapperKey.ANYCLASSLEVEL, ZapperKey._ANYCLASSLEVEL,
+		ZapperKey._MAXCLASSLEVEL, ZapperKey.LVLGR, ZapperKey.LVLGE, ZapperKey.LVLLT,
+		ZapperKey.LVLLE, ZapperKey.LVLEQ,
+		ZapperKey.ADJSTRENGTH, ZapperKey._ADJSTRENGTH, ZapperKey.ADJINTELLIGENCE, ZapperKey._ADJINTELLIGENCE,
+		ZapperKey.ADJWISDOM, ZapperKey._ADJWISDOM, ZapperKey.ADJDEXTERITY, ZapperKey._ADJDEXTERITY,
+		ZapperKey.ADJCONSTITUTION, ZapperKey._ADJCONSTITUTION, ZapperKey.ADJCHARISMA, ZapperKey._ADJCHARISMA,
+		ZapperKey.STRENGTH, ZapperKey._STRENGTH, ZapperKey.INTELLIGENCE, ZapperKey._INTELLIGENCE,
+		ZapperKey.WISDOM, ZapperKey._WISDOM, ZapperKey.DEXTERITY, ZapperKey._DEXTERITY,
+		ZapperKey.CONSTITUTION, ZapperKey._CONSTITUTION, ZapperKey.CHARISMA, ZapperKey._CHARISMA,
+		ZapperKey.TATTOO, ZapperKey._TATTOO, ZapperKey.NAME, ZapperKey._NAME,
+		ZapperKey.EFFECT, ZapperKey._EFFECT, ZapperKey.DEITY, ZapperKey._DEITY,
+		ZapperKey.FACTION, ZapperKey._FACTION, ZapperKey.CLAN, ZapperKey._CLAN,
+		ZapperKey.JAVACLASS, ZapperKey._JAVACLASS, ZapperKey.ABILITY, ZapperKey._ABILITY,
+		ZapperKey.WEIGHT, ZapperKey._WEIGHT, ZapperKey.ARMOR, ZapperKey._ARMOR,
+		ZapperKey.DAMAGE, ZapperKey._DAMAGE, ZapperKey.ATTACK, ZapperKey._ATTACK,
+		ZapperKey.DISPOSITION, ZapperKey._DISPOSITION, ZapperKey.SENSES, ZapperKey._SENSES,
+		ZapperKey.EXPERTISE, ZapperKey._EXPERTISE, ZapperKey.SKILLFLAG, ZapperKey._SKILLFLAG,
+		ZapperKey.QUALLVL, ZapperKey._QUALLVL);
+
+	protected final LongAdder[]					maskCacheCounters	= new LongAdder[MaskCacheStat.values().length];
+	// striped by mob, so that checks for different players seldom wait on each other
+	@SuppressWarnings({"unchecked","rawtypes"})
+	protected final Map<MOB,MaskResults>[]		maskResults			= new Map[16];
+
+	/**
+	 * The remembered mask results of one player, good only while the
+	 * state version of the player is unchanged.
+	 */
+	private static class MaskResults
+	{
+		private final int	version;
+		private final Map<CompiledZMask,Boolean>	actual		= new ConcurrentHashMap<CompiledZMask,Boolean>();
+		private final Map<CompiledZMask,Boolean>	notActual	= new ConcurrentHashMap<CompiledZMask,Boolean>();
+
+		private MaskResults(final int version)
+		{
+			this.version=version;
+		}
+	}
+
+	public MUDZapper()
+	{
+		super();
+		for(int i=0;i<maskCacheCounters.length;i++)
+			maskCacheCounters[i]=new LongAdder();
+		for(int i=0;i<maskResults.length;i++)
+			maskResults[i]=new WeakHashMap<MOB,MaskResults>();
+	}
+
 	private static class SavedRace
 	{
 		public final String name;
@@ -123,6 +186,7 @@ public class MUDZapper extends StdLibrary implements MaskingLibrary
 		private final boolean[] flags;
 		private final boolean empty;
 		private final CompiledZMaskEntry[] entries;
+		private final boolean cacheable;
 
 		@Override
 		public boolean[] flags()
@@ -144,9 +208,7 @@ public class MUDZapper extends StdLibrary implements MaskingLibrary
 
 		public CompiledZapperMaskImpl(final boolean[] flags, final CompiledZMaskEntry[] entries)
 		{
-			this.flags = flags;
-			this.entries = entries;
-			this.empty = false;
+			this(flags, entries, false);
 		}
 
 		public CompiledZapperMaskImpl(final boolean[] flags, final CompiledZMaskEntry[] entries, final boolean empty)
@@ -154,6 +216,13 @@ public class MUDZapper extends StdLibrary implements MaskingLibrary
 			this.flags = flags;
 			this.entries = entries;
 			this.empty = empty;
+			boolean cacheable = (!flags[0]) && (!flags[1]);
+			for(final CompiledZMaskEntry entry : entries)
+			{
+				if(!CACHEABLE_KEYS.contains(entry.maskType()))
+					cacheable = false;
+			}
+			this.cacheable = cacheable;
 		}
 	}
 	
@@ -251,16 +320,41 @@ public class MUDZapper extends StdLibrary implements MaskingLibrary
 		Map<String,CompiledZMask> H=(Map<String,CompiledZMask>)Resources.getResource("SYSTEM_HASHED_MASKS");
 		if(H==null)
 		{
-			H=new PrioritizingLimitedMap<String,CompiledZMask>(200, 10*60*1000, Long.MAX_VALUE, 50);
+			final LongAdder evictions=maskCacheCounters[MaskCacheStat.COMPILED_EVICTIONS.ordinal()];
+			H=new LinkedHashMap<String,CompiledZMask>(COMPILED_CACHE_SIZE,0.75f,true)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<String,CompiledZMask> eldest)
+				{
+					if(size()>COMPILED_CACHE_SIZE)
+					{
+						evictions.increment();
+						return true;
+					}
+					return false;
+				}
+			};
 			Resources.submitResource("SYSTEM_HASHED_MASKS",H);
 		}
 		final String lowerStr=(str==null)?"":str.toLowerCase().trim();
-		CompiledZMask V=H.get(lowerStr);
+		CompiledZMask V;
+		synchronized(H)
+		{
+			V=H.get(lowerStr);
+		}
 		if(V==null)
 		{
+			maskCacheCounters[MaskCacheStat.COMPILED_MISSES.ordinal()].increment();
 			V=maskCompile(str);
-			H.put(lowerStr,V);
+			synchronized(H)
+			{
+				H.put(lowerStr,V);
+			}
 		}
+		else
+			maskCacheCounters[MaskCacheStat.COMPILED_HITS.ordinal()].increment();
 		return V;
 	}
 
@@ -4191,16 +4285,126 @@ public class MUDZapper extends StdLibrary implements MaskingLibrary
 		return maskCheck(getPreCompiledMask(text), E, actual);
 	}
 
-	@SuppressWarnings("unchecked")
+	@Override
+	public long getMaskCacheCount(final MaskCacheStat stat)
+	{
+		return maskCacheCounters[stat.ordinal()].sum();
+	}
+
+	protected boolean isCacheable(final CompiledZMask cset)
+	{
+		return (cset instanceof CompiledZapperMaskImpl) && ((CompiledZapperMaskImpl)cset).cacheable;
+	}
 
 	@Override
 	public boolean maskCheck(final CompiledZMask cset, final Environmental E, final boolean actual)
+	{
+		if((E==null)||(cset==null)||(cset.entries().length<1))
+			return true;
+		if((!(E instanceof MOB))
+		||(((MOB)E).playerStats()==null)
+		||(!isCacheable(cset)))
+			return evaluateMask(cset,E,actual);
+		getMaskCodes();
+		return cachedMaskCheck(cset,(MOB)E,actual);
+	}
+
+	/**
+	 * Checks a cacheable mask against a player, using the remembered result
+	 * if the player has not changed since it was found.  The mask codes
+	 * must already be loaded.
+	 * @param cset the compiled mask, which must be cacheable and not empty
+	 * @param mob the player mob to check
+	 * @param actual true to check actual values, false for apparent ones
+	 * @return true if the player passed the mask
+	 */
+	protected boolean cachedMaskCheck(final CompiledZMask cset, final MOB mob, final boolean actual)
+	{
+		final int version=mob.getStateVersion();
+		final Map<MOB,MaskResults> stripe=maskResults[(System.identityHashCode(mob)&0x7fffffff)%maskResults.length];
+		MaskResults results;
+		synchronized(stripe)
+		{
+			results=stripe.get(mob);
+			if((results==null)||(results.version!=version))
+			{
+				results=new MaskResults(version);
+				stripe.put(mob, results);
+			}
+		}
+		final Map<CompiledZMask,Boolean> map=actual?results.actual:results.notActual;
+		final Boolean cached=map.get(cset);
+		if(cached!=null)
+		{
+			maskCacheCounters[MaskCacheStat.RESULT_HITS.ordinal()].increment();
+			return cached.booleanValue();
+		}
+		maskCacheCounters[MaskCacheStat.RESULT_MISSES.ordinal()].increment();
+		final boolean result=evaluateMaskEntries(cset,mob,actual);
+		if(mob.getStateVersion()==version)
+		{
+			if(map.size()>=RESULT_CACHE_SIZE)
+				map.clear();
+			map.put(cset, Boolean.valueOf(result));
+		}
+		return result;
+	}
+
+	@Override
+	public <T extends Environmental> List<T> maskFilter(final String text, final Iterable<T> candidates, final boolean actual)
+	{
+		return maskFilter(getPreCompiledMask(text), candidates, actual);
+	}
+
+	@Override
+	public <T extends Environmental> List<T> maskFilter(final CompiledZMask cset, final Iterable<T> candidates, final boolean actual)
+	{
+		final List<T> passed=new ArrayList<T>();
+		final boolean empty=(cset==null)||(cset.entries().length<1);
+		if(!empty)
+			getMaskCodes();
+		final boolean cacheable=(!empty)&&isCacheable(cset);
+		for(final T E : candidates)
+		{
+			if(E==null)
+				continue;
+			if(empty)
+				passed.add(E);
+			else
+			if((cacheable)&&(E instanceof MOB)&&(((MOB)E).playerStats()!=null))
+			{
+				if(cachedMaskCheck(cset,(MOB)E,actual))
+					passed.add(E);
+			}
+			else
+			if(evaluateMaskEntries(cset,E,actual))
+				passed.add(E);
+		}
+		return passed;
+	}
+
+	protected boolean evaluateMask(final CompiledZMask cset, final Environmental E, final boolean actual)
 	{
 		if(E==null)
 			return true;
 		if((cset==null)||(cset.entries().length<1))
 			return true;
 		getMaskCodes();
+		return evaluateMaskEntries(cset,E,actual);
+	}
+
+	/**
+	 * Checks each entry of a mask against the given object, without the
+	 * empty mask check, or making sure the mask codes are loaded, which
+	 * the callers do, once per mask.
+	 * @param cset the compiled mask, not empty
+	 * @param E the object to check, not null
+	 * @param actual true to check actual values, false for apparent ones
+	 * @return true if the object passed the mask
+	 */
+	@SuppressWarnings("unchecked")
+	protected boolean evaluateMaskEntries(final CompiledZMask cset, final Environmental E, final boolean actual)
+	{
 		CharStats base=null;
 		final MOB mob=(E instanceof MOB)?(MOB)E:nonCrashingMOB();
 		final boolean[] flags=cset.flags();
@@ -6041,6 +6245,41 @@ public class MUDZapper extends StdLibrary implements MaskingLibrary
 		if((cset==null)||(cset.empty())||(cset.entries().length<1))
 			return true;
 		getMaskCodes();
+		return evaluatePlayerMaskEntries(cset,E);
+	}
+
+	@Override
+	public List<PlayerLibrary.ThinPlayer> maskFilterPlayers(final String text, final Iterable<PlayerLibrary.ThinPlayer> candidates)
+	{
+		return maskFilterPlayers(getPreCompiledMask(text), candidates);
+	}
+
+	@Override
+	public List<PlayerLibrary.ThinPlayer> maskFilterPlayers(final CompiledZMask cset, final Iterable<PlayerLibrary.ThinPlayer> candidates)
+	{
+		final List<PlayerLibrary.ThinPlayer> passed=new ArrayList<PlayerLibrary.ThinPlayer>();
+		final boolean empty=(cset==null)||(cset.empty())||(cset.entries().length<1);
+		if(!empty)
+			getMaskCodes();
+		for(final PlayerLibrary.ThinPlayer E : candidates)
+		{
+			if((E!=null)
+			&&(empty || evaluatePlayerMaskEntries(cset,E)))
+				passed.add(E);
+		}
+		return passed;
+	}
+
+	/**
+	 * Checks each entry of a mask against the given thin player, without
+	 * the empty mask check, or making sure the mask codes are loaded, which
+	 * the callers do, once per mask.
+	 * @param cset the compiled mask, not empty
+	 * @param E the thin player to check, not null
+	 * @return true if the thin player passed the mask
+	 */
+	protected boolean evaluatePlayerMaskEntries(final CompiledZMask cset, final PlayerLibrary.ThinPlayer E)
+	{
 		//boolean[] flags=(boolean[])cset.firstElement();
 		for(final CompiledZMaskEntry entry : cset.entries())
 		{
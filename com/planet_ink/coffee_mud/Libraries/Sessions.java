@@ -124,12 +124,14 @@ public class Sessions extends StdLibrary implements SessionsList
 	{
 		if(!all.contains(s))
 			all.add(s);
+		CMLib.channels().channelSubscriptionsChanged();
 	}
 
 	@Override
 	public synchronized void remove(Session s)
 	{
 		all.remove(s);
+		CMLib.channels().channelSubscriptionsChanged();
 	}
 
 	@Override
@@ -284,7 +286,7 @@ public class Sessions extends StdLibrary implements SessionsList
 			{
 				for(final Session S : all)
 				{
-					if(!S.isRunning())
+					if((!S.isRunning())&&(S.hasPendingWork()))
 					{
 						CMLib.threads().executeRunnable(S.getGroupName(), S);
 					}
@@ -45,6 +45,8 @@ public class Socials extends StdLibrary implements SocialsList
 		return "Socials";
 	}
 
+	private volatile Pair<Map<String,List<Social>>,PrefixTrie<String>> socialWords = null;
+
 	@Override
 	public void putSocialsInHash(final Map<String,List<Social>> soc, final List<String> lines)
 	{
@@ -185,6 +187,7 @@ public class Socials extends StdLibrary implements SocialsList
 		{
 			V2=new Vector<Social>(4);
 			H.put(name,V2);
+			socialWords=null;
 		}
 		for(int v=0;v<V2.size();v++)
 		{
@@ -218,6 +221,7 @@ public class Socials extends StdLibrary implements SocialsList
 				if(V2.size()==0)
 				{
 					getSocialHash().remove(realName);
+					socialWords=null;
 					unloadDerivedResources();
 				}
 				break;
@@ -242,9 +246,51 @@ public class Socials extends StdLibrary implements SocialsList
 	public void unloadSocials()
 	{
 		Resources.removeResource("PARSED_SOCIALS: "+filename);
+		socialWords=null;
 		unloadDerivedResources();
 	}
 
+	/**
+	 * Returns the shortest social base name that starts with the given
+	 * upper case prefix, using a prefix tree for the main socials list.
+	 * @param soc the socials map to search
+	 * @param prefix the upper case start of the base name
+	 * @return the base name found, or null
+	 */
+	protected String findSocialBaseName(final Map<String,List<Social>> soc, final String prefix)
+	{
+		if(soc!=getSocialHash())
+		{
+			for(final String key : soc.keySet())
+			{
+				if(key.startsWith(prefix))
+					return key;
+			}
+			return null;
+		}
+		Pair<Map<String,List<Social>>,PrefixTrie<String>> words=socialWords;
+		if((words==null)||(words.first!=soc))
+		{
+			final List<String> keys=new XVector<String>(soc.keySet());
+			Collections.sort(keys,new Comparator<String>()
+			{
+				@Override
+				public int compare(String o1, String o2)
+				{
+					if(o1.length()!=o2.length())
+						return Integer.compare(o1.length(), o2.length());
+					return o1.compareTo(o2);
+				}
+			});
+			final PairVector<String,String> entries=new PairVector<String,String>();
+			for(final String key : keys)
+				entries.add(key,key);
+			words=new Pair<Map<String,List<Social>>,PrefixTrie<String>>(soc,new PrefixTrie<String>(entries));
+			socialWords=words;
+		}
+		return words.second.findFirst(prefix);
+	}
+
 	private void unloadDerivedResources()
 	{
 		Resources.removeResource("SOCIALS LIST");
@@ -713,30 +759,9 @@ public class Socials extends StdLibrary implements SocialsList
 		}
 		if((S==null)&&(!exactOnly))
 		{
-			String backupSocialName=null;
-			final String socName=socialName.toUpperCase();
-			socialName=null;
-			for(final String key : soc.keySet())
-			{
-				if((key.startsWith(socName))&&(key.indexOf(' ')<0))
-				{
-					socialName=key;
-					break;
-				}
-				else
-				if(key.startsWith(socName))
-				{
-					backupSocialName=key;
-					break;
-				}
-			}
+			socialName=findSocialBaseName(soc,socialName.toUpperCase());
 			if(socialName==null)
-			{
-				if(backupSocialName == null)
-					socialName=C.get(0);
-				else
-					socialName=backupSocialName;
-			}
+				socialName=C.get(0);
 			if(socialName!=null)
 			{
 				if(!tryTargets)
@@ -59,8 +59,11 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 	protected int[]			beginDex;
 	protected int[]			endDex;
 	protected StringBuffer	buf;
+	protected XMLSource		source;
 	protected List<XMLTag>contents;
 	protected Set<String>	illegalTags;
+	protected String		streamTag	= null;
+	protected LinkedList<XMLTag> streamed = null;
 
 	public XMLManager()
 	{
@@ -73,9 +76,10 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 		piece=null;
 		state=State.START;
 		this.buf=buf;
+		source=new XMLSource(buf);
 		beginDex = new int[State.values().length];
 		endDex = new int[State.values().length];
-		contents=new XVector<XMLTag>();
+		contents=new XMLPieces();
 		for(int i=0;i<State.values().length;i++)
 		{
 			beginDex[i]=-1;
@@ -92,6 +96,179 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 		}
 	}
 
+	/**
+	 * The text a document was parsed from.  While the document is
+	 * being parsed, this reads from the buffer being parsed, and
+	 * once it is done, from a single string copy of that buffer, so
+	 * that tag values can be cut out of it only when they are read.
+	 * A tag lets go of its source once its value is read, or when it
+	 * is copied or handed out by a tag iterator, so that a kept tag
+	 * does not keep the whole text with it.
+	 * @author agent
+	 */
+	private static class XMLSource
+	{
+		private StringBuffer	buf;
+		private String			text	= null;
+
+		private XMLSource(final StringBuffer buf)
+		{
+			this.buf=buf;
+		}
+
+		private synchronized String substring(final int start, final int end)
+		{
+			if(text != null)
+				return text.substring(start,end);
+			return buf.substring(start,end);
+		}
+
+		private synchronized int length()
+		{
+			if(text != null)
+				return text.length();
+			return buf.length();
+		}
+
+		private synchronized void finish()
+		{
+			if(text == null)
+			{
+				text=buf.toString();
+				buf=null;
+			}
+		}
+	}
+
+	/**
+	 * The child tags of a tag, or the top level tags of a document.
+	 * Once there are enough of them, the first lookup by tag name
+	 * builds an index from tag names to tags, which is thrown away
+	 * whenever the list is changed.
+	 * @author agent
+	 */
+	private static class XMLPieces extends XVector<XMLTag>
+	{
+		private static final long	serialVersionUID	= -3051476923367125812L;
+		private static final int	INDEX_MIN_SIZE		= 8;
+
+		private transient TreeMap<String,List<XMLTag>>	index		= null;
+		private transient int							indexMod	= -1;
+
+		public XMLPieces()
+		{
+			super();
+		}
+
+		public XMLPieces(final List<XMLTag> V)
+		{
+			super(V);
+		}
+
+		private TreeMap<String,List<XMLTag>> getIndex()
+		{
+			if(size() < INDEX_MIN_SIZE)
+			{
+				index=null;
+				return null;
+			}
+			if((index == null)||(indexMod != modCount))
+			{
+				final TreeMap<String,List<XMLTag>> newIndex=new TreeMap<String,List<XMLTag>>(String.CASE_INSENSITIVE_ORDER);
+				for(int i=0;i<elementCount;i++)
+				{
+					final XMLTag x=(XMLTag)elementData[i];
+					List<XMLTag> l=newIndex.get(x.tag());
+					if(l==null)
+					{
+						l=new ArrayList<XMLTag>(1);
+						newIndex.put(x.tag(), l);
+					}
+					l.add(x);
+				}
+				index=newIndex;
+				indexMod=modCount;
+			}
+			return index;
+		}
+
+		private synchronized XMLTag getPiece(final String tag)
+		{
+			final TreeMap<String,List<XMLTag>> index=getIndex();
+			if(index == null)
+			{
+				for(int i=0;i<elementCount;i++)
+				{
+					if(((XMLTag)elementData[i]).tag().equalsIgnoreCase(tag))
+						return (XMLTag)elementData[i];
+				}
+				return null;
+			}
+			final List<XMLTag> l=index.get(tag);
+			if(l==null)
+				return null;
+			return l.get(0);
+		}
+
+		private synchronized List<XMLTag> getPieces(final String tag)
+		{
+			final TreeMap<String,List<XMLTag>> index=getIndex();
+			if(index == null)
+			{
+				final List<XMLTag> pieces = new ArrayList<XMLTag>();
+				for(int i=0;i<elementCount;i++)
+				{
+					if(((XMLTag)elementData[i]).tag().equalsIgnoreCase(tag))
+						pieces.add((XMLTag)elementData[i]);
+				}
+				return pieces;
+			}
+			final List<XMLTag> l=index.get(tag);
+			if(l==null)
+				return new ArrayList<XMLTag>();
+			return new ArrayList<XMLTag>(l);
+		}
+
+		@Override
+		public synchronized XMLTag set(final int index, final XMLTag element)
+		{
+			this.index=null;
+			return super.set(index, element);
+		}
+
+		@Override
+		public synchronized void setElementAt(final XMLTag obj, final int index)
+		{
+			this.index=null;
+			super.setElementAt(obj, index);
+		}
+	}
+
+	protected static XMLTag findPiece(final List<XMLTag> V, final String tag)
+	{
+		if(V instanceof XMLPieces)
+			return ((XMLPieces)V).getPiece(tag);
+		for(int v=0;v<V.size();v++)
+		{
+			if(V.get(v).tag().equalsIgnoreCase(tag))
+				return V.get(v);
+		}
+		return null;
+	}
+
+	protected static List<XMLTag> findPieces(final List<XMLTag> V, final String tag)
+	{
+		if(V instanceof XMLPieces)
+			return ((XMLPieces)V).getPieces(tag);
+		final List<XMLTag> pieces = new ArrayList<XMLTag>();
+		for(int v=0;v<V.size();v++)
+		{
+			if(V.get(v).tag().equalsIgnoreCase(tag))
+				pieces.add(V.get(v));
+		}
+		return pieces;
+	}
+
 	/**
 	 *
 	 * @author Bo Zimmerman
@@ -100,8 +277,9 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 	private static class XMLpiece implements Cloneable, XMLTag
 	{
 		protected String				tag			= "";
-		protected String				value		= "";
-		protected List<XMLTag>			contents	= new XVector<XMLTag>();
+		protected volatile String		value		= null;
+		protected XMLSource				source		= null;
+		protected List<XMLTag>			contents	= new XMLPieces();
 		protected Map<String, String>	parms		= new XHashtable<String, String>();
 		protected XMLpiece				parent		= null;
 		protected int					outerStart	= -1;
@@ -132,8 +310,9 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 			try
 			{
 				final XMLpiece piece2=(XMLpiece)this.clone();
-				piece2.contents =new XVector<XMLTag>(contents());
+				piece2.contents =new XMLPieces(contents());
 				piece2.parms = new XHashtable<String,String>(parms());
+				piece2.detach();
 				return piece2;
 			}
 			catch(final Exception e)
@@ -153,7 +332,7 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 		{
 			if (x == null) return;
 			if (contents() == null) 
-				contents = new XVector<XMLTag>();
+				contents = new XMLPieces();
 			if(x instanceof XMLpiece)
 				((XMLpiece)x).parent = this;
 			contents().add(x);
@@ -187,7 +366,41 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 		@Override
 		public String value()
 		{
-			return value;
+			final String value=this.value;
+			if(value != null)
+				return value;
+			// parsed trees are shared, so the value is cut out under the lock, and the
+			// source let go of only after the value is set, so no thread sees neither
+			synchronized(this)
+			{
+				if(this.value == null)
+				{
+					final XMLSource source=this.source;
+					if((source != null)
+					&&(innerStart >= 0)
+					&&(innerEnd >= innerStart)
+					&&(innerEnd <= source.length()))
+						this.value=source.substring(innerStart, innerEnd);
+					else
+						this.value="";
+					this.source=null;
+				}
+				return this.value;
+			}
+		}
+
+		/**
+		 * Cuts the values of this tag and all of its children out of
+		 * the source, so that none of them refer to it any longer.
+		 */
+		protected void detach()
+		{
+			value();
+			for(final XMLTag child : contents())
+			{
+				if(child instanceof XMLpiece)
+					((XMLpiece)child).detach();
+			}
 		}
 
 		/* (non-Javadoc)
@@ -266,12 +479,7 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 		{
 			if(contents==null)
 				return null;
-			for(int v=0;v<contents.size();v++)
-			{
-				if(contents.get(v).tag().equalsIgnoreCase(tag))
-					return contents.get(v);
-			}
-			return null;
+			return findPiece(contents,tag);
 		}
 		
 		@Override
@@ -349,13 +557,7 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 		public boolean isTagInPieces(String tag)
 		{
 			if(contents!=null)
-			{
-				for(int v=0;v<contents.size();v++)
-				{
-					if(contents.get(v).tag().equalsIgnoreCase(tag))
-						return true;
-				}
-			}
+				return findPiece(contents,tag)!=null;
 			return false;
 		}
 
@@ -364,13 +566,7 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 		{
 			if(contents==null)
 				return null;
-			final List<XMLTag> pieces = new ArrayList<XMLTag>();
-			for(int v=0;v<contents.size();v++)
-			{
-				if(contents.get(v).tag().equalsIgnoreCase(tag))
-					pieces.add(contents.get(v));
-			}
-			return pieces;
+			return findPieces(contents,tag);
 		}
 
 		@Override
@@ -710,23 +906,14 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 	{
 		if(V==null)
 			return null;
-		for(int v=0;v<V.size();v++)
-		{
-			if(V.get(v).tag().equalsIgnoreCase(tag))
-				return V.get(v);
-		}
-		return null;
+		return findPiece(V,tag);
 	}
 
 	@Override
 	public boolean isTagInPieces(List<XMLTag> V, String tag)
 	{
 		if(V!=null)
-		for(int v=0;v<V.size();v++)
-		{
-			if(V.get(v).tag().equalsIgnoreCase(tag))
-				return true;
-		}
+			return findPiece(V,tag)!=null;
 		return false;
 	}
 
@@ -735,13 +922,7 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 	{
 		if(V==null)
 			return null;
-		final List<XMLTag> pieces = new ArrayList<XMLTag>();
-		for(int v=0;v<V.size();v++)
-		{
-			if(V.get(v).tag().equalsIgnoreCase(tag))
-				pieces.add(V.get(v));
-		}
-		return pieces;
+		return findPieces(V,tag);
 	}
 
 	@Override
@@ -945,6 +1126,7 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 		final XMLpiece newPiece=new XMLpiece();
 		newPiece.outerStart = beginDex[State.BEFORETAG.ordinal()];
 		newPiece. tag = buf.substring(beginDex[State.INTAG.ordinal()],endOfTagName).toUpperCase().trim();
+		newPiece.source = source;
 		if(piece!=null)
 			piece.contents().add(newPiece);
 		else
@@ -957,9 +1139,28 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 	{
 		if(piece!=null)
 		{
+			final XMLpiece donePiece=piece;
 			piece.outerEnd = outerEnd;
 			piece=piece.parent();
+			if((streamTag!=null)&&(donePiece.tag().equals(streamTag)))
+				streamPiece(donePiece);
+		}
+	}
+
+	protected void streamPiece(final XMLpiece donePiece)
+	{
+		for(XMLpiece p=donePiece.parent();p!=null;p=p.parent())
+		{
+			if(p.tag().equals(streamTag))
+				return;
 		}
+		final List<XMLTag> from=(donePiece.parent()!=null)?donePiece.parent().contents():contents;
+		if((from.size()>0)&&(from.get(from.size()-1)==donePiece))
+			from.remove(from.size()-1);
+		else
+			from.remove(donePiece);
+		donePiece.parent=null;
+		streamed.add(donePiece);
 	}
 
 	protected void closePiece(int outerEnd)
@@ -971,7 +1172,7 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 		if(closePiece!=null)
 		{
 			if(closePiece.innerStartIndex()>=0)
-				closePiece.value = buf.substring(closePiece.innerStartIndex(),beginDex[State.BEFORETAG.ordinal()]-1);
+				closePiece.innerEnd = beginDex[State.BEFORETAG.ordinal()]-1;
 			piece=closePiece;
 			doneWithPiece(outerEnd);
 		}
@@ -1255,55 +1456,58 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 	protected XMLTag parseXML()
 	{
 		while(bufDex<buf.length())
-		{
-			switch(state)
-			{
-			case START:
-				startState(buf.charAt(bufDex));
-				break;
-			case BEFORETAG:
-				beforeTag(buf.charAt(bufDex));
-				break;
-			case INTAG:
-				inTag(buf.charAt(bufDex));
-				break;
-			case BEGINTAGSELFEND:
-				beginTagSelfEnd(buf.charAt(bufDex));
-				break;
-			case BEFORECLOSETAG:
-				beforeCloseTag(buf.charAt(bufDex));
-				break;
-			case INCLOSETAG:
-				inCloseTag(buf.charAt(bufDex));
-				break;
-			case AFTERCLOSETAG:
-				afterCloseTag(buf.charAt(bufDex));
-				break;
-			case BEFOREATTRIB:
-				beforeAttrib(buf.charAt(bufDex));
-				break;
-			case INATTRIB:
-				inAttrib(buf.charAt(bufDex));
-				break;
-			case INPOSTATTRIB:
-				inPostAttrib(buf.charAt(bufDex));
-				break;
-			case BEFOREATTRIBVALUE:
-				beforeAttribValue(buf.charAt(bufDex));
-				break;
-			case INATTRIBVALUE:
-				inAttribValue(buf.charAt(bufDex));
-				break;
-			case INQUOTEDATTRIBVALUE:
-				inQuotedAttribValue(buf.charAt(bufDex));
-				break;
-			}
-		}
+			parseNext();
 		while((piece!=null)&&(piece.parent()!=null))
 			piece=piece.parent();
 		return piece;
 	}
 
+	protected void parseNext()
+	{
+		switch(state)
+		{
+		case START:
+			startState(buf.charAt(bufDex));
+			break;
+		case BEFORETAG:
+			beforeTag(buf.charAt(bufDex));
+			break;
+		case INTAG:
+			inTag(buf.charAt(bufDex));
+			break;
+		case BEGINTAGSELFEND:
+			beginTagSelfEnd(buf.charAt(bufDex));
+			break;
+		case BEFORECLOSETAG:
+			beforeCloseTag(buf.charAt(bufDex));
+			break;
+		case INCLOSETAG:
+			inCloseTag(buf.charAt(bufDex));
+			break;
+		case AFTERCLOSETAG:
+			afterCloseTag(buf.charAt(bufDex));
+			break;
+		case BEFOREATTRIB:
+			beforeAttrib(buf.charAt(bufDex));
+			break;
+		case INATTRIB:
+			inAttrib(buf.charAt(bufDex));
+			break;
+		case INPOSTATTRIB:
+			inPostAttrib(buf.charAt(bufDex));
+			break;
+		case BEFOREATTRIBVALUE:
+			beforeAttribValue(buf.charAt(bufDex));
+			break;
+		case INATTRIBVALUE:
+			inAttribValue(buf.charAt(bufDex));
+			break;
+		case INQUOTEDATTRIBVALUE:
+			inQuotedAttribValue(buf.charAt(bufDex));
+			break;
+		}
+	}
+
 	@Override
 	public List<XMLTag> parseAllXML(String buf)
 	{
@@ -1315,9 +1519,39 @@ public class XMLManager extends StdLibrary implements XMLLibrary
 	{
 		final XMLManager manager=new XMLManager(buf, 0);
 		manager.parseXML();
+		manager.source.finish();
 		return manager.contents;
 	}
 
+	@Override
+	public Iterator<XMLTag> iterateXMLTags(final StringBuffer buf, final String tag)
+	{
+		final XMLManager manager=new XMLManager(buf, 0);
+		manager.streamTag=tag.toUpperCase().trim();
+		manager.streamed=new LinkedList<XMLTag>();
+		return new Iterator<XMLTag>()
+		{
+			@Override
+			public boolean hasNext()
+			{
+				while((manager.streamed.size()==0)&&(manager.bufDex<manager.buf.length()))
+					manager.parseNext();
+				return manager.streamed.size()>0;
+			}
+
+			@Override
+			public XMLTag next()
+			{
+				if(!hasNext())
+					throw new NoSuchElementException();
+				// the buffer belongs to the caller, so tags handed out must not read from it later
+				final XMLpiece piece=(XMLpiece)manager.streamed.removeFirst();
+				piece.detach();
+				return piece;
+			}
+		};
+	}
+
 	@Override
 	public String returnXMLValue(String Blob)
 	{
@@ -126,6 +126,24 @@ public interface AchievementLibrary extends CMLibrary
 			return choices.toArray(new String[0]);
 		}
 	}
+
+	/**
+	 * An enum of the counters kept for each event type.  BUMPS is the number
+	 * of times the event was bumped for a player, QUEUED the number of those
+	 * that were queued for the background worker, COALESCED the number of
+	 * queued ones that were added to the bump queued just before them instead,
+	 * and NANOS the total time spent testing the trackers of the event.
+	 *
+	 * @author agent
+	 *
+	 */
+	public static enum BumpStat
+	{
+		BUMPS,
+		QUEUED,
+		COALESCED,
+		NANOS
+	}
 	
 	/**
 	 * The achievement interface provides basic information about the specific achievement,
@@ -523,12 +541,48 @@ public interface AchievementLibrary extends CMLibrary
 	 * When an event occurs that might possible cause a player to have one of their achievements bumped,
 	 * this method is called with event specific parameters which might possibly cause the achievement
 	 * to be bumped in the tracker, which might cause it to be completed as well.
+	 * Frequent bumps that do not depend on anything but the player, such as time
+	 * played and levels gained, are queued for the player and tested in order on a
+	 * background worker, with any awards given on the players tick.  Kills of
+	 * monsters and crafting are queued the same way, with a snapshot of what their
+	 * trackers read, and added to the bump queued just before them when that one
+	 * would be tested the same way.  All others are tested right away.
+	 * @see AchievementLibrary#giveQueuedAwards(MOB)
+	 * @see AchievementLibrary#processQueuedBumps(MOB)
 	 * @param mob the player whose achievement needs to be checked
 	 * @param E the event that occurred
 	 * @param bumpNum the amount to bump the achievement by
 	 * @param parms any event-specific argument that help determine whether a bump is warranted.
 	 */
 	public void possiblyBumpAchievement(final MOB mob, final Event E, int bumpNum, Object... parms);
+
+	/**
+	 * Gives the given player any achievements that were completed by bumps
+	 * tested on the background worker.  Called from the players tick, so that
+	 * awards are always given on the players own thread.
+	 * @see AchievementLibrary#possiblyBumpAchievement(MOB, Event, int, Object...)
+	 * @param mob the player to give completed achievements to
+	 */
+	public void giveQueuedAwards(final MOB mob);
+
+	/**
+	 * Waits for the background worker of the given player to finish, tests any
+	 * bumps still queued for them right away, and gives any completed awards.
+	 * Called before a player is remorted, retired, or otherwise changed in a way
+	 * that queued bumps must not see.
+	 * @see AchievementLibrary#possiblyBumpAchievement(MOB, Event, int, Object...)
+	 * @param mob the player whose queued bumps to finish
+	 */
+	public void processQueuedBumps(final MOB mob);
+
+	/**
+	 * Returns one of the counters kept for each event type.
+	 * @see BumpStat
+	 * @param E the event type
+	 * @param stat the counter to return
+	 * @return the value of the counter
+	 */
+	public long getBumpCount(final Event E, final BumpStat stat);
 	
 	/**
 	 * When an event occurs that might possible cause a player to have one of their achievements bumped,
@@ -147,6 +147,13 @@ public interface ChannelsLibrary extends CMLibrary
 	 */
 	public void channelQueUp(int channelNumber, CMMsg msg);
 
+	/**
+	 * Called whenever a session starts or stops, changes its mob, or a player
+	 * turns a channel on or off, so that the sessions that might read each
+	 * channel are found again before the next message is sent.
+	 */
+	public void channelSubscriptionsChanged();
+
 	/**
 	 * Returns the official index number of the channel with the
 	 * given name or which starts with the given name.  It is
@@ -87,12 +87,37 @@ public interface DatabaseEngine extends CMLibrary
 		DBBACKLOG
 	}
 
+	/**
+	 * An enum of the counters kept by the incremental saves
+	 * of player items and abilities, and of room items
+	 * and mobs.
+	 * 
+	 * @author agent
+	 *
+	 */
+	public static enum RowSaveStat
+	{
+		WRITTEN,
+		SKIPPED,
+		DELETED,
+		FULLSAVES
+	}
+
 	/**
 	 * Returns the database status, formatted for html.
 	 * @return the database status, formatted for html.
 	 */
 	public String errorStatus();
 
+	/**
+	 * Returns one of the counters kept by the incremental saves
+	 * of player items and abilities, and of room items and mobs,
+	 * such as how many unchanged rows were skipped.
+	 * @param stat the counter to return
+	 * @return the value of the counter
+	 */
+	public long getRowSaveCount(RowSaveStat stat);
+
 	/**
 	 * Forces all existing database connections to be closed,
 	 * and then re-open.
@@ -276,6 +301,20 @@ public interface DatabaseEngine extends CMLibrary
 	 */
 	public Room DBReadRoomObject(String roomIDtoLoad, boolean reportStatus);
 
+	/**
+	 * Table category: DBMAP
+	 * Reads the Room object of the given roomID, adds it to the
+	 * given area, and then reads its exits, items, and mobs, all
+	 * over a single database connection.  This is how thin areas
+	 * load their rooms one at a time.
+	 * @see DatabaseEngine#DBReadRoomObject(String, boolean)
+	 * @see DatabaseEngine#DBReadContent(String, Room, boolean)
+	 * @param roomID the id of the room to load
+	 * @param area the area the room belongs to
+	 * @return the room loaded, or null if it could not be
+	 */
+	public Room DBReadRoomAndContent(String roomID, Area area);
+
 	/**
 	 * Table category: DBMAP
 	 * Reads all the Room objects in the given area name
@@ -51,6 +51,7 @@ public interface EnglishParsing extends CMLibrary
 	public String insertAdjectives(String paragraph, String[] adjsToChoose, int pctChance);
 	public String startWithAorAn(String str);
 	public CMObject findCommand(MOB mob, List<String> commands);
+	public void resetCommandWords();
 	public boolean evokedBy(Ability thisAbility, String thisWord);
 	public boolean evokedBy(Ability thisAbility, String thisWord, String secondWord);
 	public String getAnEvokeWord(MOB mob, String word);
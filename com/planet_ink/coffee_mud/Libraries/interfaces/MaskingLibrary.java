@@ -51,6 +51,73 @@ public interface MaskingLibrary extends CMLibrary
 	public int minMaskLevel(final String text, final int minMinLevel);
 	public String[] separateMaskStrs(final String newText);
 	public CompiledZMask createEmptyMask();
+
+	/**
+	 * Returns those of the given candidates that pass the given mask, in
+	 * the order given.  This is the same as calling maskCheck on each one,
+	 * but the mask is compiled or found, and checked for being empty or
+	 * cacheable, only once for the whole batch.
+	 * @param text the mask to check against
+	 * @param candidates the objects to check
+	 * @param actual true to check actual values, false for apparent ones
+	 * @return the candidates that passed the mask
+	 */
+	public <T extends Environmental> List<T> maskFilter(final String text, final Iterable<T> candidates, final boolean actual);
+
+	/**
+	 * Returns those of the given candidates that pass the given mask, in
+	 * the order given.  This is the same as calling maskCheck on each one,
+	 * but the mask is checked for being empty or cacheable only once for
+	 * the whole batch.
+	 * @param cset the compiled mask to check against
+	 * @param candidates the objects to check
+	 * @param actual true to check actual values, false for apparent ones
+	 * @return the candidates that passed the mask
+	 */
+	public <T extends Environmental> List<T> maskFilter(final CompiledZMask cset, final Iterable<T> candidates, final boolean actual);
+
+	/**
+	 * Returns those of the given thin players that pass the given mask, in
+	 * the order given, compiling or finding the mask only once.
+	 * @param text the mask to check against
+	 * @param candidates the thin players to check
+	 * @return the thin players that passed the mask
+	 */
+	public List<PlayerLibrary.ThinPlayer> maskFilterPlayers(final String text, final Iterable<PlayerLibrary.ThinPlayer> candidates);
+
+	/**
+	 * Returns those of the given thin players that pass the given mask, in
+	 * the order given, checking the mask for being empty only once.
+	 * @param cset the compiled mask to check against
+	 * @param candidates the thin players to check
+	 * @return the thin players that passed the mask
+	 */
+	public List<PlayerLibrary.ThinPlayer> maskFilterPlayers(final CompiledZMask cset, final Iterable<PlayerLibrary.ThinPlayer> candidates);
+
+	/**
+	 * Returns one of the counters kept by the compiled mask cache
+	 * and the remembered player mask results.
+	 * @param stat the counter to return
+	 * @return the value of the counter
+	 */
+	public long getMaskCacheCount(final MaskCacheStat stat);
+
+	/**
+	 * An enum of the counters kept by the compiled mask cache,
+	 * and by the remembered results of masks checked against
+	 * players.
+	 *
+	 * @author agent
+	 *
+	 */
+	public static enum MaskCacheStat
+	{
+		COMPILED_HITS,
+		COMPILED_MISSES,
+		COMPILED_EVICTIONS,
+		RESULT_HITS,
+		RESULT_MISSES
+	}
 	
 	public enum ZapperKey
 	{
@@ -49,7 +49,41 @@ public interface ProtocolLibrary extends CMLibrary
 	public byte[] buildGmcpResponse(String json);
 	public byte[] pingGmcp(final Session session, final Map<String,Long> reporteds, final Map<String,Double> supportables);
 	public byte[] invokeRoomChangeGmcp(final Session session, final Map<String,Long> reporteds, final Map<String,Double> supportables);
-	
+
+	/**
+	 * Returns one of the counters kept for the gmcp packages reported to
+	 * sessions when they are pinged, or when they change rooms.
+	 * @param pkg the gmcp package, such as char_vitals
+	 * @param stat the counter to return
+	 * @return the value of the counter
+	 */
+	public long getGmcpPingCount(final GMCPCommand pkg, final PingStat stat);
+
+	/**
+	 * Returns one of the counters kept for the msdp variables reported
+	 * to sessions when they are pinged.
+	 * @param stat the counter to return
+	 * @return the value of the counter
+	 */
+	public long getMsdpPingCount(final PingStat stat);
+
+	/**
+	 * An enum of the counters kept for each gmcp package, or msdp
+	 * variable, that may be reported to a session when it is pinged.
+	 * SENT means the report was built and sent, UNCHANGED means it
+	 * was built, but was the same as the last one sent, and SKIPPED
+	 * means nothing it reports on had changed, so it was not built.
+	 *
+	 * @author agent
+	 *
+	 */
+	public static enum PingStat
+	{
+		SENT,
+		UNCHANGED,
+		SKIPPED
+	}
+
 	public enum GMCPCommand
 	{
 		core_hello,
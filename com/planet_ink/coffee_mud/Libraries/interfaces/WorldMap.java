@@ -79,6 +79,31 @@ public interface WorldMap extends CMLibrary
 	public Area getTargetArea(Room from, Exit to);
 	public Room getTargetRoom(Room from, Exit to);
 
+	/* ***********************************************************************/
+	/* *							 THIN ROOMS									*/
+	/* ***********************************************************************/
+	public boolean startRoomPrefetch(String roomID);
+	public void finishRoomPrefetch(String roomID, boolean loaded);
+	public void thinRoomAccessed(String roomID, boolean loaded);
+	public long getThinRoomCount(ThinRoomStat stat);
+
+	/**
+	 * The counters kept about rooms loaded one at a time by thin areas.
+	 * LOADED counts rooms that had to be read while someone waited for
+	 * them, PREFETCHED counts rooms read ahead in the background,
+	 * PREFETCH_HITS counts prefetched rooms that were then asked for, and
+	 * PREFETCH_SKIPPED counts prefetches not started because too many
+	 * were already running.
+	 * @author agent
+	 */
+	public static enum ThinRoomStat
+	{
+		LOADED,
+		PREFETCHED,
+		PREFETCH_HITS,
+		PREFETCH_SKIPPED
+	}
+
 	/* ***********************************************************************/
 	/* *								SEARCH TOOLS 							*/
 	/* ***********************************************************************/
@@ -99,6 +124,8 @@ public interface WorldMap extends CMLibrary
 	public Environmental findFirstShopStocker(Enumeration<Room> rooms, MOB mob, String srchStr, int timePct);
 	public List<Item> findInventory(Enumeration<Room> rooms, MOB mob, String srchStr, int timePct);
 	public Item findFirstInventory(Enumeration<Room> rooms, MOB mob, String srchStr, int timePct);
+	public void roomTextChanged(Room R);
+	public void roomContentChanged(Room R);
 	public boolean isHere(CMObject E2, Area here);
 	public boolean isHere(CMObject E2, Room here);
 
@@ -158,6 +185,7 @@ public interface WorldMap extends CMLibrary
 	public long getDistanceFrom(final long[] coord1, final long[] coord2);
 	public double getAngleDelta(final double[] fromAngle, final double[] toAngle);
 	public double getMinDistanceFrom(SpaceObject FROM, long prevDistance, SpaceObject TO);
+	public double getMinDistanceFrom(final long[] prevCoords, final long[] curCoords, final long[] toCoords);
 	public double[] getDirection(SpaceObject FROM, SpaceObject TO);
 	public TechComponent.ShipDir getDirectionFromDir(double[] facing, double roll, double[] direction);
 	public long[] getLocation(long[] oldLocation, double[] direction, long distance);
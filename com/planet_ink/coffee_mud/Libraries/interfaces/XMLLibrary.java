@@ -1,4 +1,5 @@
 package com.planet_ink.coffee_mud.Libraries.interfaces;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -95,6 +96,22 @@ public interface XMLLibrary extends CMLibrary
 	 */
 	public List<XMLTag> parseAllXML(StringBuffer buf);
 
+	/**
+	 * Parses the xml inside the given stringbuffer a little at a time,
+	 * returning each tag with the given name as soon as it has been
+	 * parsed, along with all of its children.  Returned tags are not
+	 * kept anywhere else, so a very large document, such as an area
+	 * import, never needs to have its whole tree in memory at once.
+	 * Tags with the given name that are inside another tag with the
+	 * given name are returned as children of the outer one.  The buffer
+	 * should not be changed while the iterator is still being used, but
+	 * tags already returned no longer read from it.
+	 * @param buf the string to parse
+	 * @param tag the name of the tags to return, such as MOB
+	 * @return an iterator over the tags with the given name
+	 */
+	public Iterator<XMLTag> iterateXMLTags(StringBuffer buf, String tag);
+
 	/**
 	 * Parses a list of single-level xml tags, together in string.
 	 * This method assumes that the given string is a series of
@@ -380,6 +380,7 @@ public class StdRoom implements Room
 	public void setDisplayText(String newDisplayText)
 	{
 		displayText=newDisplayText;
+		textChanged();
 	}
 
 	@Override
@@ -421,6 +422,7 @@ public class StdRoom implements Room
 			description=CMLib.encoder().compressString(newDescription);
 		else
 			description=newDescription;
+		textChanged();
 	}
 
 	@Override
@@ -476,7 +478,11 @@ public class StdRoom implements Room
 				myArea.delProperRoom(this);
 			myArea=newArea;
 			if(myArea!=null)
+			{
 				myArea.addProperRoom(this);
+				textChanged();
+				contentChanged();
+			}
 		}
 	}
 
@@ -2015,6 +2021,7 @@ public class StdRoom implements Room
 	public void addInhabitant(MOB mob)
 	{
 		inhabitants.addElement(mob);
+		contentChanged();
 	}
 
 	@Override
@@ -2044,6 +2051,21 @@ public class StdRoom implements Room
 		return num;
 	}
 
+	protected void textChanged()
+	{
+		final WorldMap map=CMLib.map();
+		if(map!=null)
+			map.roomTextChanged(this);
+	}
+
+	@Override
+	public void contentChanged()
+	{
+		final WorldMap map=CMLib.map();
+		if(map!=null)
+			map.roomContentChanged(this);
+	}
+
 	@Override
 	public boolean isInhabitant(MOB mob)
 	{
@@ -2088,6 +2110,7 @@ public class StdRoom implements Room
 	public void delInhabitant(MOB mob)
 	{
 		inhabitants.removeElement(mob);
+		contentChanged();
 	}
 
 	@Override
@@ -2106,6 +2129,7 @@ public class StdRoom implements Room
 				}
 			}
 			inhabitants.clear();
+			contentChanged();
 		}
 		catch(final Exception e)
 		{
@@ -2233,6 +2257,7 @@ public class StdRoom implements Room
 				contents.add(0,item);
 			else
 				contents.add(item);
+			contentChanged();
 			item.recoverPhyStats();
 		}
 	}
@@ -2244,6 +2269,7 @@ public class StdRoom implements Room
 		{
 			item.setOwner(this);
 			contents.addElement(item);
+			contentChanged();
 			item.recoverPhyStats();
 		}
 	}
@@ -2252,6 +2278,7 @@ public class StdRoom implements Room
 	public void delItem(Item item)
 	{
 		contents.removeElement(item);
+		contentChanged();
 		item.recoverPhyStats();
 	}
 
@@ -2272,6 +2299,7 @@ public class StdRoom implements Room
 			}
 		}
 		contents.clear();
+		contentChanged();
 	}
 
 	@Override
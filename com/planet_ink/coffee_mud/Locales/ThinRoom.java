@@ -528,6 +528,11 @@ public class ThinRoom implements Room
 		return 0;
 	}
 
+	@Override
+	public void contentChanged()
+	{
+	}
+
 	public MOB fetchPCInhabitant(int i)
 	{
 		return null;
@@ -1065,6 +1065,15 @@ public interface Room extends PhysicalAgent, ItemPossessor, Places
 	 * @return the number of player inhabitants
 	 */
 	public int numPCInhabitants();
+
+	/**
+	 * Called whenever a mob or item enters or leaves this room, and
+	 * by mobs and items in this room, and by the shops they run,
+	 * whenever their names or stock change, so that the world map
+	 * can index the contents of this room again for world searches.
+	 * @see WorldMap#roomContentChanged(Room)
+	 */
+	public void contentChanged();
 	
 	/**
 	 * A workhorse method that removes the given mob (and anything
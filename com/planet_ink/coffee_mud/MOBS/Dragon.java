@@ -548,9 +548,9 @@ public class Dragon extends StdMOB
 	}
 
 	@Override
-	public void recoverPhyStats()
+	protected void recoverPhyStats(final boolean recoverItems)
 	{
-		super.recoverPhyStats();
+		super.recoverPhyStats(recoverItems);
 		setupDragonIfNecessary();
 	}
 
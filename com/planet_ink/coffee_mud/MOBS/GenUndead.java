@@ -83,9 +83,9 @@ public class GenUndead extends GenMob
 	}
 
 	@Override
-	public void recoverPhyStats()
+	protected void recoverPhyStats(final boolean recoverItems)
 	{
-		super.recoverPhyStats();
+		super.recoverPhyStats(recoverItems);
 		if((charStats().getMyRace()!=undeadRace)&&(undeadRace!=null))
 			undeadRace.affectPhyStats(this, phyStats);
 	}
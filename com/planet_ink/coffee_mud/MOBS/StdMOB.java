@@ -24,6 +24,7 @@ import com.planet_ink.coffee_mud.Races.interfaces.*;
 import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.planet_ink.coffee_mud.Libraries.interfaces.*;
 import com.planet_ink.coffee_mud.Libraries.interfaces.ChannelsLibrary.CMChannel;
@@ -122,6 +123,8 @@ public class StdMOB implements MOB
 	protected CMUniqSortSVec<Ability>		abilitys		= new CMUniqSortSVec<Ability>(1);
 	protected int[]							abilityUseTrig	= new int[3];
 	protected STreeMap<String, int[][]>		abilityUseCache	= new STreeMap<String, int[][]>();
+	protected volatile PrefixTrie<List<Ability>> abilityTrigs = null;
+	protected volatile Object[]				abilityTrigKey	= null;
 	protected STreeMap<String, Integer>		expertises		= new STreeMap<String, Integer>();
 	protected SVector<Ability>				affects			= new SVector<Ability>(1);
 	protected CMUniqSortSVec<Behavior>		behaviors		= new CMUniqSortSVec<Behavior>(1);
@@ -134,9 +137,11 @@ public class StdMOB implements MOB
 	protected SHashtable<String, FData>		factions		= new SHashtable<String, FData>(1);
 	protected volatile WeakReference<Item>	possWieldedItem	= null;
 	protected volatile WeakReference<Item>	possHeldItem	= null;
+	protected final AtomicInteger			stateVersion	= new AtomicInteger(0);
 
 	protected	ApplyAffectPhyStats<Ability>affectPhyStats	= new ApplyAffectPhyStats<Ability>(this);
 	protected	ApplyRecAffectPhyStats<Item>recoverAffectP	= new ApplyRecAffectPhyStats<Item>(this);
+	protected	ApplyAffectPhyStats<Item>	affectItemP		= new ApplyAffectPhyStats<Item>(this);
 	@SuppressWarnings("rawtypes")
 	protected	ApplyAffectCharStats		affectCharStats	= new ApplyAffectCharStats(this);
 	@SuppressWarnings("rawtypes")
@@ -427,6 +432,13 @@ public class StdMOB implements MOB
 	public void setWorshipCharID(String newVal)
 	{
 		worshipCharID = newVal;
+		stateVersion.incrementAndGet();
+	}
+
+	@Override
+	public int getStateVersion()
+	{
+		return stateVersion.get();
 	}
 
 	@Override
@@ -511,6 +523,9 @@ public class StdMOB implements MOB
 	public void setName(String newName)
 	{
 		username = newName;
+		stateVersion.incrementAndGet();
+		if (location() != null)
+			location().contentChanged();
 	}
 
 	@Override
@@ -620,6 +635,7 @@ public class StdMOB implements MOB
 		
 		affectPhyStats = new ApplyAffectPhyStats<Ability>(this);
 		recoverAffectP	= new ApplyRecAffectPhyStats<Item>(this);
+		affectItemP		= new ApplyAffectPhyStats<Item>(this);
 		affectCharStats= new ApplyAffectCharStats(this);
 		affectCharState = new ApplyAffectCharState(this);
 		
@@ -635,6 +651,7 @@ public class StdMOB implements MOB
 		abilitys= new CMUniqSortSVec<Ability>();
 		abilityUseTrig = new int[3];
 		abilityUseCache= new STreeMap<String,int[][]>();
+		abilityTrigs = null;
 		behaviors= new CMUniqSortSVec<Behavior>();
 		tattoos	= new CMUniqNameSortSVec<Tattoo>();
 		expertises = new STreeMap<String,Integer>();
@@ -772,9 +789,62 @@ public class StdMOB implements MOB
 		return basePhyStats;
 	}
 
+	@Override
+	public void recoverPhyStats(final StatsAffecting changed)
+	{
+		final Item changedItem;
+		if(changed instanceof Item)
+			changedItem=(Item)changed;
+		else
+		if(changed instanceof Ability)
+		{
+			final Physical P=((Ability)changed).affecting();
+			if((P!=null)&&(P!=this)&&(!(P instanceof Item)))
+			{
+				recoverPhyStats();
+				return;
+			}
+			changedItem=(P instanceof Item)?(Item)P:null;
+		}
+		else
+		{
+			recoverPhyStats();
+			return;
+		}
+		if(changedItem!=null)
+			changedItem.recoverPhyStats();
+		recoverPhyStats(false);
+		if(CMSecurity.isDebugging(CMSecurity.DbgFlag.STATRECOVERY))
+		{
+			final PhyStats partStats=(PhyStats)phyStats.copyOf();
+			recoverPhyStats();
+			final StringBuilder diffs=new StringBuilder("");
+			for(final String code : phyStats.getStatCodes())
+			{
+				if(!phyStats.getStat(code).equals(partStats.getStat(code)))
+					diffs.append(" ").append(code).append("=").append(partStats.getStat(code)).append("/").append(phyStats.getStat(code));
+			}
+			if(diffs.length()>0)
+				Log.debugOut("StdMOB","Partial phyStats of "+name()+" after "+((Environmental)changed).name()+" differ from full:"+diffs.toString());
+		}
+	}
+
 	@Override
 	public void recoverPhyStats()
 	{
+		recoverPhyStats(true);
+	}
+
+	/**
+	 * Rebuilds the current phyStats from the base ones.  Subclasses that
+	 * add to the rebuilt stats should override this, so that their changes
+	 * are made on partial recoveries as well.
+	 * @param recoverItems true to recover each carried item first, false
+	 * 	to only apply the stats the items already have
+	 */
+	protected void recoverPhyStats(final boolean recoverItems)
+	{
+		final String oldName = phyStats.newName();
 		basePhyStats.copyInto(phyStats);
 		if (location() != null)
 			location().affectPhyStats(this, phyStats);
@@ -793,7 +863,10 @@ public class StdMOB implements MOB
 				cStats.getMyClass(c).affectPhyStats(this, phyStats);
 			cStats.getMyRace().affectPhyStats(this, phyStats);
 		}
-		eachItem(recoverAffectP);
+		if(recoverItems)
+			eachItem(recoverAffectP);
+		else
+			eachItem(affectItemP);
 		eachEffect(affectPhyStats);
 		for (final Enumeration<FData> e = factions.elements(); e.hasMoreElements();)
 			e.nextElement().affectPhyStats(this, phyStats);
@@ -806,6 +879,11 @@ public class StdMOB implements MOB
 					phyStats.setDisposition(phyStats().disposition() | PhyStats.IS_LIGHTSOURCE);
 			}
 		}
+		if ((oldName != phyStats.newName())
+		&& ((oldName == null) || (!oldName.equals(phyStats.newName())))
+		&& (location() != null))
+			location().contentChanged();
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
@@ -880,6 +958,8 @@ public class StdMOB implements MOB
 	@Override
 	public void recoverCharStats()
 	{
+		final Room room = location();
+		final String oldGenericName = (room != null) ? genericName() : null;
 		baseCharStats.setClassLevel(baseCharStats.getCurrentClass(), basePhyStats().level()
 				- baseCharStats().combinedSubLevels());
 		baseCharStats().copyInto(charStats);
@@ -910,6 +990,9 @@ public class StdMOB implements MOB
 			else
 				charStats.setStat(CharStats.STAT_CHARISMA, charStats.getStat(CharStats.STAT_CHARISMA) / 2);
 		}
+		if ((oldGenericName != null) && (!oldGenericName.equals(genericName())))
+			room.contentChanged();
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
@@ -1021,6 +1104,7 @@ public class StdMOB implements MOB
 			e.nextElement().affectCharState(this, maxState);
 		if (location() != null)
 			location().affectCharState(this, maxState);
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
@@ -1110,6 +1194,7 @@ public class StdMOB implements MOB
 		followers = null;
 		abilitys.setSize(0);
 		abilityUseCache.clear();
+		abilityTrigs = null;
 		affects.setSize(0);
 		behaviors.setSize(0);
 		tattoos.setSize(0);
@@ -1849,6 +1934,8 @@ public class StdMOB implements MOB
 	public void setDisplayText(String newDisplayText)
 	{
 		displayText = newDisplayText;
+		if (location() != null)
+			location().contentChanged();
 	}
 
 	@Override
@@ -3766,6 +3853,7 @@ public class StdMOB implements MOB
 					if ((!isMonster) && (soulMate() == null))
 					{
 						CMLib.coffeeTables().bump(this, CoffeeTableRow.STAT_TICKSONLINE);
+						CMLib.achievements().giveQueuedAwards(this);
 						if (((++tickAgeCounter) * CMProps.getTickMillis()) >= AGE_MILLIS_THRESHOLD)
 						{
 							final long secondsPassed = (tickAgeCounter * CMProps.getTickMillis()) / 1000;
@@ -3926,6 +4014,8 @@ public class StdMOB implements MOB
 			item.setOwner(this);
 			inventory.addElement(item);
 			item.recoverPhyStats();
+			if (location() != null)
+				location().contentChanged();
 		}
 	}
 
@@ -3940,6 +4030,8 @@ public class StdMOB implements MOB
 	{
 		inventory.removeElement(item);
 		item.recoverPhyStats();
+		if (location() != null)
+			location().contentChanged();
 	}
 
 	@Override
@@ -4377,12 +4469,16 @@ public class StdMOB implements MOB
 		if(abilitys.find(to.ID())!=null)
 			return;
 		abilitys.addElement(to);
+		abilityTrigs = null;
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
 	public void delAbility(Ability to)
 	{
 		abilitys.removeElement(to);
+		abilityTrigs = null;
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
@@ -4390,6 +4486,8 @@ public class StdMOB implements MOB
 	{
 		abilitys.clear();
 		abilityUseCache.clear();
+		abilityTrigs = null;
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
@@ -4582,6 +4680,7 @@ public class StdMOB implements MOB
 			{
 				clans.clear();
 				clanAffects=null;
+				stateVersion.incrementAndGet();
 			}
 			return;
 		}
@@ -4624,6 +4723,7 @@ public class StdMOB implements MOB
 				clans.put(clanID, p);
 			}
 		}
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
@@ -4637,6 +4737,7 @@ public class StdMOB implements MOB
 		to.makeLongLasting();
 		affects.addElement(to);
 		to.setAffectedOne(this);
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
@@ -4651,6 +4752,7 @@ public class StdMOB implements MOB
 		else
 			affects.insertElementAt(to, 0);
 		to.setAffectedOne(this);
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
@@ -4662,13 +4764,17 @@ public class StdMOB implements MOB
 			return;
 		affects.addElement(to);
 		to.setAffectedOne(this);
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
 	public void delEffect(Ability to)
 	{
 		if (affects.removeElement(to))
+		{
 			to.setAffectedOne(null);
+			stateVersion.incrementAndGet();
+		}
 	}
 
 	@Override
@@ -4722,6 +4828,7 @@ public class StdMOB implements MOB
 			}
 		}
 		affects.clear();
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
@@ -4795,18 +4902,21 @@ public class StdMOB implements MOB
 			return;
 		to.startBehavior(this);
 		behaviors.addElement(to);
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
 	public void delBehavior(Behavior to)
 	{
 		behaviors.removeElement(to);
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
 	public void delAllBehaviors()
 	{
 		behaviors.clear();
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
@@ -4880,6 +4990,79 @@ public class StdMOB implements MOB
 		return ableCache;
 	}
 
+	@Override
+	public PrefixTrie<List<Ability>> getAbilityTriggerIndex()
+	{
+		// racial and clan ability lists are cached by level, so a new list means new abilities.
+		// own ability changes clear abilityTrigs, so only the borrowed lists are checked here.
+		PrefixTrie<List<Ability>> trigs=abilityTrigs;
+		final Object[] oldKey=abilityTrigKey;
+		if((trigs!=null)&&(oldKey!=null)&&(sameAbilityListKey(oldKey,0,charStats().getMyRace().racialAbilities(this))))
+		{
+			int k=2;
+			for(final Pair<Clan,Integer> p : clans())
+			{
+				if(!sameAbilityListKey(oldKey,k,p.first.clanAbilities(this)))
+				{
+					k=-1;
+					break;
+				}
+				k+=2;
+			}
+			if(k==oldKey.length)
+				return trigs;
+		}
+		final List<List<Ability>> lists=new ArrayList<List<Ability>>(3);
+		lists.add(charStats().getMyRace().racialAbilities(this));
+		for(final Pair<Clan,Integer> p : clans())
+			lists.add(p.first.clanAbilities(this));
+		final Object[] key=new Object[lists.size()*2];
+		for(int i=0;i<lists.size();i++)
+		{
+			key[i*2]=lists.get(i);
+			key[(i*2)+1]=Integer.valueOf(lists.get(i).size());
+		}
+		lists.add(0,abilitys);
+		final Map<String,List<Ability>> map=new LinkedHashMap<String,List<Ability>>();
+		for(final List<Ability> list : lists)
+		{
+			for(final Ability A : list)
+			{
+				final String[] triggers=(A==null)?null:A.triggerStrings();
+				if(triggers==null)
+					continue;
+				for(final String trigger : triggers)
+				{
+					final String word=trigger.toUpperCase();
+					List<Ability> ables=map.get(word);
+					if(ables==null)
+					{
+						ables=new ArrayList<Ability>(1);
+						map.put(word, ables);
+					}
+					if((ables.size()==0)||(ables.get(ables.size()-1)!=A))
+						ables.add(A);
+				}
+			}
+		}
+		// words are ranked in the order the abilities are scanned: own, racial, then clan
+		final PairVector<String,List<Ability>> entries=new PairVector<String,List<Ability>>();
+		for(final String word : map.keySet())
+			entries.add(word,Collections.unmodifiableList(map.get(word)));
+		trigs=new PrefixTrie<List<Ability>>(entries);
+		abilityTrigKey=key;
+		abilityTrigs=trigs;
+		return trigs;
+	}
+
+	private static boolean sameAbilityListKey(final Object[] key, final int k, final List<Ability> list)
+	{
+		return (k>=0)
+			&&(k<key.length)
+			&&(key[k]==list)
+			&&(((Integer)key[k+1]).intValue()==list.size());
+	}
+
 	private void clearAbilityUsageCache()
 	{
 		Arrays.fill(abilityUseTrig, 0);
@@ -4896,6 +5079,7 @@ public class StdMOB implements MOB
 		{
 			expertises.put(key, p.getValue());
 			clearAbilityUsageCache();
+			stateVersion.incrementAndGet();
 		}
 	}
 
@@ -4912,6 +5096,7 @@ public class StdMOB implements MOB
 		}
 		else
 			clearAbilityUsageCache();
+		stateVersion.incrementAndGet();
 	}
 
 	@Override 
@@ -4938,6 +5123,7 @@ public class StdMOB implements MOB
 		{
 			expertises.clear();
 			clearAbilityUsageCache();
+			stateVersion.incrementAndGet();
 		}
 	}
 
@@ -5064,7 +5250,10 @@ public class StdMOB implements MOB
 	{
 		final Tattoo T=findTattoo(of);
 		if(T!=null)
+		{
 			tattoos.remove(T);
+			stateVersion.incrementAndGet();
+		}
 	}
 	
 	@Override
@@ -5073,6 +5262,7 @@ public class StdMOB implements MOB
 		if ((of == null) || (of.getTattooName() == null) || (of.getTattooName().length() == 0) || findTattoo(of.getTattooName()) != null)
 			return;
 		tattoos.addElement(of);
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
@@ -5084,6 +5274,7 @@ public class StdMOB implements MOB
 		if (tat == null)
 			return;
 		tattoos.remove(tat);
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
@@ -5128,6 +5319,7 @@ public class StdMOB implements MOB
 			factions.put(which, data);
 		}
 		data.setValue(start);
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
@@ -5163,6 +5355,7 @@ public class StdMOB implements MOB
 	public void removeFaction(String which)
 	{
 		factions.remove(which.toUpperCase());
+		stateVersion.incrementAndGet();
 	}
 
 	@Override
@@ -206,9 +206,9 @@ public class StdRideable extends StdMOB implements Rideable
 	}
 
 	@Override
-	public void recoverPhyStats()
+	protected void recoverPhyStats(final boolean recoverItems)
 	{
-		super.recoverPhyStats();
+		super.recoverPhyStats(recoverItems);
 		if(rideBasis==Rideable.RIDEABLE_AIR)
 			phyStats().setDisposition(phyStats().disposition()|PhyStats.IS_FLYING);
 		else
@@ -151,6 +151,18 @@ public interface MOB extends Rider, DBIdentifiable, PhysicalAgent, ItemPossessor
 	 * @see MOB#setBaseCharStats(CharStats)
 	 */
 	public void recoverCharStats();
+
+	/**
+	 * Causes this mob to recalculate its current phy stats after the given item, or
+	 * effect on this mob or one of its items, was added, removed, worn, or otherwise
+	 * changed.  Everything is re-applied as usual, but only the changed item, or the
+	 * item the effect is on, has its own stats recovered first, while every other item
+	 * is applied with the stats it already has.  Anything else does a full recovery.
+	 * An effect that has already been removed counts as one that was on this mob.
+	 * @see com.planet_ink.coffee_mud.core.interfaces.Affectable#recoverPhyStats()
+	 * @param changed the item or effect that changed
+	 */
+	public void recoverPhyStats(StatsAffecting changed);
 	
 	/**
 	 * Sets the Base CharStats object for this mob, which are the stats like saves and strength.
@@ -698,6 +710,18 @@ public interface MOB extends Rider, DBIdentifiable, PhysicalAgent, ItemPossessor
 	 */
 	public Deity getMyDeity();
 
+	/**
+	 * Returns a number that changes whenever the stats, effects, abilities,
+	 * expertises, tattoos, factions, clans, behaviors, or name of this mob
+	 * are changed or recovered.  Anything that remembers a result computed
+	 * from the state of the mob can compare this number to know when the
+	 * result may be out of date.
+	 * @see MOB#recoverPhyStats()
+	 * @see MOB#recoverCharStats()
+	 * @return the state version number of this mob
+	 */
+	public int getStateVersion();
+
 	/**
 	 * Returns the number of hit points below which this mob will
 	 * automatically flee combat.
@@ -998,6 +1022,18 @@ public interface MOB extends Rider, DBIdentifiable, PhysicalAgent, ItemPossessor
 	 */
 	public int[][] getAbilityUsageCache(final String abilityID);
 
+	/**
+	 * Returns a prefix tree of the trigger words of all of this mobs abilities, 
+	 * including racial and clan abilities, mapped to the abilities that each
+	 * trigger word evokes, in the same order as allAbilities().  Trigger words
+	 * are also ranked in allAbilities() order, so a prefix search finds them in
+	 * the order a scan of the abilities would.  The tree is built when first
+	 * needed, and rebuilt only when the abilities change.
+	 * @see com.planet_ink.coffee_mud.MOBS.interfaces.MOB#allAbilities()
+	 * @return the trigger word index of this mobs abilities
+	 */
+	public PrefixTrie<List<Ability>> getAbilityTriggerIndex();
+
 	/**
 	 * Returns whether the given ability is actually a racial
 	 * ability instead of a learned, clan, or some other kind
@@ -43,6 +43,7 @@ import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.util.concurrent.atomic.AtomicLong;
 import java.net.*;
+import java.nio.channels.ServerSocketChannel;
 import java.util.*;
 import java.sql.*;
 
@@ -392,7 +393,14 @@ public class MUD extends Thread implements MudHost
 
 		try
 		{
-			servsock=new ServerSocket(port, q_len, bindAddr);
+			if(CMProps.getBoolVar(CMProps.Bool.MUDNIOINPUT))
+			{
+				final ServerSocketChannel servChan=ServerSocketChannel.open();
+				servChan.socket().bind(new InetSocketAddress(bindAddr, port), q_len);
+				servsock=servChan.socket();
+			}
+			else
+				servsock=new ServerSocket(port, q_len, bindAddr);
 
 			Log.sysOut(Thread.currentThread().getName(),"MUD Server started on port: "+port);
 			if (bindAddr != null)
@@ -998,6 +1006,7 @@ public class MUD extends Thread implements MudHost
 		if(!keepItDown)
 			CMProps.setBoolAllVar(CMProps.Bool.MUDSHUTTINGDOWN,false);
 		Log.debugOut("Used memory = "+(Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()));
+		Log.drainAll();
 	}
 
 	private static boolean startWebServer(final CMProps page, String serverName)
@@ -1367,6 +1376,8 @@ public class MUD extends Thread implements MudHost
 			CMProps.setBoolVar(CMProps.Bool.ROOMDCOMPRESS,compress.contains("ROOMDESC"));
 			CMProps.setBoolVar(CMProps.Bool.MOBDCOMPRESS,compress.contains("MOBDESC"));
 			Resources.setCompression(compress.contains("RESOURCES"));
+			Resources.setCacheBudget(page.getStr("RESOURCECACHE"));
+			Resources.setPinnedKeys(CMParms.parseCommas(page.getStr("RESOURCEPINS"),true));
 			final List<String> nocache=CMParms.parseCommas(page.getStr("NOCACHE").toUpperCase(),true);
 			CMProps.setBoolVar(CMProps.Bool.MOBNOCACHE,nocache.contains("GENMOBS"));
 			CMProps.setBoolVar(CMProps.Bool.ROOMDNOCACHE,nocache.contains("ROOMDESC"));
@@ -1702,6 +1713,7 @@ public class MUD extends Thread implements MudHost
 					Log.instance().configureLog(Log.Type.kills, page.getStr("KILMSGS"));
 					Log.instance().configureLog(Log.Type.combat, page.getStr("CBTMSGS"));
 					Log.instance().configureLog(Log.Type.access, page.getStr("ACCMSGS"));
+					Log.instance().configureQueue(page.getStr("LOGQUEUE"));
 				}
 				if(page.getRawPrivateStr("SYSOPMASK")!=null)
 					page.resetSecurityVars();
@@ -1740,6 +1752,7 @@ public class MUD extends Thread implements MudHost
 				CMProps.setUpLowVar(CMProps.Str.MUDSTATUS,"Booting");
 				CMProps.setVar(CMProps.Str.MUDBINDADDRESS,page.getStr("BIND"));
 				CMProps.setIntVar(CMProps.Int.MUDBACKLOG,page.getInt("BACKLOG"));
+				CMProps.setBoolVar(CMProps.Bool.MUDNIOINPUT,page.getStr("NIOINPUT").equalsIgnoreCase("YES"));
 
 				final LinkedList<MUD> hostMuds=new LinkedList<MUD>();
 				String ports=page.getProperty("PORT");
@@ -1929,6 +1942,7 @@ public class MUD extends Thread implements MudHost
 		Log.instance().configureLog(Log.Type.kills, page.getStr("KILMSGS"));
 		Log.instance().configureLog(Log.Type.combat, page.getStr("CBTMSGS"));
 		Log.instance().configureLog(Log.Type.access, page.getStr("ACCMSGS"));
+		Log.instance().configureQueue(page.getStr("LOGQUEUE"));
 
 		final Thread shutdownHook=new Thread("ShutdownHook")
 		{
@@ -2034,6 +2048,7 @@ public class MUD extends Thread implements MudHost
 				}
 			}
 		}
+		Log.drainAll();
 	}
 	
 	public static void execExternalRestart()
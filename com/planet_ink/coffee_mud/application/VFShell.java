@@ -280,6 +280,12 @@ public class VFShell
 						return false;
 					}
 
+					@Override
+					public boolean hasPendingWork()
+					{
+						return false;
+					}
+
 					@Override
 					public boolean isPendingLogin(final String otherLoginName)
 					{
@@ -740,6 +746,24 @@ public class VFShell
 						return 0;
 					}
 
+					@Override
+					public int getOutputQueueSize()
+					{
+						return 0;
+					}
+
+					@Override
+					public long getOutputBytesSent()
+					{
+						return 0;
+					}
+
+					@Override
+					public long getOutputBytesDropped()
+					{
+						return 0;
+					}
+
 					@Override
 					public long getIdleMillis()
 					{
@@ -195,12 +195,12 @@ public class CMClass extends ClassLoader
 	protected XVector<Command>				commands		= new XVector<Command>();
 	protected XVector<CMLibrary>			libraries		= new XVector<CMLibrary>();
 	protected Hashtable<String, WebMacro>	webMacros		= new Hashtable<String, WebMacro>();
-	protected Hashtable<String, Command>	commandWords	= new Hashtable<String, Command>();
+	protected PrefixTrie<Command>			commandWords	= new PrefixTrie<Command>();
 
-	protected static final LinkedList<CMMsg>MSGS_CACHE		= new LinkedList<CMMsg>();
-	protected static final LinkedList<MOB>	MOB_CACHE		= new LinkedList<MOB>();
 	protected static final int				MAX_MSGS		= 10000 + ((Runtime.getRuntime().maxMemory() == Integer.MAX_VALUE) ? 10000 : (int) (Runtime.getRuntime().maxMemory() / 10000));
 	protected static final int				MAX_MOBS		= 50 + (MAX_MSGS / 200);
+	protected static final StripedObjectPool<CMMsg>	MSGS_CACHE	= new StripedObjectPool<CMMsg>(MAX_MSGS);
+	protected static final StripedObjectPool<MOB>	MOB_CACHE	= new StripedObjectPool<MOB>(MAX_MOBS);
 
 	/*
 	 * removed to save memory and processing time -- but left for future use
@@ -261,6 +261,37 @@ public class CMClass extends ClassLoader
 	}
 	*/
 
+	/**
+	 * Returns a report of how well the CMMsg and factory mob recycle bins
+	 * are doing: how many objects were re-used, how many had to be newly
+	 * allocated, and how many were returned or turned away.
+	 * @return the pool counter report
+	 */
+	public static final String getCounterReport()
+	{
+		final StringBuilder str=new StringBuilder("");
+		str.append(getPoolReport("CMMsg",MSGS_CACHE));
+		str.append(getPoolReport("FactoryMOB",MOB_CACHE));
+		return str.toString();
+	}
+
+	private static final String getPoolReport(final String name, final StripedObjectPool<?> pool)
+	{
+		final long hits=pool.getHits();
+		final long misses=pool.getMisses();
+		final long total=hits+misses;
+		final StringBuilder str=new StringBuilder(CMStrings.padRight(name,12)+": ");
+		str.append("Pooled: "+pool.size()+", ");
+		str.append("Reused: "+hits+", ");
+		str.append("Missed/Allocated: "+misses+", ");
+		str.append("Reuse: "+((total==0)?0:Math.round(CMath.div(hits*100,total)))+"%, ");
+		str.append("Returned: "+pool.getReturns()+", ");
+		str.append("Discarded: "+pool.getDiscards());
+		if(pool.getDoubleReturns()>0)
+			str.append(", Double returns: "+pool.getDoubleReturns());
+		return str.append("\n\r").toString();
+	}
+
 	/**
 	 * Returns whether the given class exists in the vm,
 	 * not necessarily any given classloader.
@@ -1272,6 +1303,8 @@ public class CMClass extends ClassLoader
 
 	/**
 	 * Searches the command prototypes for a trigger word match and returns the command.
+	 * When more than one trigger word starts with the given word, the shortest one wins,
+	 * and ties go to the command that was loaded first.
 	 * @param word the command word to search for
 	 * @param exactOnly true for a whole word match, false for a startsWith match
 	 * @return the command prototypes for a trigger word match and returns the command.
@@ -1279,18 +1312,11 @@ public class CMClass extends ClassLoader
 	public static final Command findCommandByTrigger(final String word, final boolean exactOnly)
 	{
 		final CMClass myC=c();
-		final Command C=myC.commandWords.get(word.trim().toUpperCase());
+		final String trimmedWord=word.trim();
+		final Command C=myC.commandWords.get(trimmedWord);
 		if((exactOnly)||(C!=null))
 			return C;
-		final String upword=word.toUpperCase();
-		String key;
-		for(final Enumeration<String> e=myC.commandWords.keys();e.hasMoreElements();)
-		{
-			key=e.nextElement();
-			if(key.toUpperCase().startsWith(upword))
-				return myC.commandWords.get(key);
-		}
-		return null;
+		return myC.commandWords.findFirst(trimmedWord);
 	}
 
 	protected final int totalLocalClasses()
@@ -2740,7 +2766,7 @@ public class CMClass extends ClassLoader
 	 */
 	protected static final void reloadCommandWords()
 	{
-		c().commandWords.clear();
+		final PairVector<String,Command> words=new PairVector<String,Command>();
 		Command C;
 		String[] wordList;
 		for(int c=0;c<c().commands.size();c++)
@@ -2750,9 +2776,18 @@ public class CMClass extends ClassLoader
 			if(wordList!=null)
 			{
 				for (final String element : wordList)
-					c().commandWords.put(element.trim().toUpperCase(),C);
+					words.add(element.trim().toUpperCase(),C);
 			}
 		}
+		Collections.sort(words,new Comparator<Pair<String,Command>>()
+		{
+			@Override
+			public int compare(Pair<String, Command> o1, Pair<String, Command> o2)
+			{
+				return Integer.compare(o1.first.length(), o2.first.length());
+			}
+		});
+		c().commandWords.rebuild(words);
 	}
 
 	/**
@@ -3221,18 +3256,8 @@ public class CMClass extends ClassLoader
 	 */
 	public static final boolean returnMsg(final CMMsg msg)
 	{
-		if(MSGS_CACHE.size()<MAX_MSGS)
-		{
-			synchronized(CMClass.MSGS_CACHE)
-			{
-				if(MSGS_CACHE.size()<MAX_MSGS)
-				{
-					MSGS_CACHE.addLast(msg);
-					return true;
-				}
-			}
-		}
-		return false;
+		MSGS_CACHE.setTracking(CMSecurity.isDebugging(CMSecurity.DbgFlag.OBJECTPOOLS));
+		return MSGS_CACHE.put(msg);
 	}
 
 	/**
@@ -3242,17 +3267,10 @@ public class CMClass extends ClassLoader
 	 */
 	public final static CMMsg getMsg()
 	{
-		try
-		{
-			synchronized(MSGS_CACHE)
-			{
-				return MSGS_CACHE.removeFirst();
-			}
-		}
-		catch(final Exception e)
-		{
-			return (CMMsg)getCommon("DefaultMessage");
-		}
+		final CMMsg msg=MSGS_CACHE.get();
+		if(msg!=null)
+			return msg;
+		return (CMMsg)getCommon("DefaultMessage");
 	}
 
 	/**
@@ -3422,15 +3440,8 @@ public class CMClass extends ClassLoader
 	 */
 	public static final boolean returnMob(final MOB mob)
 	{
-		if(MOB_CACHE.size()<MAX_MOBS)
-		{
-			synchronized(CMClass.MOB_CACHE)
-			{
-				MOB_CACHE.addLast(mob);
-				return true;
-			}
-		}
-		return false;
+		MOB_CACHE.setTracking(CMSecurity.isDebugging(CMSecurity.DbgFlag.OBJECTPOOLS));
+		return MOB_CACHE.put(mob);
 	}
 
 	/**
@@ -3440,17 +3451,10 @@ public class CMClass extends ClassLoader
 	 */
 	public final static MOB getFactoryMOB()
 	{
-		try
-		{
-			synchronized(MOB_CACHE)
-			{
-				return MOB_CACHE.removeFirst();
-			}
-		}
-		catch(final Exception e)
-		{
-			return getMOB("StdFactoryMOB");
-		}
+		final MOB mob=MOB_CACHE.get();
+		if(mob!=null)
+			return mob;
+		return getMOB("StdFactoryMOB");
 	}
 
 	/**
@@ -3508,6 +3512,6 @@ public class CMClass extends ClassLoader
 		clanItems.clear();
 		commands.clear();
 		webMacros.clear();
-		commandWords.clear();
+		commandWords.rebuild(new PairVector<String,Command>());
 	}
 }
@@ -295,7 +295,12 @@ public class CMProps extends Properties
 		THIRST_FULL,
 		THIRST_GAIN_PCT,
 		THIRST_LOSS_PCT,
-		MOB_HP_BASE
+		MOB_HP_BASE,
+		OUTPUTQUEUESPAM,
+		OUTPUTQUEUEMAX,
+		JSCRIPTCACHE,
+		JSCRIPTOPTIMIZE,
+		BOOTTHREADS
 		;
 		
 		public static final int	EXVIEW_DEFAULT		= 0;
@@ -377,7 +382,8 @@ public class CMProps extends Properties
 		MAPFINDSNOCACHE,
 		HASHPASSWORDS,
 		ACCOUNTSNOCACHE,
-		PLAYERSNOCACHE
+		PLAYERSNOCACHE,
+		MUDNIOINPUT
 	}
 
 	/**
@@ -2221,6 +2227,11 @@ public class CMProps extends Properties
 		setIntVar(Int.THIRST_GAIN_PCT,thirstCodes.length>1?CMath.s_int(CMStrings.deleteAllofChar(thirstCodes[1], '%')):100);
 		setIntVar(Int.THIRST_LOSS_PCT,thirstCodes.length>2?CMath.s_int(CMStrings.deleteAllofChar(thirstCodes[2], '%')):100);
 		setIntVar(Int.MOB_HP_BASE,CMath.s_int(getStr("MOB_HP_BASE","11")));
+		setIntVar(Int.OUTPUTQUEUESPAM,CMath.s_int(getStr("OUTPUTQUEUESPAM","65536")));
+		setIntVar(Int.OUTPUTQUEUEMAX,CMath.s_int(getStr("OUTPUTQUEUEMAX","262144")));
+		setIntVar(Int.JSCRIPTCACHE,CMath.s_int(getStr("JSCRIPTCACHE","256")));
+		setIntVar(Int.JSCRIPTOPTIMIZE,CMath.s_int(getStr("JSCRIPTOPTIMIZE","0")));
+		setIntVar(Int.BOOTTHREADS,CMath.s_int(getStr("BOOTTHREADS","1")));
 
 		setUpLowVar(Str.BLACKLISTFILE,getStr("BLACKLISTFILE","/resources/ipblock.ini"));
 		setWhitelist(CMProps.WhiteList.CONNS,getStr("WHITELISTIPSCONN"));
@@ -2520,7 +2520,9 @@ public class CMSecurity
 		SPACESHIP("Spaceships"),
 		SQLERRORS("SQL error traces"),
 		GMCP("GMCP Protocol"),
-		ELECTRICTHREAD("Electric currents")
+		ELECTRICTHREAD("Electric currents"),
+		OBJECTPOOLS("msg/mob pool double returns"),
+		STATRECOVERY("framed stat recovery cross-checks")
 		;
 		private final String desc;
 
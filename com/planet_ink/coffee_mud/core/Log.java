@@ -3,6 +3,10 @@ package com.planet_ink.coffee_mud.core;
 import java.io.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Filter;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -53,6 +57,17 @@ public class Log extends java.util.logging.Logger
 	private final Map<Type,Conf>CONFS			 = new Hashtable<Type,Conf>();
 	private final Map<PrintWriter,long[]> WRITTEN= new Hashtable<PrintWriter,long[]>();
 	private static final Type[] TYPE_LEVEL_MAP   = new Type[1001];
+	private static final String EOL				 = System.getProperty("line.separator");
+	private static final long	QUEUE_FLUSH_NANOS= 250L * 1000000L; /** how often the queue writer flushes when idle */
+	private static final int	QUEUE_MAX_BATCH	 = 1024; /** most entries written between flushes */
+
+	private final Queue<Entry>	queue			 = new ConcurrentLinkedQueue<Entry>(); /** pending async entries */
+	private final AtomicInteger queueDepth		 = new AtomicInteger(0);
+	private final Object		queueLock		 = new Object(); /** held while a batch is written */
+	private final AtomicLong[]	queueStats		 = new AtomicLong[QueueStat.values().length];
+	private volatile int		queueCapacity	 = 0; /** 0 means synchronous writes */
+	private volatile boolean	queueBlocks		 = false;
+	private volatile Thread		queueWriter		 = null;
 
 	/**
 	 * The internally used targets for a log
@@ -80,6 +95,42 @@ public class Log extends java.util.logging.Logger
 		}
 	}
 
+	/**
+	 * A preformatted entry waiting in the async queue for the writer thread.
+	 * @author agent
+	 */
+	private static class Entry
+	{
+		public final Type	type;
+		public final int	priority;
+		public final String line;
+		public final String trace;
+
+		public Entry(Type type, int priority, String line, String trace)
+		{
+			this.type=type;
+			this.priority=priority;
+			this.line=line;
+			this.trace=trace;
+		}
+	}
+
+	/**
+	 * The counters kept for the async logging queue, see {@link Log#getQueueStat(QueueStat)}
+	 * @author agent
+	 */
+	public static enum QueueStat
+	{
+		DEPTH,
+		PEAK_DEPTH,
+		WRITTEN,
+		DROPPED,
+		BLOCKED,
+		BATCHES,
+		WRITE_NANOS,
+		MAX_WRITE_NANOS
+	}
+
 	/**
 	 * The various log types supported by this logger.  When using the native interface, think of them
 	 * as separate channels that can be independenly directed.  When using the java Logger, they are
@@ -134,6 +185,8 @@ public class Log extends java.util.logging.Logger
 	public Log()
 	{
 		super("log",null);
+		for(int i=0;i<queueStats.length;i++)
+			queueStats[i]=new AtomicLong(0);
 		final char threadCode=Thread.currentThread().getThreadGroup().getName().charAt(0);
 		if(logs[threadCode]==null)
 			logs[threadCode]=this;
@@ -313,10 +366,23 @@ public class Log extends java.util.logging.Logger
 	 * @return the new writer, if there is one, or the current writer
 	 */
 	private final PrintWriter writeBytes(final Conf config, final PrintWriter writer, final String str)
+	{
+		writer.println(str);
+		return countBytes(config, writer, str);
+	}
+
+	/**
+	 * Counts the given full log string as written to the given writer.  If the number of
+	 * lines in the given config warrants a log-role, then it is done.
+	 * @param config the configuration being worked with
+	 * @param writer the writer that was written to
+	 * @param str the log message
+	 * @return the new writer, if there is one, or the current writer
+	 */
+	private final PrintWriter countBytes(final Conf config, final PrintWriter writer, final String str)
 	{
 		try
 		{
-			writer.println(str);
 			long[] counts=this.WRITTEN.get(writer);
 			if(counts == null)
 			{
@@ -1329,10 +1395,12 @@ public class Log extends java.util.logging.Logger
 		PrintWriter outWriter=getWriter(type,conf,priority);
 		if(outWriter!=null)
 		{
+			final String msg=(e!=null)?e.getMessage():"Null/Unknown error occurred.";
+			final String firstLine=makeLogEntry(type,module,msg);
+			if((queueCapacity>0)&&(enqueue(type,priority,firstLine,(e!=null)?stackTrace(e):null)))
+				return;
 			synchronized(outWriter)
 			{
-				final String msg=(e!=null)?e.getMessage():"Null/Unknown error occurred.";
-				final String firstLine=makeLogEntry(type,module,msg);
 				outWriter=writeBytes(conf,outWriter, firstLine);
 				if(conf.target==Target.BOTH)
 					System.out.println(firstLine);
@@ -1362,9 +1430,11 @@ public class Log extends java.util.logging.Logger
 		final PrintWriter outWriter=getWriter(type,conf,priority);
 		if(outWriter!=null)
 		{
+			final String line=makeLogEntry(type,module,e.getMessage());
+			if((queueCapacity>0)&&(enqueue(type,priority,line,stackTrace(e))))
+				return;
 			synchronized(outWriter)
 			{
-				final String line=makeLogEntry(type,module,e.getMessage());
 				writeBytes( conf, outWriter, line);
 				e.printStackTrace(outWriter);
 				if(conf.target==Target.BOTH)
@@ -1392,6 +1462,8 @@ public class Log extends java.util.logging.Logger
 		final PrintWriter outWriter=getWriter(type,conf,priority);
 		if(outWriter!=null)
 		{
+			if((queueCapacity>0)&&(enqueue(type,priority,line,null)))
+				return;
 			synchronized(outWriter)
 			{
 				writeBytes(conf, outWriter, line);
@@ -1417,9 +1489,11 @@ public class Log extends java.util.logging.Logger
 		final PrintWriter outWriter=getWriter(type,conf,priority);
 		if(outWriter!=null)
 		{
+			final String line=makeLogEntry(type,module,msg);
+			if((queueCapacity>0)&&(enqueue(type,priority,line,null)))
+				return;
 			synchronized(outWriter)
 			{
-				final String line=makeLogEntry(type,module,msg);
 				writeBytes(conf, outWriter, line);
 				if(conf.target==Target.BOTH)
 					System.out.println(line);
@@ -1443,10 +1517,12 @@ public class Log extends java.util.logging.Logger
 		final PrintWriter outWriter=getWriter(type,conf,priority);
 		if(outWriter!=null)
 		{
+			final Calendar C=Calendar.getInstance();
+			final String line=makeLogEntry(type,module,C.get(Calendar.MINUTE)+":"+C.get(Calendar.SECOND)+":"+C.get(Calendar.MILLISECOND)+": "+msg);
+			if((queueCapacity>0)&&(enqueue(type,priority,line,null)))
+				return;
 			synchronized(outWriter)
 			{
-				final Calendar C=Calendar.getInstance();
-				final String line=makeLogEntry(type,module,C.get(Calendar.MINUTE)+":"+C.get(Calendar.SECOND)+":"+C.get(Calendar.MILLISECOND)+": "+msg);
 				writeBytes(conf, outWriter, line);
 				if(getTarget(type)==Target.BOTH)
 					System.out.println(line);
@@ -1459,10 +1535,293 @@ public class Log extends java.util.logging.Logger
 	 */
 	public final void close()
 	{
+		configureQueue(null);
 		fileOutWriter[0].close();
 		fileOutWriter=null;
 	}
 
+	/**
+	* Turns on or off asynchronous writing for this log.  When on, callers only format
+	* their entries and add them to a bounded queue, and a single writer thread writes
+	* them out in batches, flushing each file once per batch.  When the queue is full,
+	* new entries are either dropped and counted, or the caller waits for room.
+	* Turning it off writes out anything still queued.
+ 	*
+	* Usage: configureQueue("10000 DROP");
+	* @param code the queue size, optionally followed by BLOCK or DROP, or 0/null to turn off
+	*/
+	public final void configureQueue(final String code)
+	{
+		int capacity=0;
+		boolean blocks=false;
+		if(code!=null)
+		{
+			for(final String s : code.trim().toUpperCase().split("\\s+"))
+			{
+				if(s.equals("BLOCK"))
+					blocks=true;
+				else
+				if(s.equals("DROP"))
+					blocks=false;
+				else
+					capacity=s_int(s);
+			}
+		}
+		queueBlocks=blocks;
+		if(capacity<=0)
+		{
+			queueCapacity=0;
+			final Thread writer=queueWriter;
+			queueWriter=null;
+			if(writer!=null)
+				LockSupport.unpark(writer);
+			drainQueue();
+			return;
+		}
+		queueCapacity=capacity;
+		final Thread oldWriter=queueWriter;
+		if((oldWriter==null)||(!oldWriter.isAlive()))
+		{
+			final Thread writer=new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					runQueueWriter();
+				}
+			},"LogWriter-"+logName);
+			writer.setDaemon(true);
+			queueWriter=writer;
+			writer.start();
+		}
+	}
+
+	/**
+	 * Returns the maximum number of entries the async queue holds, or 0 if
+	 * this log writes synchronously.
+	 * @return the queue capacity, or 0
+	 */
+	public final int getQueueCapacity()
+	{
+		return queueCapacity;
+	}
+
+	/**
+	 * Returns one of the async queue counters for this log.
+	 * @see QueueStat
+	 * @param stat the counter to return
+	 * @return the value of the counter
+	 */
+	public final long getQueueStat(final QueueStat stat)
+	{
+		if(stat==QueueStat.DEPTH)
+			return queueDepth.get();
+		return queueStats[stat.ordinal()].get();
+	}
+
+	/**
+	 * Writes out everything currently in the async queue on the calling thread,
+	 * returning once it is all on disk.
+	 */
+	public final void drainQueue()
+	{
+		do
+		{
+			writeQueue(QUEUE_MAX_BATCH);
+		}
+		while(!queue.isEmpty());
+	}
+
+	/**
+	 * Writes out everything currently in the async queue of every log object.
+	 * Called at shutdown, so nothing queued is lost.
+	 */
+	public static final void drainAll()
+	{
+		for(final Log log : logs)
+		{
+			if(log!=null)
+				log.drainQueue();
+		}
+	}
+
+	/**
+	 * Adds a preformatted entry to the async queue, dropping it or waiting
+	 * for room if the queue is full.  Returns false if the caller should
+	 * write the entry itself instead, because there is no writer thread,
+	 * or because the caller is the writer thread.
+	 * @param type the log type
+	 * @param priority the priority of the message
+	 * @param line the formatted log line
+	 * @param trace the stack trace to follow the line, or null
+	 * @return true if the entry was queued or dropped, false to write it now
+	 */
+	private final boolean enqueue(final Type type, final int priority, final String line, final String trace)
+	{
+		final Thread writer=queueWriter;
+		if((writer==null)||(writer==Thread.currentThread()))
+			return false;
+		if(queueDepth.get()>=queueCapacity)
+		{
+			LockSupport.unpark(writer);
+			if(!queueBlocks)
+			{
+				queueStats[QueueStat.DROPPED.ordinal()].incrementAndGet();
+				return true;
+			}
+			queueStats[QueueStat.BLOCKED.ordinal()].incrementAndGet();
+			while((queueDepth.get()>=queueCapacity)&&(queueWriter==writer)&&(writer.isAlive()))
+			{
+				LockSupport.unpark(writer);
+				LockSupport.parkNanos(this, 100000);
+			}
+		}
+		final int depth=queueDepth.incrementAndGet();
+		queue.offer(new Entry(type,priority,line,trace));
+		final AtomicLong peak=queueStats[QueueStat.PEAK_DEPTH.ordinal()];
+		for(long p=peak.get();(depth>p)&&(!peak.compareAndSet(p, depth));p=peak.get())
+		{
+		}
+		if(depth==(queueCapacity+1)/2)
+			LockSupport.unpark(writer);
+		if(queueWriter==null)
+			drainQueue();
+		return true;
+	}
+
+	/**
+	 * The main loop of the async writer thread.  Writes batches while there is
+	 * anything queued, and otherwise sleeps for the flush interval.  Exits when
+	 * the queue is turned off, or when this log object is no longer assigned to
+	 * any thread group.
+	 */
+	private final void runQueueWriter()
+	{
+		final Thread me=Thread.currentThread();
+		while(queueWriter==me)
+		{
+			try
+			{
+				writeQueue(QUEUE_MAX_BATCH);
+			}
+			catch(final Throwable t)
+			{
+				t.printStackTrace(systemOutWriter);
+			}
+			if(queue.isEmpty())
+			{
+				if(!isAssigned())
+				{
+					queueWriter=null;
+					break;
+				}
+				LockSupport.parkNanos(this, QUEUE_FLUSH_NANOS);
+			}
+			Thread.interrupted();
+		}
+		drainQueue();
+	}
+
+	/**
+	 * Returns whether this log object is still assigned to any thread group.
+	 * @return true if it is in use, false otherwise
+	 */
+	private final boolean isAssigned()
+	{
+		for(final Log log : logs)
+		{
+			if(log==this)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Takes up to the given number of entries from the async queue and writes
+	 * them to their files, rolling logs as needed, and then flushes each file
+	 * that was written to once.
+	 * @param max the most entries to write
+	 * @return the number of entries taken from the queue
+	 */
+	private final int writeQueue(final int max)
+	{
+		synchronized(queueLock)
+		{
+			final long startNanos=System.nanoTime();
+			final Set<PrintWriter> dirty=new HashSet<PrintWriter>();
+			StringBuilder console=null;
+			int written=0;
+			Entry entry;
+			while((written<max)&&((entry=queue.poll())!=null))
+			{
+				queueDepth.decrementAndGet();
+				written++;
+				final Conf conf=getConfig(entry.type);
+				final PrintWriter outWriter=getWriter(entry.type,conf,entry.priority);
+				if(outWriter==null)
+					continue;
+				synchronized(outWriter)
+				{
+					outWriter.print(entry.line);
+					outWriter.print(EOL);
+					if(entry.trace!=null)
+						outWriter.print(entry.trace);
+					final PrintWriter newWriter=countBytes(conf, outWriter, entry.line);
+					if(newWriter!=outWriter)
+						dirty.remove(outWriter);
+					dirty.add(newWriter);
+				}
+				if(conf.target==Target.BOTH)
+				{
+					if(console==null)
+						console=new StringBuilder();
+					console.append(entry.line).append(EOL);
+					if(entry.trace!=null)
+						console.append(entry.trace);
+				}
+			}
+			for(final PrintWriter writer : dirty)
+			{
+				synchronized(writer)
+				{
+					writer.flush();
+				}
+			}
+			if(console!=null)
+			{
+				System.out.print(console);
+				System.out.flush();
+			}
+			if(written>0)
+			{
+				final long nanos=System.nanoTime()-startNanos;
+				queueStats[QueueStat.WRITTEN.ordinal()].addAndGet(written);
+				queueStats[QueueStat.BATCHES.ordinal()].incrementAndGet();
+				queueStats[QueueStat.WRITE_NANOS.ordinal()].addAndGet(nanos);
+				final AtomicLong maxNanos=queueStats[QueueStat.MAX_WRITE_NANOS.ordinal()];
+				for(long m=maxNanos.get();(nanos>m)&&(!maxNanos.compareAndSet(m, nanos));m=maxNanos.get())
+				{
+				}
+			}
+			return written;
+		}
+	}
+
+	/**
+	 * Returns the stack trace of the given exception as a string, the same way
+	 * it would be printed to a writer.
+	 * @param e the exception
+	 * @return the stack trace
+	 */
+	private static final String stackTrace(final Throwable e)
+	{
+		final StringWriter trace=new StringWriter();
+		final PrintWriter writer=new PrintWriter(trace);
+		e.printStackTrace(writer);
+		writer.flush();
+		return trace.toString();
+	}
+
 	/**
 	 * Returns whether error channel writer is allocated for current thread.
 	 * @return whether error channel writer is allocated for current thread.
@@ -7,6 +7,9 @@ import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /*
    Copyright 2001-2017 Bo Zimmerman
@@ -28,13 +31,36 @@ public class Resources
 	private static final Resources[] rscs			 =new Resources[256];
 	private static boolean 	 		 compress		 =false;
 	private static Object 			 propResourceSync=new Object();
+	private static volatile long	 cacheBudget	 =0;
+	private static volatile String[] pinnedKeys		 =new String[0];
 	
 	private static Map<String,Map<String,String>> propResources;
 
+	private final AtomicLong	cacheWeight	= new AtomicLong(0);
+	private final AtomicBoolean	evicting	= new AtomicBoolean(false);
+	private final LongAdder[]	cacheStats	= new LongAdder[CacheStat.values().length];
+
+	/**
+	 * An enum of the counters kept for the resource cache.
+	 * HITS counts every found resource, of which HOT_HITS were
+	 * compressed resources served from their decoded copy.
+	 * @author agent
+	 *
+	 */
+	public static enum CacheStat
+	{
+		HITS,
+		HOT_HITS,
+		MISSES,
+		PROMOTIONS,
+		DEMOTIONS,
+		EVICTIONS
+	}
+
 	/**
 	 * Internal tree map that uses case-insensitive string keys.
 	 */
-	private final Map<String,Object> resources=new STreeMap<String,Object>(new Comparator<String>()
+	private final Map<String,CachedResource> resources=new STreeMap<String,CachedResource>(new Comparator<String>()
 	{
 		@Override
 		public int compare(String o1, String o2)
@@ -53,22 +79,37 @@ public class Resources
 	});
 
 	/**
-	 * Internal class that serves the purpose of both identifying
-	 * a compressed text resource, and holding the bytes of that compression.
+	 * Internal class that holds a stored resource along with its
+	 * approximate weight in bytes and when it was last used.  A 
+	 * compressed text resource holds the bytes of that compression, 
+	 * and may also hold a decoded hot copy to serve hits from.
 	 * @author Bo Zimmerman
 	 *
 	 */
-	private static class CompressedResource
+	private static class CachedResource
 	{
-		public byte[] data;
+		public final Object			obj;
+		public final boolean		compressed;
+		public final boolean		evictable;
+		public final long			weight;
+		public volatile long		lastUsed;
+		public volatile StringBuffer hot		= null;
+		public long					hotWeight	= 0;
+		public boolean				removed		= false;
 		
 		/**
-		 * Constructs a CompressedResource object from the given bytes
-		 * @param d
+		 * Constructs a CachedResource object from the given object
+		 * @param obj the object, or compressed bytes, to store
+		 * @param compressed true if obj is compressed string bytes
+		 * @param evictable true if the cache may throw this away when full
 		 */
-		public CompressedResource(byte[] d) 
+		public CachedResource(final Object obj, final boolean compressed, final boolean evictable) 
 		{ 
-			data=d;
+			this.obj=obj;
+			this.compressed=compressed;
+			this.evictable=evictable;
+			this.weight=weigh(obj);
+			this.lastUsed=System.nanoTime();
 		}
 	}
 
@@ -78,6 +119,8 @@ public class Resources
 	public Resources()
 	{
 		super();
+		for(int i=0;i<cacheStats.length;i++)
+			cacheStats[i]=new LongAdder();
 		final char c=Thread.currentThread().getThreadGroup().getName().charAt(0);
 		if(rscs[c]==null)
 			rscs[c]=this;
@@ -234,6 +277,50 @@ public class Resources
 	{
 		r()._submitResource(ID,obj);
 	}
+
+	/**
+	 * Adds or replaces a raw resource object at the given case-insensitive ID, into
+	 * the resources for the current calling thread group.  An evictable resource may
+	 * be thrown away when the cache is over its budget, so only resources that the
+	 * caller can rebuild on a miss should be made evictable.
+	 * @see Resources#setCacheBudget(String)
+	 * @param ID the resource ID to store the given object at
+	 * @param obj the object to store at the given ID
+	 * @param evictable true if the resource may be evicted, false to keep it
+	 */
+	public static final void submitResource(final String ID, final Object obj, final boolean evictable)
+	{
+		r()._submitResource(ID,obj,evictable);
+	}
+	
+	/**
+	 * Returns one of the resource cache counters for the current calling thread group.
+	 * @param stat the counter to return
+	 * @return the value of the counter
+	 */
+	public static final long getCacheStat(final CacheStat stat)
+	{
+		return r()._getCacheStat(stat);
+	}
+
+	/**
+	 * Returns the approximate number of bytes held by the resources for
+	 * the current calling thread group, including decoded hot copies.
+	 * @return the approximate weight of all resources, in bytes
+	 */
+	public static final long getCacheWeight()
+	{
+		return r()._getCacheWeight();
+	}
+
+	/**
+	 * Returns the number of resources held for the current calling thread group.
+	 * @return the number of resources
+	 */
+	public static final int getCacheSize()
+	{
+		return r()._getCacheSize();
+	}
 	
 	/**
 	 * Checks the resources for the current calling thread group for a file resource
@@ -630,6 +717,141 @@ public class Resources
 		compress=truefalse;
 	}
 
+	/**
+	 * Sets the approximate number of bytes that resources may hold before
+	 * the least recently used evictable resources are thrown away, and the
+	 * decoded copies of compressed resources are dropped.  The size may end
+	 * in K, M, or G.  A budget of 0 means no limit, and no decoded copies.
+	 * @param budget the budget, such as 64M, or 0
+	 */
+	public static final void setCacheBudget(final String budget)
+	{
+		String s=(budget==null)?"":budget.trim().toUpperCase();
+		long multiplier=1;
+		if(s.endsWith("K"))
+			multiplier=1024L;
+		else
+		if(s.endsWith("M"))
+			multiplier=1024L*1024L;
+		else
+		if(s.endsWith("G"))
+			multiplier=1024L*1024L*1024L;
+		if(multiplier>1)
+			s=s.substring(0,s.length()-1).trim();
+		if(CMath.isLong(s))
+			cacheBudget=Math.max(0,CMath.s_long(s)*multiplier);
+		else
+		{
+			if(s.length()>0)
+				Log.errOut("Resources","Unable to parse cache budget: "+budget);
+			cacheBudget=0;
+		}
+	}
+
+	/**
+	 * Returns the approximate number of bytes resources may hold before
+	 * evicting, or 0 for no limit.
+	 * @return the cache budget in bytes
+	 */
+	public static final long getCacheBudget()
+	{
+		return cacheBudget;
+	}
+
+	/**
+	 * Sets the resource key prefixes that are never evicted, whatever the
+	 * cache budget.  Prefixes are case insensitive.
+	 * @param keys the list of pinned key prefixes
+	 */
+	public static final void setPinnedKeys(final List<String> keys)
+	{
+		final List<String> pins=new ArrayList<String>();
+		if(keys != null)
+		{
+			for(final String key : keys)
+			{
+				if((key!=null)&&(key.trim().length()>0))
+					pins.add(key.trim().toLowerCase());
+			}
+		}
+		pinnedKeys=pins.toArray(new String[pins.size()]);
+	}
+
+	/**
+	 * Returns whether the given resource key starts with one of the pinned prefixes.
+	 * @param ID the resource key
+	 * @return true if the key is pinned, false otherwise
+	 */
+	public static final boolean isPinnedKey(final String ID)
+	{
+		final String[] pins=pinnedKeys;
+		if((ID==null)||(pins.length==0))
+			return false;
+		final String lowerID=ID.toLowerCase();
+		for(final String pin : pins)
+		{
+			if(lowerID.startsWith(pin))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the approximate number of bytes the given resource object holds.
+	 * Strings, buffers and arrays are weighed by length, and the string
+	 * members of collections and maps are weighed one level deep.
+	 * Anything else is given a flat weight.
+	 * @param o the object to weigh
+	 * @return the approximate weight in bytes
+	 */
+	protected static final long weigh(final Object o)
+	{
+		if(o==null)
+			return 0;
+		if(o instanceof CharSequence)
+			return 40+(2L*((CharSequence)o).length());
+		if(o instanceof byte[])
+			return 16+((byte[])o).length;
+		if(o instanceof boolean[])
+			return 16+((boolean[])o).length;
+		if(o instanceof char[])
+			return 16+(2L*((char[])o).length);
+		if(o instanceof int[])
+			return 16+(4L*((int[])o).length);
+		if(o instanceof long[])
+			return 16+(8L*((long[])o).length);
+		if(o instanceof double[])
+			return 16+(8L*((double[])o).length);
+		if(o instanceof Object[])
+		{
+			long weight=16;
+			for(final Object o2 : (Object[])o)
+				weight+=(o2 instanceof CharSequence)?weigh(o2)+8:8;
+			return weight;
+		}
+		if(o instanceof Collection)
+		{
+			long weight=48;
+			for(final Object o2 : (Collection<?>)o)
+				weight+=(o2 instanceof CharSequence)?weigh(o2)+32:32;
+			return weight;
+		}
+		if(o instanceof Map)
+		{
+			long weight=48;
+			for(final Map.Entry<?,?> e : ((Map<?,?>)o).entrySet())
+			{
+				weight+=48;
+				if(e.getKey() instanceof CharSequence)
+					weight+=weigh(e.getKey());
+				if(e.getValue() instanceof CharSequence)
+					weight+=weigh(e.getValue());
+			}
+			return weight;
+		}
+		return 64;
+	}
+
 	/**
 	 * Returns whether resource objects are being compressed
 	 * @return true if they are being compressed, false otherwise
@@ -644,7 +866,158 @@ public class Resources
 	 */
 	public final void _clearResources()
 	{
-		resources.clear();
+		final List<CachedResource> cleared;
+		synchronized(resources)
+		{
+			cleared=new ArrayList<CachedResource>(resources.values());
+			resources.clear();
+		}
+		for(final CachedResource R : cleared)
+			unaccount(R);
+	}
+
+	/**
+	 * Returns one of the resource cache counters.
+	 * @param stat the counter to return
+	 * @return the value of the counter
+	 */
+	public final long _getCacheStat(final CacheStat stat)
+	{
+		return cacheStats[stat.ordinal()].sum();
+	}
+
+	/**
+	 * Returns the approximate number of bytes held by these resources,
+	 * including decoded hot copies.
+	 * @return the approximate weight of all resources, in bytes
+	 */
+	public final long _getCacheWeight()
+	{
+		return cacheWeight.get();
+	}
+
+	/**
+	 * Returns the number of resources held.
+	 * @return the number of resources
+	 */
+	public final int _getCacheSize()
+	{
+		return resources.size();
+	}
+
+	/**
+	 * Removes the weight of the given resource, and its hot copy, from the
+	 * cache weight, and marks it so that no hot copy will be added later.
+	 * @param R the resource that was removed
+	 */
+	private final void unaccount(final CachedResource R)
+	{
+		synchronized(R)
+		{
+			if(R.removed)
+				return;
+			R.removed=true;
+			cacheWeight.addAndGet(-(R.weight+R.hotWeight));
+			R.hot=null;
+			R.hotWeight=0;
+		}
+	}
+
+	/**
+	 * Keeps the given decoded copy of a compressed resource, so that
+	 * later hits need not decode it again, unless one is already kept.
+	 * @param R the compressed resource
+	 * @param buf the decoded copy
+	 */
+	private final void promote(final CachedResource R, final StringBuffer buf)
+	{
+		synchronized(R)
+		{
+			if(R.removed || (R.hot!=null))
+				return;
+			R.hot=buf;
+			R.hotWeight=weigh(buf);
+			cacheWeight.addAndGet(R.hotWeight);
+		}
+		cacheStats[CacheStat.PROMOTIONS.ordinal()].increment();
+		checkBudget();
+	}
+
+	/**
+	 * Checks whether the cache is over its budget, and if so, and no other
+	 * thread is already doing it, evicts down to seven eighths of the budget.
+	 */
+	private final void checkBudget()
+	{
+		final long budget=cacheBudget;
+		if((budget<=0)||(cacheWeight.get()<=budget))
+			return;
+		if(!evicting.compareAndSet(false, true))
+			return;
+		try
+		{
+			evict(budget-(budget/8));
+		}
+		finally
+		{
+			evicting.set(false);
+		}
+	}
+
+	/**
+	 * Brings the cache weight down to the given target, least recently used first,
+	 * by dropping the decoded copies of compressed resources, and then, if that is
+	 * not enough, by removing evictable resources that are not pinned.
+	 * @param target the weight to get under
+	 */
+	private final void evict(final long target)
+	{
+		final List<Triad<String,CachedResource,Long>> candidates=new ArrayList<Triad<String,CachedResource,Long>>();
+		for(final Map.Entry<String,CachedResource> e : resources.entrySet())
+		{
+			final CachedResource R=e.getValue();
+			if((R.hot!=null)||(R.evictable && (!isPinnedKey(e.getKey()))))
+				candidates.add(new Triad<String,CachedResource,Long>(e.getKey(),R,Long.valueOf(R.lastUsed)));
+		}
+		Collections.sort(candidates,new Comparator<Triad<String,CachedResource,Long>>()
+		{
+			@Override
+			public int compare(Triad<String, CachedResource, Long> o1, Triad<String, CachedResource, Long> o2)
+			{
+				return o1.third.compareTo(o2.third);
+			}
+		});
+		for(final Triad<String,CachedResource,Long> c : candidates)
+		{
+			if(cacheWeight.get()<=target)
+				return;
+			final CachedResource R=c.second;
+			synchronized(R)
+			{
+				if(R.hot == null)
+					continue;
+				cacheWeight.addAndGet(-R.hotWeight);
+				R.hot=null;
+				R.hotWeight=0;
+			}
+			cacheStats[CacheStat.DEMOTIONS.ordinal()].increment();
+		}
+		for(final Triad<String,CachedResource,Long> c : candidates)
+		{
+			if(cacheWeight.get()<=target)
+				return;
+			final CachedResource R=c.second;
+			if((!R.evictable)||(isPinnedKey(c.first)))
+				continue;
+			synchronized(resources)
+			{
+				if(resources.get(c.first)!=R)
+					continue;
+				resources.remove(c.first);
+			}
+			unaccount(R);
+			cacheStats[CacheStat.EVICTIONS.ordinal()].increment();
+		}
 	}
 
 	/**
@@ -676,13 +1049,27 @@ public class Resources
 	 */
 	public final Object _getResource(final String ID)
 	{
-		final Object O = resources.get(ID);
-		if(O!=null)
+		final CachedResource R = resources.get(ID);
+		if(R!=null)
 		{
-			if(compress && (O instanceof CompressedResource))
-				return new StringBuffer(CMLib.encoder().decompressString(((CompressedResource)O).data));
-			return O;
+			R.lastUsed=System.nanoTime();
+			cacheStats[CacheStat.HITS.ordinal()].increment();
+			if(R.compressed)
+			{
+				final StringBuffer hot=R.hot;
+				if(hot != null)
+				{
+					cacheStats[CacheStat.HOT_HITS.ordinal()].increment();
+					return hot;
+				}
+				final StringBuffer buf=new StringBuffer(CMLib.encoder().decompressString((byte[])R.obj));
+				if(cacheBudget>0)
+					promote(R,buf);
+				return buf;
+			}
+			return R.obj;
 		}
+		cacheStats[CacheStat.MISSES.ordinal()].increment();
 		return null;
 	}
 
@@ -724,14 +1111,31 @@ public class Resources
 	 * @return the object as stored.
 	 */
 	public final Object _submitResource(final String ID, final Object obj)
+	{
+		return _submitResource(ID,obj,false);
+	}
+
+	/**
+	 * Adds or updates the given resource object at the given resource id/key.
+	 * An evictable resource may be thrown away when the cache is over its
+	 * budget, unless its key is pinned.
+	 * 
+	 * @param ID the key to store the resource as
+	 * @param obj the object to store
+	 * @param evictable true if the resource may be evicted, false to keep it
+	 * @return the object as stored.
+	 */
+	public final Object _submitResource(final String ID, final Object obj, final boolean evictable)
 	{
 		if(ID==null)
 			Log.errOut("Resources",new Exception("Null ID"));
 		final Object prepared=prepareObject(obj);
-		if(prepared != obj)
-			resources.put(ID,new CompressedResource((byte[])prepared));
-		else
-			resources.put(ID,prepared);
+		final CachedResource R=new CachedResource(prepared, prepared != obj, evictable);
+		cacheWeight.addAndGet(R.weight);
+		final CachedResource oldR=resources.put(ID,R);
+		if(oldR != null)
+			unaccount(oldR);
+		checkBudget();
 		return prepared;
 	}
 
@@ -744,7 +1148,7 @@ public class Resources
 	 */
 	private final Object _updateResource(final String ID, final Object obj)
 	{
-		return _submitResource(ID, obj);
+		return _submitResource(ID, obj, true);
 	}
 
 	/**
@@ -754,7 +1158,9 @@ public class Resources
 	 */
 	public final void _removeResource(final String ID)
 	{
-		resources.remove(ID);
+		final CachedResource R=resources.remove(ID);
+		if(R != null)
+			unaccount(R);
 	}
 
 	/**
@@ -808,7 +1214,7 @@ public class Resources
 			return _toStringBuffer(rsc);
 		final StringBuffer buf=new CMFile(makeFileResourceName(filename),null,reportErrors?CMFile.FLAG_LOGERRORS:0).text();
 		if(!CMProps.getBoolVar(CMProps.Bool.FILERESOURCENOCACHE))
-			_submitResource(filename,buf);
+			_submitResource(filename,buf,true);
 		return buf;
 	}
 
@@ -838,7 +1244,7 @@ public class Resources
 			buf=new StringBuffer("");
 		}
 		if(!CMProps.getBoolVar(CMProps.Bool.FILERESOURCENOCACHE))
-			_submitResource(filename,buf);
+			_submitResource(filename,buf,true);
 		return buf;
 	}
 
@@ -0,0 +1,246 @@
+package com.planet_ink.coffee_mud.core.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+   Copyright 2026 agent
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+	   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+/**
+ * A case-insensitive prefix tree of words, built all at once from a ranked
+ * list of words and values.  Every node remembers, in rank order, all of the
+ * words below it, so both an exact lookup and a list of ranked candidates
+ * for an abbreviation cost only the length of the typed word.
+ *
+ * The tree itself is never changed after it is built.  Calling rebuild
+ * builds a complete new tree and then swaps it in, so readers never need
+ * to lock, and always see either the old words or the new ones.
+ * @author agent
+ */
+public class PrefixTrie<V>
+{
+	private static final char[]	NO_CHARS	= new char[0];
+	private static final int[]	NO_RANKS	= new int[0];
+
+	private volatile Index<V>	index;
+
+	private static class Node
+	{
+		private char[]	chars	= NO_CHARS;
+		private Node[]	kids	= null;
+		private int		exact	= -1;
+		private int[]	ranked	= NO_RANKS;
+	}
+
+	private static class Index<V>
+	{
+		private final String[]	keys;
+		private final Object[]	values;
+		private final Node		root;
+
+		private Index(final String[] keys, final Object[] values, final Node root)
+		{
+			this.keys=keys;
+			this.values=values;
+			this.root=root;
+		}
+	}
+
+	private static class BuildNode
+	{
+		private final TreeMap<Character,BuildNode>	kids	= new TreeMap<Character,BuildNode>();
+		private final List<Integer>					ranked	= new ArrayList<Integer>(1);
+		private int									exact	= -1;
+	}
+
+	/**
+	 * Creates an empty tree.
+	 */
+	public PrefixTrie()
+	{
+		index=new Index<V>(new String[0], new Object[0], new Node());
+	}
+
+	/**
+	 * Creates a tree from the given words and values.
+	 * @see PrefixTrie#rebuild(PairList)
+	 * @param entries the words and their values, best ranked first
+	 */
+	public PrefixTrie(final PairList<String,V> entries)
+	{
+		rebuild(entries);
+	}
+
+	/**
+	 * Replaces every word in this tree with the given words and values.  The
+	 * words are ranked in the order given.  If a word appears more than once,
+	 * only its first appearance counts.
+	 * @param entries the words and their values, best ranked first
+	 */
+	public void rebuild(final PairList<String,V> entries)
+	{
+		final List<String> keys=new ArrayList<String>(entries.size());
+		final List<Object> values=new ArrayList<Object>(entries.size());
+		final BuildNode buildRoot=new BuildNode();
+		for(final Pair<String,V> p : entries)
+		{
+			final String key=p.first.toUpperCase();
+			BuildNode node=buildRoot;
+			for(int c=0;c<key.length();c++)
+			{
+				final Character ch=Character.valueOf(key.charAt(c));
+				BuildNode kid=node.kids.get(ch);
+				if(kid==null)
+				{
+					kid=new BuildNode();
+					node.kids.put(ch, kid);
+				}
+				node=kid;
+			}
+			if(node.exact>=0)
+				continue;
+			final int rank=keys.size();
+			keys.add(key);
+			values.add(p.second);
+			node.exact=rank;
+			node=buildRoot;
+			node.ranked.add(Integer.valueOf(rank));
+			for(int c=0;c<key.length();c++)
+			{
+				node=node.kids.get(Character.valueOf(key.charAt(c)));
+				node.ranked.add(Integer.valueOf(rank));
+			}
+		}
+		index=new Index<V>(keys.toArray(new String[keys.size()]), values.toArray(), freeze(buildRoot));
+	}
+
+	private Node freeze(final BuildNode buildNode)
+	{
+		final Node node=new Node();
+		node.exact=buildNode.exact;
+		node.ranked=new int[buildNode.ranked.size()];
+		for(int i=0;i<node.ranked.length;i++)
+			node.ranked[i]=buildNode.ranked.get(i).intValue();
+		if(buildNode.kids.size()>0)
+		{
+			node.chars=new char[buildNode.kids.size()];
+			node.kids=new Node[buildNode.kids.size()];
+			int i=0;
+			for(final Map.Entry<Character,BuildNode> e : buildNode.kids.entrySet())
+			{
+				node.chars[i]=e.getKey().charValue();
+				node.kids[i]=freeze(e.getValue());
+				i++;
+			}
+		}
+		return node;
+	}
+
+	private static Node find(final Node root, final CharSequence word)
+	{
+		Node node=root;
+		for(int c=0;c<word.length();c++)
+		{
+			if(node.kids==null)
+				return null;
+			final int x=Arrays.binarySearch(node.chars, Character.toUpperCase(word.charAt(c)));
+			if(x<0)
+				return null;
+			node=node.kids[x];
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the value of the given word, ignoring case.
+	 * @param word the whole word to look for
+	 * @return the value of the word, or null if it is not in the tree
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(final CharSequence word)
+	{
+		final Index<V> index=this.index;
+		final Node node=find(index.root,word);
+		if((node==null)||(node.exact<0))
+			return null;
+		return (V)index.values[node.exact];
+	}
+
+	/**
+	 * Returns the value of the best ranked word that starts with the given
+	 * prefix, ignoring case.
+	 * @param prefix the start of the word to look for
+	 * @return the best ranked value, or null if no word starts with the prefix
+	 */
+	@SuppressWarnings("unchecked")
+	public V findFirst(final CharSequence prefix)
+	{
+		final Index<V> index=this.index;
+		final Node node=find(index.root,prefix);
+		if((node==null)||(node.ranked.length==0))
+			return null;
+		return (V)index.values[node.ranked[0]];
+	}
+
+	/**
+	 * Returns all of the words that start with the given prefix, ignoring
+	 * case, in rank order.  The words are returned in upper case.
+	 * @param prefix the start of the words to look for
+	 * @return the matching words, best ranked first
+	 */
+	public List<String> findKeys(final CharSequence prefix)
+	{
+		final Index<V> index=this.index;
+		final Node node=find(index.root,prefix);
+		if((node==null)||(node.ranked.length==0))
+			return Collections.emptyList();
+		final List<String> found=new ArrayList<String>(node.ranked.length);
+		for(final int rank : node.ranked)
+			found.add(index.keys[rank]);
+		return found;
+	}
+
+	/**
+	 * Returns the values of all of the words that start with the given
+	 * prefix, ignoring case, in rank order.
+	 * @param prefix the start of the words to look for
+	 * @return the matching values, best ranked first
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> findAll(final CharSequence prefix)
+	{
+		final Index<V> index=this.index;
+		final Node node=find(index.root,prefix);
+		if((node==null)||(node.ranked.length==0))
+			return Collections.emptyList();
+		final List<V> found=new ArrayList<V>(node.ranked.length);
+		for(final int rank : node.ranked)
+			found.add((V)index.values[rank]);
+		return found;
+	}
+
+	/**
+	 * Returns the number of distinct words in the tree.
+	 * @return the number of words
+	 */
+	public int size()
+	{
+		return index.keys.length;
+	}
+}
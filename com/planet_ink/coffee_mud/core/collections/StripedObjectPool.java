@@ -0,0 +1,269 @@
+package com.planet_ink.coffee_mud.core.collections;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+   Copyright 2026 agent
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+	   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+/**
+ * A bounded recycle bin for frequently re-used objects, split into stripes
+ * so that threads do not all queue up on one monitor.  Each thread starts
+ * at its own stripe, and simply moves on to the next one if that stripe is
+ * busy, empty, or full, so neither taking nor returning an object ever
+ * waits on another thread.
+ *
+ * When tracking is turned on, the pool also remembers every object it holds,
+ * so that an object returned twice is refused and counted.
+ * @author agent
+ */
+public class StripedObjectPool<T>
+{
+	private final Stripe<T>[]	stripes;
+	private final int			stripeCapacity;
+	private final LongAdder		hits		= new LongAdder();
+	private final LongAdder		misses		= new LongAdder();
+	private final LongAdder		returns		= new LongAdder();
+	private final LongAdder		discards	= new LongAdder();
+	private final LongAdder		doubles		= new LongAdder();
+	private volatile Set<T>		tracked		= null;
+
+	private static class Stripe<T>
+	{
+		private final ReentrantLock	lock	= new ReentrantLock();
+		private final ArrayDeque<T>	pool;
+		// the size of the pool, only changed under the lock, for peeking without it
+		private volatile int		count	= 0;
+
+		private Stripe(final int capacity)
+		{
+			pool=new ArrayDeque<T>(capacity);
+		}
+	}
+
+	@SuppressWarnings({"unchecked","rawtypes"})
+	public StripedObjectPool(final int capacity)
+	{
+		int numStripes=1;
+		while((numStripes<Runtime.getRuntime().availableProcessors()*2)&&(numStripes<64))
+			numStripes*=2;
+		stripes=new Stripe[numStripes];
+		stripeCapacity=Math.max(1,(capacity+numStripes-1)/numStripes);
+		for(int i=0;i<numStripes;i++)
+			stripes[i]=new Stripe<T>(stripeCapacity);
+	}
+
+	private final int homeStripe()
+	{
+		return (int)(Thread.currentThread().getId() & (stripes.length-1));
+	}
+
+	/**
+	 * Turns double-return tracking on or off.  Tracking costs a global lock
+	 * on every get and return, so it is meant for debugging only.
+	 * @param on true to track pooled objects, false otherwise
+	 */
+	public void setTracking(final boolean on)
+	{
+		if(on==(tracked!=null))
+			return;
+		if(on)
+		{
+			final Set<T> newTracked=Collections.newSetFromMap(new IdentityHashMap<T,Boolean>());
+			for(final Stripe<T> stripe : stripes)
+			{
+				stripe.lock.lock();
+				try
+				{
+					newTracked.addAll(stripe.pool);
+				}
+				finally
+				{
+					stripe.lock.unlock();
+				}
+			}
+			tracked=newTracked;
+		}
+		else
+			tracked=null;
+	}
+
+	/**
+	 * Returns a pooled object, or null if none could be found, in which case
+	 * the caller should make a new one.
+	 * @return a pooled object, or null
+	 */
+	public T get()
+	{
+		final int home=homeStripe();
+		for(int i=0;i<stripes.length;i++)
+		{
+			final Stripe<T> stripe=stripes[(home+i)&(stripes.length-1)];
+			if((stripe.count==0) || (!stripe.lock.tryLock()))
+				continue;
+			final T obj;
+			try
+			{
+				obj=stripe.pool.pollLast();
+				stripe.count=stripe.pool.size();
+			}
+			finally
+			{
+				stripe.lock.unlock();
+			}
+			if(obj!=null)
+			{
+				final Set<T> tracked=this.tracked;
+				if(tracked!=null)
+				{
+					synchronized(tracked)
+					{
+						tracked.remove(obj);
+					}
+				}
+				hits.increment();
+				return obj;
+			}
+		}
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * Puts the given object into the pool, if there is room for it.
+	 * @param obj the object to recycle
+	 * @return true if it was pooled, false if it should be allowed to die
+	 */
+	public boolean put(final T obj)
+	{
+		final Set<T> tracked=this.tracked;
+		if(tracked!=null)
+		{
+			synchronized(tracked)
+			{
+				if(!tracked.add(obj))
+				{
+					doubles.increment();
+					return false;
+				}
+			}
+		}
+		final int home=homeStripe();
+		for(int i=0;i<stripes.length;i++)
+		{
+			final Stripe<T> stripe=stripes[(home+i)&(stripes.length-1)];
+			if((stripe.count>=stripeCapacity) || (!stripe.lock.tryLock()))
+				continue;
+			try
+			{
+				if(stripe.pool.size()<stripeCapacity)
+				{
+					stripe.pool.addLast(obj);
+					stripe.count=stripe.pool.size();
+					returns.increment();
+					return true;
+				}
+			}
+			finally
+			{
+				stripe.lock.unlock();
+			}
+		}
+		if(tracked!=null)
+		{
+			synchronized(tracked)
+			{
+				tracked.remove(obj);
+			}
+		}
+		discards.increment();
+		return false;
+	}
+
+	/**
+	 * Returns the approximate number of objects in the pool
+	 * @return the approximate number of objects in the pool
+	 */
+	public int size()
+	{
+		int size=0;
+		for(final Stripe<T> stripe : stripes)
+			size+=stripe.count;
+		return size;
+	}
+
+	/**
+	 * Returns whether the pool appeared to be empty when it was checked
+	 * @return true if no stripe held an object, false otherwise
+	 */
+	public boolean isEmpty()
+	{
+		for(final Stripe<T> stripe : stripes)
+		{
+			if(stripe.count>0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of gets that were answered from the pool
+	 * @return the number of gets that re-used an object
+	 */
+	public long getHits()
+	{
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of gets that found the pool empty
+	 * @return the number of gets that found nothing
+	 */
+	public long getMisses()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of objects put back into the pool
+	 * @return the number of objects recycled
+	 */
+	public long getReturns()
+	{
+		return returns.sum();
+	}
+
+	/**
+	 * Returns the number of objects turned away because the pool was full
+	 * @return the number of objects discarded
+	 */
+	public long getDiscards()
+	{
+		return discards.sum();
+	}
+
+	/**
+	 * Returns the number of objects refused because they were already pooled
+	 * @return the number of double returns caught
+	 */
+	public long getDoubleReturns()
+	{
+		return doubles.sum();
+	}
+}
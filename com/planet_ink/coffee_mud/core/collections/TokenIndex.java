@@ -0,0 +1,151 @@
+package com.planet_ink.coffee_mud.core.collections;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+/*
+   Copyright 2026 agent
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+	   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+/**
+ * An inverted index from word tokens to the objects whose text contains
+ * them.  Each object is indexed under its own set of tokens, which the
+ * caller replaces whenever the object changes.  Lookups are by token prefix, so
+ * every object with a token that starts with a typed word can be found
+ * without looking at any other object.
+ *
+ * Tokens are stored exactly as given, so callers should normalize them,
+ * for instance to upper case, both when indexing and when looking up.
+ * Objects are only weakly held, so an object that is thrown away without
+ * being removed from the index does not stay in memory because of it.
+ * @author agent
+ */
+public class TokenIndex<T>
+{
+	private final TreeMap<String,Set<T>>	postings	= new TreeMap<String,Set<T>>();
+	private final Map<T,String[]>			entries		= new WeakHashMap<T,String[]>();
+
+	/**
+	 * Indexes the given object under the given tokens, replacing whatever
+	 * tokens it was indexed under before.
+	 * @param obj the object to index
+	 * @param tokens the tokens found in the objects text
+	 */
+	public synchronized void put(final T obj, final Collection<String> tokens)
+	{
+		remove(obj);
+		final String[] toks=new String[tokens.size()];
+		int i=0;
+		for(final String token : tokens)
+		{
+			Set<T> set=postings.get(token);
+			if(set==null)
+			{
+				set=Collections.newSetFromMap(new WeakHashMap<T,Boolean>(2));
+				postings.put(token, set);
+				toks[i++]=token;
+			}
+			else
+				toks[i++]=postings.ceilingKey(token);
+			set.add(obj);
+		}
+		Arrays.sort(toks);
+		entries.put(obj, toks);
+	}
+
+	/**
+	 * Removes the given object from the index.
+	 * @param obj the object to remove
+	 */
+	public synchronized void remove(final T obj)
+	{
+		final String[] tokens=entries.remove(obj);
+		if(tokens==null)
+			return;
+		for(final String token : tokens)
+		{
+			final Set<T> set=postings.get(token);
+			if(set!=null)
+			{
+				set.remove(obj);
+				if(set.isEmpty())
+					postings.remove(token);
+			}
+		}
+	}
+
+	/**
+	 * Returns every object indexed under a token that starts with the
+	 * given prefix.
+	 * @param prefix the start of the tokens to look for
+	 * @return a new set of the matching objects
+	 */
+	public synchronized Set<T> find(final String prefix)
+	{
+		final Set<T> found=new HashSet<T>();
+		for(final Iterator<Set<T>> i=postings.subMap(prefix, true, prefix+Character.MAX_VALUE, false).values().iterator();i.hasNext();)
+		{
+			final Set<T> set=i.next();
+			if(set.isEmpty())
+				i.remove();
+			else
+				found.addAll(set);
+		}
+		return found;
+	}
+
+	/**
+	 * Returns whether the given object is indexed under a token that
+	 * starts with the given prefix.
+	 * @param obj the object to check
+	 * @param prefix the start of the token to look for
+	 * @return true if the object has such a token, false otherwise
+	 */
+	public synchronized boolean matches(final T obj, final String prefix)
+	{
+		final String[] tokens=entries.get(obj);
+		if(tokens==null)
+			return false;
+		int x=Arrays.binarySearch(tokens, prefix);
+		if(x>=0)
+			return true;
+		x=-x-1;
+		return (x<tokens.length) && tokens[x].startsWith(prefix);
+	}
+
+	/**
+	 * Returns the number of objects in the index.
+	 * @return the number of objects
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Returns the number of distinct tokens in the index.
+	 * @return the number of tokens
+	 */
+	public synchronized int numTokens()
+	{
+		return postings.size();
+	}
+}
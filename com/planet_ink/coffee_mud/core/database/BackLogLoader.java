@@ -3,6 +3,7 @@ import com.planet_ink.coffee_mud.Libraries.interfaces.*;
 import com.planet_ink.coffee_mud.core.interfaces.*;
 import com.planet_ink.coffee_mud.core.*;
 import com.planet_ink.coffee_mud.core.collections.*;
+import com.planet_ink.coffee_mud.core.database.DBConnector.DBPreparedBatchEntry;
 import com.planet_ink.coffee_mud.Abilities.interfaces.*;
 import com.planet_ink.coffee_mud.Areas.interfaces.*;
 import com.planet_ink.coffee_mud.Behaviors.interfaces.*;
@@ -17,6 +18,7 @@ import com.planet_ink.coffee_mud.Races.interfaces.*;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /*
    Copyright 2014-2017 Bo Zimmerman
@@ -33,23 +35,63 @@ import java.util.*;
    See the License for the specific language governing permissions and
    limitations under the License.
 */
+/**
+ * Reads and writes the channel backlogs.  The newest entries of each
+ * channel are kept in memory, so that most backlog reads never reach
+ * the database, and new entries are written behind the sender, in
+ * batches on one connection, a few seconds after they are added, or
+ * when enough of them pile up, or when the database is shut down.
+ * @author agent
+ */
 public class BackLogLoader
 {
 	protected DBConnector DB=null;
-	protected Map<String,int[]> counters = new Hashtable<String,int[]>();
-	
+	protected Map<String,ChannelBackLog> backLogs = new ConcurrentHashMap<String,ChannelBackLog>();
+
+	protected static final int	RING_SIZE		= 500;
+	protected static final int	FLUSH_SIZE		= 100;
+	protected static final long	FLUSH_DELAY_MS	= 3000;
+
+	protected final LinkedList<BackLogEntry>	pending			= new LinkedList<BackLogEntry>();
+	protected volatile boolean					flushScheduled	= false;
+	protected volatile boolean					writeThrough	= false;
+
+	protected static class BackLogEntry
+	{
+		private final String	channelName;
+		private final int		index;
+		private final String	data;
+		private final long		time;
+		private boolean			retry	= false;
+
+		private BackLogEntry(final String channelName, final int index, final String data, final long time)
+		{
+			this.channelName=channelName;
+			this.index=index;
+			this.data=data;
+			this.time=time;
+		}
+	}
+
+	protected static class ChannelBackLog
+	{
+		private int								counter	= 0;
+		private final LinkedList<BackLogEntry>	ring	= new LinkedList<BackLogEntry>();
+	}
+
 	public BackLogLoader(DBConnector newDB)
 	{
 		DB=newDB;
 	}
-	
-	protected int getCounter(String channelName, boolean bump)
+
+	protected ChannelBackLog getBackLog(String channelName)
 	{
 		synchronized(("BACKLOG_"+channelName).intern())
 		{
-			int[] counter = counters.get(channelName);
-			if(counter == null)
+			ChannelBackLog backLog = backLogs.get(channelName);
+			if(backLog == null)
 			{
+				backLog = new ChannelBackLog();
 				DBConnection D=null;
 				try
 				{
@@ -57,14 +99,13 @@ public class BackLogLoader
 					final ResultSet R=D.query("SELECT CMDATE FROM CMBKLG WHERE CMNAME='"+channelName+"' AND CMINDX = 0");
 					if(R.next())
 					{
-						counters.put(channelName, new int[] { (int)DBConnections.getLongRes(R, "CMDATE") });
+						backLog.counter = (int)DBConnections.getLongRes(R, "CMDATE");
 						R.close();
 					}
 					else
 					{
 						R.close();
 						D.update("INSERT INTO CMBKLG (CMNAME,  CMINDX, CMDATE) VALUES ('"+channelName+"', 0, 0)", 0);
-						counters.put(channelName, new int[] {0});
 					}
 				}
 				catch(final Exception sqle)
@@ -75,104 +116,274 @@ public class BackLogLoader
 				{
 					DB.DBDone(D);
 				}
-				counter = counters.get(channelName);
+				backLogs.put(channelName, backLog);
 			}
-			if(bump)
-			{
-				DBConnection D=null;
-				try
-				{
-					D=DB.DBFetch();
-					synchronized(counter)
-					{
-						counter[0]++;
-						D.update("UPDATE CMBKLG SET CMDATE="+counter[0]+" WHERE CMNAME='"+channelName+"' AND CMINDX = 0", 0);
-					}
-				}
-				catch(final Exception sqle)
-				{
-					Log.errOut("Journal",sqle);
-				}
-				finally
-				{
-					DB.DBDone(D);
-				}
-			}
-			return counter[0];
+			return backLog;
 		}
 	}
-	
+
+	protected int getCounter(String channelName)
+	{
+		final ChannelBackLog backLog = getBackLog(channelName);
+		synchronized(backLog)
+		{
+			return backLog.counter;
+		}
+	}
+
 	public void addBackLogEntry(String channelName, final String entry)
 	{
 		if((entry == null) || (channelName == null) || (entry.length()==0))
 			return;
 		channelName = channelName.toUpperCase().trim();
-		final int counter = getCounter(channelName, true);
-		DBConnection D=null;
-		try
+		final ChannelBackLog backLog = getBackLog(channelName);
+		final BackLogEntry newEntry;
+		synchronized(backLog)
 		{
-			D=DB.DBFetchPrepared("INSERT INTO CMBKLG (CMNAME,  CMINDX, CMDATE, CMDATA) VALUES ('"+channelName+"', "+counter+", "+System.currentTimeMillis()+", ?)");
-			D.setPreparedClobs(new String[]{entry});
-			D.update("",0);
+			backLog.counter++;
+			newEntry = new BackLogEntry(channelName, backLog.counter, entry, System.currentTimeMillis());
+			backLog.ring.addLast(newEntry);
+			if(backLog.ring.size() > RING_SIZE)
+				backLog.ring.removeFirst();
+			// entries must reach the pending list in counter order
+			synchronized(pending)
+			{
+				pending.addLast(newEntry);
+			}
 		}
-		catch(final Exception sqle)
+		scheduleFlush();
+	}
+
+	protected void scheduleFlush()
+	{
+		if(writeThrough)
 		{
-			Log.errOut("Journal",sqle);
+			flushBackLogEntries();
+			return;
 		}
-		finally
+		final int numPending;
+		synchronized(pending)
 		{
-			DB.DBDone(D);
+			numPending = pending.size();
+			if(flushScheduled && ((numPending % FLUSH_SIZE) != 0))
+				return;
+			flushScheduled = true;
 		}
+		if(CMLib.threads() == null)
+			flushBackLogEntries();
+		else
+		if((numPending % FLUSH_SIZE) == 0)
+			CMLib.threads().executeRunnable(newFlusher());
+		else
+			CMLib.threads().scheduleRunnable(newFlusher(), FLUSH_DELAY_MS);
+	}
+
+	protected Runnable newFlusher()
+	{
+		return new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				flushBackLogEntries();
+			}
+		};
 	}
-	
+
+	/**
+	 * Writes every backlog entry that has not been written yet to the
+	 * database, in one batch, along with the new counter of each
+	 * channel written to.  If any statement of the batch fails, all of
+	 * its entries are put back at the front of the pending list and
+	 * tried again later, deleting any rows of theirs that did get
+	 * written first.
+	 */
+	public void flushBackLogEntries()
+	{
+		synchronized(this)
+		{
+			final List<BackLogEntry> entries;
+			synchronized(pending)
+			{
+				flushScheduled = false;
+				if(pending.size()==0)
+					return;
+				entries = new ArrayList<BackLogEntry>(pending);
+				pending.clear();
+			}
+			final Map<String,Integer> counters = new TreeMap<String,Integer>();
+			final List<DBPreparedBatchEntry> statements = new ArrayList<DBPreparedBatchEntry>(entries.size() + 1);
+			for(final BackLogEntry entry : entries)
+			{
+				if(entry.retry)
+					statements.add(new DBPreparedBatchEntry("DELETE FROM CMBKLG WHERE CMNAME='"+entry.channelName+"' AND CMINDX = "+entry.index));
+				statements.add(new DBPreparedBatchEntry("INSERT INTO CMBKLG (CMNAME,  CMINDX, CMDATE, CMDATA) VALUES ('"+entry.channelName+"', "+entry.index+", "+entry.time+", ?)",entry.data));
+				counters.put(entry.channelName, Integer.valueOf(entry.index));
+			}
+			for(final String channelName : counters.keySet())
+				statements.add(new DBPreparedBatchEntry("UPDATE CMBKLG SET CMDATE="+counters.get(channelName).intValue()+" WHERE CMNAME='"+channelName+"' AND CMINDX = 0"));
+			boolean written=false;
+			try
+			{
+				// the batch result is -1 if any one statement failed, not just the last
+				written = DB.updateWithClobs(statements) >= 0;
+			}
+			catch(final Exception sqle)
+			{
+				Log.errOut("Journal",sqle);
+			}
+			if(!written)
+			{
+				Log.errOut("Journal","Unable to write "+entries.size()+" backlog entries, will try again.");
+				final boolean retryLater;
+				synchronized(pending)
+				{
+					for(final BackLogEntry entry : entries)
+						entry.retry = true;
+					pending.addAll(0, entries);
+					retryLater = (!flushScheduled) && (!writeThrough) && (CMLib.threads() != null);
+					if(retryLater)
+						flushScheduled = true;
+				}
+				if(retryLater)
+					CMLib.threads().scheduleRunnable(newFlusher(), FLUSH_DELAY_MS);
+			}
+		}
+	}
+
+	/**
+	 * Writes any unwritten backlog entries, and makes every entry added
+	 * from now on be written right away, for when the database is about
+	 * to be shut down.
+	 */
+	public void shutdown()
+	{
+		writeThrough = true;
+		flushBackLogEntries();
+	}
+
 	public List<Pair<String,Long>> getBackLogEntries(String channelName, final int newestToSkip, final int numToReturn)
 	{
 		final List<Pair<String,Long>> list=new Vector<Pair<String,Long>>();
 		if(channelName == null)
 			return list;
 		channelName = channelName.toUpperCase().trim();
-		final int counter = getCounter(channelName, false);
-		DBConnection D=null;
-		try
+		final ChannelBackLog backLog = getBackLog(channelName);
+		final List<BackLogEntry> fromRing = new ArrayList<BackLogEntry>();
+		final int counter;
+		final int oldest;
+		final int newest;
+		final int firstInRing;
+		synchronized(backLog)
 		{
+			counter = backLog.counter;
 			final int number = numToReturn + newestToSkip;
-			final int oldest = number >= counter ? 1 : (counter - number);
-			final int newest = newestToSkip >= counter ? counter : (counter - newestToSkip);
-			D=DB.DBFetch();
-			StringBuilder sql=new StringBuilder("SELECT CMDATA,CMDATE FROM CMBKLG WHERE CMNAME='"+channelName+"'");
-			sql.append(" AND CMINDX >="+oldest);
-			sql.append(" AND CMINDX <="+newest);
-			sql.append(" ORDER BY CMINDX");
-			final ResultSet R = D.query(sql.toString());
-			while(R.next())
-				list.add(new Pair<String,Long>(DB.getRes(R, "CMDATA"),Long.valueOf(DB.getLongRes(R, "CMDATE"))));
-			R.close();
+			oldest = number >= counter ? 1 : (counter - number);
+			newest = newestToSkip >= counter ? counter : (counter - newestToSkip);
+			firstInRing = (backLog.ring.size()==0) ? (counter + 1) : backLog.ring.getFirst().index;
+			for(final BackLogEntry entry : backLog.ring)
+			{
+				if((entry.index >= oldest) && (entry.index <= newest))
+					fromRing.add(entry);
+			}
 		}
-		catch(final Exception sqle)
+		if(oldest < firstInRing)
 		{
-			Log.errOut("Journal",sqle);
+			DBConnection D=null;
+			try
+			{
+				D=DB.DBFetch();
+				StringBuilder sql=new StringBuilder("SELECT CMDATA,CMDATE FROM CMBKLG WHERE CMNAME='"+channelName+"'");
+				sql.append(" AND CMINDX >="+oldest);
+				sql.append(" AND CMINDX <="+Math.min(newest, firstInRing-1));
+				sql.append(" ORDER BY CMINDX");
+				final ResultSet R = D.query(sql.toString());
+				while(R.next())
+					list.add(new Pair<String,Long>(DB.getRes(R, "CMDATA"),Long.valueOf(DB.getLongRes(R, "CMDATE"))));
+				R.close();
+			}
+			catch(final Exception sqle)
+			{
+				Log.errOut("Journal",sqle);
+			}
+			finally
+			{
+				DB.DBDone(D);
+			}
 		}
-		finally
+		for(final BackLogEntry entry : fromRing)
+			list.add(new Pair<String,Long>(entry.data,Long.valueOf(entry.time)));
+		return list;
+	}
+
+	/**
+	 * Empties a channels backlog in place, so that threads already
+	 * holding it keep adding to the same counter.  The channel lock
+	 * keeps any new entries out, and the loader lock keeps out a
+	 * flush that already took entries from the pending list.
+	 */
+	protected void clearBackLog(final String channelName, final ChannelBackLog backLog)
+	{
+		synchronized(backLog)
 		{
-			DB.DBDone(D);
+			synchronized(this)
+			{
+				synchronized(pending)
+				{
+					for(final Iterator<BackLogEntry> e=pending.iterator();e.hasNext();)
+					{
+						if(e.next().channelName.equals(channelName))
+							e.remove();
+					}
+				}
+				backLog.ring.clear();
+				backLog.counter = 0;
+				DBConnection D=null;
+				try
+				{
+					D=DB.DBFetch();
+					if(D != null)
+					{
+						D.update("DELETE FROM CMBKLG WHERE CMNAME='"+channelName+"'",0);
+						D.update("INSERT INTO CMBKLG (CMNAME,  CMINDX, CMDATE) VALUES ('"+channelName+"', 0, 0)", 0);
+					}
+				}
+				catch(final Exception sqle)
+				{
+					Log.errOut("Journal",sqle);
+				}
+				finally
+				{
+					DB.DBDone(D);
+				}
+			}
 		}
-		return list;
 	}
-	
+
 	public void trimBackLogEntries(final String[] channels, final int maxMessages, final long oldestTime)
 	{
+		flushBackLogEntries();
 		for(final String channelName : channels)
 		{
-			final int counter = getCounter(channelName, false);
+			final ChannelBackLog backLog = getBackLog(channelName);
+			if(maxMessages == 0)
+			{
+				clearBackLog(channelName, backLog);
+				continue;
+			}
+			final int counter;
+			synchronized(backLog)
+			{
+				counter = backLog.counter;
+				while((backLog.ring.size()>0)
+				&&((backLog.ring.getFirst().index < counter - maxMessages)
+					||(backLog.ring.getFirst().time < oldestTime)))
+					backLog.ring.removeFirst();
+			}
 			DBConnection D=null;
 			try
 			{
 				D=DB.DBFetch();
-				if((maxMessages == 0) && (D != null))
-				{
-					D.update("DELETE FROM CMBKLG WHERE CMNAME='"+channelName+"'",0);
-				}
-				else
 				if((maxMessages < counter) && (D != null))
 				{
 					final int oldestCounter = counter - maxMessages;
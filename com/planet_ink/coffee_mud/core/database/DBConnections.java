@@ -155,13 +155,17 @@ public class DBConnections
 
 	/**
 	 * Usage: updateWithClobs("UPDATE...");
+	 * Every command is tried, even after one fails, but the result
+	 * is then -1, so callers can tell that the batch was not wholly
+	 * written.
 	 * @param entries    the update SQL commands
-	 * @return int    the responseCode, or -1
+	 * @return int    the responseCode of the last command, or -1 if any failed
 	 */
 	public int updateWithClobs(final List<DBPreparedBatchEntry> entries)
 	{
 		DBConnection DBToUse=null;
 		int Result=-1;
+		boolean failed=false;
 		try
 		{
 			DBToUse=DBFetchEmpty();
@@ -196,10 +200,12 @@ public class DBConnections
 					{
 						// queued by the connection for retry
 					}
+					Result=-1;
 				}
 				if(Result<0)
 				{
 					Log.errOut("DBConnections",""+DBToUse.getLastError()+"/"+entry.sql);
+					failed=true;
 				}
 			}
 		}
@@ -207,13 +213,14 @@ public class DBConnections
 		{
 			reportError();
 			Log.errOut("DBConnections",""+e);
+			failed=true;
 		}
 		finally
 		{
 			if(DBToUse!=null)
 				DBDone(DBToUse);
 		}
-		return Result;
+		return failed ? -1 : Result;
 	}
 
 	/**
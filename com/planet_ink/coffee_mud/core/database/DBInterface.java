@@ -146,6 +146,7 @@ public class DBInterface implements DatabaseEngine
 	@Override
 	public boolean shutdown()
 	{
+		BackLogLoader.shutdown();
 		return true;
 	}
 
@@ -376,6 +377,12 @@ public class DBInterface implements DatabaseEngine
 		return RoomLoader.DBReadRoomObject(roomIDtoLoad, reportStatus);
 	}
 
+	@Override
+	public Room DBReadRoomAndContent(String roomID, Area area)
+	{
+		return RoomLoader.DBReadRoomAndContent(roomID, area);
+	}
+
 	@Override
 	public boolean DBReReadRoomData(Room room)
 	{
@@ -1035,6 +1042,12 @@ public class DBInterface implements DatabaseEngine
 		return DB.errorStatus().toString();
 	}
 
+	@Override
+	public long getRowSaveCount(RowSaveStat stat)
+	{
+		return MOBloader.getRowSaveCount(stat) + RoomLoader.getRowSaveCount(stat);
+	}
+
 	@Override
 	public void resetConnections()
 	{
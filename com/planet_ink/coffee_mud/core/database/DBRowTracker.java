@@ -0,0 +1,217 @@
+package com.planet_ink.coffee_mud.core.database;
+
+import com.planet_ink.coffee_mud.core.collections.*;
+import com.planet_ink.coffee_mud.core.database.DBConnector.DBPreparedBatchEntry;
+import com.planet_ink.coffee_mud.Libraries.interfaces.DatabaseEngine.RowSaveStat;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+   Copyright 2026 agent
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+	   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+/**
+ * Remembers, for one table whose rows belong to an owner, such as a
+ * player or a room, a hash of every row last written for each owner, so
+ * that saving the owner again only writes the rows that actually changed.
+ *
+ * The first save of an owner, and any save after the owner has been
+ * forgotten or a write has failed, deletes and re-inserts every row just
+ * as a full save always did.  After that, new rows are inserted, changed
+ * rows are deleted and re-inserted, missing rows are deleted, and rows
+ * whose statement and text are unchanged are not sent at all.
+ *
+ * Any code that writes the table rows of an owner some other way must
+ * call forget for that owner, or the next save may skip a row it needed.
+ * @author agent
+ */
+public class DBRowTracker
+{
+	private final String		tableName;
+	private final String		ownerField;
+	private final String		keyField;
+	private final LongAdder[]	counters	= new LongAdder[RowSaveStat.values().length];
+
+	private final ConcurrentHashMap<String,Snapshot> snapshots = new ConcurrentHashMap<String,Snapshot>();
+
+	private static class Snapshot
+	{
+		private Map<String,Long> hashes = null;
+	}
+
+	/**
+	 * Creates a tracker for the given table.
+	 * @param tableName the name of the table, such as CMCHIT
+	 * @param ownerField the field holding the owner of each row, such as CMUSERID
+	 * @param keyField the field identifying a row for its owner, such as CMITNM
+	 */
+	public DBRowTracker(final String tableName, final String ownerField, final String keyField)
+	{
+		this.tableName=tableName;
+		this.ownerField=ownerField;
+		this.keyField=keyField;
+		for(int i=0;i<counters.length;i++)
+			counters[i]=new LongAdder();
+	}
+
+	private Snapshot getSnapshot(final String owner)
+	{
+		final String key=owner.toUpperCase();
+		Snapshot snapshot=snapshots.get(key);
+		if(snapshot==null)
+		{
+			snapshot=new Snapshot();
+			final Snapshot oldSnapshot=snapshots.putIfAbsent(key, snapshot);
+			if(oldSnapshot!=null)
+				snapshot=oldSnapshot;
+		}
+		return snapshot;
+	}
+
+	private static long hash(long h, final String s)
+	{
+		if(s==null)
+			return (h ^ 0xff) * 0x100000001b3L;
+		for(int i=0;i<s.length();i++)
+			h=(h ^ s.charAt(i)) * 0x100000001b3L;
+		return (h ^ 0xfe) * 0x100000001b3L;
+	}
+
+	private static long hash(final DBPreparedBatchEntry entry)
+	{
+		long h=hash(0xcbf29ce484222325L,entry.sql);
+		if(entry.clobs!=null)
+		{
+			for(final String[] clobs : entry.clobs)
+			{
+				for(final String clob : clobs)
+					h=hash(h,clob);
+			}
+		}
+		return h;
+	}
+
+	private DBPreparedBatchEntry getRowDeleteEntry(final String owner, final String key)
+	{
+		return new DBPreparedBatchEntry("DELETE FROM "+tableName+" WHERE "+ownerField+"='"+owner+"' AND "+keyField+"='"+key+"'");
+	}
+
+	/**
+	 * Makes the rows of the given owner look exactly like the given list of
+	 * rows, writing only the rows that changed since the last save.
+	 * @param DB the database to write to
+	 * @param owner the value of the owner field of the rows, already cleaned
+	 * @param rows the key field value and insert statement of every row
+	 */
+	public void update(final DBConnector DB, final String owner, final PairList<String,DBPreparedBatchEntry> rows)
+	{
+		final Snapshot snapshot=getSnapshot(owner);
+		synchronized(snapshot)
+		{
+			final Map<String,Long> newHashes=new HashMap<String,Long>();
+			boolean duplicates=false;
+			for(final Pair<String,DBPreparedBatchEntry> p : rows)
+			{
+				if(newHashes.put(p.first, Long.valueOf(hash(p.second)))!=null)
+					duplicates=true;
+			}
+			final Map<String,Long> oldHashes=snapshot.hashes;
+			snapshot.hashes=null;
+			final List<DBPreparedBatchEntry> statements=new ArrayList<DBPreparedBatchEntry>(rows.size()+1);
+			if((oldHashes==null)||(duplicates))
+			{
+				statements.add(new DBPreparedBatchEntry("DELETE FROM "+tableName+" WHERE "+ownerField+"='"+owner+"'"));
+				for(final Pair<String,DBPreparedBatchEntry> p : rows)
+					statements.add(p.second);
+				counters[RowSaveStat.FULLSAVES.ordinal()].increment();
+				counters[RowSaveStat.WRITTEN.ordinal()].add(rows.size());
+			}
+			else
+			{
+				for(final String key : oldHashes.keySet())
+				{
+					if(!newHashes.containsKey(key))
+					{
+						statements.add(getRowDeleteEntry(owner,key));
+						counters[RowSaveStat.DELETED.ordinal()].increment();
+					}
+				}
+				for(final Pair<String,DBPreparedBatchEntry> p : rows)
+				{
+					final Long oldHash=oldHashes.get(p.first);
+					if(oldHash==null)
+						statements.add(p.second);
+					else
+					if(!oldHash.equals(newHashes.get(p.first)))
+					{
+						statements.add(getRowDeleteEntry(owner,p.first));
+						statements.add(p.second);
+					}
+					else
+					{
+						counters[RowSaveStat.SKIPPED.ordinal()].increment();
+						continue;
+					}
+					counters[RowSaveStat.WRITTEN.ordinal()].increment();
+				}
+			}
+			// on any failed statement, the snapshot stays forgotten, so the next save is a full one
+			if(statements.size()==0)
+				snapshot.hashes=newHashes;
+			else
+			if((DB.updateWithClobs(statements)>=0)&&(!duplicates))
+				snapshot.hashes=newHashes;
+		}
+	}
+
+	/**
+	 * Forgets what was last written for the given owner, so that its next
+	 * save re-writes all of its rows.
+	 * @param owner the value of the owner field of the rows
+	 */
+	public void forget(final String owner)
+	{
+		if(owner==null)
+			return;
+		final Snapshot snapshot=snapshots.remove(owner.toUpperCase());
+		if(snapshot!=null)
+		{
+			synchronized(snapshot)
+			{
+				snapshot.hashes=null;
+			}
+		}
+	}
+
+	/**
+	 * Forgets what was last written for every owner.
+	 */
+	public void forgetAll()
+	{
+		for(final String owner : new XVector<String>(snapshots.keySet()))
+			forget(owner);
+	}
+
+	/**
+	 * Returns one of the counters kept by this tracker.
+	 * @param stat the counter to return
+	 * @return the value of the counter
+	 */
+	public long getCount(final RowSaveStat stat)
+	{
+		return counters[stat.ordinal()].sum();
+	}
+}
@@ -43,11 +43,19 @@ public class MOBloader
 {
 	protected DBConnector DB=null;
 
+	protected final DBRowTracker	itemRows	= new DBRowTracker("CMCHIT","CMUSERID","CMITNM");
+	protected final DBRowTracker	abilityRows	= new DBRowTracker("CMCHAB","CMUSERID","CMABID");
+
 	public MOBloader(DBConnector newDB)
 	{
 		DB=newDB;
 	}
 
+	public long getRowSaveCount(final DatabaseEngine.RowSaveStat stat)
+	{
+		return itemRows.getCount(stat) + abilityRows.getCount(stat);
+	}
+
 	protected Room emptyRoom=null;
 
 	public MOB DBReadUserOnly(String name, final String[] locationID)
@@ -238,6 +246,8 @@ public class MOBloader
 		final String[] oldLocID=new String[1];
 		if(CMLib.players().getPlayer(name)!=null)
 			return CMLib.players().getPlayer(name);
+		itemRows.forget(name);
+		abilityRows.forget(name);
 		final MOB mob=DBReadUserOnly(name,oldLocID);
 		if(mob == null)
 			return null;
@@ -1154,10 +1164,10 @@ public class MOBloader
 		+thisItem.basePhyStats().height()+")";
 	}
 
-	private List<DBPreparedBatchEntry> getDBItemUpdateStrings(MOB mob)
+	private PairList<String,DBPreparedBatchEntry> getDBItemUpdateStrings(MOB mob)
 	{
 		final HashSet<String> done=new HashSet<String>();
-		final List<DBPreparedBatchEntry> strings=new LinkedList<DBPreparedBatchEntry>();
+		final PairList<String,DBPreparedBatchEntry> strings=new PairVector<String,DBPreparedBatchEntry>();
 		for(int i=0;i<mob.numItems();i++)
 		{
 			final Item thisItem=mob.getItem(i);
@@ -1165,7 +1175,7 @@ public class MOBloader
 			{
 				CMLib.catalog().updateCatalogIntegrity(thisItem);
 				final String sql=getDBItemUpdateString(mob,thisItem);
-				strings.add(new DBPreparedBatchEntry(sql,thisItem.text()+" "));
+				strings.add(""+thisItem,new DBPreparedBatchEntry(sql,thisItem.text()+" "));
 				done.add(""+thisItem);
 			}
 		}
@@ -1206,7 +1216,7 @@ public class MOBloader
 					final String roomID=((cont.owner()==null)&&(thisItem instanceof SpaceObject)&&(CMLib.map().isObjectInSpace((SpaceObject)thisItem)))?
 							("SPACE."+CMParms.toListString(((SpaceObject)thisItem).coordinates())):CMLib.map().getExtendedRoomID((Room)cont.owner());
 					final String text="<ROOM ID=\""+roomID+"\" EXPIRE="+thisItem.expirationDate()+" />"+thisItem.text();
-					strings.add(new DBPreparedBatchEntry(sql,text));
+					strings.add(""+thisItem,new DBPreparedBatchEntry(sql,text));
 					done.add(""+thisItem);
 				}
 			}
@@ -1218,11 +1228,8 @@ public class MOBloader
 	{
 		if(mob.Name().length()==0)
 			return;
-		final List<DBPreparedBatchEntry> statements=new LinkedList<DBPreparedBatchEntry>();
 		String name=DB.injectionClean(mob.Name());
-		statements.add(new DBPreparedBatchEntry("DELETE FROM CMCHIT WHERE CMUSERID='"+name+"'"));
-		statements.addAll(getDBItemUpdateStrings(mob));
-		DB.updateWithClobs(statements);
+		itemRows.update(DB,name,getDBItemUpdateStrings(mob));
 	}
 
 	protected List<Pair<String,Integer>>[][] DBFindPrideWinners(int topThisMany, short scanCPUPercent, boolean players)
@@ -1418,6 +1425,10 @@ public class MOBloader
 			return;
 		oldName=DB.injectionClean(oldName);
 		newName=DB.injectionClean(newName);
+		itemRows.forget(oldName);
+		itemRows.forget(newName);
+		abilityRows.forget(oldName);
+		abilityRows.forget(newName);
 		DB.update("UPDATE CMCHAB SET CMUSERID='"+newName+"' WHERE CMUSERID='"+oldName+"'");
 		DB.update("UPDATE CMCHAR SET CMUSERID='"+newName+"' WHERE CMUSERID='"+oldName+"'");
 		DB.update("UPDATE CMCHAR SET CMWORS='"+newName+"' WHERE CMWORS='"+oldName+"'");
@@ -1442,8 +1453,7 @@ public class MOBloader
 	{
 		if(mob.Name().length()==0)
 			return;
-		final List<DBPreparedBatchEntry> statements=new LinkedList<DBPreparedBatchEntry>();
-		statements.add(new DBPreparedBatchEntry("DELETE FROM CMCHAB WHERE CMUSERID='"+mob.Name()+"'"));
+		final PairList<String,DBPreparedBatchEntry> statements=new PairVector<String,DBPreparedBatchEntry>();
 		final HashSet<String> H=new HashSet<String>();
 		for(int a=0;a<mob.numAbilities();a++)
 		{
@@ -1460,7 +1470,7 @@ public class MOBloader
 				H.add(thisAbility.ID());
 				final String sql="INSERT INTO CMCHAB (CMUSERID, CMABID, CMABPF,CMABTX"
 				+") values ('"+mob.Name()+"','"+thisAbility.ID()+"',"+proficiency+",?)";
-				statements.add(new DBPreparedBatchEntry(sql,thisAbility.text()));
+				statements.add(thisAbility.ID(),new DBPreparedBatchEntry(sql,thisAbility.text()));
 			}
 		}
 		for(final Enumeration<Ability> a=mob.personalEffects();a.hasMoreElements();)
@@ -1470,7 +1480,7 @@ public class MOBloader
 			{
 				final String sql="INSERT INTO CMCHAB (CMUSERID, CMABID, CMABPF,CMABTX"
 				+") values ('"+mob.Name()+"','"+A.ID()+"',"+Integer.MAX_VALUE+",?)";
-				statements.add(new DBPreparedBatchEntry(sql,A.text()));
+				statements.add(A.ID(),new DBPreparedBatchEntry(sql,A.text()));
 			}
 		}
 		for(final Enumeration<Behavior> e=mob.behaviors();e.hasMoreElements();)
@@ -1481,7 +1491,7 @@ public class MOBloader
 				final String sql="INSERT INTO CMCHAB (CMUSERID, CMABID, CMABPF,CMABTX"
 				+") values ('"+mob.Name()+"','"+B.ID()+"',"+(Integer.MIN_VALUE+1)+",?"
 				+")";
-				statements.add(new DBPreparedBatchEntry(sql,B.getParms()));
+				statements.add(B.ID(),new DBPreparedBatchEntry(sql,B.getParms()));
 			}
 		}
 		final String scriptStuff = CMLib.coffeeMaker().getGenScripts(mob,true);
@@ -1490,10 +1500,9 @@ public class MOBloader
 			final String sql="INSERT INTO CMCHAB (CMUSERID, CMABID, CMABPF,CMABTX"
 			+") values ('"+mob.Name()+"','ScriptingEngine',"+(Integer.MIN_VALUE+1)+",?"
 			+")";
-			statements.add(new DBPreparedBatchEntry(sql,scriptStuff));
+			statements.add("ScriptingEngine",new DBPreparedBatchEntry(sql,scriptStuff));
 		}
-
-		DB.updateWithClobs(statements);
+		abilityRows.update(DB,mob.Name(),statements);
 	}
 
 	public void DBCreateCharacter(MOB mob)
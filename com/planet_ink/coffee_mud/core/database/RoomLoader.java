@@ -41,10 +41,18 @@ public class RoomLoader
 	private int				currentRecordPos	= 1;
 	private int				updateBreak			= 1;
 
+	protected final DBRowTracker	itemRows	= new DBRowTracker("CMROIT","CMROID","CMITNM");
+	protected final DBRowTracker	mobRows		= new DBRowTracker("CMROCH","CMROID","CMCHNM");
+
 	public RoomLoader(DBConnector newDB)
 	{
 		DB=newDB;
 	}
+
+	public long getRowSaveCount(final DatabaseEngine.RowSaveStat stat)
+	{
+		return itemRows.getCount(stat) + mobRows.getCount(stat);
+	}
 	
 	private final static String zeroes="000000000000";
 
@@ -56,6 +64,17 @@ public class RoomLoader
 		public Hashtable<String,Hashtable<MOB, String>> mobRides=new Hashtable<String,Hashtable<MOB, String>>();
 	}
 
+	protected static class ExitRow
+	{
+		public String	roomID;
+		public int		direction;
+		public String	exitID;
+		public String	text;
+		public String	nextRoomID;
+		public Exit		exit	= null;
+		public boolean	built	= false;
+	}
+
 	public String DBIsAreaName(String name)
 	{
 		DBConnection D=null;
@@ -393,6 +412,36 @@ public class RoomLoader
 		return null;
 	}
 
+	public Room DBReadRoomAndContent(String roomIDtoLoad, Area area)
+	{
+		DBConnection D=null;
+		try
+		{
+			D=DB.DBFetch();
+			final ResultSet R=D.query("SELECT * FROM CMROOM WHERE CMROID='"+roomIDtoLoad+"'");
+			final List<Room> rooms=buildRoomObjects(D,R,false);
+			if(rooms.size()==0)
+				return null;
+			final Room room=rooms.get(0);
+			room.setArea(area);
+			area.addProperRoom(room);
+			final Map<String,Room> map=new TreeMap<String,Room>();
+			map.put(room.roomID(), room);
+			DBReadRoomExits(D,room.roomID(),map,false,null);
+			DBReadContent(D,room.roomID(),room,null,null,false,true);
+			return room;
+		}
+		catch(final SQLException sqle)
+		{
+			Log.errOut("Room",sqle);
+		}
+		finally
+		{
+			DB.DBDone(D);
+		}
+		return null;
+	}
+
 	public Map<String,Room> DBReadRoomData(String singleRoomIDtoLoad,
 										   RoomnumberSet roomsToLoad,
 										   boolean reportStatus,
@@ -490,127 +539,26 @@ public class RoomLoader
 	}
 
 	public void DBReadRoomExits(String roomID, Map<String, Room> allRooms, boolean reportStatus, RoomnumberSet unloadedRooms)
+	{
+		DBReadRoomExits(null,roomID,allRooms,reportStatus,unloadedRooms);
+	}
+
+	protected void DBReadRoomExits(final DBConnection sharedD, String roomID, Map<String, Room> allRooms, boolean reportStatus, RoomnumberSet unloadedRooms)
 	{
 		DBConnection D=null;
 		// now grab the exits
 		try
 		{
-			D=DB.DBFetch();
+			D=(sharedD!=null)?sharedD:DB.DBFetch();
 			if(reportStatus)
 				CMProps.setUpLowVar(CMProps.Str.MUDSTATUS,"Booting: Counting Exits");
 			final ResultSet R=D.query("SELECT * FROM CMROEX"+((roomID==null)?"":" WHERE CMROID='"+roomID+"'"));
-			Room thisRoom=null;
-			Room newRoom=null;
 			recordCount=DB.getRecordCount(D,R);
 			updateBreak=CMath.s_int("1"+zeroes.substring(0,(""+(recordCount/100)).length()-1));
 			while(R.next())
 			{
 				currentRecordPos=R.getRow();
-				roomID=DBConnections.getRes(R,"CMROID");
-				final int direction=(int)DBConnections.getLongRes(R,"CMDIRE");
-				thisRoom=allRooms.get(roomID);
-				if(thisRoom==null)
-				{
-					if((unloadedRooms!=null)&&(!unloadedRooms.contains(roomID)))
-						Log.errOut("Room","Couldn't set "+direction+" exit for unknown room '"+roomID+"'");
-				}
-				else
-				{
-					final String exitID=DBConnections.getRes(R,"CMEXID");
-					final String exitMiscText=DBConnections.getResQuietly(R,"CMEXTX");
-					final String nextRoomID=DBConnections.getRes(R,"CMNRID");
-					newRoom=allRooms.get(nextRoomID);
-					final Exit newExit=CMClass.getExit(exitID);
-					if(nextRoomID.length()==0)
-					{
-						/* this is likely a room link (rebuilt by import at a later time) */
-					}
-					else
-					if(newRoom==null)
-					{
-						final int x=nextRoomID.indexOf('#');
-						Area otherA=null;
-						if((unloadedRooms!=null)&&(unloadedRooms.contains(nextRoomID)))
-							otherA=thisRoom.getArea();
-						else
-						if(x>0)
-						{
-							otherA=CMLib.map().getArea(nextRoomID.substring(0,x));
-							if((otherA!=null)&&(otherA!=thisRoom.getArea()))
-								newRoom=otherA.getRoom(nextRoomID);
-						}
-						if(newRoom!=null)
-						{
-							/* its all worked out now */
-						}
-						else
-						if(otherA==null)
-							Log.errOut("RoomLoader","Unknown area for unlinked room #"+nextRoomID+" in "+roomID);
-						else
-						if(((unloadedRooms!=null)&&(unloadedRooms.contains(nextRoomID)))
-						||(CMath.bset(otherA.flags(),Area.FLAG_THIN)))
-						{
-							newRoom=CMClass.getLocale("ThinRoom");
-							newRoom.setRoomID(nextRoomID);
-							newRoom.setArea(otherA);
-						}
-						else
-						if(!nextRoomID.startsWith("#"))
-							Log.errOut("RoomLoader","Unknown unlinked room #"+nextRoomID);
-						else
-						if(newExit!=null)
-							newExit.setTemporaryDoorLink(nextRoomID);
-					}
-
-					if((newExit==null)&&(newRoom==null))
-						Log.errOut("Room",roomID+":no room&exit to '"+nextRoomID+"', exit type '"+exitID+"', direction: "+direction);
-					else
-					if((direction>255)&&(!(thisRoom instanceof GridLocale)))
-						Log.errOut("Room","Not GridLocale, tried "+direction+" exit for room '"+roomID+"'");
-					else
-					if((direction>255)&&(newRoom!=null))
-					{
-						final List<String> CEs=CMParms.parseSemicolons(exitMiscText.trim(),true);
-						for(int ces=0;ces<CEs.size();ces++)
-						{
-							final Vector<String> SCE=CMParms.parse(CEs.get(ces).trim());
-							final GridLocale.CrossExit CE=new GridLocale.CrossExit();
-							if(SCE.size()<3)
-								continue;
-							CE.x=CMath.s_int(SCE.elementAt(0));
-							CE.y=CMath.s_int(SCE.elementAt(1));
-							final int codeddir=CMath.s_int(SCE.elementAt(2));
-							if(SCE.size()>=4)
-								CE.destRoomID=newRoom.roomID()+SCE.elementAt(3);
-							else
-								CE.destRoomID=newRoom.roomID();
-							CE.out=(codeddir&256)==256;
-							CE.dir=codeddir&255;
-							((GridLocale)thisRoom).addOuterExit(CE);
-							if((!CE.out)&&(!(newRoom instanceof GridLocale)))
-							{
-								newRoom.rawDoors()[CE.dir]=thisRoom;
-								newRoom.setRawExit(CE.dir,CMClass.getExit("Open"));
-							}
-						}
-					}
-					else
-					{
-						if(newExit!=null)
-						{
-							newExit.setTemporaryDoorLink("{{#"+roomID+"#}}");
-							newExit.setMiscText(exitMiscText);
-						}
-						if(direction>=Directions.NUM_DIRECTIONS())
-							Log.errOut("RoomLoader",CMLib.map().getExtendedRoomID(thisRoom)+" has an invalid direction #"+direction);
-						else
-						{
-							thisRoom.rawDoors()[direction]=newRoom;
-							thisRoom.setRawExit(direction,newExit);
-							CMLib.map().registerWorldObjectLoaded(thisRoom.getArea(), newRoom, newExit);
-						}
-					}
-				}
+				linkRoomExit(readExitRow(R),allRooms,unloadedRooms);
 				if(reportStatus&&((currentRecordPos%updateBreak)==0))
 					CMProps.setUpLowVar(CMProps.Str.MUDSTATUS,"Booting: Loading Exits ("+currentRecordPos+" of "+recordCount+")");
 			}
@@ -621,7 +569,134 @@ public class RoomLoader
 		}
 		finally
 		{
-			DB.DBDone(D);
+			if(D!=sharedD)
+				DB.DBDone(D);
+		}
+	}
+
+	protected ExitRow readExitRow(ResultSet R) throws SQLException
+	{
+		final ExitRow row=new ExitRow();
+		row.roomID=DBConnections.getRes(R,"CMROID");
+		row.direction=(int)DBConnections.getLongRes(R,"CMDIRE");
+		row.exitID=DBConnections.getRes(R,"CMEXID");
+		row.text=DBConnections.getResQuietly(R,"CMEXTX");
+		row.nextRoomID=DBConnections.getRes(R,"CMNRID");
+		return row;
+	}
+
+	protected void linkRoomExit(ExitRow row, Map<String, Room> allRooms, RoomnumberSet unloadedRooms)
+	{
+		final String roomID=row.roomID;
+		final int direction=row.direction;
+		final Room thisRoom=allRooms.get(roomID);
+		Room newRoom=null;
+		if(thisRoom==null)
+		{
+			if((unloadedRooms!=null)&&(!unloadedRooms.contains(roomID)))
+				Log.errOut("Room","Couldn't set "+direction+" exit for unknown room '"+roomID+"'");
+		}
+		else
+		{
+			final String exitID=row.exitID;
+			final String exitMiscText=row.text;
+			final String nextRoomID=row.nextRoomID;
+			newRoom=allRooms.get(nextRoomID);
+			final Exit newExit=row.built?row.exit:CMClass.getExit(exitID);
+			if(nextRoomID.length()==0)
+			{
+				/* this is likely a room link (rebuilt by import at a later time) */
+			}
+			else
+			if(newRoom==null)
+			{
+				final int x=nextRoomID.indexOf('#');
+				Area otherA=null;
+				if((unloadedRooms!=null)&&(unloadedRooms.contains(nextRoomID)))
+					otherA=thisRoom.getArea();
+				else
+				if(x>0)
+				{
+					otherA=CMLib.map().getArea(nextRoomID.substring(0,x));
+					// rooms in thin areas are linked as ThinRoom stand-ins below, and read when first
+					// walked into, so that loading one room never waits on the load of another
+					if((otherA!=null)
+					&&(otherA!=thisRoom.getArea())
+					&&(!CMath.bset(otherA.flags(),Area.FLAG_THIN)))
+						newRoom=otherA.getRoom(nextRoomID);
+				}
+				if(newRoom!=null)
+				{
+					/* its all worked out now */
+				}
+				else
+				if(otherA==null)
+					Log.errOut("RoomLoader","Unknown area for unlinked room #"+nextRoomID+" in "+roomID);
+				else
+				if(((unloadedRooms!=null)&&(unloadedRooms.contains(nextRoomID)))
+				||(CMath.bset(otherA.flags(),Area.FLAG_THIN)))
+				{
+					newRoom=CMClass.getLocale("ThinRoom");
+					newRoom.setRoomID(nextRoomID);
+					newRoom.setArea(otherA);
+				}
+				else
+				if(!nextRoomID.startsWith("#"))
+					Log.errOut("RoomLoader","Unknown unlinked room #"+nextRoomID);
+				else
+				if((newExit!=null)&&(!row.built)) // a built exit already has the text that would replace this
+					newExit.setTemporaryDoorLink(nextRoomID);
+			}
+
+			if((newExit==null)&&(newRoom==null))
+				Log.errOut("Room",roomID+":no room&exit to '"+nextRoomID+"', exit type '"+exitID+"', direction: "+direction);
+			else
+			if((direction>255)&&(!(thisRoom instanceof GridLocale)))
+				Log.errOut("Room","Not GridLocale, tried "+direction+" exit for room '"+roomID+"'");
+			else
+			if((direction>255)&&(newRoom!=null))
+			{
+				final List<String> CEs=CMParms.parseSemicolons(exitMiscText.trim(),true);
+				for(int ces=0;ces<CEs.size();ces++)
+				{
+					final Vector<String> SCE=CMParms.parse(CEs.get(ces).trim());
+					final GridLocale.CrossExit CE=new GridLocale.CrossExit();
+					if(SCE.size()<3)
+						continue;
+					CE.x=CMath.s_int(SCE.elementAt(0));
+					CE.y=CMath.s_int(SCE.elementAt(1));
+					final int codeddir=CMath.s_int(SCE.elementAt(2));
+					if(SCE.size()>=4)
+						CE.destRoomID=newRoom.roomID()+SCE.elementAt(3);
+					else
+						CE.destRoomID=newRoom.roomID();
+					CE.out=(codeddir&256)==256;
+					CE.dir=codeddir&255;
+					((GridLocale)thisRoom).addOuterExit(CE);
+					if((!CE.out)&&(!(newRoom instanceof GridLocale)))
+					{
+						newRoom.rawDoors()[CE.dir]=thisRoom;
+						newRoom.setRawExit(CE.dir,CMClass.getExit("Open"));
+					}
+				}
+			}
+			else
+			{
+				if(newExit!=null)
+				{
+					newExit.setTemporaryDoorLink("{{#"+roomID+"#}}");
+					if(!row.built)
+						newExit.setMiscText(exitMiscText);
+				}
+				if(direction>=Directions.NUM_DIRECTIONS())
+					Log.errOut("RoomLoader",CMLib.map().getExtendedRoomID(thisRoom)+" has an invalid direction #"+direction);
+				else
+				{
+					thisRoom.rawDoors()[direction]=newRoom;
+					thisRoom.setRawExit(direction,newExit);
+					CMLib.map().registerWorldObjectLoaded(thisRoom.getArea(), newRoom, newExit);
+				}
+			}
 		}
 	}
 
@@ -634,27 +709,34 @@ public class RoomLoader
 			return;
 
 		final RoomnumberSet unloadedRooms=(RoomnumberSet)CMClass.getCommon("DefaultRoomnumberSet");
-		final Map<String,Room> rooms=DBReadRoomData(null,set,set==null,newAreasToCreate,unloadedRooms);
-
-		// handle stray areas
-		for(final String areaName : newAreasToCreate)
+		final int bootThreads=(CMProps.getIntVar(CMProps.Int.BOOTTHREADS)>0)?CMProps.getIntVar(CMProps.Int.BOOTTHREADS):Runtime.getRuntime().availableProcessors();
+		final Map<String,Room> rooms;
+		if((set==null)&&(bootThreads>1))
+			rooms=new ShardedRoomLoader(this,DB,bootThreads).readAllRooms(unloadedRooms);
+		else
 		{
-			Log.sysOut("Area","Creating unhandled area: "+areaName);
-			final Area A=CMClass.getAreaType("StdArea");
-			A.setName(areaName);
-			DBCreate(A);
-			CMLib.map().addArea(A);
-			for(final Map.Entry<String,Room> entry : rooms.entrySet())
+			rooms=DBReadRoomData(null,set,set==null,newAreasToCreate,unloadedRooms);
+
+			// handle stray areas
+			for(final String areaName : newAreasToCreate)
 			{
-				final Room R=entry.getValue();
-				if(R.getArea().Name().equals(areaName))
-					R.setArea(A);
+				Log.sysOut("Area","Creating unhandled area: "+areaName);
+				final Area A=CMClass.getAreaType("StdArea");
+				A.setName(areaName);
+				DBCreate(A);
+				CMLib.map().addArea(A);
+				for(final Map.Entry<String,Room> entry : rooms.entrySet())
+				{
+					final Room R=entry.getValue();
+					if(R.getArea().Name().equals(areaName))
+						R.setArea(A);
+				}
 			}
-		}
 
-		DBReadRoomExits(null,rooms,set==null,unloadedRooms);
+			DBReadRoomExits(null,rooms,set==null,unloadedRooms);
 
-		DBReadContent(null,null,rooms,unloadedRooms,set==null,true);
+			DBReadContent(null,null,rooms,unloadedRooms,set==null,true);
+		}
 
 		if(set==null)
 			CMProps.setUpLowVar(CMProps.Str.MUDSTATUS,"Booting: Finalizing room data)");
@@ -765,7 +847,7 @@ public class RoomLoader
 		}
 	}
 
-	private void fixContentContainers(Hashtable<String,PhysicalAgent> content, StuffClass stuff, String roomID, Room room, boolean debug, boolean makeLive)
+	protected void fixContentContainers(Hashtable<String,PhysicalAgent> content, StuffClass stuff, String roomID, Room room, boolean debug, boolean makeLive)
 	{
 		String lastName=null;
 		Hashtable<Item,String> itemLocs=null;
@@ -856,6 +938,11 @@ public class RoomLoader
 	}
 	
 	public void DBReadContent(String thisRoomID, Room thisRoom, Map<String, Room> rooms, RoomnumberSet unloadedRooms, boolean setStatus, boolean makeLive)
+	{
+		DBReadContent(null,thisRoomID,thisRoom,rooms,unloadedRooms,setStatus,makeLive);
+	}
+
+	protected void DBReadContent(final DBConnection sharedD, String thisRoomID, Room thisRoom, Map<String, Room> rooms, RoomnumberSet unloadedRooms, boolean setStatus, boolean makeLive)
 	{
 		final boolean debug=Log.debugChannelOn()&&(CMSecurity.isDebugging(CMSecurity.DbgFlag.DBROOMPOP));
 		if(debug||(Log.debugChannelOn()&&(CMSecurity.isDebugging(CMSecurity.DbgFlag.DBROOMS))))
@@ -874,7 +961,7 @@ public class RoomLoader
 		// now grab the items
 		try
 		{
-			D=DB.DBFetch();
+			D=(sharedD!=null)?sharedD:DB.DBFetch();
 			if(setStatus)
 				CMProps.setUpLowVar(CMProps.Str.MUDSTATUS,"Booting: Counting Items");
 			final ResultSet R=D.query("SELECT * FROM CMROIT"+((thisRoomID==null)?"":" WHERE CMROID='"+thisRoomID+"'"));
@@ -967,13 +1054,14 @@ public class RoomLoader
 		}
 		finally
 		{
-			DB.DBDone(D);
+			if(D!=sharedD)
+				DB.DBDone(D);
 		}
 
 		// now grab the inhabitants
 		try
 		{
-			D=DB.DBFetch();
+			D=(sharedD!=null)?sharedD:DB.DBFetch();
 			if(setStatus)
 				CMProps.setUpLowVar(CMProps.Str.MUDSTATUS,"Booting: Counting MOBS");
 			final ResultSet R=D.query("SELECT * FROM CMROCH"+((thisRoomID==null)?"":" WHERE CMROID='"+thisRoomID+"'"));
@@ -1077,7 +1165,8 @@ public class RoomLoader
 		}
 		finally
 		{
-			DB.DBDone(D);
+			if(D!=sharedD)
+				DB.DBDone(D);
 		}
 		if(thisRoom!=null)
 		{
@@ -1237,6 +1326,7 @@ public class RoomLoader
 
 	public void DBCreateThisItem(String roomID, Item thisItem)
 	{
+		itemRows.forget(roomID);
 		DB.updateWithClobs(getDBCreateItemString(roomID,thisItem));
 	}
 
@@ -1246,15 +1336,14 @@ public class RoomLoader
 			return;
 		if(Log.debugChannelOn()&&(CMSecurity.isDebugging(CMSecurity.DbgFlag.CMROIT)||CMSecurity.isDebugging(CMSecurity.DbgFlag.DBROOMS)))
 			Log.debugOut("RoomLoader","Start item update for room "+room.roomID());
-		final List<DBPreparedBatchEntry> statements=new Vector<DBPreparedBatchEntry>();
-		statements.add(new DBPreparedBatchEntry("DELETE FROM CMROIT WHERE CMROID='"+room.roomID()+"'"));
+		final PairList<String,DBPreparedBatchEntry> statements=new PairVector<String,DBPreparedBatchEntry>();
 		for(int i=0;i<items.size();i++)
 		{
 			final Item thisItem=items.get(i);
 			CMLib.map().registerWorldObjectLoaded(room.getArea(), room, thisItem);
-			statements.add(getDBCreateItemString(room.roomID(),thisItem));
+			statements.add(""+thisItem,getDBCreateItemString(room.roomID(),thisItem));
 		}
-		DB.updateWithClobs(statements);
+		itemRows.update(DB,room.roomID(),statements);
 		if(Log.debugChannelOn()&&(CMSecurity.isDebugging(CMSecurity.DbgFlag.CMROIT)||CMSecurity.isDebugging(CMSecurity.DbgFlag.DBROOMS)))
 			Log.debugOut("RoomLoader","Finished items update for room "+room.roomID());
 	}
@@ -1357,6 +1446,7 @@ public class RoomLoader
 
 	public void DBCreateThisMOB(String roomID, MOB thisMOB)
 	{
+		mobRows.forget(roomID);
 		DB.updateWithClobs(getDBCreateMOBString(roomID,thisMOB));
 	}
 
@@ -1421,17 +1511,16 @@ public class RoomLoader
 			Log.debugOut("RoomLoader","Updating mobs for room "+room.roomID());
 		if(mobs==null)
 			mobs=new Vector<MOB>();
-		final List<DBPreparedBatchEntry> statements=new Vector<DBPreparedBatchEntry>();
-		statements.add(new DBPreparedBatchEntry("DELETE FROM CMROCH WHERE CMROID='"+room.roomID()+"'"));
+		final PairList<String,DBPreparedBatchEntry> statements=new PairVector<String,DBPreparedBatchEntry>();
 		for(int m=0;m<mobs.size();m++)
 		{
 			final MOB thisMOB=mobs.get(m);
 			CMLib.map().registerWorldObjectLoaded(room.getArea(), room, thisMOB);
-			statements.add(getDBCreateMOBString(room.roomID(),thisMOB));
+			statements.add(""+thisMOB,getDBCreateMOBString(room.roomID(),thisMOB));
 		}
 		if(Log.debugChannelOn()&&(CMSecurity.isDebugging(CMSecurity.DbgFlag.CMROCH)||CMSecurity.isDebugging(CMSecurity.DbgFlag.DBROOMS)))
 			Log.debugOut("RoomLoader","Done updating mobs for room "+room.roomID());
-		DB.updateWithClobs(statements);
+		mobRows.update(DB,room.roomID(),statements);
 	}
 
 	public void DBUpdateMOBs(Room room)
@@ -1486,6 +1575,10 @@ public class RoomLoader
 			return;
 		if(Log.debugChannelOn()&&(CMSecurity.isDebugging(CMSecurity.DbgFlag.CMROOM)||CMSecurity.isDebugging(CMSecurity.DbgFlag.DBROOMS)))
 			Log.debugOut("RoomLoader","Recreating room "+room.roomID());
+		itemRows.forget(oldID);
+		itemRows.forget(room.roomID());
+		mobRows.forget(oldID);
+		mobRows.forget(room.roomID());
 
 		DB.update(
 		"UPDATE CMROOM SET "
@@ -1596,6 +1689,7 @@ public class RoomLoader
 			keyName=""+item;
 		if(Log.debugChannelOn()&&(CMSecurity.isDebugging(CMSecurity.DbgFlag.CMROIT)||CMSecurity.isDebugging(CMSecurity.DbgFlag.DBROOMS)))
 			Log.debugOut("RoomLoader","Done updating item "+item.name()+" in room "+roomID);
+		itemRows.forget(roomID);
 		DB.update(
 		"DELETE FROM CMROIT "
 		+"WHERE CMROID='"+roomID+"' "
@@ -1624,6 +1718,7 @@ public class RoomLoader
 			keyName=""+mob;
 		if(Log.debugChannelOn()&&(CMSecurity.isDebugging(CMSecurity.DbgFlag.CMROCH)||CMSecurity.isDebugging(CMSecurity.DbgFlag.DBROOMS)))
 			Log.debugOut("RoomLoader","Done updating mob "+mob.name()+" in room "+roomID);
+		mobRows.forget(roomID);
 		DB.update(
 		"DELETE FROM CMROCH "
 		+"WHERE CMROID='"+roomID+"' "
@@ -1671,6 +1766,8 @@ public class RoomLoader
 
 	protected List<String> getRoomDeleteStrings(final String roomID)
 	{
+		itemRows.forget(roomID);
+		mobRows.forget(roomID);
 		return new XVector<String>(
 			"DELETE FROM CMROEX WHERE CMROID='"+roomID+"'",
 			"DELETE FROM CMROCH WHERE CMROID='"+roomID+"'",
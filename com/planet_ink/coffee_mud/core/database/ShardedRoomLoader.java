@@ -0,0 +1,569 @@
+package com.planet_ink.coffee_mud.core.database;
+
+import com.planet_ink.coffee_mud.core.interfaces.*;
+import com.planet_ink.coffee_mud.core.*;
+import com.planet_ink.coffee_mud.core.collections.*;
+import com.planet_ink.coffee_mud.core.database.RoomLoader.ExitRow;
+import com.planet_ink.coffee_mud.core.database.RoomLoader.StuffClass;
+import com.planet_ink.coffee_mud.core.threads.CMThreadFactory;
+import com.planet_ink.coffee_mud.Areas.interfaces.*;
+import com.planet_ink.coffee_mud.Common.interfaces.*;
+import com.planet_ink.coffee_mud.Exits.interfaces.*;
+import com.planet_ink.coffee_mud.Items.interfaces.*;
+import com.planet_ink.coffee_mud.Locales.interfaces.*;
+import com.planet_ink.coffee_mud.MOBS.interfaces.*;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+   Copyright 2026 agent
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+	   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+/**
+ * Loads every room of the world at boot, sharded by area across a pool of
+ * worker threads.  The boot thread fetches the rows of the room, exit,
+ * item, and mob tables into per-area shards.  While it is still fetching
+ * exits and content, the workers build the rooms of each area, and once
+ * everything is fetched, they build each area's exits, items, and mobs,
+ * which is where nearly all of the xml parsing happens.  Linking exits
+ * between rooms, which may cross areas, and putting items and mobs into
+ * their rooms, containers, and mounts, is then done back on the boot
+ * thread, in the same order as a sequential load would.
+ *
+ * Each phase is timed, and the timings are written to the boot log.
+ * @author agent
+ */
+public class ShardedRoomLoader
+{
+	protected final RoomLoader	loader;
+	protected final DBConnector	DB;
+	protected final int			numThreads;
+	protected final Object		areaLock	= new Object();
+
+	protected static class RoomRow
+	{
+		public String	roomID;
+		public String	localeID;
+		public String	areaName;
+		public String	displayText;
+		public String	description;
+		public String	text;
+	}
+
+	protected static class ItemRow
+	{
+		public String	roomID;
+		public String	itemNum;
+		public String	itemID;
+		public String	loc;
+		public String	text;
+		public int		rejuv;
+		public int		usesRemaining;
+		public int		level;
+		public int		ability;
+		public int		height;
+	}
+
+	protected static class MOBRow
+	{
+		public String	roomID;
+		public String	numID;
+		public String	mobID;
+		public String	text;
+		public int		level;
+		public int		ability;
+		public int		rejuv;
+		public String	ride;
+	}
+
+	protected static class AreaShard
+	{
+		public final Area				area;
+		public final List<RoomRow>		roomRows	= new ArrayList<RoomRow>();
+		public final List<ExitRow>		exitRows	= new ArrayList<ExitRow>();
+		public final List<ItemRow>		itemRows	= new ArrayList<ItemRow>();
+		public final List<MOBRow>		mobRows		= new ArrayList<MOBRow>();
+		public final Map<String,Room>	rooms		= new HashMap<String,Room>();
+		public final List<SpaceObject>	spaceObjs	= new ArrayList<SpaceObject>(1);
+		public final StuffClass			stuff		= new StuffClass();
+
+		public AreaShard(final Area area)
+		{
+			this.area=area;
+		}
+	}
+
+	/**
+	 * Creates a loader that will use the given number of worker threads.
+	 * @param loader the room loader whose linking methods will be used
+	 * @param DB the database to read from
+	 * @param numThreads the number of worker threads to build rooms with
+	 */
+	public ShardedRoomLoader(final RoomLoader loader, final DBConnector DB, final int numThreads)
+	{
+		this.loader=loader;
+		this.DB=DB;
+		this.numThreads=numThreads;
+	}
+
+	/**
+	 * Reads every room in the database, except those in thin areas, along
+	 * with their exits and content, and adds them to their areas.  The rooms
+	 * of thin areas are added to the given set instead.  Areas must already
+	 * have been read.
+	 * @param unloadedRooms the set to add the room ids of unloaded rooms to
+	 * @return the rooms loaded, by room id
+	 */
+	public Map<String,Room> readAllRooms(final RoomnumberSet unloadedRooms)
+	{
+		final long startTime=System.currentTimeMillis();
+		final Map<String,AreaShard> shards=new LinkedHashMap<String,AreaShard>();
+		final Map<String,AreaShard> roomShards=new HashMap<String,AreaShard>();
+		final List<ExitRow> exitRows=new ArrayList<ExitRow>();
+		final Map<String,Room> rooms=new TreeMap<String,Room>();
+		final ExecutorService pool=Executors.newFixedThreadPool(numThreads, new CMThreadFactory("BootLoader"));
+		try
+		{
+			CMProps.setUpLowVar(CMProps.Str.MUDSTATUS,"Booting: Fetching Rooms");
+			shardRooms(fetchRooms(),shards,roomShards,unloadedRooms);
+			final long roomFetchTime=System.currentTimeMillis();
+
+			final List<Future<?>> roomBuilds=new ArrayList<Future<?>>(shards.size());
+			for(final AreaShard shard : shards.values())
+			{
+				roomBuilds.add(pool.submit(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						buildRooms(shard);
+					}
+				}));
+			}
+
+			CMProps.setUpLowVar(CMProps.Str.MUDSTATUS,"Booting: Fetching Exits and Content");
+			fetchExits(exitRows,roomShards);
+			fetchItems(roomShards);
+			fetchMOBs(roomShards);
+			final long fetchTime=System.currentTimeMillis();
+
+			CMProps.setUpLowVar(CMProps.Str.MUDSTATUS,"Booting: Building Rooms");
+			waitFor(roomBuilds);
+			for(final AreaShard shard : shards.values())
+				rooms.putAll(shard.rooms);
+			final long roomTime=System.currentTimeMillis();
+
+			CMProps.setUpLowVar(CMProps.Str.MUDSTATUS,"Booting: Building Exits and Content");
+			final List<Future<?>> contentBuilds=new ArrayList<Future<?>>(shards.size());
+			for(final AreaShard shard : shards.values())
+			{
+				contentBuilds.add(pool.submit(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						buildExits(shard);
+						buildItems(shard);
+						buildMOBs(shard);
+					}
+				}));
+			}
+			waitFor(contentBuilds);
+			final long contentTime=System.currentTimeMillis();
+
+			CMProps.setUpLowVar(CMProps.Str.MUDSTATUS,"Booting: Linking Rooms");
+			for(final ExitRow row : exitRows)
+				loader.linkRoomExit(row,rooms,unloadedRooms);
+			for(final AreaShard shard : shards.values())
+			{
+				for(final SpaceObject O : shard.spaceObjs)
+					CMLib.map().addObjectToSpace(O, O.coordinates());
+			}
+			populateRooms(rooms,roomShards);
+			final long linkTime=System.currentTimeMillis();
+
+			Log.sysOut("RoomLoader","Loaded "+rooms.size()+" rooms in "+shards.size()+" areas with "+numThreads+" threads in "+(linkTime-startTime)+"ms: "
+					+"fetch "+(fetchTime-startTime)+"ms, "
+					+"rooms "+(roomTime-roomFetchTime)+"ms, "
+					+"content "+(contentTime-roomTime)+"ms, "
+					+"link "+(linkTime-contentTime)+"ms");
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		return rooms;
+	}
+
+	protected void waitFor(final List<Future<?>> builds)
+	{
+		for(final Future<?> build : builds)
+		{
+			try
+			{
+				build.get();
+			}
+			catch(final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return;
+			}
+			catch(final ExecutionException e)
+			{
+				Log.errOut("RoomLoader",e.getCause());
+			}
+		}
+	}
+
+	protected List<RoomRow> fetchRooms()
+	{
+		final List<RoomRow> rows=new ArrayList<RoomRow>();
+		DBConnection D=null;
+		try
+		{
+			D=DB.DBFetch();
+			final ResultSet R=D.query("SELECT * FROM CMROOM");
+			while(R.next())
+			{
+				final RoomRow row=new RoomRow();
+				row.roomID=DBConnections.getRes(R,"CMROID");
+				row.localeID=DBConnections.getRes(R,"CMLOID");
+				row.areaName=DBConnections.getRes(R,"CMAREA");
+				row.displayText=DBConnections.getRes(R,"CMDESC1");
+				if(CMProps.getBoolVar(CMProps.Bool.ROOMDNOCACHE))
+					row.description="";
+				else
+					row.description=DBConnections.getRes(R,"CMDESC2");
+				row.text=DBConnections.getRes(R,"CMROTX");
+				rows.add(row);
+			}
+		}
+		catch(final SQLException sqle)
+		{
+			Log.errOut("Room",sqle);
+		}
+		finally
+		{
+			DB.DBDone(D);
+		}
+		return rows;
+	}
+
+	protected void shardRooms(final List<RoomRow> rows, final Map<String,AreaShard> shards, final Map<String,AreaShard> roomShards, final RoomnumberSet unloadedRooms)
+	{
+		for(final RoomRow row : rows)
+		{
+			Area myArea=CMLib.map().getArea(row.areaName);
+			if(myArea==null)
+			{
+				Log.sysOut("Area","Creating unhandled area: "+row.areaName);
+				myArea=CMClass.getAreaType("StdArea");
+				myArea.setName(row.areaName);
+				loader.DBCreate(myArea);
+				CMLib.map().addArea(myArea);
+			}
+			myArea.addProperRoomnumber(row.roomID);
+			if(CMath.bset(myArea.flags(),Area.FLAG_THIN))
+			{
+				if(!unloadedRooms.contains(row.roomID))
+					unloadedRooms.add(row.roomID);
+				continue;
+			}
+			AreaShard shard=shards.get(myArea.Name());
+			if(shard==null)
+			{
+				shard=new AreaShard(myArea);
+				shards.put(myArea.Name(), shard);
+			}
+			shard.roomRows.add(row);
+			roomShards.put(row.roomID, shard);
+		}
+	}
+
+	protected void fetchExits(final List<ExitRow> exitRows, final Map<String,AreaShard> roomShards)
+	{
+		DBConnection D=null;
+		try
+		{
+			D=DB.DBFetch();
+			final ResultSet R=D.query("SELECT * FROM CMROEX");
+			while(R.next())
+			{
+				final ExitRow row=loader.readExitRow(R);
+				exitRows.add(row);
+				final AreaShard shard=roomShards.get(row.roomID);
+				if(shard!=null)
+					shard.exitRows.add(row);
+			}
+		}
+		catch(final SQLException sqle)
+		{
+			Log.errOut("Room",sqle);
+		}
+		finally
+		{
+			DB.DBDone(D);
+		}
+	}
+
+	protected void fetchItems(final Map<String,AreaShard> roomShards)
+	{
+		DBConnection D=null;
+		try
+		{
+			D=DB.DBFetch();
+			final ResultSet R=D.query("SELECT * FROM CMROIT");
+			while(R.next())
+			{
+				final String roomID=DBConnections.getRes(R,"CMROID");
+				if(roomID.startsWith("CATALOG_")||roomID.startsWith("SPACE"))
+					continue;
+				final AreaShard shard=roomShards.get(roomID);
+				if(shard==null)
+					continue;
+				final ItemRow row=new ItemRow();
+				row.roomID=roomID;
+				row.itemNum=DBConnections.getRes(R,"CMITNM");
+				row.itemID=DBConnections.getRes(R,"CMITID");
+				row.loc=DBConnections.getResQuietly(R,"CMITLO");
+				row.text=DBConnections.getResQuietly(R,"CMITTX");
+				row.rejuv=(int)DBConnections.getLongRes(R,"CMITRE");
+				row.usesRemaining=(int)DBConnections.getLongRes(R,"CMITUR");
+				row.level=(int)DBConnections.getLongRes(R,"CMITLV");
+				row.ability=(int)DBConnections.getLongRes(R,"CMITAB");
+				row.height=(int)DBConnections.getLongRes(R,"CMHEIT");
+				shard.itemRows.add(row);
+			}
+		}
+		catch(final SQLException sqle)
+		{
+			Log.errOut("Room",sqle);
+		}
+		finally
+		{
+			DB.DBDone(D);
+		}
+	}
+
+	protected void fetchMOBs(final Map<String,AreaShard> roomShards)
+	{
+		DBConnection D=null;
+		try
+		{
+			D=DB.DBFetch();
+			final ResultSet R=D.query("SELECT * FROM CMROCH");
+			while(R.next())
+			{
+				final String roomID=DBConnections.getRes(R,"CMROID");
+				if(roomID.startsWith("CATALOG_")||roomID.equals("SPACE"))
+					continue;
+				final AreaShard shard=roomShards.get(roomID);
+				if(shard==null)
+					continue;
+				final MOBRow row=new MOBRow();
+				row.roomID=roomID;
+				row.numID=DBConnections.getRes(R,"CMCHNM");
+				row.mobID=DBConnections.getRes(R,"CMCHID");
+				row.text=DBConnections.getResQuietly(R,"CMCHTX");
+				row.level=(int)DBConnections.getLongRes(R,"CMCHLV");
+				row.ability=(int)DBConnections.getLongRes(R,"CMCHAB");
+				row.rejuv=(int)DBConnections.getLongRes(R,"CMCHRE");
+				row.ride=DBConnections.getRes(R,"CMCHRI");
+				shard.mobRows.add(row);
+			}
+		}
+		catch(final SQLException sqle)
+		{
+			Log.errOut("Room",sqle);
+		}
+		finally
+		{
+			DB.DBDone(D);
+		}
+	}
+
+	protected void buildRooms(final AreaShard shard)
+	{
+		for(final RoomRow row : shard.roomRows)
+		{
+			final Room newRoom=CMClass.getLocale(row.localeID);
+			if(newRoom==null)
+				Log.errOut("Room","Couldn't load room '"+row.roomID+"', localeID '"+row.localeID+"'.");
+			else
+			{
+				newRoom.setRoomID(row.roomID);
+				// adding a room can reach into parent areas, which may be in other shards
+				synchronized(areaLock)
+				{
+					newRoom.setArea(shard.area);
+					CMLib.map().registerWorldObjectLoaded(shard.area, newRoom, newRoom);
+				}
+				newRoom.setDisplayText(row.displayText);
+				newRoom.setDescription(row.description);
+				newRoom.setMiscText(row.text);
+				shard.rooms.put(row.roomID,newRoom);
+			}
+		}
+	}
+
+	protected void buildExits(final AreaShard shard)
+	{
+		for(final ExitRow row : shard.exitRows)
+		{
+			// exits past the normal directions are grid cross-exit lists, not exit text
+			if((row.direction<Directions.NUM_DIRECTIONS())
+			&&(shard.rooms.containsKey(row.roomID)))
+			{
+				row.exit=CMClass.getExit(row.exitID);
+				if(row.exit!=null)
+					row.exit.setMiscText(row.text);
+				row.built=true;
+			}
+		}
+	}
+
+	protected Hashtable<String,PhysicalAgent> getItemNums(final StuffClass stuff, final String roomID)
+	{
+		Hashtable<String,PhysicalAgent> itemNums=stuff.itemNums.get("NUMSFOR"+roomID.toUpperCase());
+		if(itemNums==null)
+		{
+			itemNums=new Hashtable<String,PhysicalAgent>();
+			stuff.itemNums.put("NUMSFOR"+roomID.toUpperCase(),itemNums);
+		}
+		return itemNums;
+	}
+
+	protected void buildItems(final AreaShard shard)
+	{
+		for(final ItemRow row : shard.itemRows)
+		{
+			final Room room=shard.rooms.get(row.roomID);
+			if(room==null)
+				continue;
+			final Hashtable<String,PhysicalAgent> itemNums=getItemNums(shard.stuff,row.roomID);
+			Hashtable<Item,String> itemLocs=shard.stuff.itemLocs.get("LOCSFOR"+row.roomID.toUpperCase());
+			if(itemLocs==null)
+			{
+				itemLocs=new Hashtable<Item,String>();
+				shard.stuff.itemLocs.put("LOCSFOR"+row.roomID.toUpperCase(),itemLocs);
+			}
+			final Item newItem=CMClass.getItem(row.itemID);
+			if(newItem==null)
+				Log.errOut("Room","Couldn't find item '"+row.itemID+"' for room "+row.roomID);
+			else
+			{
+				newItem.setDatabaseID(row.itemNum);
+				itemNums.put(row.itemNum,newItem);
+				newItem.setOwner(room); // temporary measure to make sure item behavior thread group is properly assigned
+				if(row.loc.length()>0)
+				{
+					final PhysicalAgent container=itemNums.get(row.loc);
+					if(container instanceof Container)
+						newItem.setContainer((Container)container);
+					else
+						itemLocs.put(newItem,row.loc);
+				}
+				try
+				{
+					newItem.setMiscText(row.text);
+					if(newItem instanceof SpaceObject)
+						shard.spaceObjs.add((SpaceObject)newItem);
+					newItem.basePhyStats().setRejuv(row.rejuv);
+					newItem.setUsesRemaining(row.usesRemaining);
+					newItem.basePhyStats().setLevel(row.level);
+					newItem.basePhyStats().setAbility(row.ability);
+					newItem.basePhyStats().setHeight(row.height);
+					newItem.recoverPhyStats();
+				}
+				catch(final Exception e)
+				{
+					Log.errOut("RoomLoader",e);
+					itemNums.remove(row.itemNum);
+				}
+			}
+		}
+	}
+
+	protected void buildMOBs(final AreaShard shard)
+	{
+		for(final MOBRow row : shard.mobRows)
+		{
+			final Room room=shard.rooms.get(row.roomID);
+			if(room==null)
+				continue;
+			final Hashtable<String,PhysicalAgent> itemNums=getItemNums(shard.stuff,row.roomID);
+			Hashtable<MOB,String> mobRides=shard.stuff.mobRides.get("RIDESFOR"+row.roomID.toUpperCase());
+			if(mobRides==null)
+			{
+				mobRides=new Hashtable<MOB,String>();
+				shard.stuff.mobRides.put("RIDESFOR"+row.roomID.toUpperCase(),mobRides);
+			}
+			final MOB newMOB=CMClass.getMOB(row.mobID);
+			if(newMOB==null)
+				Log.errOut("Room","Couldn't find MOB '"+row.mobID+"'");
+			else
+			{
+				newMOB.setLocation(room); // temporary measure to make sure thread group is properly assigned
+				newMOB.setDatabaseID(row.numID);
+				itemNums.put(row.numID,newMOB);
+				try
+				{
+					if((CMProps.getBoolVar(CMProps.Bool.MOBNOCACHE))
+					&&(row.numID.indexOf(row.mobID+"@")>=0))
+						newMOB.setMiscText("%DBID>"+row.roomID+row.numID.substring(row.numID.indexOf('@')));
+					else
+						newMOB.setMiscText(row.text);
+					newMOB.basePhyStats().setLevel(row.level);
+					newMOB.basePhyStats().setAbility(row.ability);
+					newMOB.basePhyStats().setRejuv(row.rejuv);
+					if((row.ride!=null)&&(row.ride.length()>0))
+						mobRides.put(newMOB,row.ride);
+					if(newMOB instanceof SpaceObject)
+						shard.spaceObjs.add((SpaceObject)newMOB);
+					newMOB.recoverCharStats();
+					newMOB.recoverPhyStats();
+					newMOB.recoverMaxState();
+					newMOB.resetToMaxState();
+				}
+				catch (final Exception e)
+				{
+					Log.errOut("RoomLoader", e);
+					itemNums.remove(row.numID);
+				}
+			}
+		}
+	}
+
+	protected void populateRooms(final Map<String,Room> rooms, final Map<String,AreaShard> roomShards)
+	{
+		final boolean debug=Log.debugChannelOn()&&(CMSecurity.isDebugging(CMSecurity.DbgFlag.DBROOMPOP));
+		CMProps.setBoolAllVar(CMProps.Bool.POPULATIONSTARTED, true);
+		for(final Room room : rooms.values())
+		{
+			final AreaShard shard=roomShards.get(room.roomID());
+			if(shard==null)
+				continue;
+			if(debug)
+				Log.debugOut("RoomLoader","Populating room: "+room.roomID());
+			final Hashtable<String,PhysicalAgent> itemNums=shard.stuff.itemNums.get("NUMSFOR"+room.roomID().toUpperCase());
+			if(itemNums!=null)
+				loader.fixContentContainers(itemNums,shard.stuff,room.roomID(),room,debug,true);
+		}
+	}
+}
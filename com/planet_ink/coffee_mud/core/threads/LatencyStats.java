@@ -0,0 +1,121 @@
+package com.planet_ink.coffee_mud.core.threads;
+
+import java.util.Arrays;
+/*
+   Copyright 2026 agent
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+	   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+/**
+ * A fixed-size ring of the most recent timing samples, in whatever unit
+ * the caller likes, from which percentiles can be reported.  Recording a
+ * sample never allocates; only a report does.
+ * @author agent
+ */
+public class LatencyStats
+{
+	private final long[]	samples;
+	private int				next	= 0;
+	private int				size	= 0;
+	private long			total	= 0;
+	private long			max		= 0;
+
+	public LatencyStats(final int capacity)
+	{
+		samples=new long[(capacity<1)?1:capacity];
+	}
+
+	/**
+	 * Records a new sample, pushing out the oldest one if the ring is full.
+	 * @param value the sample
+	 */
+	public synchronized void add(long value)
+	{
+		if(value<0)
+			value=0;
+		samples[next]=value;
+		next=(next+1)%samples.length;
+		if(size<samples.length)
+			size++;
+		total++;
+		if(value>max)
+			max=value;
+	}
+
+	/**
+	 * Returns the given percentile, from 0 to 100, over the samples currently
+	 * in the ring, or 0 if there are none.
+	 * @param pct the percentile
+	 * @return the sample at that percentile
+	 */
+	public long percentile(final double pct)
+	{
+		final long[] sorted;
+		synchronized(this)
+		{
+			if(size==0)
+				return 0;
+			sorted=Arrays.copyOf(samples, size);
+		}
+		Arrays.sort(sorted);
+		int index=(int)Math.ceil((pct/100.0)*sorted.length)-1;
+		if(index<0)
+			index=0;
+		if(index>=sorted.length)
+			index=sorted.length-1;
+		return sorted[index];
+	}
+
+	/**
+	 * Returns the largest sample ever recorded
+	 * @return the largest sample ever recorded
+	 */
+	public synchronized long max()
+	{
+		return max;
+	}
+
+	/**
+	 * Returns the total number of samples ever recorded
+	 * @return the total number of samples ever recorded
+	 */
+	public synchronized long count()
+	{
+		return total;
+	}
+
+	/**
+	 * Answers a systemReport style stat request, where the code is one of
+	 * P50, P90, P99, MAX, or COUNT.
+	 * @param code the stat code
+	 * @return the stat value, or "" if the code is unknown
+	 */
+	public String report(final String code)
+	{
+		if(code.equalsIgnoreCase("MAX"))
+			return ""+max();
+		if(code.equalsIgnoreCase("COUNT"))
+			return ""+count();
+		if((code.length()>1)&&(Character.toUpperCase(code.charAt(0))=='P'))
+		{
+			try
+			{
+				return ""+percentile(Double.parseDouble(code.substring(1)));
+			}
+			catch(final NumberFormatException e)
+			{
+			}
+		}
+		return "";
+	}
+}
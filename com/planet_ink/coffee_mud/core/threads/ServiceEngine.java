@@ -54,7 +54,49 @@ public class ServiceEngine implements ThreadEngine
 	private final long 				globalStartTime		= System.currentTimeMillis();
 	private volatile CMRunnable[]	unsuspendedRunnables= null;
 	private volatile long			nextWakeAtTime		= 0;
-	private final List<CMRunnable>	schedTicks			= new LinkedList<CMRunnable>();
+	private final LatencyStats		schedulerLag		= new LatencyStats(1024);
+	private final LatencyStats		dispatchLatency		= new LatencyStats(1024);
+
+	private final PriorityQueue<CMRunnable> schedTicks	= new PriorityQueue<CMRunnable>(64, new Comparator<CMRunnable>()
+	{
+		@Override
+		public int compare(CMRunnable o1, CMRunnable o2)
+		{
+			final long t1=o1.getStartTime();
+			final long t2=o2.getStartTime();
+			return (t1<t2)?-1:((t1==t2)?0:1);
+		}
+	});
+
+	private final PriorityQueue<GroupWakeup> groupWakeups = new PriorityQueue<GroupWakeup>();
+	private final Map<TickableGroup,GroupWakeup> scheduledGroups = new IdentityHashMap<TickableGroup,GroupWakeup>();
+
+	/**
+	 * A scheduled wakeup time for a tick group.  A group has at most one live
+	 * wakeup, recorded in scheduledGroups; any other wakeup found in the queue
+	 * for that group is stale and is discarded.
+	 */
+	private static final class GroupWakeup implements Comparable<GroupWakeup>
+	{
+		private final TickableGroup group;
+		private final long			wakeTime;
+		private final long			dispatchTime;
+
+		private GroupWakeup(TickableGroup group, long wakeTime, long dispatchTime)
+		{
+			this.group=group;
+			this.wakeTime=wakeTime;
+			this.dispatchTime=dispatchTime;
+		}
+
+		@Override
+		public int compareTo(GroupWakeup o)
+		{
+			return (wakeTime<o.wakeTime)?-1:((wakeTime==o.wakeTime)?0:1);
+		}
+	}
+	protected final TickIndex		tickIndex			= new TickIndex();
+	private final Map<Long,TickableGroup> openTickGroups= new SHashtable<Long,TickableGroup>();
 
 	@Override
 	public String ID()
@@ -202,7 +244,7 @@ public class ServiceEngine implements ThreadEngine
 			{
 				final long myNextTime = System.currentTimeMillis() + ellapsedMs;
 				final char currentThreadId = Thread.currentThread().getThreadGroup().getName().charAt(0);
-				schedTicks.add(new CMRunnable()
+				schedTicks.offer(new CMRunnable()
 				{
 					@Override 
 					public void run() 
@@ -298,18 +340,82 @@ public class ServiceEngine implements ThreadEngine
 	protected void delTickGroup(TickableGroup tock)
 	{
 		allTicks.remove(tock);
+		synchronized(groupWakeups)
+		{
+			scheduledGroups.remove(tock);
+		}
+		final Long key=openTickGroupKey(tock.getThreadGroupName(),tock.getTickInterval());
+		if((key!=null)&&(openTickGroups.get(key)==tock))
+			openTickGroups.remove(key);
 		if(drivingThread!=null)
 			drivingThread.interrupt();
 	}
 
+	protected void indexTicker(TickableGroup tock, TickClient C)
+	{
+		tickIndex.add(tock, C);
+	}
+
+	protected void unindexTicker(TickableGroup tock, TickClient C)
+	{
+		tickIndex.remove(tock, C);
+	}
+
+	protected Long openTickGroupKey(final String threadGroupName, final long tickTime)
+	{
+		if((threadGroupName==null)||(threadGroupName.length()==0))
+			return null;
+		return Long.valueOf((((long)threadGroupName.charAt(0))<<48)|tickTime);
+	}
+
+	protected TickableGroup findOpenTickGroup(final char threadGroupNum, final long tickTime)
+	{
+		final Long key=Long.valueOf((((long)threadGroupNum)<<48)|tickTime);
+		final int maxObjects=getMaxObjectsPerThread();
+		final TickableGroup tock=openTickGroups.get(key);
+		if((tock!=null)
+		&&(tock.numTickers()>0)
+		&&(tock.numTickers()<maxObjects))
+			return tock;
+		for(final TickableGroup almostTock : allTicks)
+		{
+			if((almostTock.getTickInterval()==tickTime)
+			&&(!almostTock.isSolitaryTicker())
+			&&(almostTock.numTickers()>0)
+			&&(almostTock.numTickers()<maxObjects))
+			{
+				final String name = almostTock.getThreadGroupName();
+				if((name!=null)
+				&&(name.charAt(0)==threadGroupNum))
+				{
+					openTickGroups.put(key, almostTock);
+					return almostTock;
+				}
+			}
+		}
+		return null;
+	}
+
 	protected void addTickGroup(TickableGroup tock)
 	{
 		if(!allTicks.contains(tock))
 			allTicks.add(tock);
+		synchronized(groupWakeups)
+		{
+			if(!scheduledGroups.containsKey(tock))
+				scheduleGroupWakeup(tock, tock.getNextTickTime(), 0);
+		}
 		if(drivingThread!=null)
 			drivingThread.interrupt();
 	}
 
+	private void scheduleGroupWakeup(TickableGroup tock, long wakeTime, long dispatchTime)
+	{
+		final GroupWakeup wakeup=new GroupWakeup(tock, wakeTime, dispatchTime);
+		scheduledGroups.put(tock, wakeup);
+		groupWakeups.offer(wakeup);
+	}
+
 	@Override
 	public TickClient startTickDown(Tickable E, int tickID, int numTicks)
 	{
@@ -322,69 +428,79 @@ public class ServiceEngine implements ThreadEngine
 		return startTickDown(CMLib.map().getOwnedThreadGroup(E),E,tickID,TICK_TIME,numTicks);
 	}
 
-	public synchronized TickClient startTickDown(ThreadGroup group, Tickable E, int tickID, long tickTime, int numTicks)
+	public TickClient startTickDown(ThreadGroup group, Tickable E, int tickID, long tickTime, int numTicks)
 	{
-		TickableGroup tock=null;
 		if(group==null)
 			group=Thread.currentThread().getThreadGroup();
 		final char threadGroupNum=group.getName().charAt(0);
-		for(final TickableGroup almostTock : allTicks)
+		synchronized(tickIndex.lock(E))
 		{
-			if(almostTock.contains(E,tickID))
+			boolean foundOne=false;
+			for(final TickIndex.Entry entry : tickIndex.get(E))
 			{
-				for(final Iterator<TickClient> set=almostTock.getTickSet(E,tickID);set.hasNext();)
-					set.next().setSuspended(false);
-				return null;
+				if((tickID<0)||(entry.client.getTickID()==tickID))
+				{
+					entry.client.setSuspended(false);
+					foundOne=true;
+				}
 			}
-			if((tock==null)
-			&&(almostTock.getTickInterval()==tickTime)
-			&&(!almostTock.isSolitaryTicker())
-			&&(almostTock.numTickers()<getMaxObjectsPerThread()))
+			if(foundOne)
+				return null;
+			final boolean isSolitary = ((tickID&Tickable.TICKID_SOLITARYMASK)==Tickable.TICKID_SOLITARYMASK);
+			final TickClient newC=new StdTickClient(E,numTicks,tickID);
+			if(!isSolitary)
 			{
-				final String name = almostTock.getThreadGroupName();
-				if((name!=null)
-				&&(name.charAt(0)==threadGroupNum))
-					tock=almostTock;
+				synchronized(openTickGroups)
+				{
+					final TickableGroup tock=findOpenTickGroup(threadGroupNum, tickTime);
+					if(tock!=null)
+					{
+						tock.addTicker(newC);
+						return newC;
+					}
+				}
 			}
-		}
-		final boolean isSolitary = ((tickID&Tickable.TICKID_SOLITARYMASK)==Tickable.TICKID_SOLITARYMASK);
-		if((tock==null)||isSolitary)
-		{
-			tock=new StdTickGroup(this, tickTime, Thread.currentThread().getThreadGroup().getName(), isSolitary);
+			final TickableGroup tock=new StdTickGroup(this, tickTime, Thread.currentThread().getThreadGroup().getName(), isSolitary);
+			tock.addTicker(newC);
 			addTickGroup(tock);
+			if(!isSolitary)
+			{
+				final Long key=openTickGroupKey(tock.getThreadGroupName(), tickTime);
+				if(key!=null)
+					openTickGroups.put(key, tock);
+			}
+			return newC;
 		}
-
-		final TickClient newC=new StdTickClient(E,numTicks,tickID);
-		tock.addTicker(newC);
-		return newC;
 	}
 
 	@Override
-	public synchronized boolean deleteTick(Tickable E, int tickID)
+	public boolean deleteTick(Tickable E, int tickID)
 	{
 		boolean foundOne=false;
-		for(final TickableGroup almostTock : allTicks)
+		synchronized(tickIndex.lock(E))
 		{
-			final Iterator<TickClient> set=almostTock.getTickSet(E,tickID);
-			foundOne = foundOne || set.hasNext();
-			for(;set.hasNext();)
-				almostTock.delTicker(set.next());
+			for(final TickIndex.Entry entry : tickIndex.get(E))
+			{
+				if((tickID<0)||(entry.client.getTickID()==tickID))
+				{
+					foundOne=true;
+					entry.group.delTicker(entry.client);
+				}
+			}
 		}
 		return foundOne;
 	}
 
 	@Override
-	public synchronized boolean setTickPending(Tickable E, int tickID)
+	public boolean setTickPending(Tickable E, int tickID)
 	{
 		boolean foundOne=false;
-		for(final TickableGroup almostTock : allTicks)
+		for(final TickIndex.Entry entry : tickIndex.get(E))
 		{
-			final Iterator<TickClient> set=almostTock.getTickSet(E,tickID);
-			foundOne = foundOne || set.hasNext();
-			for(;set.hasNext();)
+			if((tickID<0)||(entry.client.getTickID()==tickID))
 			{
-				final TickClient C = set.next();
-				C.setCurrentTickDownPending();
+				foundOne=true;
+				entry.client.setCurrentTickDownPending();
 			}
 		}
 		return foundOne;
@@ -393,30 +509,16 @@ public class ServiceEngine implements ThreadEngine
 	@Override
 	public long msToNextTick(Tickable E, int tickID)
 	{
-		for(final Iterator<TickableGroup> e=tickGroups();e.hasNext();)
-		{
-			final TickableGroup almostTock=e.next();
-			final Iterator<TickClient> set=almostTock.getTickSet(E,tickID);
-			if(set.hasNext())
-			{
-				TickClient client = set.next();
-				return client.getTimeMSToNextTick();
-			}
-		}
+		final TickIndex.Entry entry=tickIndex.find(E, tickID);
+		if(entry!=null)
+			return entry.client.getTimeMSToNextTick();
 		return -1;
 	}
 
 	@Override
 	public boolean isTicking(Tickable E, int tickID)
 	{
-		for(final Iterator<TickableGroup> e=tickGroups();e.hasNext();)
-		{
-			final TickableGroup almostTock=e.next();
-			final Iterator<TickClient> set=almostTock.getTickSet(E,tickID);
-			if(set.hasNext())
-				return true;
-		}
-		return false;
+		return tickIndex.find(E, tickID)!=null;
 	}
 
 	@Override
@@ -453,11 +555,10 @@ public class ServiceEngine implements ThreadEngine
 
 	protected boolean suspendResumeTicking(Tickable E, int tickID, boolean suspend)
 	{
-		for(final Iterator<TickableGroup> e=tickGroups();e.hasNext();)
+		for(final TickIndex.Entry entry : tickIndex.get(E))
 		{
-			final TickableGroup almostTock=e.next();
-			for(final Iterator<TickClient> set=almostTock.getTickSet(E,tickID);set.hasNext();)
-				set.next().setSuspended(suspend);
+			if((tickID<0)||(entry.client.getTickID()==tickID))
+				entry.client.setSuspended(suspend);
 		}
 		return false;
 	}
@@ -465,24 +566,32 @@ public class ServiceEngine implements ThreadEngine
 	@Override
 	public boolean isSuspended(Tickable E, int tickID)
 	{
-		for(final Iterator<TickableGroup> e=tickGroups();e.hasNext();)
-		{
-			final TickableGroup almostTock=e.next();
-			final Iterator<TickClient> set=almostTock.getTickSet(E,tickID);
-			if(set.hasNext() && set.next().isSuspended())
-				return true;
-		}
-		return false;
+		final TickIndex.Entry entry=tickIndex.find(E, tickID);
+		return (entry!=null) && entry.client.isSuspended();
 	}
 
 	@Override
 	public String systemReport(final String itemCode)
 	{
+		if(itemCode.equalsIgnoreCase("tickindexsize"))
+			return ""+tickIndex.size();
+		else
+		if(itemCode.toLowerCase().startsWith("schedulerlag"))
+			return schedulerLag.report(itemCode.substring("schedulerlag".length()));
+		else
+		if(itemCode.toLowerCase().startsWith("dispatchlatency"))
+			return dispatchLatency.report(itemCode.substring("dispatchlatency".length()));
+
 		long totalMOBMillis=0;
 		long totalMOBTicks=0;
 		long topMOBMillis=0;
 		long topMOBTicks=0;
 		MOB topMOBClient=null;
+		long totalOutputQueued=0;
+		long totalOutputSent=0;
+		long totalOutputDropped=0;
+		int topOutputQueued=0;
+		MOB topOutputClient=null;
 		for(final Session S : CMLib.sessions().localOnlineIterable())
 		{
 			totalMOBMillis+=S.getTotalMillis();
@@ -493,6 +602,34 @@ public class ServiceEngine implements ThreadEngine
 				topMOBTicks=S.getTotalTicks();
 				topMOBClient=S.mob();
 			}
+			final int queued=S.getOutputQueueSize();
+			totalOutputQueued+=queued;
+			totalOutputSent+=S.getOutputBytesSent();
+			totalOutputDropped+=S.getOutputBytesDropped();
+			if(queued>topOutputQueued)
+			{
+				topOutputQueued=queued;
+				topOutputClient=S.mob();
+			}
+		}
+
+		if(itemCode.equalsIgnoreCase("totalOutputQueued"))
+			return ""+totalOutputQueued;
+		else
+		if(itemCode.equalsIgnoreCase("totalOutputSent"))
+			return ""+totalOutputSent;
+		else
+		if(itemCode.equalsIgnoreCase("totalOutputDropped"))
+			return ""+totalOutputDropped;
+		else
+		if(itemCode.equalsIgnoreCase("topOutputQueued"))
+			return ""+topOutputQueued;
+		else
+		if(itemCode.equalsIgnoreCase("topOutputClient"))
+		{
+			if(topOutputClient!=null)
+				return topOutputClient.Name();
+			return "";
 		}
 
 		if(itemCode.equalsIgnoreCase("totalMOBMillis"))
@@ -909,7 +1046,7 @@ public class ServiceEngine implements ThreadEngine
 						try
 						{
 							if(almostTock.numTickers()==0)
-								allTicks.remove(almostTock);
+								delTickGroup(almostTock);
 						}
 						catch (final Exception e2)
 						{
@@ -948,7 +1085,7 @@ public class ServiceEngine implements ThreadEngine
 						try
 						{
 							if(almostTock.numTickers()==0)
-								allTicks.remove(almostTock);
+								delTickGroup(almostTock);
 						}
 						catch (final Exception e2)
 						{
@@ -1088,7 +1225,7 @@ public class ServiceEngine implements ThreadEngine
 			{
 				CMProps.setUpAllLowVar(CMProps.Str.MUDSTATUS,"Shutting down...shutting down Service Engine: killing "+tock.getName()+": "+tock.getStatus());
 				tock.shutdown();
-				allTicks.remove(tock);
+				delTickGroup(tock);
 			}
 			CMLib.s_sleep(100);
 		}
@@ -1464,6 +1601,8 @@ public class ServiceEngine implements ThreadEngine
 			CMLib.s_sleep(1000);
 		final CMProps props = CMProps.instance();
 		final CMProps.Bool MUDSHUTTINGDOWN=CMProps.Bool.MUDSHUTTINGDOWN;
+		final List<CMRunnable> runThese = new ArrayList<CMRunnable>();
+		final List<GroupWakeup> dueGroups = new ArrayList<GroupWakeup>();
 		while(!props.getBool(MUDSHUTTINGDOWN))
 		{
 			try
@@ -1491,52 +1630,63 @@ public class ServiceEngine implements ThreadEngine
 				final long now=System.currentTimeMillis();
 				globalTickID = (now - globalStartTime) / props.tickMillis();
 				long nextWake=now + 3600000;
-				if(this.schedTicks.size() > 0)
+				runThese.clear();
+				synchronized(this.schedTicks)
+				{
+					while((this.schedTicks.size() > 0) && (now >= this.schedTicks.peek().getStartTime()))
+						runThese.add(this.schedTicks.poll());
+					if((this.schedTicks.size() > 0) && (this.schedTicks.peek().getStartTime() < nextWake))
+						nextWake = this.schedTicks.peek().getStartTime();
+				}
+				for(final CMRunnable R : runThese)
 				{
-					final List<CMRunnable> runThese = new LinkedList<CMRunnable>();
-					synchronized(this.schedTicks)
+					schedulerLag.add(now - R.getStartTime());
+					getPoolExecutor((char)R.getGroupID()).execute(R);
+				}
+				dueGroups.clear();
+				synchronized(groupWakeups)
+				{
+					while((groupWakeups.size() > 0) && (now >= groupWakeups.peek().wakeTime))
 					{
-						if(this.schedTicks.size() > 0)
-						{
-							for(Iterator<CMRunnable> r=this.schedTicks.iterator(); r.hasNext();) 
-							{
-								final CMRunnable R=r.next();
-								if(now >= R.getStartTime())
-								{
-									runThese.add(R);
-									r.remove();
-								}
-								else
-								if(R.getStartTime() < nextWake)
-									nextWake = R.getStartTime();
-							}
-						}
+						final GroupWakeup wakeup=groupWakeups.poll();
+						if(scheduledGroups.get(wakeup.group)==wakeup)
+							dueGroups.add(wakeup);
 					}
-					for(CMRunnable R : runThese)
-						getPoolExecutor((char)R.getGroupID()).execute(R);
 				}
-				synchronized(allTicks)
+				for(final GroupWakeup wakeup : dueGroups)
 				{
-					for(final TickableGroup T : allTicks)
+					final TickableGroup T=wakeup.group;
+					long wakeTime;
+					long dispatchTime=wakeup.dispatchTime;
+					if((dispatchTime>0)&&(T.getLastStartTime()>=dispatchTime))
+					{
+						dispatchLatency.add(T.getLastStartTime()-dispatchTime);
+						dispatchTime=0;
+					}
+					if(!T.isAwake() && (!getPoolExecutor(T.getThreadGroupName()).isActiveOrQueued(T)))
 					{
-						if(!T.isAwake() && (!getPoolExecutor(T.getThreadGroupName()).isActiveOrQueued(T)))
+						if (T.getNextTickTime() <= now)
 						{
-							if (T.getNextTickTime() <= now)
-							{
-								if(now + T.getTickInterval() < nextWake)
-									nextWake = now + T.getTickInterval();
-								getPoolExecutor(T.getThreadGroupName()).execute(T);
-							}
-							else
-							if (nextWake > T.getNextTickTime())
-							{
-								nextWake = T.getNextTickTime();
-							}
+							schedulerLag.add(now - T.getNextTickTime());
+							wakeTime = now + T.getTickInterval();
+							dispatchTime = now;
+							getPoolExecutor(T.getThreadGroupName()).execute(T);
 						}
 						else
-						if(now + T.getTickInterval() < nextWake)
-							nextWake = now + T.getTickInterval();
+							wakeTime = T.getNextTickTime();
 					}
+					else
+						wakeTime = now + T.getTickInterval();
+					synchronized(groupWakeups)
+					{
+						if(scheduledGroups.get(T)==wakeup)
+							scheduleGroupWakeup(T, wakeTime, dispatchTime);
+					}
+				}
+				synchronized(groupWakeups)
+				{
+					if((groupWakeups.size() > 0) && (groupWakeups.peek().wakeTime < nextWake))
+						nextWake = groupWakeups.peek().wakeTime;
 				}
 				if(nextWake > now)
 				{
@@ -0,0 +1,289 @@
+package com.planet_ink.coffee_mud.core.threads;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.planet_ink.coffee_mud.core.CMLib;
+/*
+   Copyright 2026 agent
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+	   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+/**
+ * A bounded output queue that sits between a session and its socket.
+ * Writers only copy bytes into the queue, and a flush merely schedules a
+ * drain on a thread pool of its own, apart from the session pools, so
+ * neither the game thread that produced the text nor any other session
+ * ever waits on a slow client.  Any writes and flushes that arrive before
+ * the drain starts are sent together in one socket write.
+ *
+ * If the queue would grow past its limit, the write fails, which the
+ * session treats like any other broken connection.  A socket write that
+ * takes longer than STALL_TIMEOUT is ended by closing the socket on the
+ * next flush.
+ * @author agent
+ */
+public class SessionOutputQueue extends OutputStream implements Runnable
+{
+	/**
+	 * The name of the thread group whose pool runs the drains
+	 */
+	public static final String	DRAIN_THREAD_GROUP	= "Output";
+
+	/**
+	 * The longest a single socket write may take, in milliseconds
+	 */
+	public static final long	STALL_TIMEOUT		= 10000;
+
+	private final OutputStream	target;
+	private final int			maxBytes;
+	private final ReentrantLock	drainLock		= new ReentrantLock();
+
+	private byte[]				buf				= new byte[4096];
+	private int					head			= 0;
+	private int					size			= 0;
+	private boolean				drainScheduled	= false;
+	private volatile boolean	overflowed		= false;
+	private volatile boolean	failed			= false;
+	private volatile boolean	closed			= false;
+	private volatile long		drainStart		= 0;
+	private volatile long		bytesSent		= 0;
+	private volatile long		bytesDropped	= 0;
+
+	public SessionOutputQueue(final OutputStream target, final int maxBytes)
+	{
+		this.target=target;
+		this.maxBytes=maxBytes;
+	}
+
+	@Override
+	public void write(final int b) throws IOException
+	{
+		write(new byte[]{(byte)b},0,1);
+	}
+
+	@Override
+	public synchronized void write(final byte[] b, int off, int len) throws IOException
+	{
+		if(failed||closed)
+			throw new IOException("output closed");
+		if(size+len>maxBytes)
+		{
+			overflowed=true;
+			failed=true;
+			throw new IOException("output queue overflow");
+		}
+		if(size+len>buf.length)
+		{
+			int newSize=buf.length*2;
+			while(newSize<size+len)
+				newSize*=2;
+			if(newSize>maxBytes)
+				newSize=maxBytes;
+			final byte[] newBuf=new byte[newSize];
+			copyOut(newBuf,0,size);
+			buf=newBuf;
+			head=0;
+		}
+		int tail=(head+size)%buf.length;
+		size+=len;
+		while(len>0)
+		{
+			final int chunk=Math.min(len, buf.length-tail);
+			System.arraycopy(b, off, buf, tail, chunk);
+			off+=chunk;
+			len-=chunk;
+			tail=(tail+chunk)%buf.length;
+		}
+	}
+
+	private void copyOut(final byte[] dest, final int destOff, final int len)
+	{
+		final int first=Math.min(len, buf.length-head);
+		System.arraycopy(buf, head, dest, destOff, first);
+		if(first<len)
+			System.arraycopy(buf, 0, dest, destOff+first, len-first);
+	}
+
+	@Override
+	public void flush() throws IOException
+	{
+		if(failed)
+			throw new IOException("output closed");
+		if(isStalled(STALL_TIMEOUT))
+		{
+			failed=true;
+			try
+			{
+				target.close();
+			}
+			catch(final IOException e)
+			{
+			}
+			throw new IOException("output stalled");
+		}
+		synchronized(this)
+		{
+			if((size==0)||drainScheduled||closed)
+				return;
+			drainScheduled=true;
+		}
+		CMLib.threads().executeRunnable(DRAIN_THREAD_GROUP, this);
+	}
+
+	/**
+	 * Sends everything currently queued to the socket, and keeps going until
+	 * the queue is empty.
+	 */
+	@Override
+	public void run()
+	{
+		drainLock.lock();
+		try
+		{
+			drain();
+		}
+		finally
+		{
+			drainLock.unlock();
+			synchronized(this)
+			{
+				drainScheduled=false;
+			}
+		}
+		synchronized(this)
+		{
+			if((size==0)||closed||failed)
+				return;
+		}
+		try
+		{
+			flush();
+		}
+		catch(final IOException e)
+		{
+		}
+	}
+
+	private void drain()
+	{
+		while(!failed)
+		{
+			final byte[] chunk;
+			synchronized(this)
+			{
+				if(size==0)
+					return;
+				chunk=new byte[size];
+				copyOut(chunk,0,size);
+				head=0;
+				size=0;
+			}
+			drainStart=System.currentTimeMillis();
+			try
+			{
+				target.write(chunk);
+				target.flush();
+				bytesSent+=chunk.length;
+			}
+			catch(final IOException e)
+			{
+				failed=true;
+			}
+			finally
+			{
+				drainStart=0;
+			}
+		}
+	}
+
+	/**
+	 * Sends whatever is left, unless a drain is already stuck on the socket,
+	 * and then closes the socket stream.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		closed=true;
+		if(drainLock.tryLock())
+		{
+			try
+			{
+				drain();
+			}
+			finally
+			{
+				drainLock.unlock();
+			}
+		}
+		target.close();
+	}
+
+	/**
+	 * Records that the session discarded output rather than queue it.
+	 * @param numBytes the approximate number of bytes discarded
+	 */
+	public void dropped(final int numBytes)
+	{
+		bytesDropped+=numBytes;
+	}
+
+	/**
+	 * Returns the number of bytes waiting to be sent
+	 * @return the number of bytes waiting to be sent
+	 */
+	public synchronized int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns true if a write was refused because the queue was full.
+	 * @return true if the queue overflowed
+	 */
+	public boolean isOverflowed()
+	{
+		return overflowed;
+	}
+
+	/**
+	 * Returns true if a socket write has been in progress for longer than
+	 * the given number of milliseconds.
+	 * @param timeoutMs the longest a write may take
+	 * @return true if the socket is stalled
+	 */
+	public boolean isStalled(final long timeoutMs)
+	{
+		final long start=drainStart;
+		return (start>0)&&((System.currentTimeMillis()-start)>timeoutMs);
+	}
+
+	/**
+	 * Returns the total number of bytes sent to the socket.
+	 * @return the total number of bytes sent
+	 */
+	public long getBytesSent()
+	{
+		return bytesSent;
+	}
+
+	/**
+	 * Returns the total number of bytes the session discarded as spam.
+	 * @return the total number of bytes discarded
+	 */
+	public long getBytesDropped()
+	{
+		return bytesDropped;
+	}
+}
@@ -0,0 +1,314 @@
+package com.planet_ink.coffee_mud.core.threads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import com.planet_ink.coffee_mud.Common.interfaces.Session;
+import com.planet_ink.coffee_mud.core.CMLib;
+import com.planet_ink.coffee_mud.core.Log;
+/*
+   Copyright 2026 agent
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+	   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+/**
+ * A single selector thread that watches the socket channels of every mud
+ * session accepted in selector mode.  When bytes arrive, they are copied
+ * into the sessions input buffer, and the session is handed to the thread
+ * pool to process them, so that an idle connection costs nothing until the
+ * player actually types something.
+ *
+ * Telnet, MCCP, MSDP and GMCP handling are unchanged, since the session
+ * still reads its input as a plain byte stream.
+ * @author agent
+ */
+public class SessionSelector extends Thread
+{
+	private static volatile SessionSelector instance = null;
+
+	private final Selector					selector;
+	private final LinkedList<ChannelInput>	pending	= new LinkedList<ChannelInput>();
+	private final ByteBuffer				readBuf	= ByteBuffer.allocateDirect(4096);
+
+	private SessionSelector(ThreadGroup group) throws IOException
+	{
+		super(group,"SessionSelector");
+		selector=Selector.open();
+		setDaemon(true);
+	}
+
+	/**
+	 * Returns the one selector thread, starting it if necessary.
+	 * @return the selector thread
+	 * @throws IOException a selector could not be opened
+	 */
+	public static SessionSelector instance() throws IOException
+	{
+		if(instance==null)
+		{
+			synchronized(SessionSelector.class)
+			{
+				if(instance==null)
+				{
+					final SessionSelector newInstance=new SessionSelector(Thread.currentThread().getThreadGroup());
+					newInstance.start();
+					instance=newInstance;
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Switches the given channel to non-blocking mode and begins watching it
+	 * for input on behalf of the given session.  The returned stream should
+	 * be used as the sessions raw input.
+	 * @param S the session that owns the channel
+	 * @param channel the connected socket channel
+	 * @return the stream that the selector will fill with incoming bytes
+	 * @throws IOException the channel could not be made non-blocking
+	 */
+	public ChannelInput register(final Session S, final SocketChannel channel) throws IOException
+	{
+		channel.configureBlocking(false);
+		final ChannelInput input=new ChannelInput(S, channel);
+		synchronized(pending)
+		{
+			pending.add(input);
+		}
+		selector.wakeup();
+		return input;
+	}
+
+	@Override
+	public void run()
+	{
+		while(selector.isOpen())
+		{
+			try
+			{
+				synchronized(pending)
+				{
+					while(pending.size()>0)
+					{
+						final ChannelInput input=pending.removeFirst();
+						try
+						{
+							input.channel.register(selector, SelectionKey.OP_READ, input);
+						}
+						catch(final ClosedChannelException e)
+						{
+							input.setEOF();
+						}
+					}
+				}
+				selector.select();
+				for(final Iterator<SelectionKey> i=selector.selectedKeys().iterator();i.hasNext();)
+				{
+					final SelectionKey key=i.next();
+					i.remove();
+					final ChannelInput input=(ChannelInput)key.attachment();
+					if((!key.isValid())||(!key.isReadable()))
+						continue;
+					boolean eof=false;
+					try
+					{
+						int read;
+						while((read=input.channel.read(readBuf))>0)
+						{
+							readBuf.flip();
+							input.append(readBuf);
+							readBuf.clear();
+						}
+						eof = (read<0);
+					}
+					catch(final IOException e)
+					{
+						eof=true;
+					}
+					if(eof)
+					{
+						key.cancel();
+						input.setEOF();
+					}
+					input.dispatch();
+				}
+			}
+			catch(final Exception e)
+			{
+				Log.errOut("SessionSelector",e);
+			}
+		}
+	}
+
+	/**
+	 * The input side of a selector-driven session: a growable byte buffer
+	 * filled by the selector thread and drained by the session.
+	 */
+	public static class ChannelInput extends InputStream
+	{
+		private final Session		session;
+		private final SocketChannel	channel;
+		private byte[]				buf		= new byte[256];
+		private int					start	= 0;
+		private int					end		= 0;
+		private volatile boolean	eof		= false;
+
+		private ChannelInput(final Session S, final SocketChannel channel)
+		{
+			this.session=S;
+			this.channel=channel;
+		}
+
+		private synchronized void append(final ByteBuffer bytes)
+		{
+			final int len=bytes.remaining();
+			if(end+len>buf.length)
+			{
+				final int size=end-start;
+				if(size+len>buf.length)
+				{
+					final byte[] newBuf=new byte[Math.max(buf.length*2,size+len)];
+					System.arraycopy(buf, start, newBuf, 0, size);
+					buf=newBuf;
+				}
+				else
+					System.arraycopy(buf, start, buf, 0, size);
+				start=0;
+				end=size;
+			}
+			bytes.get(buf, end, len);
+			end+=len;
+		}
+
+		private void setEOF()
+		{
+			eof=true;
+		}
+
+		private void dispatch()
+		{
+			if(!session.isRunning())
+				CMLib.threads().executeRunnable(session.getGroupName(), session);
+		}
+
+		/**
+		 * Returns true if the remote end has closed the connection.
+		 * @return true if the remote end has closed the connection
+		 */
+		public boolean isEOF()
+		{
+			return eof;
+		}
+
+		@Override
+		public synchronized int available()
+		{
+			return end-start;
+		}
+
+		@Override
+		public synchronized int read()
+		{
+			if(start>=end)
+				return -1;
+			return buf[start++] & 0xff;
+		}
+
+		@Override
+		public synchronized int read(final byte[] b, final int off, int len)
+		{
+			if(len==0)
+				return 0;
+			if(start>=end)
+				return -1;
+			if(len>end-start)
+				len=end-start;
+			System.arraycopy(buf, start, b, off, len);
+			start+=len;
+			return len;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			channel.close();
+		}
+	}
+
+	/**
+	 * The output side of a selector-driven session.  Since the channel is
+	 * non-blocking, a full socket buffer is waited out here, up to a time
+	 * limit, so that callers keep the blocking semantics they expect.
+	 */
+	public static class ChannelOutput extends OutputStream
+	{
+		private static final long WRITE_TIMEOUT = 10000;
+
+		private final SocketChannel	channel;
+
+		public ChannelOutput(final SocketChannel channel)
+		{
+			this.channel=channel;
+		}
+
+		@Override
+		public void write(final int b) throws IOException
+		{
+			write(new byte[]{(byte)b},0,1);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException
+		{
+			final ByteBuffer bytes=ByteBuffer.wrap(b, off, len);
+			long stallStart=0;
+			while(bytes.hasRemaining())
+			{
+				if(channel.write(bytes)>0)
+					stallStart=0;
+				else
+				{
+					final long now=System.currentTimeMillis();
+					if(stallStart==0)
+						stallStart=now;
+					else
+					if((now-stallStart)>WRITE_TIMEOUT)
+						throw new IOException("write timed out");
+					try
+					{
+						Thread.sleep(1);
+					}
+					catch(final InterruptedException e)
+					{
+						throw new java.io.InterruptedIOException();
+					}
+				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			channel.close();
+		}
+	}
+}
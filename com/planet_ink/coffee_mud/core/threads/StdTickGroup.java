@@ -283,14 +283,24 @@ public class StdTickGroup implements TickableGroup, Cloneable
 	@Override
 	public boolean delTicker(TickClient C)
 	{
-		return tickers.remove(C);
+		if(tickers.remove(C))
+		{
+			if(myEngine instanceof ServiceEngine)
+				((ServiceEngine)myEngine).unindexTicker(this, C);
+			return true;
+		}
+		return false;
 	}
 
 	@Override
 	public void addTicker(TickClient C)
 	{
 		if(!tickers.contains(C))
+		{
 			tickers.add(C);
+			if(myEngine instanceof ServiceEngine)
+				((ServiceEngine)myEngine).indexTicker(this, C);
+		}
 	}
 
 	@Override
@@ -314,6 +324,11 @@ public class StdTickGroup implements TickableGroup, Cloneable
 	@Override
 	public void shutdown()
 	{
+		if(myEngine instanceof ServiceEngine)
+		{
+			for(final TickClient C : tickers)
+				((ServiceEngine)myEngine).unindexTicker(this, C);
+		}
 		tickers.clear();
 		if(CMLib.threads() instanceof ServiceEngine)
 			((ServiceEngine)CMLib.threads()).delTickGroup(this);
@@ -0,0 +1,216 @@
+package com.planet_ink.coffee_mud.core.threads;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.planet_ink.coffee_mud.core.interfaces.TickClient;
+import com.planet_ink.coffee_mud.core.interfaces.Tickable;
+import com.planet_ink.coffee_mud.core.interfaces.TickableGroup;
+/*
+   Copyright 2026 agent
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+	   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+/**
+ * An identity-keyed index from a Tickable object to the tick clients
+ * (and their tick groups) registered for it, so that the thread engine
+ * can find, suspend, or delete a tick without walking every tick group.
+ *
+ * The index is split into lock stripes chosen by the identity hash of
+ * the tickable, so registrations for different objects do not contend
+ * with each other.  The per-tickable arrays are copy-on-write, which
+ * means a lookup never allocates and callers may iterate the returned
+ * array freely.
+ * @author agent
+ */
+public class TickIndex
+{
+	private static final int STRIPES	= 64;
+	private static final int STRIPEMASK	= STRIPES-1;
+
+	private static final Entry[] EMPTY = new Entry[0];
+
+	private final Object[] locks = new Object[STRIPES];
+	private final Map<Tickable,Entry[]>[] maps;
+
+	public static final class Entry
+	{
+		public final TickClient		client;
+		public final TickableGroup	group;
+
+		public Entry(final TickClient client, final TickableGroup group)
+		{
+			this.client=client;
+			this.group=group;
+		}
+	}
+
+	@SuppressWarnings({"unchecked","rawtypes"})
+	public TickIndex()
+	{
+		maps = new Map[STRIPES];
+		for(int i=0;i<STRIPES;i++)
+		{
+			locks[i]=new Object();
+			maps[i]=new IdentityHashMap<Tickable,Entry[]>();
+		}
+	}
+
+	private final int stripe(final Tickable T)
+	{
+		final int h=System.identityHashCode(T);
+		return (h ^ (h >>> 16)) & STRIPEMASK;
+	}
+
+	/**
+	 * Returns the monitor guarding the given tickables stripe, so that
+	 * a check-and-register sequence can be made atomic for one object
+	 * without serializing the whole engine.
+	 * @param T the tickable object
+	 * @return the stripe monitor
+	 */
+	public final Object lock(final Tickable T)
+	{
+		return locks[stripe(T)];
+	}
+
+	/**
+	 * Returns all index entries for the given tickable, regardless of tick id.
+	 * The returned array must not be modified.
+	 * @param T the tickable object
+	 * @return the entries, never null
+	 */
+	public final Entry[] get(final Tickable T)
+	{
+		final int s=stripe(T);
+		synchronized(locks[s])
+		{
+			final Entry[] entries=maps[s].get(T);
+			return (entries==null)?EMPTY:entries;
+		}
+	}
+
+	/**
+	 * Returns the entry for the given tickable and tick id, or the first one
+	 * found if the tick id is negative.
+	 * @param T the tickable object
+	 * @param tickID the tick id, or -1 for any
+	 * @return the entry, or null if not ticking
+	 */
+	public final Entry find(final Tickable T, final int tickID)
+	{
+		for(final Entry E : get(T))
+		{
+			if((tickID<0)||(E.client.getTickID()==tickID))
+				return E;
+		}
+		return null;
+	}
+
+	/**
+	 * Records that the given client has been added to the given group.
+	 * @param group the group the client was added to
+	 * @param C the client
+	 */
+	public final void add(final TickableGroup group, final TickClient C)
+	{
+		final Tickable T=C.getClientObject();
+		final int s=stripe(T);
+		synchronized(locks[s])
+		{
+			final Entry[] entries=maps[s].get(T);
+			if(entries==null)
+				maps[s].put(T, new Entry[]{new Entry(C,group)});
+			else
+			{
+				for(int i=0;i<entries.length;i++)
+				{
+					if((entries[i].client==C)&&(entries[i].group==group))
+						return;
+				}
+				final Entry[] newEntries=new Entry[entries.length+1];
+				System.arraycopy(entries, 0, newEntries, 0, entries.length);
+				newEntries[entries.length]=new Entry(C,group);
+				maps[s].put(T, newEntries);
+			}
+		}
+	}
+
+	/**
+	 * Records that the given client has been removed from the given group.
+	 * @param group the group the client was removed from
+	 * @param C the client
+	 * @return true if an entry was removed
+	 */
+	public final boolean remove(final TickableGroup group, final TickClient C)
+	{
+		final Tickable T=C.getClientObject();
+		final int s=stripe(T);
+		synchronized(locks[s])
+		{
+			final Entry[] entries=maps[s].get(T);
+			if(entries==null)
+				return false;
+			for(int i=0;i<entries.length;i++)
+			{
+				final Entry E=entries[i];
+				if((E.group==group)
+				&&((E.client==C)||(E.client.getTickID()==C.getTickID())))
+				{
+					if(entries.length==1)
+						maps[s].remove(T);
+					else
+					{
+						final Entry[] newEntries=new Entry[entries.length-1];
+						System.arraycopy(entries, 0, newEntries, 0, i);
+						System.arraycopy(entries, i+1, newEntries, i, entries.length-i-1);
+						maps[s].put(T, newEntries);
+					}
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the number of distinct tickable objects in the index.
+	 * @return the number of indexed tickables
+	 */
+	public final int size()
+	{
+		int size=0;
+		for(int s=0;s<STRIPES;s++)
+		{
+			synchronized(locks[s])
+			{
+				size+=maps[s].size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Empties the index.
+	 */
+	public final void clear()
+	{
+		for(int s=0;s<STRIPES;s++)
+		{
+			synchronized(locks[s])
+			{
+				maps[s].clear();
+			}
+		}
+	}
+}
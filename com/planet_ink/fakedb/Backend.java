@@ -30,6 +30,8 @@ public class Backend
 
 	File							basePath;
 	private Map<String, FakeTable>	fakeTables	= new HashMap<String, FakeTable>();
+	private WriteAheadLog			wal			= null;
+	private int						commitWindow= 0;
 
 	/**
 	*
@@ -58,6 +60,8 @@ public class Backend
 		int					offset;
 		int					size;
 		ComparableValue[]	indexedData	= null;
+		byte[]				pending		= null;
+		boolean				deleted		= false;
 
 		RecordInfo(int o, int s)
 		{
@@ -72,12 +76,27 @@ public class Backend
 	public void clearFakeTables()
 	{
 		basePath = null;
+		if (wal != null)
+			wal.close();
+		wal = null;
 		if (fakeTables != null)
 			for (final FakeTable R : fakeTables.values())
 				R.close();
 		fakeTables = new HashMap<String, FakeTable>();
 	}
 
+	/**
+	 * Sets the number of milliseconds between commits of the write-ahead log,
+	 * or 0 to make every statement wait until it is durable.  Must be called
+	 * before the database is opened.
+	 * 
+	 * @param commitWindow the commit window in ms, or 0
+	 */
+	public void setCommitWindow(int commitWindow)
+	{
+		this.commitWindow = commitWindow;
+	}
+
 	/**
 	 * 
 	 * @author Bo Zimmerman
@@ -302,18 +321,100 @@ public class Backend
 		private List<RecordInfo>[]				reverseSorted		= null;
 		private IndexedRowMapComparator[]		forwardComparators	= null;
 		private IndexedRowMapComparator[]		reverseComparators	= null;
+		private TreeMap<ComparableValue, List<RecordInfo>>[] valueIndexes = null;
 		private static final List<RecordInfo>	empty				= new ArrayList<RecordInfo>(1);
 
 		public synchronized void add(RecordInfo record)
 		{
 			unsortedRecords.add(record);
 			clearSortCaches(record.indexedData.length);
+			if (valueIndexes == null)
+			{
+				valueIndexes = new TreeMap[record.indexedData.length];
+				for (int i = 0; i < valueIndexes.length; i++)
+					valueIndexes[i] = new TreeMap<ComparableValue, List<RecordInfo>>();
+			}
+			for (int i = 0; i < valueIndexes.length; i++)
+			{
+				List<RecordInfo> records = valueIndexes[i].get(record.indexedData[i]);
+				if (records == null)
+				{
+					records = new ArrayList<RecordInfo>(1);
+					valueIndexes[i].put(record.indexedData[i], records);
+				}
+				records.add(record);
+			}
 		}
 
 		public synchronized void remove(RecordInfo record)
 		{
 			unsortedRecords.remove(record);
 			clearSortCaches(record.indexedData.length);
+			if (valueIndexes != null)
+			{
+				for (int i = 0; i < valueIndexes.length; i++)
+				{
+					final List<RecordInfo> records = valueIndexes[i].get(record.indexedData[i]);
+					if (records != null)
+					{
+						records.remove(record);
+						if (records.size() == 0)
+							valueIndexes[i].remove(record.indexedData[i]);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns a copy of the list of records whose value in the given index
+		 * is equal to, less than, and/or greater than the given value.
+		 * 
+		 * @param indexNumber the index to look in
+		 * @param value the value to compare to
+		 * @param eq true to include records equal to the value
+		 * @param lt true to include records less than the value
+		 * @param gt true to include records greater than the value
+		 * @return the matching records
+		 */
+		public synchronized List<RecordInfo> find(int indexNumber, ComparableValue value, boolean eq, boolean lt, boolean gt)
+		{
+			final List<RecordInfo> found = new ArrayList<RecordInfo>();
+			if ((valueIndexes == null) || (indexNumber < 0) || (indexNumber >= valueIndexes.length))
+				return found;
+			final TreeMap<ComparableValue, List<RecordInfo>> index = valueIndexes[indexNumber];
+			if (lt)
+			{
+				for (final List<RecordInfo> records : index.headMap(value, false).values())
+					found.addAll(records);
+			}
+			if (eq)
+			{
+				final List<RecordInfo> records = index.get(value);
+				if (records != null)
+					found.addAll(records);
+			}
+			if (gt)
+			{
+				for (final List<RecordInfo> records : index.tailMap(value, false).values())
+					found.addAll(records);
+			}
+			return found;
+		}
+
+		/**
+		 * Returns the number of records whose value in the given index is equal
+		 * to the given value.
+		 * 
+		 * @param indexNumber the index to look in
+		 * @param value the value to compare to
+		 * @return the number of matching records
+		 */
+		public synchronized int count(int indexNumber, ComparableValue value)
+		{
+			if ((valueIndexes == null) || (indexNumber < 0) || (indexNumber >= valueIndexes.length))
+				return 0;
+			final List<RecordInfo> records = valueIndexes[indexNumber].get(value);
+			return (records == null) ? 0 : records.size();
 		}
 
 		private void clearSortCaches(int size)
@@ -379,11 +480,23 @@ public class Backend
 		private Map<String, Integer>	columnHash	= new Hashtable<String, Integer>();
 		private int[]					columnIndexesOfIndexed;
 		private IndexedRowMap			rowRecords	= new IndexedRowMap();
+		private final WriteAheadLog		wal;
+		private int						deadBytes	= 0;
+		int								pendingWrites = 0;
+
+		private static final byte[]		TOMBSTONE	= new byte[] { (byte) '*' };
+		private static final int		MIN_COMPACT_BYTES = 64 * 1024;
 
-		FakeTable(String tableName, File name)
+		FakeTable(String tableName, File name, WriteAheadLog wal)
 		{
 			this.name = tableName;
 			fileName = name;
+			this.wal = wal;
+		}
+
+		protected String getName()
+		{
+			return name;
 		}
 
 		protected int numColumns()
@@ -418,6 +531,100 @@ public class Backend
 			return rowRecords.iterator(col.indexNumber, descending);
 		}
 
+		/**
+		 * Returns an iterator of the records to test against the given conditions.  When
+		 * there is no ordering, and the conditions are joined by AND, and one of them is
+		 * an equality or range test on an indexed column, only the records found through
+		 * that index are returned.  Otherwise this is the same as the other indexIterator.
+		 * 
+		 * @param orderByIndexDex
+		 * @param orderByConditions
+		 * @param conditions the conditions the records will be tested against
+		 * @return
+		 */
+		public Iterator<RecordInfo> indexIterator(int[] orderByIndexDex, String[] orderByConditions, List<FakeCondition> conditions)
+		{
+			if ((orderByIndexDex == null) || (orderByIndexDex.length == 0))
+			{
+				final List<RecordInfo> candidates = findCandidates(conditions);
+				if (candidates != null)
+					return candidates.iterator();
+			}
+			return indexIterator(orderByIndexDex, orderByConditions);
+		}
+
+		/**
+		 * Returns whether the given condition value can be looked up in the index of
+		 * the given column, which requires it to be null, or of the columns own type.
+		 * 
+		 * @param col the indexed column
+		 * @param value the condition value
+		 * @return true if the value can be looked up, false otherwise
+		 */
+		private boolean isIndexableValue(FakeColumn col, ComparableValue value)
+		{
+			if ((value == null) || (value.getValue() == null))
+				return true;
+			switch (col.type)
+			{
+			case FakeColumn.TYPE_INTEGER:
+				return value.getValue() instanceof Integer;
+			case FakeColumn.TYPE_LONG:
+				return value.getValue() instanceof Long;
+			case FakeColumn.TYPE_STRING:
+				return value.getValue() instanceof String;
+			default:
+				return false;
+			}
+		}
+
+		/**
+		 * Returns the records found through the best indexed condition in the given
+		 * list, preferring equality to range tests, or null if no index can be used.
+		 * The records returned are a superset of those that pass all the conditions.
+		 * 
+		 * @param conditions the conditions the records will be tested against
+		 * @return the records to test, or null to test them all
+		 */
+		protected List<RecordInfo> findCandidates(List<FakeCondition> conditions)
+		{
+			if ((conditions == null) || (conditions.size() == 0))
+				return null;
+			for (int c = 0; c < conditions.size() - 1; c++)
+			{
+				if (conditions.get(c).connector != ConnectorType.AND)
+					return null;
+			}
+			FakeCondition best = null;
+			int bestCount = Integer.MAX_VALUE;
+			for (final FakeCondition cond : conditions)
+			{
+				if ((cond.contains != null) || cond.like || cond.not)
+					continue;
+				if ((cond.conditionIndex < 0) || (cond.conditionIndex >= columns.length))
+					continue;
+				final FakeColumn col = columns[cond.conditionIndex];
+				if ((col.indexNumber < 0) || (!isIndexableValue(col, cond.conditionValue)))
+					continue;
+				if (cond.eq && (!cond.lt) && (!cond.gt))
+				{
+					final int count = rowRecords.count(col.indexNumber, cond.conditionValue);
+					if ((best == null) || (best.lt || best.gt) || (count < bestCount))
+					{
+						best = cond;
+						bestCount = count;
+					}
+				}
+				else
+				if ((best == null) && (cond.lt || cond.gt))
+					best = cond;
+			}
+			if (best == null)
+				return null;
+			final FakeColumn col = columns[best.conditionIndex];
+			return rowRecords.find(col.indexNumber, new ComparableValue(best.conditionValue), best.eq, best.lt, best.gt);
+		}
+
 		/**
 		 * 
 		 * @param index
@@ -468,6 +675,7 @@ public class Backend
 		 */
 		protected void open() throws IOException
 		{
+			recoverCompaction(fileName);
 			file = new RandomAccessFile(fileName, "rw");
 			fileSize = 0;
 			fileBuffer = new byte[4096];
@@ -568,23 +776,63 @@ public class Backend
 				fileSize += size;
 			}
 			// Too much space wasted?
+			deadBytes = skipped;
 			if (skipped > (found / 10))
-				vacuum();
+				compact();
 		}
 
 		/**
+		 * Finishes or undoes a compaction of the given data file that was cut short,
+		 * by putting the compacted copy in place if the data file is missing, and
+		 * removing any leftover copies.
+		 * 
+		 * @param fileName the table data file
+		 */
+		protected static void recoverCompaction(File fileName)
+		{
+			final File tempFileName = new File(fileName.getPath() + ".tmp");
+			final File tempFileName2 = new File(fileName.getPath() + ".cpy");
+			if (!fileName.exists())
+			{
+				if (tempFileName.exists())
+					tempFileName.renameTo(fileName);
+				else
+				if (tempFileName2.exists())
+					tempFileName2.renameTo(fileName);
+			}
+			tempFileName.delete();
+			tempFileName2.delete();
+		}
+
+		/**
+		 * Returns whether enough of the data file is deleted records to be worth 
+		 * compacting.
+		 * 
+		 * @return true to compact, false otherwise
+		 */
+		protected synchronized boolean needsCompaction()
+		{
+			return (file != null) && (deadBytes > MIN_COMPACT_BYTES) && (deadBytes > (fileSize / 10));
+		}
+
+		/**
+		 * Rewrites the data file with only the live records.  Every queued write
+		 * for this table must already be in the data file.
 		 * 
 		 * @throws IOException
 		 */
-		private void vacuum() throws IOException
+		protected synchronized void compact() throws IOException
 		{
-			final File tempFileName = new File(fileName.getName() + ".tmp");
-			final File tempFileName2 = new File(fileName.getName() + ".cpy");
+			final File tempFileName = new File(fileName.getPath() + ".tmp");
+			final File tempFileName2 = new File(fileName.getPath() + ".cpy");
 			final RandomAccessFile tempOut = new RandomAccessFile(tempFileName, "rw");
+			tempOut.setLength(0);
 			int newFileSize = 0;
 			for (final Iterator<RecordInfo> iter = rowRecords.iterator(-1, false); iter.hasNext();)
 			{
 				final RecordInfo info = iter.next();
+				if (info.size > fileBuffer.length)
+					increaseBuffer(info.size);
 				file.seek(info.offset);
 				file.readFully(fileBuffer, 0, info.size);
 				tempOut.write(fileBuffer, 0, info.size);
@@ -600,6 +848,38 @@ public class Backend
 			tempFileName2.delete();
 			file = new RandomAccessFile(fileName, "rw");
 			fileSize = newFileSize;
+			deadBytes = 0;
+		}
+
+		/**
+		 * Writes the given bytes into the data file, once they are durable in
+		 * the write-ahead log.
+		 * 
+		 * @param offset the offset in the data file
+		 * @param data the bytes to write
+		 * @param info the record written, or null for a deletion
+		 * @throws IOException
+		 */
+		protected synchronized void applyWrite(int offset, byte[] data, RecordInfo info) throws IOException
+		{
+			pendingWrites--;
+			if (file == null)
+				return;
+			file.seek(offset);
+			file.write(data);
+			if ((info != null) && (!info.deleted))
+				info.pending = null;
+		}
+
+		/**
+		 * Fsyncs the data file.
+		 * 
+		 * @throws IOException
+		 */
+		protected synchronized void syncFile() throws IOException
+		{
+			if (file != null)
+				file.getFD().sync();
 		}
 
 		/**
@@ -612,17 +892,26 @@ public class Backend
 		{
 			try
 			{
-				file.seek(info.offset);
-				file.readFully(fileBuffer, 0, info.size);
+				final byte[] buffer;
+				if (info.pending != null)
+					buffer = info.pending;
+				else
+				{
+					if (info.size > fileBuffer.length)
+						increaseBuffer(info.size);
+					file.seek(info.offset);
+					file.readFully(fileBuffer, 0, info.size);
+					buffer = fileBuffer;
+				}
 				final int[] ofs = new int[] { 0 };
 				FakeColumn col = null;
 				for (int index = 0; index < columns.length; index++)
 				{
 					col = columns[index];
-					while (fileBuffer[ofs[0]] != 0x0A)
+					while (buffer[ofs[0]] != 0x0A)
 						ofs[0]++;
 					ofs[0]++;
-					values[index] = getNextLine(col.type, fileBuffer, ofs);
+					values[index] = getNextLine(col.type, buffer, ofs);
 				}
 				return true;
 			}
@@ -711,98 +1000,135 @@ public class Backend
 
 		/**
 		 * 
-		 * @param prevRecord
 		 * @param indexData
 		 * @param values
 		 * @return
 		 */
-		protected synchronized boolean insertRecord(RecordInfo prevRecord, ComparableValue[] indexData, ComparableValue[] values)
+		protected synchronized boolean insertRecord(ComparableValue[] indexData, ComparableValue[] values)
 		{
-			try
+			final List<WriteAheadLog.PendingWrite> writes = new ArrayList<WriteAheadLog.PendingWrite>(1);
+			if (!insertRecord(null, indexData, values, writes))
+				return false;
+			wal.submit(writes);
+			return true;
+		}
+
+		/**
+		 * Marks the given record deleted, queueing the write of its tombstone.  The
+		 * record keeps a copy of its data for any result set still reading it.
+		 * 
+		 * @param info the record to delete
+		 * @param writes the list to add the tombstone write to
+		 * @throws IOException
+		 */
+		private void deleteRecord(RecordInfo info, List<WriteAheadLog.PendingWrite> writes) throws IOException
+		{
+			if (info.pending == null)
 			{
-				int ofs = 2;
-				fileBuffer[0] = (byte) '-';
-				fileBuffer[1] = (byte) 0x0A;
-				for (final ComparableValue value : values)
+				final byte[] data = new byte[info.size];
+				file.seek(info.offset);
+				file.readFully(data, 0, info.size);
+				info.pending = data;
+			}
+			info.deleted = true;
+			writes.add(new WriteAheadLog.PendingWrite(this, info.offset, TOMBSTONE, null));
+			rowRecords.remove(info);
+			deadBytes += info.size;
+		}
+
+		/**
+		 * Adds a record, reusing the space of the given deleted record if it is the
+		 * same size, and queueing the write of its data.  Until the write is done,
+		 * the record is read from the copy of its data it keeps.
+		 * 
+		 * @param prevRecord the deleted record being replaced, or null
+		 * @param indexData
+		 * @param values
+		 * @param writes the list to add the record write to
+		 * @return
+		 */
+		private boolean insertRecord(RecordInfo prevRecord, ComparableValue[] indexData, ComparableValue[] values, List<WriteAheadLog.PendingWrite> writes)
+		{
+			int ofs = 2;
+			fileBuffer[0] = (byte) '-';
+			fileBuffer[1] = (byte) 0x0A;
+			for (final ComparableValue value : values)
+			{
+				if ((value == null) || (value.getValue() == null))
+				{
+					if (ofs + 3 > fileBuffer.length)
+						increaseBuffer(ofs + 3);
+					fileBuffer[ofs + 0] = (byte) '\\';
+					fileBuffer[ofs + 1] = (byte) '?';
+					fileBuffer[ofs + 2] = (byte) 0x0A;
+					ofs += 3;
+				}
+				else
 				{
-					if ((value == null) || (value.getValue() == null))
+					int size = 0;
+					final String s = value.getValue().toString();
+					for (int sub = 0; sub < s.length(); sub++)
 					{
-						if (ofs + 3 > fileBuffer.length)
-							increaseBuffer(ofs + 3);
-						fileBuffer[ofs + 0] = (byte) '\\';
-						fileBuffer[ofs + 1] = (byte) '?';
-						fileBuffer[ofs + 2] = (byte) 0x0A;
-						ofs += 3;
+						final char c = s.charAt(sub);
+						if (c == '\\')
+							size += 2;
+						else 
+						if (c == '\n')
+							size += 2;
+						else 
+						if (c > 255)
+							size += 5;
+						else
+							size++;
 					}
-					else
+					if (ofs + size + 1 > fileBuffer.length)
+						increaseBuffer(ofs + size + 1);
+					for (int sub = 0; sub < s.length(); sub++)
 					{
-						int size = 0;
-						final String s = value.getValue().toString();
-						for (int sub = 0; sub < s.length(); sub++)
+						char c = s.charAt(sub);
+						if (c == '\\')
 						{
-							final char c = s.charAt(sub);
-							if (c == '\\')
-								size += 2;
-							else 
-							if (c == '\n')
-								size += 2;
-							else 
-							if (c > 255)
-								size += 5;
-							else
-								size++;
+							fileBuffer[ofs] = (byte) '\\';
+							fileBuffer[ofs + 1] = (byte) '\\';
+							ofs += 2;
 						}
-						if (ofs + size + 1 > fileBuffer.length)
-							increaseBuffer(ofs + size + 1);
-						for (int sub = 0; sub < s.length(); sub++)
+						else 
+						if (c == '\n')
 						{
-							char c = s.charAt(sub);
-							if (c == '\\')
-							{
-								fileBuffer[ofs] = (byte) '\\';
-								fileBuffer[ofs + 1] = (byte) '\\';
-								ofs += 2;
-							}
-							else 
-							if (c == '\n')
-							{
-								fileBuffer[ofs] = (byte) '\\';
-								fileBuffer[ofs + 1] = (byte) 'n';
-								ofs += 2;
-							}
-							else 
-							if (c > 255)
+							fileBuffer[ofs] = (byte) '\\';
+							fileBuffer[ofs + 1] = (byte) 'n';
+							ofs += 2;
+						}
+						else 
+						if (c > 255)
+						{
+							fileBuffer[ofs++] = (byte) '\\';
+							for (int i = 0; i < 4; i++)
 							{
-								fileBuffer[ofs++] = (byte) '\\';
-								for (int i = 0; i < 4; i++)
-								{
-									fileBuffer[ofs++] = (byte) ("0123456789ABCDEF".charAt(c >>> 12));
-									c <<= 4;
-								}
+								fileBuffer[ofs++] = (byte) ("0123456789ABCDEF".charAt(c >>> 12));
+								c <<= 4;
 							}
-							else
-								fileBuffer[ofs++] = (byte) c;
 						}
-						fileBuffer[ofs++] = (byte) 0x0A;
+						else
+							fileBuffer[ofs++] = (byte) c;
 					}
+					fileBuffer[ofs++] = (byte) 0x0A;
 				}
-				int recordPos = fileSize;
-				if ((prevRecord != null) && (prevRecord.size == ofs))
-					recordPos = prevRecord.offset;
-				else
-					fileSize += ofs;
-				file.seek(recordPos);
-				file.write(fileBuffer, 0, ofs);
-				file.getFD().sync();
-				final RecordInfo info = new RecordInfo(recordPos, ofs);
-				info.indexedData = indexData;
-				rowRecords.add(info);
-				return true;
 			}
-			catch (final IOException e)
+			int recordPos = fileSize;
+			if ((prevRecord != null) && (prevRecord.size == ofs))
 			{
-				return false;
+				recordPos = prevRecord.offset;
+				deadBytes -= ofs;
 			}
+			else
+				fileSize += ofs;
+			final RecordInfo info = new RecordInfo(recordPos, ofs);
+			info.indexedData = indexData;
+			info.pending = Arrays.copyOf(fileBuffer, ofs);
+			writes.add(new WriteAheadLog.PendingWrite(this, recordPos, info.pending, info));
+			rowRecords.add(info);
+			return true;
 		}
 
 		/**
@@ -813,6 +1139,7 @@ public class Backend
 		protected synchronized int deleteRecord(List<FakeCondition> conditions)
 		{
 			final int[] count = { 0 };
+			final List<WriteAheadLog.PendingWrite> writes = new ArrayList<WriteAheadLog.PendingWrite>();
 			try
 			{
 				final FakeConditionResponder responder = new FakeConditionResponder() 
@@ -828,9 +1155,7 @@ public class Backend
 					@Override
 					public void callBack(ComparableValue[] values, RecordInfo info) throws Exception
 					{
-						file.seek(info.offset);
-						file.write(new byte[] { (byte) '*' });
-						rowRecords.remove(info);
+						deleteRecord(info, writes);
 						count[0]++;
 					}
 				}.init(count);
@@ -839,8 +1164,10 @@ public class Backend
 			catch (final Exception e)
 			{
 				e.printStackTrace();
+				wal.submit(writes);
 				return -1;
 			}
+			wal.submit(writes);
 			return count[0];
 		}
 
@@ -901,7 +1228,9 @@ public class Backend
 		{
 			final boolean[] dataLoaded = new boolean[1];
 			final ComparableValue[] values = new ComparableValue[columns.length];
-			for (final Iterator<RecordInfo> iter = rowRecords.iterator(-1, false); iter.hasNext();)
+			final List<RecordInfo> candidates = findCandidates(conditions);
+			final Iterator<RecordInfo> records = (candidates != null) ? candidates.iterator() : rowRecords.iterator(-1, false);
+			for (final Iterator<RecordInfo> iter = records; iter.hasNext();)
 			{
 				final RecordInfo info = iter.next();
 				dataLoaded[0] = false;
@@ -925,6 +1254,7 @@ public class Backend
 		protected synchronized int updateRecord(List<FakeCondition> conditions, int[] columns, ComparableValue[] values)
 		{
 			final int[] count = { 0 };
+			final List<WriteAheadLog.PendingWrite> writes = new ArrayList<WriteAheadLog.PendingWrite>();
 			try
 			{
 				final FakeConditionResponder responder = new FakeConditionResponder() {
@@ -943,7 +1273,7 @@ public class Backend
 					@Override
 					public void callBack(ComparableValue[] values, RecordInfo info) throws Exception
 					{
-						final ComparableValue[] rowIndexData = info.indexedData;
+						final ComparableValue[] rowIndexData = info.indexedData.clone();
 						boolean somethingChanged = false;
 						for (int sub = 0; sub < newCols.length; sub++)
 						{
@@ -958,10 +1288,8 @@ public class Backend
 						}
 						if (somethingChanged)
 						{
-							file.seek(info.offset);
-							file.write(new byte[] { (byte) '*' });
-							rowRecords.remove(info);
-							insertRecord(info, rowIndexData, values);
+							deleteRecord(info, writes);
+							insertRecord(info, rowIndexData, values, writes);
 						}
 						count[0]++;
 					}
@@ -971,8 +1299,10 @@ public class Backend
 			catch (final Exception e)
 			{
 				e.printStackTrace();
+				wal.submit(writes);
 				return -1;
 			}
+			wal.submit(writes);
 			return count[0];
 		}
 	}
@@ -1078,7 +1408,7 @@ public class Backend
 					columns.add(info);
 				}
 
-				final FakeTable fakeTable = new FakeTable(fakeTableName, new File(basePath, "fakedb.data." + fakeTableName));
+				final FakeTable fakeTable = new FakeTable(fakeTableName, WriteAheadLog.getDataFile(basePath, fakeTableName), wal);
 				fakeTable.columns = new FakeColumn[columns.size()];
 				fakeTable.columnHash = new Hashtable<String, Integer>();
 				int index = 0;
@@ -1094,6 +1424,7 @@ public class Backend
 					fakeTable.columnIndexesOfIndexed[index] = fakeTable.findColumn((String) iter.next());
 
 				fakeTable.open();
+				wal.register(fakeTable);
 				fakeTables.put(fakeTableName, fakeTable);
 			}
 		}
@@ -1112,7 +1443,10 @@ public class Backend
 	{
 		try
 		{
+			wal = new WriteAheadLog(this, basePath, commitWindow);
+			wal.recover();
 			readSchema(basePath, new File(basePath, "fakedb.schema"));
+			wal.start();
 			return true;
 		}
 		catch (final IOException e)
@@ -1460,8 +1794,26 @@ public class Backend
 			else
 				keys[index] = new ComparableValue(values[id]);
 		}
-		if (!fakeTable.insertRecord(null, keys, values))
+		if (!fakeTable.insertRecord(keys, values))
 			throw new java.sql.SQLException("unable to insert record");
+		syncLog();
+	}
+
+	/**
+	 * Waits until the statements done so far are durable, unless there is a commit window.
+	 * 
+	 * @throws java.sql.SQLException
+	 */
+	protected void syncLog() throws java.sql.SQLException
+	{
+		try
+		{
+			wal.sync();
+		}
+		catch (final IOException e)
+		{
+			throw new java.sql.SQLException("unable to commit: " + e.getMessage());
+		}
 	}
 
 	/**
@@ -1478,6 +1830,7 @@ public class Backend
 			throw new java.sql.SQLException("unknown table " + stmt.tableName);
 
 		fakeTable.deleteRecord(stmt.conditions);
+		syncLog();
 	}
 
 	/**
@@ -1535,6 +1888,7 @@ public class Backend
 			}
 		}
 		fakeTable.updateRecord(conditions, vars, values);
+		syncLog();
 	}
 
 	/**
@@ -43,7 +43,12 @@ public class Connection implements java.sql.Connection
 
 	public Connection(String path) throws java.sql.SQLException
 	{
-		connect(path);
+		connect(path, null);
+	}
+
+	public Connection(String path, java.util.Properties options) throws java.sql.SQLException
+	{
+		connect(path, options);
 	}
 
 	public String getOldPath()
@@ -51,7 +56,7 @@ public class Connection implements java.sql.Connection
 		return oldPath;
 	}
 
-	private void connect(String path) throws java.sql.SQLException
+	private void connect(String path, java.util.Properties options) throws java.sql.SQLException
 	{
 		try
 		{
@@ -83,6 +88,17 @@ public class Connection implements java.sql.Connection
 			if (backend == null)
 			{
 				backend = new Backend();
+				if ((options != null) && (options.getProperty("COMMIT") != null))
+				{
+					try
+					{
+						backend.setCommitWindow(Integer.parseInt(options.getProperty("COMMIT")));
+					}
+					catch (final NumberFormatException e)
+					{
+						throw new java.sql.SQLException("bad COMMIT option: " + options.getProperty("COMMIT"));
+					}
+				}
 				if (!backend.open(new java.io.File(path)))
 					throw new java.sql.SQLException("unable to open database");
 				databases.put(path, new WeakReference(backend));
@@ -421,7 +437,7 @@ public class Connection implements java.sql.Connection
 
 	public void setSchema(String schema) throws SQLException
 	{
-		connect(schema);
+		connect(schema, null);
 	}
 
 	public String getSchema() throws SQLException
@@ -44,7 +44,7 @@ public class Driver implements java.sql.Driver
 		final Properties p = parseUrl(url, info);
 		if (p == null)
 			return null;
-		return new Connection(p.getProperty("PATH"));
+		return new Connection(p.getProperty("PATH"), p);
 	}
 
 	@Override
@@ -83,10 +83,21 @@ public class Driver implements java.sql.Driver
 			return null;
 
 		String path = url.substring(12);
+		final Properties result = new Properties(defaults);
+		final int x = path.indexOf(';');
+		if (x >= 0)
+		{
+			for (final String option : path.substring(x + 1).split(";"))
+			{
+				final int y = option.indexOf('=');
+				if (y > 0)
+					result.put(option.substring(0, y).trim().toUpperCase(), option.substring(y + 1).trim());
+			}
+			path = path.substring(0, x);
+		}
 		if ((path.length() > 0) && (!path.endsWith(java.io.File.separator)))
 			path = path + java.io.File.separator;
 
-		final Properties result = new Properties(defaults);
 		result.put("PATH", path.replace('/', java.io.File.separatorChar));
 
 		return result;
@@ -38,6 +38,7 @@ public class ResultSet implements java.sql.ResultSet
 	private java.util.Iterator<Backend.RecordInfo>	iter;
 	private int										currentRow	= 0;
 	private final List<FakeCondition>				conditions;
+	private final List<FakeCondition>				indexConditions;
 	private final ComparableValue[]					values;
 	private final int[]								showCols;
 	private final int[]								orderByKeyDexCols;
@@ -64,7 +65,11 @@ public class ResultSet implements java.sql.ResultSet
 		this.showCols = showCols;
 		this.orderByKeyDexCols = orderByKeyDexCols;
 		this.orderByConditions = orderByConditions;
-		this.iter = table.indexIterator(this.orderByKeyDexCols, this.orderByConditions);
+		boolean counting = false;
+		for (final int showCol : showCols)
+			counting = counting || (showCol == FakeColumn.INDEX_COUNT);
+		this.indexConditions = counting ? null : conditions;
+		this.iter = table.indexIterator(this.orderByKeyDexCols, this.orderByConditions, this.indexConditions);
 		try
 		{
 			this.closeStatementOnClose = stmt.isCloseOnCompletion();
@@ -1317,7 +1322,7 @@ public class ResultSet implements java.sql.ResultSet
 	{
 		if (fakeTable == null)
 			throw new java.sql.SQLException();
-		iter = fakeTable.indexIterator(this.orderByKeyDexCols, this.orderByConditions);
+		iter = fakeTable.indexIterator(this.orderByKeyDexCols, this.orderByConditions, this.indexConditions);
 		currentRow = 0;
 	}
 
@@ -0,0 +1,544 @@
+package com.planet_ink.fakedb;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/*
+   Copyright 2026 agent
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+	   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+/**
+ * The write-ahead log for a fakedb database.  Every statement that changes a
+ * table hands its file writes over as one group.  Groups are appended to the
+ * log file and made durable together with a single fsync, and only then
+ * written into the table data files, which are fsynced at checkpoints, after
+ * which the log is emptied.  On open, any complete groups still in the log
+ * are written into the data files again, so a crash at any point leaves each
+ * statement either entirely done or entirely undone.
+ *
+ * With a commit window of 0, each statement waits until its group is durable,
+ * though statements from several threads share an fsync.  With a commit window,
+ * statements return at once, and a background thread commits every window
+ * milliseconds, so a crash can lose up to that many milliseconds of statements.
+ * If a commit ever fails, the log stops accepting work: the error is printed
+ * to System.err, and every later statement fails with it.
+ *
+ * The background thread also checkpoints, and compacts tables that have too
+ * many deleted records.
+ *
+ * @author agent
+ */
+public class WriteAheadLog
+{
+	public static final String	LOG_FILENAME		= "fakedb.wal";
+	public static final int		CHECKPOINT_BYTES	= 1024 * 1024;
+	public static final long	CHECKPOINT_MILLIS	= 10000;
+	public static final long	IDLE_SLEEP_MILLIS	= 1000;
+
+	private final Backend					backend;
+	private final File						basePath;
+	private final File						logFile;
+	private final int						commitWindow;
+	private final Object					commitLock		= new Object();
+	private final LinkedList<PendingGroup>	pending			= new LinkedList<PendingGroup>();
+	private final Set<Backend.FakeTable>	dirtyTables		= new HashSet<Backend.FakeTable>();
+	private final List<Backend.FakeTable>	tables			= new Vector<Backend.FakeTable>();
+	private RandomAccessFile				out				= null;
+	private long							logBytes		= 0;
+	private long							lastCheckpoint	= System.currentTimeMillis();
+	private long							submittedSeq	= 0;
+	private volatile long					durableSeq		= 0;
+	private volatile boolean				running			= false;
+	private volatile IOException			failure			= null;
+	private Thread							worker			= null;
+
+	/**
+	 * One write into a table data file.
+	 */
+	protected static class PendingWrite
+	{
+		final Backend.FakeTable		table;
+		final int					offset;
+		final byte[]				data;
+		final Backend.RecordInfo	info;
+
+		PendingWrite(Backend.FakeTable table, int offset, byte[] data, Backend.RecordInfo info)
+		{
+			this.table = table;
+			this.offset = offset;
+			this.data = data;
+			this.info = info;
+		}
+	}
+
+	/**
+	 * All of the writes of one statement, which are committed together or not at all.
+	 */
+	protected static class PendingGroup
+	{
+		final long					seq;
+		final List<PendingWrite>	writes;
+
+		PendingGroup(long seq, List<PendingWrite> writes)
+		{
+			this.seq = seq;
+			this.writes = writes;
+		}
+	}
+
+	/**
+	 * Creates the write-ahead log for the database in the given directory.  The
+	 * database is kept reachable while the background thread runs, so that it
+	 * is never collected and opened again on the same files before it is closed.
+	 *
+	 * @param backend the database this is the log of
+	 * @param basePath the database directory
+	 * @param commitWindow 0 to wait for every statement, or the ms between commits
+	 */
+	public WriteAheadLog(Backend backend, File basePath, int commitWindow)
+	{
+		this.backend = backend;
+		this.basePath = basePath;
+		this.logFile = new File(basePath, LOG_FILENAME);
+		this.commitWindow = (commitWindow < 0) ? 0 : commitWindow;
+	}
+
+	/**
+	 * Returns the file that holds the data of the given table.
+	 *
+	 * @param basePath the database directory
+	 * @param tableName the table name
+	 * @return the data file
+	 */
+	public static File getDataFile(File basePath, String tableName)
+	{
+		return new File(basePath, "fakedb.data." + tableName);
+	}
+
+	/**
+	 * Writes every complete group left in the log into the table data files,
+	 * fsyncs them, and empties the log.  A group cut short by a crash, or
+	 * anything after it, is ignored.  Must be called before any table is opened.
+	 *
+	 * @return the number of groups replayed
+	 * @throws IOException a file error
+	 */
+	public int recover() throws IOException
+	{
+		int replayed = 0;
+		if (logFile.exists() && (logFile.length() > 0))
+		{
+			final Map<String, RandomAccessFile> files = new HashMap<String, RandomAccessFile>();
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)));
+			try
+			{
+				long remaining = logFile.length();
+				final CRC32 crc = new CRC32();
+				while (remaining >= 4)
+				{
+					final int size = in.readInt();
+					remaining -= 4;
+					if ((size <= 0) || (size + 8 > remaining))
+						break;
+					final byte[] payload = new byte[size];
+					in.readFully(payload);
+					final long checksum = in.readLong();
+					remaining -= (size + 8);
+					crc.reset();
+					crc.update(payload, 0, payload.length);
+					if (crc.getValue() != checksum)
+						break;
+					final DataInputStream group = new DataInputStream(new ByteArrayInputStream(payload));
+					final int numWrites = group.readInt();
+					for (int w = 0; w < numWrites; w++)
+					{
+						final String tableName = group.readUTF();
+						final int offset = group.readInt();
+						final byte[] data = new byte[group.readInt()];
+						group.readFully(data);
+						RandomAccessFile file = files.get(tableName);
+						if (file == null)
+						{
+							final File dataFile = getDataFile(basePath, tableName);
+							Backend.FakeTable.recoverCompaction(dataFile);
+							file = new RandomAccessFile(dataFile, "rw");
+							files.put(tableName, file);
+						}
+						file.seek(offset);
+						file.write(data);
+					}
+					replayed++;
+				}
+			}
+			catch (final EOFException e)
+			{
+			}
+			finally
+			{
+				in.close();
+				for (final RandomAccessFile file : files.values())
+				{
+					file.getFD().sync();
+					file.close();
+				}
+			}
+			if (replayed > 0)
+				System.err.println("WriteAheadLog: replayed " + replayed + " statements from " + logFile.getPath());
+		}
+		out = new RandomAccessFile(logFile, "rw");
+		out.setLength(0);
+		out.getFD().sync();
+		logBytes = 0;
+		return replayed;
+	}
+
+	/**
+	 * Adds a table to the list of those the background thread checks for compaction.
+	 *
+	 * @param table the opened table
+	 */
+	public void register(Backend.FakeTable table)
+	{
+		tables.add(table);
+	}
+
+	/**
+	 * Starts the background thread that commits, checkpoints and compacts.
+	 */
+	public synchronized void start()
+	{
+		if (worker != null)
+			return;
+		running = true;
+		worker = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				runWorker();
+			}
+		}, "FakeDB-WAL-" + basePath.getName() + "-" + Integer.toHexString(System.identityHashCode(backend)));
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Queues the writes of one statement as a group.  Must be called while holding
+	 * the lock of the table being written.
+	 *
+	 * @param writes the writes of the statement
+	 */
+	public void submit(List<PendingWrite> writes)
+	{
+		if (writes.size() == 0)
+			return;
+		for (final PendingWrite write : writes)
+			write.table.pendingWrites++;
+		synchronized (pending)
+		{
+			pending.add(new PendingGroup(++submittedSeq, writes));
+		}
+	}
+
+	/**
+	 * Unless there is a commit window, waits until every statement queued so far
+	 * is durable, committing them if no other thread is already doing so.
+	 * Must not be called while holding any table lock.
+	 *
+	 * @throws IOException a file error while committing
+	 */
+	public void sync() throws IOException
+	{
+		checkFailure();
+		if (commitWindow > 0)
+			return;
+		final long seq;
+		synchronized (pending)
+		{
+			seq = submittedSeq;
+		}
+		while (durableSeq < seq)
+		{
+			synchronized (commitLock)
+			{
+				if (durableSeq < seq)
+					commitOrFail();
+			}
+			checkFailure();
+		}
+	}
+
+	/**
+	 * Throws the error of an earlier failed commit, if there was one.
+	 *
+	 * @throws IOException the error of the failed commit
+	 */
+	private void checkFailure() throws IOException
+	{
+		final IOException failure = this.failure;
+		if (failure != null)
+			throw new IOException("an earlier commit failed: " + failure.getMessage(), failure);
+	}
+
+	/**
+	 * Commits, remembering the error if the commit fails, since the statements
+	 * in the failed batch are then neither durable nor queued any longer.  Must
+	 * be called while holding the commit lock.
+	 *
+	 * @throws IOException a file error
+	 */
+	private void commitOrFail() throws IOException
+	{
+		if (failure != null)
+			return;
+		try
+		{
+			commit();
+		}
+		catch (final IOException e)
+		{
+			failure = e;
+			System.err.println("WriteAheadLog: commit to " + logFile.getPath() + " failed, no further statements will succeed: " + e.getMessage());
+			throw e;
+		}
+	}
+
+	/**
+	 * Appends every queued group to the log with one fsync, then writes them
+	 * into the table data files.  Must be called while holding the commit lock.
+	 *
+	 * @throws IOException a file error
+	 */
+	private void commit() throws IOException
+	{
+		final List<PendingGroup> batch;
+		synchronized (pending)
+		{
+			if (pending.size() == 0)
+				return;
+			batch = new ArrayList<PendingGroup>(pending);
+			pending.clear();
+		}
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream data = new DataOutputStream(bytes);
+		final ByteArrayOutputStream groupBytes = new ByteArrayOutputStream();
+		final DataOutputStream group = new DataOutputStream(groupBytes);
+		final CRC32 crc = new CRC32();
+		for (final PendingGroup G : batch)
+		{
+			groupBytes.reset();
+			group.writeInt(G.writes.size());
+			for (final PendingWrite write : G.writes)
+			{
+				group.writeUTF(write.table.getName());
+				group.writeInt(write.offset);
+				group.writeInt(write.data.length);
+				group.write(write.data);
+			}
+			group.flush();
+			final byte[] payload = groupBytes.toByteArray();
+			crc.reset();
+			crc.update(payload, 0, payload.length);
+			data.writeInt(payload.length);
+			data.write(payload);
+			data.writeLong(crc.getValue());
+		}
+		data.flush();
+		try
+		{
+			out.seek(logBytes);
+			out.write(bytes.toByteArray());
+			out.getFD().sync();
+		}
+		catch (final IOException e)
+		{
+			synchronized (pending)
+			{
+				pending.addAll(0, batch);
+			}
+			throw e;
+		}
+		logBytes += bytes.size();
+		for (final PendingGroup G : batch)
+		{
+			for (final PendingWrite write : G.writes)
+			{
+				write.table.applyWrite(write.offset, write.data, write.info);
+				dirtyTables.add(write.table);
+			}
+		}
+		durableSeq = batch.get(batch.size() - 1).seq;
+		if (logBytes > CHECKPOINT_BYTES)
+			checkpoint();
+	}
+
+	/**
+	 * Fsyncs every table data file written since the last checkpoint, and
+	 * then empties the log.  Must be called while holding the commit lock.
+	 *
+	 * @throws IOException a file error
+	 */
+	private void checkpoint() throws IOException
+	{
+		for (final Backend.FakeTable table : dirtyTables)
+			table.syncFile();
+		dirtyTables.clear();
+		if (logBytes > 0)
+		{
+			out.setLength(0);
+			out.getFD().sync();
+			logBytes = 0;
+		}
+		lastCheckpoint = System.currentTimeMillis();
+	}
+
+	/**
+	 * Commits everything queued, checkpoints, and rewrites each table that has
+	 * too many deleted records, unless more writes were queued for it meanwhile.
+	 * Must be called while holding the commit lock.
+	 *
+	 * @throws IOException a file error
+	 */
+	private void compactTables() throws IOException
+	{
+		for (final Backend.FakeTable table : tables.toArray(new Backend.FakeTable[0]))
+		{
+			if (!table.needsCompaction())
+				continue;
+			commit();
+			checkpoint();
+			synchronized (table)
+			{
+				if (table.needsCompaction() && (table.pendingWrites == 0))
+				{
+					table.compact();
+					syncDirectory();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fsyncs the database directory, so that the renames done by a compaction
+	 * are durable before any later commit refers to the new record offsets.
+	 * Not every platform can do this, in which case it is skipped.
+	 */
+	private void syncDirectory()
+	{
+		try
+		{
+			final FileChannel dir = FileChannel.open(basePath.toPath(), StandardOpenOption.READ);
+			try
+			{
+				dir.force(true);
+			}
+			finally
+			{
+				dir.close();
+			}
+		}
+		catch (final IOException e)
+		{
+		}
+	}
+
+	/**
+	 * The background thread loop, which commits every commit window, checkpoints
+	 * once the log has sat for a while, and compacts tables.
+	 */
+	private void runWorker()
+	{
+		while (running)
+		{
+			try
+			{
+				Thread.sleep((commitWindow > 0) ? commitWindow : IDLE_SLEEP_MILLIS);
+			}
+			catch (final InterruptedException e)
+			{
+			}
+			if (!running)
+				break;
+			try
+			{
+				synchronized (commitLock)
+				{
+					if (failure != null)
+						break;
+					commitOrFail();
+					if ((logBytes > 0) && (System.currentTimeMillis() - lastCheckpoint > CHECKPOINT_MILLIS))
+						checkpoint();
+					compactTables();
+				}
+			}
+			catch (final IOException e)
+			{
+				if (failure == null)
+					System.err.println("WriteAheadLog: checkpoint of " + basePath.getPath() + " failed: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Stops the background thread, commits everything queued, checkpoints,
+	 * and closes the log.
+	 */
+	public void close()
+	{
+		final Thread worker;
+		synchronized (this)
+		{
+			running = false;
+			worker = this.worker;
+			this.worker = null;
+		}
+		if (worker != null)
+		{
+			worker.interrupt();
+			try
+			{
+				worker.join(IDLE_SLEEP_MILLIS * 5);
+			}
+			catch (final InterruptedException e)
+			{
+			}
+		}
+		synchronized (commitLock)
+		{
+			try
+			{
+				if (out != null)
+				{
+					// after a failed commit, later groups must not be written without the lost ones
+					if (failure == null)
+					{
+						commit();
+						checkpoint();
+					}
+					out.close();
+				}
+			}
+			catch (final IOException e)
+			{
+				e.printStackTrace();
+			}
+			out = null;
+			tables.clear();
+		}
+	}
+}
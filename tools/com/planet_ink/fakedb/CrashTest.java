@@ -0,0 +1,219 @@
+package com.planet_ink.fakedb;
+
+import java.io.*;
+import java.util.*;
+
+/*
+   Copyright 2026 agent
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+	   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+/**
+ * A crash test for the write-ahead log.  It lives under tools, outside of the
+ * source tree the mud is built and packaged from, so it is compiled and run
+ * on its own, from the coffeemud directory, after the mud has been compiled:
+ *
+ * javac -cp . -d tools tools/com/planet_ink/fakedb/CrashTest.java
+ * java -cp .:tools com.planet_ink.fakedb.CrashTest [trials] [connection options]
+ *
+ * Each trial starts a child java process that fills a test table, and then
+ * updates every row in rounds, printing the number of each round after every
+ * statement in it has returned.  The child is killed at a random moment, and
+ * the table is opened again and checked.  Every row must be present and whole,
+ * and all rows must be from the same round or two neighboring ones.  Without a
+ * ;COMMIT= option, no round the child printed may be lost.  With one, rounds
+ * inside the last commit window may be lost.
+ *
+ * @author agent
+ */
+public class CrashTest
+{
+	private static final int	ROWS	= 100;
+
+	public static void main(String[] args) throws Exception
+	{
+		if ((args.length > 0) && args[0].equals("child"))
+		{
+			child(new File(args[1]), (args.length > 2) ? args[2] : "");
+			return;
+		}
+		final int trials = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+		final String options = (args.length > 1) ? args[1] : "";
+		final boolean synced = options.toUpperCase().indexOf("COMMIT=") < 0;
+		int failures = 0;
+		for (int t = 1; t <= trials; t++)
+		{
+			final File dir = createTempDir();
+			try
+			{
+				final int acknowledged = runChild(dir, options);
+				final String problem = verify(dir, synced ? acknowledged : 0);
+				System.out.println("trial " + t + ": killed after round " + acknowledged + ": " + ((problem == null) ? "OK" : problem));
+				if (problem != null)
+					failures++;
+			}
+			finally
+			{
+				deleteDir(dir);
+			}
+		}
+		System.out.println(failures + " of " + trials + " trials failed.");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	private static java.sql.Connection open(File dir, String options) throws Exception
+	{
+		Class.forName("com.planet_ink.fakedb.Driver");
+		return java.sql.DriverManager.getConnection("jdbc:fakedb:" + dir.getPath() + options);
+	}
+
+	private static File createTempDir() throws IOException
+	{
+		final File dir = File.createTempFile("fakedbcrash", "");
+		if ((!dir.delete()) || (!dir.mkdirs()))
+			throw new IOException("unable to create " + dir.getPath());
+		final PrintWriter schema = new PrintWriter(new File(dir, "fakedb.schema"));
+		try
+		{
+			schema.print("T\nID string KEY\nGRP string INDEX NULL\nNUM integer INDEX NULL\nTXT string NULL\n\n");
+		}
+		finally
+		{
+			schema.close();
+		}
+		return dir;
+	}
+
+	private static void deleteDir(File dir)
+	{
+		final File[] files = dir.listFiles();
+		if (files != null)
+		{
+			for (final File F : files)
+				F.delete();
+		}
+		dir.delete();
+	}
+
+	/**
+	 * Starts the child process, kills it 1.5 to 3.5 seconds after its table is
+	 * filled, and returns the last round it reported finished.
+	 */
+	private static int runChild(File dir, String options) throws Exception
+	{
+		final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		final ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), CrashTest.class.getName(), "child", dir.getPath(), options);
+		builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		final Process child = builder.start();
+		final int[] lastRound = new int[] { 0 };
+		final Object ready = new Object();
+		final Thread reader = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					final BufferedReader in = new BufferedReader(new InputStreamReader(child.getInputStream()));
+					String line;
+					while ((line = in.readLine()) != null)
+					{
+						synchronized (ready)
+						{
+							if (line.startsWith("round "))
+								lastRound[0] = Integer.parseInt(line.substring(6).trim());
+							ready.notifyAll();
+						}
+					}
+				}
+				catch (final IOException e)
+				{
+				}
+			}
+		});
+		reader.start();
+		synchronized (ready)
+		{
+			ready.wait(30000);
+		}
+		Thread.sleep(1500 + new Random().nextInt(2000));
+		child.destroyForcibly();
+		child.waitFor();
+		reader.join();
+		synchronized (ready)
+		{
+			return lastRound[0];
+		}
+	}
+
+	private static void child(File dir, String options) throws Exception
+	{
+		final java.sql.Connection conn = open(dir, options);
+		final java.sql.Statement stmt = conn.createStatement();
+		for (int i = 0; i < ROWS; i++)
+			stmt.executeUpdate("INSERT INTO T (ID,GRP,NUM,TXT) VALUES ('k" + i + "','g',0,'v0')");
+		System.out.println("ready");
+		System.out.flush();
+		for (int round = 1;; round++)
+		{
+			final StringBuilder text = new StringBuilder("v" + round);
+			for (int x = 0; x < (round % 7); x++)
+				text.append("xx");
+			for (int i = 0; i < ROWS; i++)
+				stmt.executeUpdate("UPDATE T SET NUM=" + round + ", TXT='" + text + "' WHERE ID='k" + i + "'");
+			System.out.println("round " + round);
+			System.out.flush();
+		}
+	}
+
+	/**
+	 * Opens the table the child left behind, and returns what is wrong with it,
+	 * or null if it is consistent and has every round up to the given one.
+	 */
+	private static String verify(File dir, int minRound) throws Exception
+	{
+		final java.sql.Connection conn = open(dir, "");
+		try
+		{
+			final java.sql.ResultSet R = conn.createStatement().executeQuery("SELECT * FROM T");
+			final Set<String> ids = new HashSet<String>();
+			int rows = 0;
+			int lo = Integer.MAX_VALUE;
+			int hi = 0;
+			while (R.next())
+			{
+				rows++;
+				ids.add(R.getString("ID"));
+				final int num = R.getInt("NUM");
+				lo = Math.min(lo, num);
+				hi = Math.max(hi, num);
+				final String text = R.getString("TXT");
+				if ((text == null) || (!text.startsWith("v" + num)) || (text.length() != ("v" + num).length() + 2 * (num % 7)))
+					return "row " + R.getString("ID") + " is torn: " + num + " " + text;
+			}
+			if ((rows != ROWS) || (ids.size() != ROWS))
+				return rows + " rows, " + ids.size() + " distinct, instead of " + ROWS;
+			if (hi - lo > 1)
+				return "rows span rounds " + lo + " to " + hi;
+			if (lo < minRound)
+				return "round " + minRound + " was acknowledged, but rows go back to round " + lo;
+			return null;
+		}
+		finally
+		{
+			conn.close();
+		}
+	}
+}